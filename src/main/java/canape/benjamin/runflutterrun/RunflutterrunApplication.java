@@ -7,11 +7,13 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 @SpringBootApplication
 @Import(SecurityConfig.class)
-@ComponentScan(basePackages = {"canape.benjamin.runflutterrun.controllers", "canape.benjamin.runflutterrun.security", "canape.benjamin.runflutterrun.services", "canape.benjamin.runflutterrun.repositories", "canape.benjamin.runflutterrun.model", "canape.benjamin.runflutterrun.dto"})
+@EnableScheduling
+@ComponentScan(basePackages = {"canape.benjamin.runflutterrun.controllers", "canape.benjamin.runflutterrun.security", "canape.benjamin.runflutterrun.services", "canape.benjamin.runflutterrun.repositories", "canape.benjamin.runflutterrun.model", "canape.benjamin.runflutterrun.dto", "canape.benjamin.runflutterrun.jobs", "canape.benjamin.runflutterrun.storage"})
 public class RunflutterrunApplication {
 
     /**
@@ -3,9 +3,18 @@ package canape.benjamin.runflutterrun.controllers;
 import canape.benjamin.runflutterrun.dto.*;
 import canape.benjamin.runflutterrun.model.Activity;
 import canape.benjamin.runflutterrun.model.ActivityComment;
+import canape.benjamin.runflutterrun.model.ActivityCommentItem;
+import canape.benjamin.runflutterrun.model.ActivityFeedItem;
 import canape.benjamin.runflutterrun.model.Location;
+import canape.benjamin.runflutterrun.model.PersonalRecord;
+import canape.benjamin.runflutterrun.model.enums.StatsPeriod;
+import canape.benjamin.runflutterrun.security.AuthenticatedUser;
 import canape.benjamin.runflutterrun.services.IActivityCommentService;
 import canape.benjamin.runflutterrun.services.IActivityService;
+import canape.benjamin.runflutterrun.services.IBestEffortService;
+import canape.benjamin.runflutterrun.services.IStatsService;
+import canape.benjamin.runflutterrun.tracks.TrackUpload;
+import canape.benjamin.runflutterrun.tracks.TrackUploadReader;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
@@ -13,15 +22,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.webjars.NotFoundException;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.io.InputStream;
+import java.time.Year;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -40,23 +52,27 @@ public class ActivityController {
     @Autowired
     private IActivityCommentService activityCommentService;
 
+    @Autowired
+    private IBestEffortService bestEffortService;
+
+    @Autowired
+    private IStatsService statsService;
+
     /**
      * Retrieves all activities.
      *
-     * @param token The authorization token.
+     * @param principal The authenticated user.
      * @param page The page to display
      * @param size The number of elements to get
      * @return A Page of ActivityDto objects.
      */
     @GetMapping(value = "/all", produces = "application/json")
-    public ResponseEntity<Page<ActivityDto>> getAll(@RequestHeader(name = "Authorization") String token,
+    public ResponseEntity<Page<ActivityDto>> getAll(@AuthenticationPrincipal AuthenticatedUser principal,
                                                     @RequestParam(defaultValue = "0") int page,
                                                     @RequestParam(defaultValue = "10") int size) {
         try {
             Pageable pageable = PageRequest.of(page, size, Sort.by("startDatetime").descending());
-            Page<ActivityDto> activities = activityCrudService.getAll(token, pageable).map(
-                    activity -> convertToDTO(token, activity, false, true)
-            );
+            Page<ActivityDto> activities = convertToDTOPage(activityCrudService.getAll(principal, pageable));
             return ResponseEntity.ok().body(activities);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
@@ -67,20 +83,18 @@ public class ActivityController {
     /**
      * Retrieves my activities and my friends.
      *
-     * @param token The authorization token
+     * @param principal The authenticated user.
      * @param page The page to display
      * @param size The number of elements to get
      * @return A Page of ActivityDto objects.
      */
     @GetMapping(value = "/friends", produces = "application/json")
-    public ResponseEntity<Page<ActivityDto>> getMineAndMyFriends(@RequestHeader(name = "Authorization") String token,
+    public ResponseEntity<Page<ActivityDto>> getMineAndMyFriends(@AuthenticationPrincipal AuthenticatedUser principal,
                                                                  @RequestParam(defaultValue = "0") int page,
                                                                  @RequestParam(defaultValue = "10") int size) {
         try {
             Pageable pageable = PageRequest.of(page, size, Sort.by("startDatetime").descending());
-            Page<ActivityDto> activities = activityCrudService.getMineAndMyFriends(token, pageable).map(
-                    activity -> convertToDTO(token, activity, false, true)
-            );
+            Page<ActivityDto> activities = convertToDTOPage(activityCrudService.getMineAndMyFriends(principal, pageable));
             return ResponseEntity.ok().body(activities);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
@@ -91,26 +105,205 @@ public class ActivityController {
      * Retrieves the activities of a specific user
      *
      * @param id The ID of the user.
-     * @param token The authorization token.
+     * @param principal The authenticated user.
      * @param page The page to display
      * @param size The number of elements to get
      * @return A Page of ActivityDto objects.
      */
     @GetMapping(value = "/user/{id}", produces = "application/json")
-    public ResponseEntity<Page<ActivityDto>> getByUser(@PathVariable long id, @RequestHeader(name = "Authorization") String token,
+    public ResponseEntity<Page<ActivityDto>> getByUser(@PathVariable long id, @AuthenticationPrincipal AuthenticatedUser principal,
                                                        @RequestParam(defaultValue = "0") int page,
                                                        @RequestParam(defaultValue = "10") int size) {
         try {
             Pageable pageable = PageRequest.of(page, size, Sort.by("startDatetime").descending());
-            Page<ActivityDto> activities = activityCrudService.getByUser(token, id, pageable).map(
-                    activity -> convertToDTO(token, activity, false, true)
-            );
+            Page<ActivityDto> activities = convertToDTOPage(activityCrudService.getByUser(principal, id, pageable));
             return ResponseEntity.ok().body(activities);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
 
+    /**
+     * Retrieves all activities after a cursor, without counting them.
+     *
+     * @param principal The authenticated user.
+     * @param cursor The cursor returned with the previous page, none for the first page
+     * @param size The number of elements to get
+     * @return A CursorPageDto of ActivityDto objects.
+     */
+    @GetMapping(value = "/all/cursor", produces = "application/json")
+    public ResponseEntity<CursorPageDto<ActivityDto>> getAllByCursor(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                                     @RequestParam(required = false) String cursor,
+                                                                     @RequestParam(defaultValue = "10") int size) {
+        try {
+            Slice<ActivityFeedItem> activities = activityCrudService.getAll(principal, ActivityCursor.decode(cursor), size);
+            return ResponseEntity.ok().body(convertToCursorPage(activities));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    /**
+     * Retrieves my activities and my friends after a cursor, without counting them.
+     *
+     * @param principal The authenticated user.
+     * @param cursor The cursor returned with the previous page, none for the first page
+     * @param size The number of elements to get
+     * @return A CursorPageDto of ActivityDto objects.
+     */
+    @GetMapping(value = "/friends/cursor", produces = "application/json")
+    public ResponseEntity<CursorPageDto<ActivityDto>> getMineAndMyFriendsByCursor(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                                                  @RequestParam(required = false) String cursor,
+                                                                                  @RequestParam(defaultValue = "10") int size) {
+        try {
+            Slice<ActivityFeedItem> activities = activityCrudService.getMineAndMyFriends(principal, ActivityCursor.decode(cursor), size);
+            return ResponseEntity.ok().body(convertToCursorPage(activities));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    /**
+     * Retrieves the activities of a specific user after a cursor, without counting them.
+     *
+     * @param id The ID of the user.
+     * @param principal The authenticated user.
+     * @param cursor The cursor returned with the previous page, none for the first page
+     * @param size The number of elements to get
+     * @return A CursorPageDto of ActivityDto objects.
+     */
+    @GetMapping(value = "/user/{id}/cursor", produces = "application/json")
+    public ResponseEntity<CursorPageDto<ActivityDto>> getByUserByCursor(@PathVariable long id, @AuthenticationPrincipal AuthenticatedUser principal,
+                                                                        @RequestParam(required = false) String cursor,
+                                                                        @RequestParam(defaultValue = "10") int size) {
+        try {
+            Slice<ActivityFeedItem> activities = activityCrudService.getByUser(principal, id, ActivityCursor.decode(cursor), size);
+            return ResponseEntity.ok().body(convertToCursorPage(activities));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    /**
+     * Retrieves a page of my activities, without counting them.
+     *
+     * @param principal The authenticated user.
+     * @param page The page to display
+     * @param size The number of elements to get
+     * @param withTotal Whether to add the approximate number of activities
+     * @return A SliceDto of ActivityDto objects.
+     */
+    @GetMapping(value = "/all/slice", produces = "application/json")
+    public ResponseEntity<SliceDto<ActivityDto>> getAllSlice(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                             @RequestParam(defaultValue = "0") int page,
+                                                             @RequestParam(defaultValue = "10") int size,
+                                                             @RequestParam(defaultValue = "false") boolean withTotal) {
+        try {
+            Pageable pageable = PageRequest.of(page, size, Sort.by("startDatetime").descending());
+            Slice<ActivityFeedItem> activities = activityCrudService.getAllSlice(principal, pageable);
+            Long total = withTotal ? activityCrudService.getApproximateActivityCount(principal.getId()) : null;
+            return ResponseEntity.ok().body(convertToSliceDto(activities, total));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    /**
+     * Retrieves a page of my activities and my friends, without counting them.
+     *
+     * @param principal The authenticated user.
+     * @param page The page to display
+     * @param size The number of elements to get
+     * @param withTotal Whether to add the approximate number of activities
+     * @return A SliceDto of ActivityDto objects.
+     */
+    @GetMapping(value = "/friends/slice", produces = "application/json")
+    public ResponseEntity<SliceDto<ActivityDto>> getMineAndMyFriendsSlice(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                                          @RequestParam(defaultValue = "0") int page,
+                                                                          @RequestParam(defaultValue = "10") int size,
+                                                                          @RequestParam(defaultValue = "false") boolean withTotal) {
+        try {
+            Pageable pageable = PageRequest.of(page, size, Sort.by("startDatetime").descending());
+            Slice<ActivityFeedItem> activities = activityCrudService.getMineAndMyFriendsSlice(principal, pageable);
+            Long total = withTotal ? activityCrudService.getApproximateMineAndMyFriendsCount(principal.getId()) : null;
+            return ResponseEntity.ok().body(convertToSliceDto(activities, total));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    /**
+     * Retrieves a page of the activities of a specific user, without counting them.
+     *
+     * @param id The ID of the user.
+     * @param principal The authenticated user.
+     * @param page The page to display
+     * @param size The number of elements to get
+     * @param withTotal Whether to add the approximate number of activities
+     * @return A SliceDto of ActivityDto objects.
+     */
+    @GetMapping(value = "/user/{id}/slice", produces = "application/json")
+    public ResponseEntity<SliceDto<ActivityDto>> getByUserSlice(@PathVariable long id, @AuthenticationPrincipal AuthenticatedUser principal,
+                                                                @RequestParam(defaultValue = "0") int page,
+                                                                @RequestParam(defaultValue = "10") int size,
+                                                                @RequestParam(defaultValue = "false") boolean withTotal) {
+        try {
+            Pageable pageable = PageRequest.of(page, size, Sort.by("startDatetime").descending());
+            Slice<ActivityFeedItem> activities = activityCrudService.getByUserSlice(principal, id, pageable);
+            Long total = withTotal ? activityCrudService.getApproximateActivityCount(id) : null;
+            return ResponseEntity.ok().body(convertToSliceDto(activities, total));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    /**
+     * Retrieves my personal records.
+     *
+     * @param token The authorization token.
+     * @return A list of PersonalRecordDto objects, by type of activity then distance.
+     */
+    @GetMapping(value = "/records", produces = "application/json")
+    public ResponseEntity<List<PersonalRecordDto>> getPersonalRecords(@RequestHeader(name = "Authorization") String token) {
+        try {
+            List<PersonalRecordDto> records = bestEffortService.getPersonalRecords(token).stream()
+                    .map(this::convertRecordToDTO)
+                    .collect(Collectors.toList());
+            return ResponseEntity.ok().body(records);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    /**
+     * Retrieves my statistics over a year.
+     *
+     * @param token The authorization token.
+     * @param period The period of the buckets: WEEK, MONTH or YEAR
+     * @param year The year, the current one if none
+     * @return A list of ActivityStatsDto objects, by start of period then type of activity.
+     */
+    @GetMapping(value = "/stats", produces = "application/json")
+    public ResponseEntity<List<ActivityStatsDto>> getStats(@RequestHeader(name = "Authorization") String token,
+                                                           @RequestParam(defaultValue = "MONTH") StatsPeriod period,
+                                                           @RequestParam(required = false) Integer year) {
+        try {
+            int statsYear = year == null ? Year.now().getValue() : year;
+            List<ActivityStatsDto> stats = statsService.getStats(token, period, statsYear).stream()
+                    .map(activityStats -> modelMapper.map(activityStats, ActivityStatsDto.class))
+                    .collect(Collectors.toList());
+            return ResponseEntity.ok().body(stats);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
     /**
      * Creates a new activity.
      *
@@ -127,6 +320,26 @@ public class ActivityController {
         }
     }
 
+    /**
+     * Creates a new activity from a streamed upload, its locations being read and encoded on the fly
+     * instead of being bound to DTOs.
+     *
+     * @param body  The ActivityDto JSON body.
+     * @param token The authorization token.
+     * @return The created ActivityDto object.
+     */
+    @PostMapping(value = "/stream", consumes = "application/json")
+    public ResponseEntity<ActivityDto> createFromStream(InputStream body, @RequestHeader(name = "Authorization") String token) {
+        try {
+            TrackUpload upload = TrackUploadReader.read(body);
+            return ResponseEntity.ok().body(convertToDTO(token, activityCrudService.create(upload, token)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
     /**
      * Retrieves an activity by its ID.
      *
@@ -277,6 +490,10 @@ public class ActivityController {
 
     private Activity convertToEntity(ActivityDto activityDto) {
         Activity activity = modelMapper.map(activityDto, Activity.class);
+        // Computed from the track by the server, whatever the client sent
+        activity.setMovingTime(null);
+        activity.setMaxSpeed(null);
+        activity.setSplits(null);
 
         List<Location> locations = activityDto.getLocations().stream()
                 .map(locationDto -> {
@@ -295,6 +512,16 @@ public class ActivityController {
         return convertToDTO(token, activity, false, true);
     }
 
+    private PersonalRecordDto convertRecordToDTO(PersonalRecord personalRecord) {
+        PersonalRecordDto recordDto = new PersonalRecordDto();
+        recordDto.setType(personalRecord.getType());
+        recordDto.setDistance(personalRecord.getDistance());
+        recordDto.setDuration(personalRecord.getDuration());
+        recordDto.setActivityId(personalRecord.getActivity().getId());
+        recordDto.setStartDatetime(personalRecord.getActivity().getStartDatetime());
+        return recordDto;
+    }
+
     private ActivityCommentDto convertCommentToDTO(ActivityComment activityComment) {
         UserSearchDto userDto = modelMapper.map(activityComment.getUser(), UserSearchDto.class);
         ActivityCommentDto commentDto = modelMapper.map(activityComment, ActivityCommentDto.class);
@@ -304,9 +531,85 @@ public class ActivityController {
     }
 
     private ActivityDto convertToDTO(String token, Activity activity, Boolean fetchLocations, Boolean fetchComments) {
+        long count = activityCrudService.getActivityLikeCount(activity.getId());
+        boolean hasCurrentUserLiked = activityCrudService.currentUserLiked(activity.getId(), token);
+        return convertToDTO(activity, fetchLocations, fetchComments, count, hasCurrentUserLiked);
+    }
+
+    private Page<ActivityDto> convertToDTOPage(Page<ActivityFeedItem> activities) {
+        return activities.map(feedConverter(activities.getContent()));
+    }
+
+    private SliceDto<ActivityDto> convertToSliceDto(Slice<ActivityFeedItem> activities, Long total) {
+        List<ActivityDto> content = activities.map(feedConverter(activities.getContent())).getContent();
+        return new SliceDto<>(content, activities.getNumber(), activities.getSize(), activities.hasNext(), total);
+    }
+
+    private CursorPageDto<ActivityDto> convertToCursorPage(Slice<ActivityFeedItem> activities) {
+        List<ActivityDto> content = activities.map(feedConverter(activities.getContent())).getContent();
+
+        String nextCursor = null;
+        if (activities.hasNext()) {
+            ActivityFeedItem last = activities.getContent().get(activities.getNumberOfElements() - 1);
+            nextCursor = ActivityCursor.after(last).encode();
+        }
+        return new CursorPageDto<>(content, nextCursor, activities.hasNext());
+    }
+
+    /**
+     * Builds the converter of a feed page, fetching the comments of the whole page at once.
+     * The activities already hold their author and likes, so that no entity is loaded nor mapped.
+     */
+    private Function<ActivityFeedItem, ActivityDto> feedConverter(List<ActivityFeedItem> activities) {
+        List<Long> ids = activities.stream().map(ActivityFeedItem::getId).collect(Collectors.toList());
+        Map<Long, List<ActivityCommentItem>> comments = activityCommentService.getCommentItems(ids);
+
+        return activity -> convertFeedItemToDTO(activity, comments.getOrDefault(activity.getId(), Collections.emptyList()));
+    }
+
+    private ActivityDto convertFeedItemToDTO(ActivityFeedItem activity, List<ActivityCommentItem> comments) {
+        ActivityDto activityDto = new ActivityDto();
+        activityDto.setId(activity.getId());
+        activityDto.setType(activity.getType());
+        activityDto.setStartDatetime(activity.getStartDatetime());
+        activityDto.setEndDatetime(activity.getEndDatetime());
+        activityDto.setDistance(activity.getDistance());
+        activityDto.setSpeed(activity.getSpeed());
+        activityDto.setMovingTime(activity.getMovingTime());
+        activityDto.setMaxSpeed(activity.getMaxSpeed());
+        activityDto.setSplits(activity.getSplits());
+        activityDto.setTime(Math.abs(activity.getEndDatetime().getTime() - activity.getStartDatetime().getTime()));
+        activityDto.setLocations(new ArrayList<>());
+        activityDto.setUser(convertToUserDTO(activity.getUserId(), activity.getUsername(), activity.getFirstname(), activity.getLastname()));
+        activityDto.setLikesCount(activity.getLikesCount());
+        activityDto.setHasCurrentUserLiked(activity.isLikedByViewer());
+
+        List<ActivityCommentDto> commentDtos = new ArrayList<>(comments.size());
+        for (ActivityCommentItem comment : comments) {
+            ActivityCommentDto commentDto = new ActivityCommentDto();
+            commentDto.setId(comment.getId());
+            commentDto.setUser(convertToUserDTO(comment.getUserId(), comment.getUsername(), comment.getFirstname(), comment.getLastname()));
+            commentDto.setCreatedAt(comment.getCreatedAt());
+            commentDto.setContent(comment.getContent());
+            commentDtos.add(commentDto);
+        }
+        activityDto.setComments(Optional.of(commentDtos));
+        return activityDto;
+    }
+
+    private UserSearchDto convertToUserDTO(Long id, String username, String firstname, String lastname) {
+        UserSearchDto userDto = new UserSearchDto();
+        userDto.setId(id);
+        userDto.setUsername(username);
+        userDto.setFirstname(firstname);
+        userDto.setLastname(lastname);
+        return userDto;
+    }
+
+    private ActivityDto convertToDTO(Activity activity, Boolean fetchLocations, Boolean fetchComments, long likesCount, boolean hasCurrentUserLiked) {
         List<LocationDto> locations = new ArrayList<>();
         if (fetchLocations) {
-            locations = activity.getLocations().stream()
+            locations = activityCrudService.getLocations(activity).stream()
                     .map(location -> modelMapper.map(location, LocationDto.class))
                     .collect(Collectors.toList());
         }
@@ -322,11 +625,7 @@ public class ActivityController {
         long time = Math.abs(activity.getEndDatetime().getTime() - activity.getStartDatetime().getTime());
         activityDto.setTime(time);
         activityDto.setLocations(locations);
-
-        long count = activityCrudService.getActivityLikeCount(activity.getId());
-        activityDto.setLikesCount(count);
-
-        boolean hasCurrentUserLiked = activityCrudService.currentUserLiked(activity.getId(), token);
+        activityDto.setLikesCount(likesCount);
         activityDto.setHasCurrentUserLiked(hasCurrentUserLiked);
         activityDto.setComments(Optional.of(comments));
 
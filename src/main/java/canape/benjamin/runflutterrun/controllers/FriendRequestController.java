@@ -1,22 +1,33 @@
 package canape.benjamin.runflutterrun.controllers;
 
 import canape.benjamin.runflutterrun.dto.FriendRequestDto;
+import canape.benjamin.runflutterrun.dto.FriendSuggestionDto;
+import canape.benjamin.runflutterrun.dto.SliceDto;
 import canape.benjamin.runflutterrun.dto.UserSearchDto;
 import canape.benjamin.runflutterrun.model.FriendRequest;
+import canape.benjamin.runflutterrun.model.FriendSuggestionResult;
 import canape.benjamin.runflutterrun.model.User;
+import canape.benjamin.runflutterrun.model.enums.FriendRequestStatus;
+import canape.benjamin.runflutterrun.security.AuthenticatedUser;
 import canape.benjamin.runflutterrun.services.IFriendRequestService;
+import canape.benjamin.runflutterrun.services.IFriendSuggestionService;
 import canape.benjamin.runflutterrun.services.IUserService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -48,6 +59,12 @@ public class FriendRequestController {
     @Autowired
     private IFriendRequestService friendRequestService;
 
+    /**
+     * Service for suggesting friends.
+     */
+    @Autowired
+    private IFriendSuggestionService friendSuggestionService;
+
     /**
      * Retrieves a list of pending friend requests for the authenticated user.
      *
@@ -70,6 +87,51 @@ public class FriendRequestController {
         }
     }
 
+    /**
+     * Retrieves a page of the pending friend requests for the authenticated user, without counting them.
+     *
+     * @param principal The authenticated user.
+     * @param page The page to display
+     * @param size The number of elements to get
+     * @param withTotal Whether to add the approximate number of pending friend requests
+     * @return A SliceDto of UserSearchDto representing users who have sent friend requests.
+     */
+    @GetMapping("/pending/slice")
+    public ResponseEntity<SliceDto<UserSearchDto>> getPendingFriendRequestSlice(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                                                @RequestParam(defaultValue = "0") int page,
+                                                                                @RequestParam(defaultValue = "10") int size,
+                                                                                @RequestParam(defaultValue = "false") boolean withTotal) {
+        try {
+            Slice<FriendRequest> requests = friendRequestService.getPendingFriendRequestSlice(principal.getId(), PageRequest.of(page, size));
+            List<UserSearchDto> content = requests.map(request -> convertToUserDTO(request.getSender())).getContent();
+            Long total = withTotal ? friendRequestService.getApproximatePendingFriendRequestCount(principal.getId()) : null;
+            return ResponseEntity.ok(new SliceDto<>(content, requests.getNumber(), requests.getSize(), requests.hasNext(), total));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    /**
+     * Retrieves the people the authenticated user may know: the friends of their friends, those sharing
+     * the most friends with them first.
+     *
+     * @param principal The authenticated user.
+     * @param size The maximum number of users to get
+     * @return A list of FriendSuggestionDto.
+     */
+    @GetMapping("/suggestions")
+    public ResponseEntity<List<FriendSuggestionDto>> getSuggestions(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                                    @RequestParam(defaultValue = "10") int size) {
+        try {
+            List<FriendSuggestionDto> suggestions = friendSuggestionService.getSuggestions(principal.getId(), size).stream()
+                    .map(this::convertToSuggestionDTO)
+                    .toList();
+            return ResponseEntity.ok(suggestions);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
     /**
      * Retrieves the status of a friend request sent to a specific user by the authenticated user.
      *
@@ -88,8 +150,30 @@ public class FriendRequestController {
         }
     }
 
+    /**
+     * Retrieves the status of the friend requests between the authenticated user and many users at once,
+     * such as the rows of a list of users.
+     *
+     * @param principal The authenticated user.
+     * @param userIds   The IDs of the users, at most 100.
+     * @return The status of the friend request with each of the users having one, by their ID.
+     */
+    @GetMapping("/statuses")
+    public ResponseEntity<Map<Long, FriendRequestStatus>> getStatuses(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                                      @RequestParam List<Long> userIds) {
+        try {
+            return ResponseEntity.ok(friendRequestService.getFriendRequestStatuses(principal.getId(), userIds));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
     /**
      * Sends a friend request to another user.
+     * When the two users send each other a request at the same time, the one losing the race on the unique pair
+     * of users is sent again, through the request now existing.
      *
      * @param token      The authorization token for the user sending the request.
      * @param receiverId The ID of the user to whom the friend request is being sent.
@@ -98,8 +182,13 @@ public class FriendRequestController {
     @PostMapping("/sendRequest")
     public ResponseEntity<Long> sendFriendRequest(@RequestHeader(name = "Authorization") String token, @RequestParam Long receiverId) {
         try {
-            Long requestId = friendRequestService.sendFriendRequest(token, receiverId).getId();
-            return ResponseEntity.status(HttpStatus.CREATED).body(requestId);
+            FriendRequest friendRequest;
+            try {
+                friendRequest = friendRequestService.sendFriendRequest(token, receiverId);
+            } catch (DataIntegrityViolationException e) {
+                friendRequest = friendRequestService.sendFriendRequest(token, receiverId);
+            }
+            return ResponseEntity.status(HttpStatus.CREATED).body(friendRequest.getId());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
@@ -173,4 +262,14 @@ public class FriendRequestController {
     private UserSearchDto convertToUserDTO(User entity) {
         return modelMapper.map(entity, UserSearchDto.class);
     }
+
+    private FriendSuggestionDto convertToSuggestionDTO(FriendSuggestionResult result) {
+        FriendSuggestionDto dto = new FriendSuggestionDto();
+        dto.setId(result.getId());
+        dto.setUsername(result.getUsername());
+        dto.setFirstname(result.getFirstname());
+        dto.setLastname(result.getLastname());
+        dto.setMutualFriendCount(result.getMutualFriendCount());
+        return dto;
+    }
 }
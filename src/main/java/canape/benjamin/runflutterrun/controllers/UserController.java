@@ -2,20 +2,33 @@ package canape.benjamin.runflutterrun.controllers;
 
 import canape.benjamin.runflutterrun.dto.*;
 import canape.benjamin.runflutterrun.model.User;
+import canape.benjamin.runflutterrun.model.UserSearchResult;
+import canape.benjamin.runflutterrun.model.enums.FriendRequestStatus;
+import canape.benjamin.runflutterrun.model.enums.ProfilePictureSize;
+import canape.benjamin.runflutterrun.security.AuthenticatedUser;
+import canape.benjamin.runflutterrun.services.IFriendRequestService;
+import canape.benjamin.runflutterrun.services.IProfilePictureService;
 import canape.benjamin.runflutterrun.services.IRefreshTokenService;
 import canape.benjamin.runflutterrun.services.IUserService;
+import canape.benjamin.runflutterrun.storage.BlobTooLargeException;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.webjars.NotFoundException;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -26,6 +39,8 @@ import java.util.stream.Collectors;
 @CrossOrigin(origins = "*", allowedHeaders = "*")
 public class UserController {
 
+    private static final int SEARCH_PAGE_SIZE = 20;
+
     @Autowired
     private ModelMapper modelMapper;
 
@@ -38,6 +53,12 @@ public class UserController {
     @Autowired
     private IRefreshTokenService refreshTokenService;
 
+    @Autowired
+    private IProfilePictureService profilePictureService;
+
+    @Autowired
+    private IFriendRequestService friendRequestService;
+
     /**
      * Creates a new user.
      *
@@ -123,23 +144,64 @@ public class UserController {
     }
 
     /**
-     * Retrieves users based on the search value
+     * Retrieves the users best matching the search value
      *
-     * @param token The authorization token.
-     * @return A list of ActivityDto objects.
+     * @param principal The authenticated user.
+     * @param searchText The text to search in the usernames, firstnames and lastnames.
+     * @param includeStatus Whether to embed the status of the friend request with each user found
+     * @return A list of UserSearchDto objects.
      */
     @GetMapping(value = "/private/user/search", produces = "application/json")
-    public ResponseEntity<List<UserSearchDto>> search(@RequestHeader(name = "Authorization") String token, @RequestParam String searchText) {
+    public ResponseEntity<List<UserSearchDto>> search(@AuthenticationPrincipal AuthenticatedUser principal, @RequestParam String searchText,
+                                                      @RequestParam(defaultValue = "false") boolean includeStatus) {
         try {
-            List<UserSearchDto> searchResults = userCrudService.search(token, searchText).stream()
+            List<UserSearchDto> searchResults = userCrudService.search(principal, searchText, UserSearchCursor.first(), SEARCH_PAGE_SIZE)
                     .map(this::convertToSearchDTO)
-                    .collect(Collectors.toList());
+                    .getContent();
+            if (includeStatus) {
+                addFriendRequestStatuses(principal, searchResults);
+            }
             return ResponseEntity.ok(searchResults);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
 
+    /**
+     * Retrieves the users matching the search value after a cursor, best matches first.
+     *
+     * @param principal The authenticated user.
+     * @param searchText The text to search in the usernames, firstnames and lastnames.
+     * @param cursor The cursor returned with the previous page, none for the first page
+     * @param size The number of elements to get
+     * @param includeStatus Whether to embed the status of the friend request with each user found
+     * @return A CursorPageDto of UserSearchDto objects.
+     */
+    @GetMapping(value = "/private/user/search/cursor", produces = "application/json")
+    public ResponseEntity<CursorPageDto<UserSearchDto>> searchByCursor(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                                       @RequestParam String searchText,
+                                                                       @RequestParam(required = false) String cursor,
+                                                                       @RequestParam(defaultValue = "20") int size,
+                                                                       @RequestParam(defaultValue = "false") boolean includeStatus) {
+        try {
+            Slice<UserSearchResult> results = userCrudService.search(principal, searchText, UserSearchCursor.decode(cursor), size);
+
+            String nextCursor = null;
+            if (results.hasNext()) {
+                nextCursor = UserSearchCursor.after(results.getContent().get(results.getNumberOfElements() - 1)).encode();
+            }
+            List<UserSearchDto> content = results.map(this::convertToSearchDTO).getContent();
+            if (includeStatus) {
+                addFriendRequestStatuses(principal, content);
+            }
+            return ResponseEntity.ok(new CursorPageDto<>(content, nextCursor, results.hasNext()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
     /**
      * Upload the profile picture for the current user
      *
@@ -148,10 +210,36 @@ public class UserController {
      */
     @PostMapping("/private/user/picture/upload")
     public ResponseEntity<String> uploadProfilePicture(@RequestHeader(name = "Authorization") String token, @RequestParam("file") MultipartFile file) throws IOException {
+        try (InputStream content = file.getInputStream()) {
+            profilePictureService.upload(token, content, file.getContentType());
+            return ResponseEntity.ok("Successfully uploaded file");
+        } catch (BlobTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body("The profile picture is too large");
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Failed to upload the profile picture");
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Internal server error");
+        }
+    }
+
+    /**
+     * Upload the profile picture for the current user, sent as the raw body of the request.
+     * The body is streamed to the disk as it arrives, without being parsed as a multipart request first.
+     *
+     * @param token The authorization token.
+     * @param contentType The content type of the picture.
+     * @param content The picture.
+     */
+    @PutMapping(value = "/private/user/picture", consumes = "image/*")
+    public ResponseEntity<String> putProfilePicture(@RequestHeader(name = "Authorization") String token,
+                                                    @RequestHeader(name = HttpHeaders.CONTENT_TYPE) String contentType,
+                                                    InputStream content) {
         try {
-            userCrudService.uploadProfilePicture(token, file);
+            profilePictureService.upload(token, content, contentType);
             return ResponseEntity.ok("Successfully uploaded file");
-        }  catch (IOException e) {
+        } catch (BlobTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body("The profile picture is too large");
+        } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Failed to upload the profile picture");
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Internal server error");
@@ -159,18 +247,28 @@ public class UserController {
     }
 
     /**
-     * Get the profile picture for a user whose id is passed in parameter
+     * Get the profile picture for a user whose id is passed in parameter.
+     * The picture is streamed from its file, can be requested by range, and is answered with 304 Not Modified
+     * when the client already has it.
      *
-     * @param id The id of the user
+     * @param id   The id of the user
+     * @param size The size of the picture: SMALL (64px), MEDIUM (256px) or ORIGINAL
      */
     @GetMapping("/user/picture/download/{id}")
-    public ResponseEntity<byte[]> downloadProfilePicture(@PathVariable String id) {
+    public ResponseEntity<Resource> downloadProfilePicture(@PathVariable String id,
+                                                           @RequestParam(defaultValue = "ORIGINAL") ProfilePictureSize size) {
         try {
-            Map<String, Object> picture = userCrudService.getProfilePicture(id);
-            MediaType mediaType = MediaType.parseMediaType((String) picture.get("contentType"));
-            return ResponseEntity.ok()
-                    .contentType(mediaType)
-                    .body((byte[]) picture.get("imageData"));
+            ProfilePictureDto picture = userCrudService.getProfilePicture(id, size);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(picture.getContentType() != null ? MediaType.parseMediaType(picture.getContentType()) : MediaType.APPLICATION_OCTET_STREAM)
+                    .cacheControl(CacheControl.noCache());
+            if (picture.getEntityTag() != null) {
+                response.eTag(picture.getEntityTag());
+            }
+            if (picture.getUpdatedAt() != null) {
+                response.lastModified(picture.getUpdatedAt());
+            }
+            return response.body(picture.getContent());
         } catch (NotFoundException e) {
             return ResponseEntity.notFound().build();
         } catch (Exception e) {
@@ -182,8 +280,22 @@ public class UserController {
         return modelMapper.map(userDto, User.class);
     }
 
-    private UserSearchDto convertToSearchDTO(User user) {
-        return modelMapper.map(user, UserSearchDto.class);
+    private UserSearchDto convertToSearchDTO(UserSearchResult result) {
+        UserSearchDto userDto = new UserSearchDto();
+        userDto.setId(result.getId());
+        userDto.setUsername(result.getUsername());
+        userDto.setFirstname(result.getFirstname());
+        userDto.setLastname(result.getLastname());
+        return userDto;
+    }
+
+    /**
+     * Set the status of the friend request with each user found, asking them all in a single query.
+     */
+    private void addFriendRequestStatuses(AuthenticatedUser principal, List<UserSearchDto> users) {
+        Map<Long, FriendRequestStatus> statuses = friendRequestService.getFriendRequestStatuses(principal.getId(),
+                users.stream().map(UserSearchDto::getId).toList());
+        users.forEach(user -> user.setFriendRequestStatus(statuses.get(user.getId())));
     }
 
     @ExceptionHandler(Exception.class)
@@ -0,0 +1,98 @@
+package canape.benjamin.runflutterrun.dto;
+
+import canape.benjamin.runflutterrun.model.ActivityFeedItem;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Position in an activity feed sorted by start datetime then id, both in descending order.
+ * It is exchanged with the client as an opaque token.
+ */
+@Getter
+@AllArgsConstructor
+public class ActivityCursor {
+
+    /**
+     * Start datetime placed after every activity, used to read the first page (9999-12-31).
+     */
+    private static final long FIRST_PAGE_START_DATETIME = 253402214400000L;
+
+    private static final String SEPARATOR = ":";
+
+    /**
+     * The start datetime of the last activity already returned.
+     */
+    private final Date startDatetime;
+
+    /**
+     * The id of the last activity already returned.
+     */
+    private final Long id;
+
+    /**
+     * Get the cursor pointing before the most recent activity.
+     *
+     * @return the cursor of the first page
+     */
+    public static ActivityCursor first() {
+        return new ActivityCursor(new Date(FIRST_PAGE_START_DATETIME), Long.MAX_VALUE);
+    }
+
+    /**
+     * Get the cursor pointing right after an activity.
+     *
+     * @param activity the last activity of a page
+     * @return the cursor of the next page
+     */
+    public static ActivityCursor after(ActivityFeedItem activity) {
+        return new ActivityCursor(activity.getStartDatetime(), activity.getId());
+    }
+
+    /**
+     * Check if the cursor points to the first page.
+     *
+     * @return true if no activity was read yet
+     */
+    public boolean isFirst() {
+        return id == Long.MAX_VALUE;
+    }
+
+    /**
+     * Decode a cursor token, a missing token pointing to the first page.
+     *
+     * @param token the token sent by the client
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static ActivityCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return first();
+        }
+
+        String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        String[] parts = decoded.split(SEPARATOR);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+
+        try {
+            return new ActivityCursor(new Date(Long.parseLong(parts[0])), Long.parseLong(parts[1]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+
+    /**
+     * Encode the cursor as an opaque token.
+     *
+     * @return the token to send to the client
+     */
+    public String encode() {
+        String raw = startDatetime.getTime() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -18,6 +18,9 @@ public class ActivityDto {
     private Date endDatetime;
     private Double distance;
     private Double speed;
+    private Long movingTime;
+    private Double maxSpeed;
+    private long[] splits;
     private long time;
     private List<LocationDto> locations;
     private UserSearchDto user;
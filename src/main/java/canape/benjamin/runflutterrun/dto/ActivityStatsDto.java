@@ -0,0 +1,20 @@
+package canape.benjamin.runflutterrun.dto;
+
+import canape.benjamin.runflutterrun.model.enums.ActivityType;
+import canape.benjamin.runflutterrun.model.enums.StatsPeriod;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * Data Transfer Object (DTO) for representing the statistics of a period.
+ */
+@Data
+public class ActivityStatsDto {
+    private StatsPeriod period;
+    private LocalDate periodStart;
+    private ActivityType type;
+    private double distance;
+    private long duration;
+    private long count;
+}
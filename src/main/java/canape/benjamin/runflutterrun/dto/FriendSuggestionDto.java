@@ -0,0 +1,15 @@
+package canape.benjamin.runflutterrun.dto;
+
+import lombok.Data;
+
+/**
+ * Data Transfer Object (DTO) for representing a user suggested as a friend.
+ */
+@Data
+public class FriendSuggestionDto {
+    private Long id;
+    private String firstname;
+    private String lastname;
+    private String username;
+    private int mutualFriendCount;
+}
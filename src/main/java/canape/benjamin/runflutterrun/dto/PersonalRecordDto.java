@@ -0,0 +1,19 @@
+package canape.benjamin.runflutterrun.dto;
+
+import canape.benjamin.runflutterrun.model.enums.ActivityType;
+import canape.benjamin.runflutterrun.model.enums.BestEffortDistance;
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * Data Transfer Object (DTO) for representing a personal record.
+ */
+@Data
+public class PersonalRecordDto {
+    private ActivityType type;
+    private BestEffortDistance distance;
+    private long duration;
+    private Long activityId;
+    private Date startDatetime;
+}
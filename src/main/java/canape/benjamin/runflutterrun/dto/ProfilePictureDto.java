@@ -0,0 +1,20 @@
+package canape.benjamin.runflutterrun.dto;
+
+import lombok.Data;
+import org.springframework.core.io.Resource;
+
+import java.time.Instant;
+
+/**
+ * Data Transfer Object (DTO) for representing a profile picture to download.
+ */
+@Data
+public class ProfilePictureDto {
+    private Resource content;
+    private String contentType;
+    /**
+     * The strong entity tag of the content, null for a picture not moved to the blob store yet.
+     */
+    private String entityTag;
+    private Instant updatedAt;
+}
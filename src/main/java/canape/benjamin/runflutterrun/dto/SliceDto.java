@@ -0,0 +1,27 @@
+package canape.benjamin.runflutterrun.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for representing a page read without counting the elements.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SliceDto<T> {
+    private List<T> content;
+    private int page;
+    private int size;
+    private boolean hasNext;
+
+    /**
+     * The approximate number of elements of all the pages, left out unless asked for.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long approximateTotal;
+}
@@ -0,0 +1,89 @@
+package canape.benjamin.runflutterrun.dto;
+
+import canape.benjamin.runflutterrun.model.UserSearchResult;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in user search results sorted by rank, username then id, all in ascending order.
+ * It is exchanged with the client as an opaque token.
+ */
+@Getter
+@AllArgsConstructor
+public class UserSearchCursor {
+
+    private static final String SEPARATOR = ":";
+
+    /**
+     * The rank of the last user already returned.
+     */
+    private final int rank;
+
+    /**
+     * The id of the last user already returned.
+     */
+    private final Long id;
+
+    /**
+     * The username of the last user already returned.
+     */
+    private final String username;
+
+    /**
+     * Get the cursor pointing before the best result.
+     *
+     * @return the cursor of the first page
+     */
+    public static UserSearchCursor first() {
+        return new UserSearchCursor(-1, 0L, "");
+    }
+
+    /**
+     * Get the cursor pointing right after a user.
+     *
+     * @param result the last user of a page
+     * @return the cursor of the next page
+     */
+    public static UserSearchCursor after(UserSearchResult result) {
+        return new UserSearchCursor(result.getRank(), result.getId(), result.getUsername());
+    }
+
+    /**
+     * Decode a cursor token, a missing token pointing to the first page.
+     *
+     * @param token the token sent by the client
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static UserSearchCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return first();
+        }
+
+        String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        // The username comes last, as it may contain the separator
+        String[] parts = decoded.split(SEPARATOR, 3);
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+
+        try {
+            return new UserSearchCursor(Integer.parseInt(parts[0]), Long.parseLong(parts[1]), parts[2]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+
+    /**
+     * Encode the cursor as an opaque token.
+     *
+     * @return the token to send to the client
+     */
+    public String encode() {
+        String raw = rank + SEPARATOR + id + SEPARATOR + username;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
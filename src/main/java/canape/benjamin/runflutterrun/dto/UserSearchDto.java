@@ -1,5 +1,7 @@
 package canape.benjamin.runflutterrun.dto;
 
+import canape.benjamin.runflutterrun.model.enums.FriendRequestStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
 /**
@@ -11,4 +13,10 @@ public class UserSearchDto {
     private String firstname;
     private String lastname;
     private String username;
+
+    /**
+     * The status of the friend request with the current user, left out unless asked for and existing.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private FriendRequestStatus friendRequestStatus;
 }
@@ -0,0 +1,21 @@
+package canape.benjamin.runflutterrun.graph;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A user suggested as a friend, with the number of friends they share with the user.
+ */
+@Getter
+@AllArgsConstructor
+public final class FriendCandidate {
+    /**
+     * The id of the user suggested.
+     */
+    private final long userId;
+
+    /**
+     * The number of mutual friends.
+     */
+    private final int mutualFriendCount;
+}
@@ -0,0 +1,197 @@
+package canape.benjamin.runflutterrun.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The friendships of all the users, kept in memory as the set of the friend ids of each user.
+ * <p>
+ * Reads never block. A change replaces the sets of the two users concerned, each one atomically, so that
+ * a reader may briefly see a friendship on one side only.
+ */
+public class FriendshipGraph {
+
+    private static final Comparator<FriendCandidate> BEST_FIRST = Comparator
+            .comparingInt(FriendCandidate::getMutualFriendCount).reversed()
+            .thenComparingLong(FriendCandidate::getUserId);
+
+    private final Map<Long, LongHashSet> friends;
+
+    private FriendshipGraph(Map<Long, LongHashSet> friends) {
+        this.friends = friends;
+    }
+
+    /**
+     * Create a graph without any friendship.
+     *
+     * @return the graph
+     */
+    public static FriendshipGraph empty() {
+        return new FriendshipGraph(new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Check whether two users are friends.
+     *
+     * @param userId      the id of a user
+     * @param otherUserId the id of the other user
+     * @return true if they are friends, false otherwise
+     */
+    public boolean areFriends(long userId, long otherUserId) {
+        return getFriends(userId).contains(otherUserId);
+    }
+
+    /**
+     * Get the friends of a user.
+     *
+     * @param userId the id of the user
+     * @return the ids of the friends of the user
+     */
+    public LongHashSet getFriends(long userId) {
+        return friends.getOrDefault(userId, LongHashSet.EMPTY);
+    }
+
+    /**
+     * Record that two users became friends, or stopped being friends.
+     *
+     * @param userId      the id of a user
+     * @param otherUserId the id of the other user
+     * @param areFriends  whether they are now friends
+     */
+    public void setFriends(long userId, long otherUserId, boolean areFriends) {
+        if (areFriends) {
+            add(userId, otherUserId);
+            add(otherUserId, userId);
+        } else {
+            remove(userId, otherUserId);
+            remove(otherUserId, userId);
+        }
+    }
+
+    /**
+     * Replace all the friends of a user, on both sides of each friendship.
+     *
+     * @param userId    the id of the user
+     * @param friendIds the ids of the friends of the user
+     */
+    public void replaceFriends(long userId, long[] friendIds) {
+        LongHashSet newFriends = LongHashSet.of(friendIds, friendIds.length);
+        LongHashSet oldFriends = newFriends.isEmpty() ? friends.remove(userId) : friends.put(userId, newFriends);
+        if (oldFriends != null) {
+            oldFriends.forEach(friendId -> {
+                if (!newFriends.contains(friendId)) {
+                    remove(friendId, userId);
+                }
+            });
+        }
+        newFriends.forEach(friendId -> add(friendId, userId));
+    }
+
+    /**
+     * Find the friends of the friends of a user, best first.
+     * The candidates are scored by their number of mutual friends with the user, ties going to the lowest id,
+     * and only the best ones are kept, in a heap bounded by the limit.
+     *
+     * @param userId      the id of the user
+     * @param excludedIds the ids of the users never to suggest, besides the user and their friends
+     * @param limit       the maximum number of candidates
+     * @return the candidates, sorted by decreasing number of mutual friends
+     */
+    public List<FriendCandidate> suggestFriends(long userId, LongHashSet excludedIds, int limit) {
+        LongHashSet userFriends = getFriends(userId);
+        MutualFriendCounter counter = new MutualFriendCounter();
+        userFriends.forEach(friendId -> getFriends(friendId).forEach(candidateId -> {
+            if (candidateId != userId && !userFriends.contains(candidateId) && !excludedIds.contains(candidateId)) {
+                counter.increment(candidateId);
+            }
+        }));
+
+        PriorityQueue<FriendCandidate> best = new PriorityQueue<>(Math.max(1, limit), BEST_FIRST.reversed());
+        counter.forEach((candidateId, mutualFriendCount) -> {
+            if (best.size() < limit) {
+                best.add(new FriendCandidate(candidateId, mutualFriendCount));
+            } else if (limit > 0 && isBetter(candidateId, mutualFriendCount, best.peek())) {
+                best.poll();
+                best.add(new FriendCandidate(candidateId, mutualFriendCount));
+            }
+        });
+
+        List<FriendCandidate> candidates = new ArrayList<>(best);
+        candidates.sort(BEST_FIRST);
+        return candidates;
+    }
+
+    /**
+     * Get the number of users with at least one friend.
+     *
+     * @return the number of users
+     */
+    public int getUserCount() {
+        return friends.size();
+    }
+
+    private static boolean isBetter(long candidateId, int mutualFriendCount, FriendCandidate other) {
+        return mutualFriendCount > other.getMutualFriendCount()
+                || (mutualFriendCount == other.getMutualFriendCount() && candidateId < other.getUserId());
+    }
+
+    private void add(long userId, long friendId) {
+        friends.compute(userId, (id, set) -> (set == null ? LongHashSet.EMPTY : set).with(friendId));
+    }
+
+    private void remove(long userId, long friendId) {
+        friends.computeIfPresent(userId, (id, set) -> {
+            LongHashSet remaining = set.without(friendId);
+            return remaining.isEmpty() ? null : remaining;
+        });
+    }
+
+    /**
+     * Builds a graph from many friendships at once, growing plain arrays rather than copying the immutable sets.
+     */
+    public static class Builder {
+        private final Map<Long, GrowingSet> friends = new HashMap<>();
+
+        /**
+         * Add a friendship.
+         *
+         * @param userId      the id of a user
+         * @param otherUserId the id of the other user
+         * @return this builder
+         */
+        public Builder add(long userId, long otherUserId) {
+            friends.computeIfAbsent(userId, id -> new GrowingSet()).add(otherUserId);
+            friends.computeIfAbsent(otherUserId, id -> new GrowingSet()).add(userId);
+            return this;
+        }
+
+        /**
+         * Build the graph of the friendships added.
+         *
+         * @return the graph
+         */
+        public FriendshipGraph build() {
+            Map<Long, LongHashSet> sets = new ConcurrentHashMap<>(Math.max(16, friends.size() * 4 / 3 + 1));
+            friends.forEach((userId, set) -> sets.put(userId, LongHashSet.of(set.ids, set.count)));
+            return new FriendshipGraph(sets);
+        }
+    }
+
+    private static class GrowingSet {
+        private long[] ids = new long[4];
+        private int count;
+
+        private void add(long id) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+            }
+            ids[count++] = id;
+        }
+    }
+}
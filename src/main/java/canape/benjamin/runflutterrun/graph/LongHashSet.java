@@ -0,0 +1,204 @@
+package canape.benjamin.runflutterrun.graph;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * An immutable set of longs, stored unboxed in an open addressing table at most half full.
+ * <p>
+ * Adding or removing a value returns a new set, so that a set can be read by any number of threads
+ * while another one replaces it.
+ */
+public final class LongHashSet {
+
+    /**
+     * The set without any value.
+     */
+    public static final LongHashSet EMPTY = new LongHashSet(new long[0], false, 0);
+
+    /**
+     * The marker of the free slots, the value 0 itself being recorded aside.
+     */
+    private static final long FREE = 0L;
+
+    private final long[] slots;
+    private final boolean containsFree;
+    private final int size;
+
+    private LongHashSet(long[] slots, boolean containsFree, int size) {
+        this.slots = slots;
+        this.containsFree = containsFree;
+        this.size = size;
+    }
+
+    /**
+     * Create a set of the first values of an array, duplicates being ignored.
+     *
+     * @param values the values
+     * @param count  the number of values to read
+     * @return the set
+     */
+    public static LongHashSet of(long[] values, int count) {
+        if (count == 0) {
+            return EMPTY;
+        }
+
+        long[] slots = new long[capacityFor(count)];
+        boolean containsFree = false;
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            long value = values[i];
+            if (value == FREE) {
+                if (!containsFree) {
+                    containsFree = true;
+                    size++;
+                }
+            } else if (insert(slots, value)) {
+                size++;
+            }
+        }
+        return new LongHashSet(slots, containsFree, size);
+    }
+
+    /**
+     * Check whether the set contains a value.
+     *
+     * @param value the value
+     * @return true if the set contains the value, false otherwise
+     */
+    public boolean contains(long value) {
+        if (value == FREE) {
+            return containsFree;
+        }
+        if (slots.length == 0) {
+            return false;
+        }
+
+        int mask = slots.length - 1;
+        for (int i = indexOf(value, mask); ; i = (i + 1) & mask) {
+            long slot = slots[i];
+            if (slot == value) {
+                return true;
+            }
+            if (slot == FREE) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Get a set with a value added.
+     *
+     * @param value the value
+     * @return this set if it already contains the value, a new set otherwise
+     */
+    public LongHashSet with(long value) {
+        if (contains(value)) {
+            return this;
+        }
+
+        long[] values = Arrays.copyOf(toArray(), size + 1);
+        values[size] = value;
+        return of(values, values.length);
+    }
+
+    /**
+     * Get a set with a value removed.
+     *
+     * @param value the value
+     * @return this set if it does not contain the value, a new set otherwise
+     */
+    public LongHashSet without(long value) {
+        if (!contains(value)) {
+            return this;
+        }
+
+        long[] values = new long[size - 1];
+        int count = 0;
+        for (long other : toArray()) {
+            if (other != value) {
+                values[count++] = other;
+            }
+        }
+        return of(values, count);
+    }
+
+    /**
+     * Get the number of values.
+     *
+     * @return the number of values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check whether the set has no value.
+     *
+     * @return true if the set is empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Call an action with each value, in no particular order.
+     *
+     * @param action the action
+     */
+    public void forEach(LongConsumer action) {
+        if (containsFree) {
+            action.accept(FREE);
+        }
+        for (long slot : slots) {
+            if (slot != FREE) {
+                action.accept(slot);
+            }
+        }
+    }
+
+    /**
+     * Copy the values into an array, in no particular order.
+     *
+     * @return the values
+     */
+    public long[] toArray() {
+        long[] values = new long[size];
+        int count = 0;
+        if (containsFree) {
+            values[count++] = FREE;
+        }
+        for (long slot : slots) {
+            if (slot != FREE) {
+                values[count++] = slot;
+            }
+        }
+        return values;
+    }
+
+    private static boolean insert(long[] slots, long value) {
+        int mask = slots.length - 1;
+        for (int i = indexOf(value, mask); ; i = (i + 1) & mask) {
+            long slot = slots[i];
+            if (slot == value) {
+                return false;
+            }
+            if (slot == FREE) {
+                slots[i] = value;
+                return true;
+            }
+        }
+    }
+
+    private static int indexOf(long value, int mask) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * Get the smallest power of two able to hold a number of values while staying at most half full.
+     */
+    private static int capacityFor(int count) {
+        return Math.max(2, Integer.highestOneBit(count * 2 - 1) << 1);
+    }
+}
@@ -0,0 +1,89 @@
+package canape.benjamin.runflutterrun.graph;
+
+/**
+ * Counts the mutual friends of the candidates met while walking the friends of the friends of a user,
+ * in an open addressing table of unboxed ids and counts growing as needed.
+ */
+class MutualFriendCounter {
+
+    private static final long FREE = 0L;
+
+    private long[] ids = new long[64];
+    private int[] counts = new int[64];
+    private int freeCount;
+    private int size;
+
+    /**
+     * Count one more mutual friend of a candidate.
+     *
+     * @param id the id of the candidate
+     */
+    void increment(long id) {
+        if (id == FREE) {
+            freeCount++;
+            return;
+        }
+
+        int mask = ids.length - 1;
+        int i = indexOf(id, mask);
+        while (ids[i] != FREE && ids[i] != id) {
+            i = (i + 1) & mask;
+        }
+        if (ids[i] == FREE) {
+            ids[i] = id;
+            if (++size * 2 > ids.length) {
+                counts[i] = 1;
+                grow();
+                return;
+            }
+        }
+        counts[i]++;
+    }
+
+    /**
+     * Call an action with each candidate and its number of mutual friends, in no particular order.
+     *
+     * @param action the action
+     */
+    void forEach(CandidateConsumer action) {
+        if (freeCount > 0) {
+            action.accept(FREE, freeCount);
+        }
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] != FREE) {
+                action.accept(ids[i], counts[i]);
+            }
+        }
+    }
+
+    private void grow() {
+        long[] oldIds = ids;
+        int[] oldCounts = counts;
+        ids = new long[oldIds.length * 2];
+        counts = new int[oldIds.length * 2];
+        int mask = ids.length - 1;
+        for (int j = 0; j < oldIds.length; j++) {
+            if (oldIds[j] != FREE) {
+                int i = indexOf(oldIds[j], mask);
+                while (ids[i] != FREE) {
+                    i = (i + 1) & mask;
+                }
+                ids[i] = oldIds[j];
+                counts[i] = oldCounts[j];
+            }
+        }
+    }
+
+    private static int indexOf(long id, int mask) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * Receives a candidate and its number of mutual friends.
+     */
+    @FunctionalInterface
+    interface CandidateConsumer {
+        void accept(long id, int mutualFriendCount);
+    }
+}
@@ -0,0 +1,34 @@
+package canape.benjamin.runflutterrun.jobs;
+
+import canape.benjamin.runflutterrun.services.IFriendSuggestionService;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Refreshes the friend suggestions of the users around the friend requests which changed.
+ */
+@Component
+@AllArgsConstructor
+public class FriendSuggestionJob {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FriendSuggestionJob.class);
+
+    private final IFriendSuggestionService friendSuggestionService;
+
+    /**
+     * Refresh the suggestions scheduled since the last run, scheduling again those which failed.
+     */
+    @Scheduled(fixedDelayString = "${spring.friends.suggestions.delay:10000}")
+    public void refreshScheduledSuggestions() {
+        for (Long userId : friendSuggestionService.drainScheduledRefreshes()) {
+            try {
+                friendSuggestionService.refresh(userId);
+            } catch (Exception e) {
+                friendSuggestionService.scheduleRefresh(userId);
+                LOGGER.error("FriendSuggestionJob | refreshScheduledSuggestions | Cannot refresh suggestions of user {}: {}", userId, e.getMessage());
+            }
+        }
+    }
+}
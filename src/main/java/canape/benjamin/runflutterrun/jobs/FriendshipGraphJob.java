@@ -0,0 +1,34 @@
+package canape.benjamin.runflutterrun.jobs;
+
+import canape.benjamin.runflutterrun.services.IFriendshipGraphService;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the friendships in memory in line with those changed by the other nodes, loading them all at startup
+ * and again whenever the changes may have been missed.
+ */
+@Component
+@AllArgsConstructor
+public class FriendshipGraphJob {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FriendshipGraphJob.class);
+
+    private final IFriendshipGraphService friendshipGraphService;
+
+    /**
+     * Apply the friendship changes notified since the last run.
+     */
+    @Scheduled(fixedDelayString = "${spring.friends.graph.listen.delay:1000}")
+    public void listen() {
+        try {
+            if (friendshipGraphService.listen()) {
+                friendshipGraphService.load();
+            }
+        } catch (Exception e) {
+            LOGGER.error("FriendshipGraphJob | listen | Cannot synchronize friendships: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package canape.benjamin.runflutterrun.jobs;
+
+import canape.benjamin.runflutterrun.services.IUserService;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the profile pictures still stored in the user rows to the blob store, batch by batch.
+ */
+@Component
+@AllArgsConstructor
+public class ProfilePictureMigrationJob {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProfilePictureMigrationJob.class);
+
+    private static final int BATCH_SIZE = 20;
+
+    private final IUserService userService;
+
+    /**
+     * Migrate the profile pictures left in the user rows, one transaction per batch.
+     */
+    @Scheduled(fixedDelayString = "${spring.pictures.migration.delay:60000}")
+    public void migrateProfilePictures() {
+        int total = 0;
+        try {
+            int migrated;
+            do {
+                migrated = userService.migrateProfilePictures(BATCH_SIZE);
+                total += migrated;
+            } while (migrated == BATCH_SIZE);
+        } catch (Exception e) {
+            LOGGER.error("ProfilePictureMigrationJob | migrateProfilePictures | Cannot migrate profile pictures: {}", e.getMessage());
+        }
+
+        if (total > 0) {
+            LOGGER.info("Profile pictures of {} users moved to the blob store", total);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package canape.benjamin.runflutterrun.jobs;
+
+import canape.benjamin.runflutterrun.services.IUserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Deletes from the blob store the profile pictures left unused for a grace period, batch by batch.
+ */
+@Component
+public class ProfilePictureSweepJob {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProfilePictureSweepJob.class);
+
+    private static final int BATCH_SIZE = 50;
+
+    private final IUserService userService;
+    private final Duration gracePeriod;
+
+    public ProfilePictureSweepJob(IUserService userService, Environment env) {
+        this.userService = userService;
+        this.gracePeriod = env.getProperty("spring.pictures.sweep.grace-period", Duration.class, Duration.ofHours(1));
+    }
+
+    /**
+     * Delete a batch of the unused profile pictures, those stored again lately being kept for a later run.
+     */
+    @Scheduled(fixedDelayString = "${spring.pictures.sweep.delay:600000}")
+    public void deleteUnusedProfilePictures() {
+        try {
+            int deleted = userService.deleteUnusedProfilePictures(gracePeriod, BATCH_SIZE);
+            if (deleted > 0) {
+                LOGGER.info("{} unused profile pictures deleted from the blob store", deleted);
+            }
+        } catch (Exception e) {
+            LOGGER.error("ProfilePictureSweepJob | deleteUnusedProfilePictures | Cannot delete unused profile pictures: {}", e.getMessage());
+        }
+    }
+}
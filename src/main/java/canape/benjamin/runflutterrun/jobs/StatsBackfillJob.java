@@ -0,0 +1,42 @@
+package canape.benjamin.runflutterrun.jobs;
+
+import canape.benjamin.runflutterrun.services.IStatsService;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Computes the statistics of the users whose activities predate them, batch by batch.
+ */
+@Component
+@AllArgsConstructor
+public class StatsBackfillJob {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatsBackfillJob.class);
+
+    private static final int BATCH_SIZE = 50;
+
+    private final IStatsService statsService;
+
+    /**
+     * Backfill the statistics of the users left without, one transaction per batch.
+     */
+    @Scheduled(fixedDelayString = "${spring.stats.backfill.delay:60000}")
+    public void backfill() {
+        int total = 0;
+        try {
+            int processed;
+            do {
+                processed = statsService.backfill(BATCH_SIZE);
+                total += processed;
+            } while (processed == BATCH_SIZE);
+        } catch (Exception e) {
+            LOGGER.error("StatsBackfillJob | backfill | Cannot backfill statistics: {}", e.getMessage());
+        }
+
+        if (total > 0) {
+            LOGGER.info("Statistics of {} users backfilled", total);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package canape.benjamin.runflutterrun.jobs;
+
+import canape.benjamin.runflutterrun.services.ITimelineService;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rebuilds the timelines of the users whose friendships changed, repairing the entries an activity
+ * created concurrently with the friendship change could have missed.
+ */
+@Component
+@AllArgsConstructor
+public class TimelineRebuildJob {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimelineRebuildJob.class);
+
+    private final ITimelineService timelineService;
+
+    /**
+     * Rebuild the timelines scheduled since the last run, scheduling again those which failed.
+     */
+    @Scheduled(fixedDelayString = "${spring.timeline.rebuild.delay:10000}")
+    public void rebuildScheduledTimelines() {
+        for (Long userId : timelineService.drainScheduledRebuilds()) {
+            try {
+                timelineService.rebuild(userId);
+            } catch (Exception e) {
+                timelineService.scheduleRebuild(userId);
+                LOGGER.error("TimelineRebuildJob | rebuildScheduledTimelines | Cannot rebuild timeline of user {}: {}", userId, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package canape.benjamin.runflutterrun.jobs;
+
+import canape.benjamin.runflutterrun.services.ITokenRevocationService;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the revoked tokens of this node in line with those revoked by the other nodes.
+ */
+@Component
+@AllArgsConstructor
+public class TokenRevocationSyncJob {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TokenRevocationSyncJob.class);
+
+    private final ITokenRevocationService tokenRevocationService;
+
+    /**
+     * Load the tokens revoked and not yet expired while the application starts, before it serves any request.
+     * A failure stops the startup rather than letting revoked tokens in.
+     */
+    @PostConstruct
+    public void load() {
+        int loaded = tokenRevocationService.sync();
+        LOGGER.info("{} revoked tokens loaded", loaded);
+    }
+
+    /**
+     * Synchronize the revoked tokens with those revoked since the last synchronization.
+     */
+    @Scheduled(fixedDelayString = "${spring.tokens.revocation.sync.delay:5000}")
+    public void sync() {
+        try {
+            tokenRevocationService.sync();
+        } catch (Exception e) {
+            LOGGER.error("TokenRevocationSyncJob | sync | Cannot synchronize revoked tokens: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package canape.benjamin.runflutterrun.jobs;
+
+import canape.benjamin.runflutterrun.services.ITrackService;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the locations still stored one row per point into encoded activity tracks, batch by batch.
+ */
+@Component
+@AllArgsConstructor
+public class TrackMigrationJob {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrackMigrationJob.class);
+
+    private static final int BATCH_SIZE = 50;
+
+    private final ITrackService trackService;
+
+    /**
+     * Migrate the activities left in the location table, one transaction per batch.
+     */
+    @Scheduled(fixedDelayString = "${spring.tracks.migration.delay:60000}")
+    public void migrateLocations() {
+        int total = 0;
+        try {
+            int migrated;
+            do {
+                migrated = trackService.migrateLocations(BATCH_SIZE);
+                total += migrated;
+            } while (migrated == BATCH_SIZE);
+        } catch (Exception e) {
+            LOGGER.error("TrackMigrationJob | migrateLocations | Cannot migrate locations: {}", e.getMessage());
+        }
+
+        if (total > 0) {
+            LOGGER.info("Locations of {} activities migrated to tracks", total);
+        }
+    }
+}
@@ -10,7 +10,9 @@ import java.util.Date;
 import java.util.List;
 
 @Entity
-@Table(name = "activity")
+@Table(name = "activity", indexes = {
+        @Index(name = "idx_activity_user_start_datetime", columnList = "user_id, startDatetime DESC, id DESC")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -54,6 +56,25 @@ public class Activity extends AbstractEntity {
     @Column(name = "speed")
     public Double speed;
 
+    /**
+     * The time spent moving during the activity, in milliseconds, computed from its track.
+     */
+    @Column(name = "movingTime")
+    public Long movingTime;
+
+    /**
+     * The highest speed sustained during the activity, computed from its track.
+     */
+    @Column(name = "maxSpeed")
+    public Double maxSpeed;
+
+    /**
+     * The moving time spent on each complete kilometer, in milliseconds, computed from its track.
+     */
+    @Convert(converter = LongArrayConverter.class)
+    @Column(name = "splits", columnDefinition = "text")
+    public long[] splits;
+
     /**
      * The locations associated with the activity.
      */
@@ -0,0 +1,60 @@
+package canape.benjamin.runflutterrun.model;
+
+import canape.benjamin.runflutterrun.model.enums.ActivityType;
+import canape.benjamin.runflutterrun.model.enums.BestEffortDistance;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * The fastest time an activity covered one of the best effort distances in.
+ */
+@Entity
+@Table(name = "activity_best_effort", indexes = {
+        @Index(name = "idx_activity_best_effort_user_type_distance", columnList = "user_id, type, distance, duration"),
+        @Index(name = "idx_activity_best_effort_activity", columnList = "activity_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class ActivityBestEffort extends AbstractEntity {
+
+    /**
+     * The activity, the best effort is removed with it.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "activity_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Activity activity;
+
+    /**
+     * The user who did the activity.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    /**
+     * The type of the activity.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false)
+    private ActivityType type;
+
+    /**
+     * The distance covered.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "distance", nullable = false)
+    private BestEffortDistance distance;
+
+    /**
+     * The time needed to cover the distance, in milliseconds.
+     */
+    @Column(name = "duration", nullable = false)
+    private long duration;
+}
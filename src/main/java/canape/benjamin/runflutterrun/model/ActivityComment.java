@@ -8,7 +8,9 @@ import lombok.Setter;
 import java.util.Date;
 
 @Entity
-@Table(name = "activity_comment")
+@Table(name = "activity_comment", indexes = {
+        @Index(name = "idx_activity_comment_activity_created_at", columnList = "activity_id, created_at")
+})
 @Getter
 @Setter
 @NoArgsConstructor
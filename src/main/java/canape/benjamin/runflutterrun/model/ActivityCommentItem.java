@@ -0,0 +1,53 @@
+package canape.benjamin.runflutterrun.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Date;
+
+/**
+ * A comment as shown in a feed, with its author, read in a single query with the comments of the other activities.
+ */
+@Getter
+@AllArgsConstructor
+public final class ActivityCommentItem {
+    /**
+     * The id of the activity commented.
+     */
+    private final Long activityId;
+
+    /**
+     * The id of the comment.
+     */
+    private final Long id;
+
+    /**
+     * The date the comment was written.
+     */
+    private final Date createdAt;
+
+    /**
+     * The content of the comment.
+     */
+    private final String content;
+
+    /**
+     * The id of the author.
+     */
+    private final Long userId;
+
+    /**
+     * The username of the author.
+     */
+    private final String username;
+
+    /**
+     * The firstname of the author.
+     */
+    private final String firstname;
+
+    /**
+     * The lastname of the author.
+     */
+    private final String lastname;
+}
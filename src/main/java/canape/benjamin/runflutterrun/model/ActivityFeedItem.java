@@ -0,0 +1,89 @@
+package canape.benjamin.runflutterrun.model;
+
+import canape.benjamin.runflutterrun.model.enums.ActivityType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Date;
+
+/**
+ * An activity as shown in a feed, with its author and its likes, read in a single query.
+ */
+@Getter
+@AllArgsConstructor
+public final class ActivityFeedItem {
+    /**
+     * The id of the activity.
+     */
+    private final Long id;
+
+    /**
+     * The type of the activity.
+     */
+    private final ActivityType type;
+
+    /**
+     * The start datetime of the activity.
+     */
+    private final Date startDatetime;
+
+    /**
+     * The end datetime of the activity.
+     */
+    private final Date endDatetime;
+
+    /**
+     * The distance covered during the activity.
+     */
+    private final Double distance;
+
+    /**
+     * The speed achieved during the activity.
+     */
+    private final Double speed;
+
+    /**
+     * The time spent moving during the activity, in milliseconds.
+     */
+    private final Long movingTime;
+
+    /**
+     * The highest speed sustained during the activity.
+     */
+    private final Double maxSpeed;
+
+    /**
+     * The moving time spent on each complete kilometer, in milliseconds.
+     */
+    private final long[] splits;
+
+    /**
+     * The id of the author.
+     */
+    private final Long userId;
+
+    /**
+     * The username of the author.
+     */
+    private final String username;
+
+    /**
+     * The firstname of the author.
+     */
+    private final String firstname;
+
+    /**
+     * The lastname of the author.
+     */
+    private final String lastname;
+
+    /**
+     * The number of likes of the activity.
+     */
+    private final long likesCount;
+
+    /**
+     * Whether the user reading the feed liked the activity.
+     */
+    private final boolean likedByViewer;
+}
@@ -8,7 +8,9 @@ import lombok.Setter;
 import java.util.Date;
 
 @Entity
-@Table(name = "activity_like")
+@Table(name = "activity_like", indexes = {
+        @Index(name = "idx_activity_like_activity_user", columnList = "activity_id, user_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
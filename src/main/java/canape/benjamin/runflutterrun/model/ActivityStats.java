@@ -0,0 +1,87 @@
+package canape.benjamin.runflutterrun.model;
+
+import canape.benjamin.runflutterrun.model.enums.ActivityType;
+import canape.benjamin.runflutterrun.model.enums.StatsPeriod;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * The totals of the activities of a user of one type over a week, a month or a year.
+ * Buckets are updated in place whenever an activity is created, updated or deleted, so that reading
+ * statistics never goes through the activities themselves.
+ */
+@Entity
+@Table(name = "activity_stats", indexes = {
+        @Index(name = "idx_activity_stats_user_period_start", columnList = "user_id, period, period_start")
+})
+@IdClass(ActivityStatsId.class)
+@Getter
+@Setter
+@NoArgsConstructor
+public class ActivityStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The id of the user.
+     */
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    /**
+     * The period of the bucket.
+     */
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "period")
+    private StatsPeriod period;
+
+    /**
+     * The first day of the bucket.
+     */
+    @Id
+    @Column(name = "period_start")
+    private LocalDate periodStart;
+
+    /**
+     * The type of the activities.
+     */
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type")
+    private ActivityType type;
+
+    /**
+     * The total distance of the activities, in kilometers.
+     */
+    @Column(name = "distance", nullable = false)
+    private double distance;
+
+    /**
+     * The total duration of the activities, in milliseconds.
+     */
+    @Column(name = "duration", nullable = false)
+    private long duration;
+
+    /**
+     * The number of activities.
+     */
+    @Column(name = "activity_count", nullable = false)
+    private long count;
+
+    /**
+     * The user, the statistics are removed with him.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", insertable = false, updatable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+}
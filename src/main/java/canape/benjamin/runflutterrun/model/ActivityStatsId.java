@@ -0,0 +1,41 @@
+package canape.benjamin.runflutterrun.model;
+
+import canape.benjamin.runflutterrun.model.enums.ActivityType;
+import canape.benjamin.runflutterrun.model.enums.StatsPeriod;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Composite identifier of activity statistics: one bucket per user, period, start of period and type of activity.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActivityStatsId implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The id of the user.
+     */
+    private Long userId;
+
+    /**
+     * The period of the bucket.
+     */
+    private StatsPeriod period;
+
+    /**
+     * The first day of the bucket.
+     */
+    private LocalDate periodStart;
+
+    /**
+     * The type of the activities.
+     */
+    private ActivityType type;
+}
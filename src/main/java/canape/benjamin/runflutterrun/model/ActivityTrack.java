@@ -0,0 +1,97 @@
+package canape.benjamin.runflutterrun.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+
+/**
+ * The GPS track of an activity stored as a single encoded blob, see {@link canape.benjamin.runflutterrun.tracks.TrackCodec}.
+ * It is kept apart from the activity row so that feeds never load it.
+ */
+@Entity
+@Table(name = "activity_track")
+@Getter
+@Setter
+@NoArgsConstructor
+public class ActivityTrack implements Persistable<Long>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The id of the activity.
+     */
+    @Id
+    @Column(name = "activity_id")
+    private Long activityId;
+
+    /**
+     * The number of points of the track.
+     */
+    @Column(name = "points", nullable = false)
+    private int points;
+
+    /**
+     * The encoded points of the track.
+     */
+    @Column(name = "data", nullable = false)
+    private byte[] data;
+
+    /**
+     * The activity, the track is removed with it.
+     */
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "activity_id", insertable = false, updatable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Activity activity;
+
+    /**
+     * Whether the track was never stored, its id being assigned rather than generated.
+     */
+    @Transient
+    private boolean isNew = true;
+
+    /**
+     * Create a new track of an activity.
+     *
+     * @param activityId the id of the activity
+     * @param points     the number of points of the track
+     * @param data       the encoded points of the track
+     */
+    public ActivityTrack(Long activityId, int points, byte[] data) {
+        this.activityId = activityId;
+        this.points = points;
+        this.data = data;
+    }
+
+    /**
+     * Get the id of the track, which is the id of its activity.
+     *
+     * @return the id of the activity
+     */
+    @Override
+    public Long getId() {
+        return activityId;
+    }
+
+    /**
+     * Tell Spring Data to persist new tracks directly instead of merging them, which would first select them.
+     *
+     * @return true if the track was never stored
+     */
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
+}
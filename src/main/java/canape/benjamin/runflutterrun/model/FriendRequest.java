@@ -7,7 +7,12 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Entity
-@Table(name = "friend_request")
+@Table(name = "friend_request", indexes = {
+        @Index(name = "idx_friend_request_sender_status", columnList = "sender_id, status, receiver_id"),
+        @Index(name = "idx_friend_request_receiver_status", columnList = "receiver_id, status, sender_id")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_friend_request_pair", columnNames = {"min_user_id", "max_user_id"})
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -33,4 +38,25 @@ public class FriendRequest extends AbstractEntity {
     @Enumerated(EnumType.STRING)
     @Column(name = "status", nullable = false)
     private FriendRequestStatus status;
+
+    /**
+     * The lowest id of the two users, so that the request between two users is found whoever sent it.
+     */
+    @Column(name = "min_user_id", nullable = false, updatable = false)
+    private Long minUserId;
+
+    /**
+     * The highest id of the two users.
+     */
+    @Column(name = "max_user_id", nullable = false, updatable = false)
+    private Long maxUserId;
+
+    /**
+     * Fill the pair of users from the sender and the receiver before the request is first stored.
+     */
+    @PrePersist
+    void fillUserPair() {
+        minUserId = Math.min(sender.getId(), receiver.getId());
+        maxUserId = Math.max(sender.getId(), receiver.getId());
+    }
 }
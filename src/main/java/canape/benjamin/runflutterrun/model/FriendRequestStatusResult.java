@@ -0,0 +1,19 @@
+package canape.benjamin.runflutterrun.model;
+
+import canape.benjamin.runflutterrun.model.enums.FriendRequestStatus;
+
+/**
+ * The status of the friend request between a user and another user, whoever sent it.
+ */
+public interface FriendRequestStatusResult {
+
+    /**
+     * @return the id of the other user
+     */
+    Long getUserId();
+
+    /**
+     * @return the status of the friend request
+     */
+    FriendRequestStatus getStatus();
+}
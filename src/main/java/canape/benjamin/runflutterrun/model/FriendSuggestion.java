@@ -0,0 +1,110 @@
+package canape.benjamin.runflutterrun.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+
+/**
+ * A user suggested to another, precomputed from the friends of their friends.
+ * The suggestions of a user are rewritten when a friendship around them changes, so that reading them
+ * only walks the user's entries by decreasing number of mutual friends.
+ */
+@Entity
+@Table(name = "friend_suggestion", indexes = {
+        @Index(name = "idx_friend_suggestion_user_mutual_friends", columnList = "user_id, mutual_friend_count DESC, suggested_user_id")
+})
+@IdClass(FriendSuggestionId.class)
+@Getter
+@Setter
+@NoArgsConstructor
+public class FriendSuggestion implements Persistable<FriendSuggestionId>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The id of the user receiving the suggestion.
+     */
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    /**
+     * The id of the user suggested.
+     */
+    @Id
+    @Column(name = "suggested_user_id")
+    private Long suggestedUserId;
+
+    /**
+     * The number of friends the two users share.
+     */
+    @Column(name = "mutual_friend_count", nullable = false)
+    private int mutualFriendCount;
+
+    /**
+     * The user receiving the suggestion, the suggestions are removed with him.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", insertable = false, updatable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    /**
+     * The user suggested, the suggestions are removed with him.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "suggested_user_id", insertable = false, updatable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User suggestedUser;
+
+    /**
+     * Whether the suggestion was never stored, its id being assigned rather than generated.
+     */
+    @Transient
+    private boolean isNew = true;
+
+    /**
+     * Create a new suggestion.
+     *
+     * @param userId            the id of the user receiving the suggestion
+     * @param suggestedUserId   the id of the user suggested
+     * @param mutualFriendCount the number of friends the two users share
+     */
+    public FriendSuggestion(Long userId, Long suggestedUserId, int mutualFriendCount) {
+        this.userId = userId;
+        this.suggestedUserId = suggestedUserId;
+        this.mutualFriendCount = mutualFriendCount;
+    }
+
+    /**
+     * Get the id of the suggestion.
+     *
+     * @return the ids of the two users
+     */
+    @Override
+    public FriendSuggestionId getId() {
+        return new FriendSuggestionId(userId, suggestedUserId);
+    }
+
+    /**
+     * Tell Spring Data to persist new suggestions directly instead of merging them, which would first select them.
+     *
+     * @return true if the suggestion was never stored
+     */
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
+}
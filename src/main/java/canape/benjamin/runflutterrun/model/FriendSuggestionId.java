@@ -0,0 +1,28 @@
+package canape.benjamin.runflutterrun.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Composite identifier of a friend suggestion: a user is suggested at most once to another.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendSuggestionId implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The id of the user receiving the suggestion.
+     */
+    private Long userId;
+
+    /**
+     * The id of the user suggested.
+     */
+    private Long suggestedUserId;
+}
@@ -0,0 +1,32 @@
+package canape.benjamin.runflutterrun.model;
+
+/**
+ * A user suggested as a friend, with the number of friends they share with the user.
+ */
+public interface FriendSuggestionResult {
+
+    /**
+     * @return the id of the user suggested
+     */
+    Long getId();
+
+    /**
+     * @return the username of the user suggested
+     */
+    String getUsername();
+
+    /**
+     * @return the firstname of the user suggested
+     */
+    String getFirstname();
+
+    /**
+     * @return the lastname of the user suggested
+     */
+    String getLastname();
+
+    /**
+     * @return the number of mutual friends
+     */
+    Integer getMutualFriendCount();
+}
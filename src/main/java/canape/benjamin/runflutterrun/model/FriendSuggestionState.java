@@ -0,0 +1,46 @@
+package canape.benjamin.runflutterrun.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Records that the suggestions of a user were computed at least once, so that a user without any
+ * suggestion is told apart from a user whose suggestions were never computed.
+ */
+@Entity
+@Table(name = "friend_suggestion_state")
+@Getter
+@Setter
+@NoArgsConstructor
+public class FriendSuggestionState implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The id of the user receiving the suggestions.
+     */
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    /**
+     * When the suggestions were last computed, by the clock of the database.
+     */
+    @Column(name = "computed_at", nullable = false)
+    private Instant computedAt;
+
+    /**
+     * The user receiving the suggestions, the state is removed with him.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", insertable = false, updatable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+}
@@ -0,0 +1,21 @@
+package canape.benjamin.runflutterrun.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The two users of an accepted friend request.
+ */
+@Getter
+@AllArgsConstructor
+public final class Friendship {
+    /**
+     * The id of the user who sent the friend request.
+     */
+    private final long senderId;
+
+    /**
+     * The id of the user who received the friend request.
+     */
+    private final long receiverId;
+}
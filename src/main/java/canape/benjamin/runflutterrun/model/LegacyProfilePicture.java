@@ -0,0 +1,36 @@
+package canape.benjamin.runflutterrun.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+
+import java.sql.Types;
+
+/**
+ * A profile picture still stored in the row of its user, as it was before pictures moved to the blob store.
+ * Only read to migrate the pictures, so that loading a user never loads these bytes.
+ */
+@Entity
+@Table(name = "sport_user")
+@Getter
+@Setter
+@NoArgsConstructor
+public class LegacyProfilePicture {
+    /**
+     * The id of the user.
+     */
+    @Id
+    private Long id;
+
+    /**
+     * The bytes of the picture, set to null once moved to the blob store.
+     */
+    @JdbcTypeCode(Types.VARBINARY)
+    @Column(name = "profile_picture")
+    private byte[] data;
+}
@@ -15,9 +15,9 @@ import java.util.Date;
 public class Location extends AbstractEntity {
 
     /**
-     * The activity associated with the location.
+     * The activity associated with the location, not loaded with it: the track migration only reads its id.
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "activity_id")
     private Activity activity;
 
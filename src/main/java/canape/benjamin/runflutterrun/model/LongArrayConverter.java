@@ -0,0 +1,33 @@
+package canape.benjamin.runflutterrun.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Stores arrays of longs as comma separated text.
+ */
+@Converter
+public class LongArrayConverter implements AttributeConverter<long[], String> {
+
+    @Override
+    public String convertToDatabaseColumn(long[] values) {
+        if (values == null) {
+            return null;
+        }
+        return Arrays.stream(values).mapToObj(Long::toString).collect(Collectors.joining(","));
+    }
+
+    @Override
+    public long[] convertToEntityAttribute(String column) {
+        if (column == null) {
+            return null;
+        }
+        if (column.isEmpty()) {
+            return new long[0];
+        }
+        return Arrays.stream(column.split(",")).mapToLong(Long::parseLong).toArray();
+    }
+}
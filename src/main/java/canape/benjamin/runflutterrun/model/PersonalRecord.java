@@ -0,0 +1,61 @@
+package canape.benjamin.runflutterrun.model;
+
+import canape.benjamin.runflutterrun.model.enums.ActivityType;
+import canape.benjamin.runflutterrun.model.enums.BestEffortDistance;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * The fastest time a user covered one of the best effort distances in, for a type of activity.
+ */
+@Entity
+@Table(name = "personal_record", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_personal_record_user_type_distance", columnNames = {"user_id", "type", "distance"})
+}, indexes = {
+        @Index(name = "idx_personal_record_activity", columnList = "activity_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class PersonalRecord extends AbstractEntity {
+
+    /**
+     * The user holding the record, the record is removed with him.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    /**
+     * The type of activity.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false)
+    private ActivityType type;
+
+    /**
+     * The distance of the record.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "distance", nullable = false)
+    private BestEffortDistance distance;
+
+    /**
+     * The time needed to cover the distance, in milliseconds.
+     */
+    @Column(name = "duration", nullable = false)
+    private long duration;
+
+    /**
+     * The activity the record was set during.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "activity_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Activity activity;
+}
@@ -0,0 +1,45 @@
+package canape.benjamin.runflutterrun.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * An access token revoked before its expiration, shared by every node of the application
+ * until it expires.
+ */
+@Entity
+@Table(name = "revoked_token", indexes = {
+        @Index(name = "idx_revoked_token_revoked_at", columnList = "revoked_at"),
+        @Index(name = "idx_revoked_token_expires_at", columnList = "expires_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class RevokedToken implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The id of the token (its jti claim).
+     */
+    @Id
+    @Column(name = "jti")
+    private String jti;
+
+    /**
+     * The expiration of the token, after which it no longer needs to be remembered.
+     */
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    /**
+     * When the token was revoked, by the clock of the database.
+     */
+    @Column(name = "revoked_at", nullable = false)
+    private Instant revokedAt;
+}
@@ -0,0 +1,73 @@
+package canape.benjamin.runflutterrun.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * An activity pushed into the precomputed friends feed of a user.
+ * Entries are written when activities are created and when friendships change, so that reading a feed
+ * only walks the owner's entries in start datetime order.
+ */
+@Entity
+@Table(name = "timeline_entry", indexes = {
+        @Index(name = "idx_timeline_entry_owner_start_datetime", columnList = "owner_id, start_datetime DESC, activity_id DESC"),
+        @Index(name = "idx_timeline_entry_owner_author", columnList = "owner_id, author_id"),
+        @Index(name = "idx_timeline_entry_activity", columnList = "activity_id")
+})
+@IdClass(TimelineEntryId.class)
+@Getter
+@Setter
+@NoArgsConstructor
+public class TimelineEntry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The id of the user owning the timeline.
+     */
+    @Id
+    @Column(name = "owner_id")
+    private Long ownerId;
+
+    /**
+     * The id of the activity.
+     */
+    @Id
+    @Column(name = "activity_id")
+    private Long activityId;
+
+    /**
+     * The id of the user who did the activity.
+     */
+    @Column(name = "author_id", nullable = false)
+    private Long authorId;
+
+    /**
+     * The start datetime of the activity, copied to sort the timeline without reading the activities.
+     */
+    @Column(name = "start_datetime", nullable = false)
+    private Date startDatetime;
+
+    /**
+     * The user owning the timeline, the entries are removed with him.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "owner_id", insertable = false, updatable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User owner;
+
+    /**
+     * The activity, the entries are removed with it.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "activity_id", insertable = false, updatable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Activity activity;
+}
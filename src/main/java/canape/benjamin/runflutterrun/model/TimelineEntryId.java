@@ -0,0 +1,28 @@
+package canape.benjamin.runflutterrun.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Composite identifier of a timeline entry: an activity appears at most once in a timeline.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimelineEntryId implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The id of the user owning the timeline.
+     */
+    private Long ownerId;
+
+    /**
+     * The id of the activity.
+     */
+    private Long activityId;
+}
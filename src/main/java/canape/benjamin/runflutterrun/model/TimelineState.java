@@ -0,0 +1,47 @@
+package canape.benjamin.runflutterrun.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Records that the timeline of a user was built from his activities and his friends' at least once.
+ * Timelines without it may only hold the activities published since they were introduced, and are
+ * rebuilt when first read.
+ */
+@Entity
+@Table(name = "timeline_state")
+@Getter
+@Setter
+@NoArgsConstructor
+public class TimelineState implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The id of the user owning the timeline.
+     */
+    @Id
+    @Column(name = "owner_id")
+    private Long ownerId;
+
+    /**
+     * When the timeline was last built, by the clock of the database.
+     */
+    @Column(name = "built_at", nullable = false)
+    private Instant builtAt;
+
+    /**
+     * The user owning the timeline, the state is removed with him.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "owner_id", insertable = false, updatable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User owner;
+}
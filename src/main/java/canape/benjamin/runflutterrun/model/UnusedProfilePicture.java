@@ -0,0 +1,38 @@
+package canape.benjamin.runflutterrun.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * A profile picture no user had anymore when last replaced or deleted, to be removed from the blob store once
+ * nobody stored it again for a while: the same bytes may be uploaded again meanwhile, the store keeping a single copy.
+ */
+@Entity
+@Table(name = "unused_profile_picture", indexes = {
+        @Index(name = "idx_unused_profile_picture_unused_since", columnList = "unused_since")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class UnusedProfilePicture implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The key of the picture in the blob store.
+     */
+    @Id
+    @Column(name = "picture_key")
+    private String pictureKey;
+
+    /**
+     * When the picture was last left unused, by the clock of the database.
+     */
+    @Column(name = "unused_since", nullable = false)
+    private Instant unusedSince;
+}
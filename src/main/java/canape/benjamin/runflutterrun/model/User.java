@@ -4,9 +4,8 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import org.hibernate.annotations.JdbcTypeCode;
 
-import java.sql.Types;
+import java.time.Instant;
 import java.util.List;
 
 @Entity
@@ -40,11 +39,16 @@ public class User extends AbstractEntity {
     private String password;
 
     /**
-     * The profile picture of the user.
+     * The key of the profile picture of the user in the blob store.
      */
-    @JdbcTypeCode(Types.VARBINARY)
-    @Column(name = "profile_picture")
-    private byte[] profilePicture;
+    @Column(name = "profile_picture_key", length = 64)
+    private String profilePictureKey;
+
+    /**
+     * The size of the profile picture, in bytes.
+     */
+    @Column(name = "profile_picture_size")
+    private Long profilePictureSize;
 
     /**
      * The profile picture type.
@@ -52,6 +56,12 @@ public class User extends AbstractEntity {
     @Column(name = "profile_picture_type")
     private String profilePictureType;
 
+    /**
+     * When the profile picture was last changed.
+     */
+    @Column(name = "profile_picture_updated_at")
+    private Instant profilePictureUpdatedAt;
+
     /**
      * The list of activities associated with the user.
      */
@@ -0,0 +1,18 @@
+package canape.benjamin.runflutterrun.model;
+
+/**
+ * The credentials of a user, read from the database on every login so that a changed password applies at once
+ * on every node.
+ */
+public interface UserCredentials {
+
+    /**
+     * @return the username of the user
+     */
+    String getUsername();
+
+    /**
+     * @return the encoded password of the user
+     */
+    String getPassword();
+}
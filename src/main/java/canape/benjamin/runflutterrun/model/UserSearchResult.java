@@ -0,0 +1,33 @@
+package canape.benjamin.runflutterrun.model;
+
+/**
+ * A user found by a search, with how well they match it.
+ */
+public interface UserSearchResult {
+
+    /**
+     * @return the id of the user
+     */
+    Long getId();
+
+    /**
+     * @return the username of the user
+     */
+    String getUsername();
+
+    /**
+     * @return the firstname of the user
+     */
+    String getFirstname();
+
+    /**
+     * @return the lastname of the user
+     */
+    String getLastname();
+
+    /**
+     * @return 0 when the username starts with the search text, 1 when the firstname or lastname does,
+     * 2 when one of them only contains it
+     */
+    Integer getRank();
+}
@@ -0,0 +1,54 @@
+package canape.benjamin.runflutterrun.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * An immutable copy of the fields of a user needed to resolve and display them, without the profile picture
+ * so that it can be kept in memory, and without the password so that a stale copy never authenticates anyone.
+ */
+@Getter
+@AllArgsConstructor
+public final class UserSnapshot {
+    /**
+     * The id of the user.
+     */
+    private final Long id;
+
+    /**
+     * The username of the user.
+     */
+    private final String username;
+
+    /**
+     * The firstname of the user.
+     */
+    private final String firstname;
+
+    /**
+     * The lastname of the user.
+     */
+    private final String lastname;
+
+    /**
+     * The key of the profile picture of the user in the blob store, null if they have none.
+     */
+    private final String profilePictureKey;
+
+    /**
+     * The content type of the profile picture of the user.
+     */
+    private final String profilePictureType;
+
+    /**
+     * The size of the profile picture of the user, in bytes.
+     */
+    private final Long profilePictureSize;
+
+    /**
+     * When the profile picture of the user was last changed.
+     */
+    private final Instant profilePictureUpdatedAt;
+}
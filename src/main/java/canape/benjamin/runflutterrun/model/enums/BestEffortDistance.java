@@ -0,0 +1,47 @@
+package canape.benjamin.runflutterrun.model.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Enum representing the distances best efforts and personal records are measured on.
+ */
+@Getter
+@AllArgsConstructor
+public enum BestEffortDistance {
+    /**
+     *  One kilometer
+     */
+    ONE_KILOMETER(1.0),
+    /**
+     *  Five kilometers
+     */
+    FIVE_KILOMETERS(5.0),
+    /**
+     *  Ten kilometers
+     */
+    TEN_KILOMETERS(10.0),
+    /**
+     *  Half marathon
+     */
+    HALF_MARATHON(21.0975);
+
+    /**
+     * The distance, in kilometers.
+     */
+    private final double kilometers;
+
+    /**
+     * Get the distances of all the values, in their order.
+     *
+     * @return the distances, in kilometers
+     */
+    public static double[] allKilometers() {
+        BestEffortDistance[] values = values();
+        double[] kilometers = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            kilometers[i] = values[i].getKilometers();
+        }
+        return kilometers;
+    }
+}
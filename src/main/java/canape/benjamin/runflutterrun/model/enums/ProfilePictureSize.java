@@ -0,0 +1,38 @@
+package canape.benjamin.runflutterrun.model.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Enum representing the variants a profile picture can be downloaded in.
+ */
+@Getter
+@AllArgsConstructor
+public enum ProfilePictureSize {
+    /**
+     *  64 pixels square, for lists
+     */
+    SMALL(64),
+    /**
+     *  256 pixels square, for profiles
+     */
+    MEDIUM(256),
+    /**
+     *  The picture as uploaded
+     */
+    ORIGINAL(0);
+
+    /**
+     * The length of the sides of the thumbnail in pixels, 0 for the original picture.
+     */
+    private final int edge;
+
+    /**
+     * Whether this variant is a thumbnail generated from the original picture.
+     *
+     * @return true for a thumbnail
+     */
+    public boolean isThumbnail() {
+        return edge > 0;
+    }
+}
@@ -0,0 +1,47 @@
+package canape.benjamin.runflutterrun.model.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Enum representing the periods activity statistics are rolled up by.
+ */
+@Getter
+@AllArgsConstructor
+public enum StatsPeriod {
+    /**
+     *  Week, starting on monday
+     */
+    WEEK("week"),
+    /**
+     *  Month
+     */
+    MONTH("month"),
+    /**
+     *  Year
+     */
+    YEAR("year");
+
+    /**
+     * The matching field of the PostgreSQL date_trunc function.
+     */
+    private final String unit;
+
+    /**
+     * Get the first day of the period containing a date.
+     *
+     * @param date the date
+     * @return the first day of its period
+     */
+    public LocalDate start(LocalDate date) {
+        return switch (this) {
+            case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> date.withDayOfMonth(1);
+            case YEAR -> date.withDayOfYear(1);
+        };
+    }
+}
@@ -0,0 +1,41 @@
+package canape.benjamin.runflutterrun.repositories;
+
+import canape.benjamin.runflutterrun.model.ActivityBestEffort;
+import canape.benjamin.runflutterrun.model.User;
+import canape.benjamin.runflutterrun.model.enums.ActivityType;
+import canape.benjamin.runflutterrun.model.enums.BestEffortDistance;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ActivityBestEffortRepository extends CrudRepository<ActivityBestEffort, Long> {
+
+    /**
+     * Retrieves the fastest best efforts of a user on a distance, for a type of activity.
+     *
+     * @param user     The user.
+     * @param type     The type of activity.
+     * @param distance The distance.
+     * @param pageable Pageable object holding the number of best efforts to get.
+     * @return A list of best efforts, the fastest first.
+     */
+    @Query("select e from ActivityBestEffort e where e.user = :user and e.type = :type and e.distance = :distance order by e.duration asc, e.id asc")
+    List<ActivityBestEffort> findFastest(@Param("user") User user, @Param("type") ActivityType type,
+                                         @Param("distance") BestEffortDistance distance, Pageable pageable);
+
+    /**
+     * Deletes the best efforts of an activity.
+     *
+     * @param activityId The id of the activity.
+     * @return The number of best efforts deleted.
+     */
+    @Modifying
+    @Query("delete from ActivityBestEffort e where e.activity.id = :activityId")
+    int deleteByActivityId(@Param("activityId") Long activityId);
+}
@@ -1,9 +1,26 @@
 package canape.benjamin.runflutterrun.repositories;
 
 import canape.benjamin.runflutterrun.model.ActivityComment;
+import canape.benjamin.runflutterrun.model.ActivityCommentItem;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface ActivityCommentRepository extends CrudRepository<ActivityComment, Long> {
-}
\ No newline at end of file
+
+    /**
+     * Retrieves the comments of several activities with their authors, without loading any entity.
+     *
+     * @param activityIds The ids of the activities.
+     * @return The comments, by activity then creation date.
+     */
+    @Query("select new canape.benjamin.runflutterrun.model.ActivityCommentItem(c.activity.id, c.id, c.createdAt, c.content," +
+            " u.id, u.username, u.firstname, u.lastname) from ActivityComment c join c.user u" +
+            " where c.activity.id in :activityIds order by c.activity.id, c.createdAt")
+    List<ActivityCommentItem> findItemsByActivityIdIn(@Param("activityIds") Collection<Long> activityIds);
+}
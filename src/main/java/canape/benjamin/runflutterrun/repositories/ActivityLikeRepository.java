@@ -3,10 +3,13 @@ package canape.benjamin.runflutterrun.repositories;
 import canape.benjamin.runflutterrun.model.Activity;
 import canape.benjamin.runflutterrun.model.ActivityLike;
 import canape.benjamin.runflutterrun.model.User;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -20,6 +23,34 @@ public interface ActivityLikeRepository extends CrudRepository<ActivityLike, Lon
      */
     long countByActivityId(Long activityId);
 
+    /**
+     * Retrieves the number of likes of several activities in a single grouped query
+     *
+     * @param activityIds The activities for which to count likes.
+     * @return the [activity id, likes count] pairs, activities without likes are omitted
+     */
+    @Query("select l.activity.id, count(l) from ActivityLike l where l.activity.id in :activityIds group by l.activity.id")
+    List<Object[]> countByActivityIds(@Param("activityIds") Collection<Long> activityIds);
+
+    /**
+     * Retrieves, among several activities, the ones liked by a user.
+     *
+     * @param activityIds The activities to check.
+     * @param user        The user for which to retrieve likes.
+     * @return the ids of the activities liked by the user
+     */
+    @Query("select l.activity.id from ActivityLike l where l.user = :user and l.activity.id in :activityIds")
+    List<Long> findLikedActivityIds(@Param("activityIds") Collection<Long> activityIds, @Param("user") User user);
+
+    /**
+     * Checks if a user liked an activity.
+     *
+     * @param activityId The activity id.
+     * @param user       The user.
+     * @return true if the user liked the activity
+     */
+    boolean existsByActivityIdAndUser(Long activityId, User user);
+
     /**
      * Retrieves the like from an activity and a user.
      *
@@ -1,14 +1,16 @@
 package canape.benjamin.runflutterrun.repositories;
 
 import canape.benjamin.runflutterrun.model.Activity;
-import canape.benjamin.runflutterrun.model.User;
-import org.springframework.data.domain.Page;
+import canape.benjamin.runflutterrun.model.ActivityFeedItem;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 
@@ -16,23 +18,69 @@ import java.util.List;
 public interface ActivityRepository extends PagingAndSortingRepository<Activity, Long> {
 
     /**
-     * Retrieves all activities associated with a specific user, sorted by start datetime in descending order.
+     * The selection of the feed queries: the fields shown of each activity and of its author, its number of likes
+     * and whether the user reading the feed liked it, counted by subqueries rather than by loading the likes.
+     */
+    String FEED_ITEM = "select new canape.benjamin.runflutterrun.model.ActivityFeedItem(a.id, a.type, a.startDatetime," +
+            " a.endDatetime, a.distance, a.speed, a.movingTime, a.maxSpeed, a.splits, u.id, u.username, u.firstname, u.lastname," +
+            " (select count(l) from ActivityLike l where l.activity.id = a.id)," +
+            " case when exists (select v.id from ActivityLike v where v.activity.id = a.id and v.user.id = :viewerId) then true else false end)" +
+            " from Activity a join a.user u";
+
+    /**
+     * Retrieves the feed of the activities of a specific user, in the order of the pagination information.
+     * No count query is issued, see {@link #countByUserId(Long)}.
      *
-     * @param user     The user for which to retrieve activities.
+     * @param userId   The id of the user for which to retrieve activities.
+     * @param viewerId The id of the user reading the feed.
      * @param pageable Pageable object for pagination.
-     * @return A Page of activities.
+     * @return The activities of the page.
      */
-    @Query("select a from Activity a where a.user = :user")
-    Page<Activity> findByUser(User user, Pageable pageable);
+    @Query(FEED_ITEM + " where a.user.id = :userId")
+    List<ActivityFeedItem> findFeedByUserId(@Param("userId") Long userId, @Param("viewerId") Long viewerId, Pageable pageable);
 
     /**
-     * Retrieves all activities associated with specific users, sorted by start datetime in descending order.
+     * Retrieves the feed of the activities of a specific user without counting them, the slice only knows if a next one exists.
      *
-     * @param users    The users for which to retrieve activities.
+     * @param userId   The id of the user for which to retrieve activities.
+     * @param viewerId The id of the user reading the feed.
      * @param pageable Pageable object for pagination.
-     * @return A Page of activities.
+     * @return A Slice of activities.
      */
-    @Query("select a from Activity a where a.user in :users")
-    Page<Activity> findByUsers(@Param("users") List<User> users, Pageable pageable);
-}
+    @Query(FEED_ITEM + " where a.user.id = :userId")
+    Slice<ActivityFeedItem> findFeedSliceByUserId(@Param("userId") Long userId, @Param("viewerId") Long viewerId, Pageable pageable);
+
+    /**
+     * Counts the activities of a specific user.
+     *
+     * @param userId The id of the user.
+     * @return The number of activities of the user.
+     */
+    long countByUserId(Long userId);
 
+    /**
+     * Retrieves the feed of activities by their ids.
+     *
+     * @param ids      The ids of the activities.
+     * @param viewerId The id of the user reading the feed.
+     * @return A list of activities, in no particular order.
+     */
+    @Query(FEED_ITEM + " where a.id in :ids")
+    List<ActivityFeedItem> findFeedByIdIn(@Param("ids") Collection<Long> ids, @Param("viewerId") Long viewerId);
+
+    /**
+     * Retrieves the feed of the activities of a specific user located after a cursor, sorted by start datetime then id
+     * in descending order. No count query is issued, the slice only knows if a next one exists.
+     *
+     * @param userId        The id of the user for which to retrieve activities.
+     * @param viewerId      The id of the user reading the feed.
+     * @param startDatetime The start datetime of the cursor.
+     * @param id            The activity id of the cursor.
+     * @param pageable      Pageable object holding the slice size.
+     * @return A Slice of activities.
+     */
+    @Query(FEED_ITEM + " where a.user.id = :userId and (a.startDatetime < :startDatetime or (a.startDatetime = :startDatetime and a.id < :id))" +
+            " order by a.startDatetime desc, a.id desc")
+    Slice<ActivityFeedItem> findFeedByUserIdAfterCursor(@Param("userId") Long userId, @Param("viewerId") Long viewerId,
+                                                        @Param("startDatetime") Date startDatetime, @Param("id") Long id, Pageable pageable);
+}
@@ -0,0 +1,113 @@
+package canape.benjamin.runflutterrun.repositories;
+
+import canape.benjamin.runflutterrun.model.ActivityStats;
+import canape.benjamin.runflutterrun.model.ActivityStatsId;
+import canape.benjamin.runflutterrun.model.enums.StatsPeriod;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ActivityStatsRepository extends CrudRepository<ActivityStats, ActivityStatsId> {
+
+    /**
+     * Retrieves the statistics of a user for the periods starting in a range of days.
+     *
+     * @param userId The id of the user.
+     * @param period The period of the buckets.
+     * @param from   The first day of the range, included.
+     * @param to     The last day of the range, excluded.
+     * @return A list of statistics, by start of period then type of activity.
+     */
+    @Query("select s from ActivityStats s where s.userId = :userId and s.period = :period" +
+            " and s.periodStart >= :from and s.periodStart < :to order by s.periodStart asc, s.type asc")
+    List<ActivityStats> findByUserIdAndPeriodBetween(@Param("userId") Long userId, @Param("period") StatsPeriod period,
+                                                     @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Checks whether a user has statistics.
+     *
+     * @param userId The id of the user.
+     * @return true if the user has at least one bucket, false otherwise.
+     */
+    boolean existsByUserId(Long userId);
+
+    /**
+     * Adds an activity to a bucket, creating it if needed. Negative values remove an activity.
+     *
+     * @param userId      The id of the user.
+     * @param period      The name of the period of the bucket.
+     * @param periodStart The first day of the bucket.
+     * @param type        The name of the type of the activity.
+     * @param distance    The distance to add, in kilometers.
+     * @param duration    The duration to add, in milliseconds.
+     * @param count       The number of activities to add.
+     * @return The number of buckets updated.
+     */
+    @Modifying
+    @Query(value = "insert into activity_stats (user_id, period, period_start, type, distance, duration, activity_count)" +
+            " values (:userId, :period, :periodStart, :type, :distance, :duration, :count)" +
+            " on conflict (user_id, period, period_start, type) do update set" +
+            " distance = activity_stats.distance + excluded.distance," +
+            " duration = activity_stats.duration + excluded.duration," +
+            " activity_count = activity_stats.activity_count + excluded.activity_count", nativeQuery = true)
+    int increment(@Param("userId") Long userId, @Param("period") String period, @Param("periodStart") LocalDate periodStart,
+                  @Param("type") String type, @Param("distance") double distance, @Param("duration") long duration,
+                  @Param("count") long count);
+
+    /**
+     * Deletes the buckets of a user left without activities.
+     *
+     * @param userId The id of the user.
+     * @return The number of buckets deleted.
+     */
+    @Modifying
+    @Query("delete from ActivityStats s where s.userId = :userId and s.count <= 0")
+    int deleteEmptyByUserId(@Param("userId") Long userId);
+
+    /**
+     * Deletes all the buckets of a user.
+     *
+     * @param userId The id of the user.
+     * @return The number of buckets deleted.
+     */
+    @Modifying
+    @Query("delete from ActivityStats s where s.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+
+    /**
+     * Rolls up the activities of a user into the buckets of a period.
+     *
+     * @param userId             The id of the user.
+     * @param period             The name of the period.
+     * @param unit               The date_trunc field of the period.
+     * @param excludedActivityId The id of an activity to leave out.
+     * @return The number of buckets created.
+     */
+    @Modifying
+    @Query(value = "insert into activity_stats (user_id, period, period_start, type, distance, duration, activity_count)" +
+            " select a.user_id, :period, cast(date_trunc(:unit, a.start_datetime) as date), a.type," +
+            " coalesce(sum(a.global_distance), 0)," +
+            " coalesce(sum(cast(extract(epoch from (a.end_datetime - a.start_datetime)) * 1000 as bigint)), 0), count(*)" +
+            " from activity a where a.user_id = :userId and a.id <> :excludedActivityId" +
+            " and a.type is not null and a.start_datetime is not null" +
+            " group by a.user_id, 3, a.type", nativeQuery = true)
+    int insertRollup(@Param("userId") Long userId, @Param("period") String period, @Param("unit") String unit,
+                     @Param("excludedActivityId") Long excludedActivityId);
+
+    /**
+     * Retrieves the users who have activities but no statistics yet.
+     *
+     * @param pageable Pageable object holding the number of users to get.
+     * @return A list of user ids.
+     */
+    @Query("select distinct a.user.id from Activity a where a.type is not null and a.startDatetime is not null" +
+            " and not exists (select s from ActivityStats s where s.userId = a.user.id)")
+    List<Long> findUserIdsWithoutStats(Pageable pageable);
+}
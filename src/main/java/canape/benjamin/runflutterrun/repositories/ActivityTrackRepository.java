@@ -0,0 +1,22 @@
+package canape.benjamin.runflutterrun.repositories;
+
+import canape.benjamin.runflutterrun.model.ActivityTrack;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ActivityTrackRepository extends CrudRepository<ActivityTrack, Long> {
+
+    /**
+     * Retrieves the ids of the activities whose locations are still stored as rows of the location table.
+     *
+     * @param pageable Pageable object holding the number of ids to get.
+     * @return A list of activity ids.
+     */
+    @Query("select distinct l.activity.id from Location l where l.activity.id not in (select t.activityId from ActivityTrack t)")
+    List<Long> findActivityIdsWithLocationRows(Pageable pageable);
+}
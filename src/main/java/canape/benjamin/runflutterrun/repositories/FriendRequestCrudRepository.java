@@ -1,36 +1,107 @@
 package canape.benjamin.runflutterrun.repositories;
 
 import canape.benjamin.runflutterrun.model.FriendRequest;
+import canape.benjamin.runflutterrun.model.FriendRequestStatusResult;
+import canape.benjamin.runflutterrun.model.Friendship;
 import canape.benjamin.runflutterrun.model.User;
 import canape.benjamin.runflutterrun.model.enums.FriendRequestStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface FriendRequestCrudRepository extends CrudRepository<FriendRequest, Long> {
 
     /**
      * Retrieves the friend requests involving the user with a specific status.
+     * Each branch of the union reads one of the (sender, status) and (receiver, status) indexes.
      *
      * @param user   The user.
      * @param status The status of the friend requests to search.
      * @return The friend requests involving the user with a specific status.
      */
-    @Query("select r from FriendRequest r where (r.sender = :user or r.receiver = :user) and r.status = :status")
+    @Query("select r from FriendRequest r where r.sender = :user and r.status = :status" +
+            " union all select r from FriendRequest r where r.receiver = :user and r.status = :status")
     List<FriendRequest> findByUserAndStatus(@Param("user") User user, @Param("status") FriendRequestStatus status);
 
     /**
-     * Retrieves the friend request sent between the current user and another user.
+     * Retrieves the friend request sent between the current user and another user, whoever sent it,
+     * from the unique index on the pair of users.
      *
      * @param user       The current user.
      * @param otherUser  The other user.
      * @return The friend request sent between the current user and another user.
      */
-    @Query("select r from FriendRequest r where (r.sender = :user and r.receiver = :otherUser) or (r.receiver = :user and r.sender = :otherUser)")
+    @Query("select r from FriendRequest r where r.minUserId = least(:#{#user.id}, :#{#otherUser.id})" +
+            " and r.maxUserId = greatest(:#{#user.id}, :#{#otherUser.id})")
     Optional<FriendRequest> findBySenderAndReceiver(@Param("user") User user, @Param("otherUser") User otherUser);
+
+    /**
+     * Retrieves the status of the friend requests sent between a user and other users, whoever sent them.
+     * Each branch of the union reads one of the (sender, status, receiver) and (receiver, status, sender) indexes.
+     *
+     * @param userId       The ID of the user.
+     * @param otherUserIds The IDs of the other users.
+     * @return The status of the friend request with each of the other users having one.
+     */
+    @Query("select r.receiver.id as userId, r.status as status from FriendRequest r" +
+            " where r.sender.id = :userId and r.receiver.id in :otherUserIds" +
+            " union all select r.sender.id as userId, r.status as status from FriendRequest r" +
+            " where r.receiver.id = :userId and r.sender.id in :otherUserIds")
+    List<FriendRequestStatusResult> findStatusesByUserIdAndOtherUserIds(@Param("userId") Long userId,
+                                                                        @Param("otherUserIds") Collection<Long> otherUserIds);
+
+    /**
+     * Streams the friendships, the rows being fetched from the database as they are read.
+     * Must be consumed, then closed, inside a transaction.
+     *
+     * @param status The status of the friend requests making a friendship.
+     * @return The stream of the friendships.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new canape.benjamin.runflutterrun.model.Friendship(r.sender.id, r.receiver.id) from FriendRequest r where r.status = :status")
+    Stream<Friendship> streamByStatus(@Param("status") FriendRequestStatus status);
+
+    /**
+     * Retrieves the ids of the users having a friend request with a specific status with the user.
+     *
+     * @param userId The ID of the user.
+     * @param status The status of the friend requests to search.
+     * @return The ids of the other users of the friend requests.
+     */
+    @Query("select r.receiver.id from FriendRequest r where r.sender.id = :userId and r.status = :status" +
+            " union all select r.sender.id from FriendRequest r where r.receiver.id = :userId and r.status = :status")
+    List<Long> findOtherUserIdsByUserIdAndStatus(@Param("userId") Long userId, @Param("status") FriendRequestStatus status);
+
+    /**
+     * Checks whether a friend request with a specific status was sent between two users, in either direction.
+     *
+     * @param userId      The ID of a user.
+     * @param otherUserId The ID of the other user.
+     * @param status      The status of the friend request.
+     * @return true if such a friend request exists, false otherwise.
+     */
+    @Query("select count(r) > 0 from FriendRequest r where r.minUserId = least(:userId, :otherUserId)" +
+            " and r.maxUserId = greatest(:userId, :otherUserId) and r.status = :status")
+    boolean existsByUserIdsAndStatus(@Param("userId") Long userId, @Param("otherUserId") Long otherUserId,
+                                     @Param("status") FriendRequestStatus status);
+
+    /**
+     * Sends a notification to the nodes listening on a channel, once the current transaction commits.
+     *
+     * @param channel The channel.
+     * @param payload The payload of the notification.
+     * @return 1, the notification having been queued.
+     */
+    @Query(value = "select count(*) from pg_notify(:channel, :payload)", nativeQuery = true)
+    long sendNotification(@Param("channel") String channel, @Param("payload") String payload);
 }
@@ -5,7 +5,10 @@ import canape.benjamin.runflutterrun.model.User;
 import canape.benjamin.runflutterrun.model.enums.FriendRequestStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 
@@ -19,4 +22,29 @@ public interface FriendRequestRepository extends PagingAndSortingRepository<Frie
      * @return The friend requests sent to the receiver user with a specific status.
      */
     Page<FriendRequest> findByReceiverAndStatus(User receiver, FriendRequestStatus status, Pageable pageable);
+
+    /**
+     * Retrieves the friend requests sent to the receiver user with a specific status without counting them,
+     * the slice only knows if a next one exists. The senders and the receiver, with their refresh token which
+     * Hibernate would otherwise load one by one, are fetched by the same query.
+     *
+     * @param receiverId The ID of the receiver user.
+     * @param status     The status of the friend requests to search.
+     * @param pageable   Pageable object for pagination.
+     * @return A Slice of the friend requests sent to the receiver user with a specific status.
+     */
+    @Query("select r from FriendRequest r join fetch r.sender s left join fetch s.refreshToken" +
+            " join fetch r.receiver u left join fetch u.refreshToken" +
+            " where u.id = :receiverId and r.status = :status")
+    Slice<FriendRequest> findSliceByReceiverIdAndStatus(@Param("receiverId") Long receiverId, @Param("status") FriendRequestStatus status,
+                                                        Pageable pageable);
+
+    /**
+     * Counts the friend requests sent to the receiver user with a specific status.
+     *
+     * @param receiverId The ID of the receiver user.
+     * @param status     The status of the friend requests to count.
+     * @return The number of friend requests.
+     */
+    long countByReceiverIdAndStatus(Long receiverId, FriendRequestStatus status);
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package canape.benjamin.runflutterrun.repositories;
+
+import canape.benjamin.runflutterrun.model.FriendSuggestion;
+import canape.benjamin.runflutterrun.model.FriendSuggestionId;
+import canape.benjamin.runflutterrun.model.FriendSuggestionResult;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface FriendSuggestionRepository extends CrudRepository<FriendSuggestion, FriendSuggestionId> {
+
+    /**
+     * Retrieves the users suggested to a user, sorted by decreasing number of mutual friends then id.
+     *
+     * @param userId   The id of the user receiving the suggestions.
+     * @param pageable Pageable object holding the number of suggestions to get.
+     * @return The users suggested.
+     */
+    @Query("select u.id as id, u.username as username, u.firstname as firstname, u.lastname as lastname," +
+            " s.mutualFriendCount as mutualFriendCount" +
+            " from FriendSuggestion s join s.suggestedUser u where s.userId = :userId" +
+            " order by s.mutualFriendCount desc, s.suggestedUserId")
+    List<FriendSuggestionResult> findByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Removes all the suggestions made to a user.
+     *
+     * @param userId The id of the user receiving the suggestions.
+     * @return The number of suggestions deleted.
+     */
+    @Modifying
+    @Query("delete from FriendSuggestion s where s.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
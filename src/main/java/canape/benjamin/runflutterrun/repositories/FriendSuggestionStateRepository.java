@@ -0,0 +1,23 @@
+package canape.benjamin.runflutterrun.repositories;
+
+import canape.benjamin.runflutterrun.model.FriendSuggestionState;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface FriendSuggestionStateRepository extends CrudRepository<FriendSuggestionState, Long> {
+
+    /**
+     * Records that the suggestions of a user were just computed.
+     *
+     * @param userId The id of the user receiving the suggestions.
+     * @return The number of states written.
+     */
+    @Modifying
+    @Query(value = "insert into friend_suggestion_state (user_id, computed_at) values (:userId, now())" +
+            " on conflict (user_id) do update set computed_at = excluded.computed_at", nativeQuery = true)
+    int markComputed(@Param("userId") Long userId);
+}
@@ -0,0 +1,20 @@
+package canape.benjamin.runflutterrun.repositories;
+
+import canape.benjamin.runflutterrun.model.LegacyProfilePicture;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface LegacyProfilePictureRepository extends JpaRepository<LegacyProfilePicture, Long> {
+
+    /**
+     * Retrieves profile pictures not moved to the blob store yet.
+     *
+     * @param pageable The pagination information, to read the pictures by batch.
+     * @return The pictures left in the user rows.
+     */
+    List<LegacyProfilePicture> findByDataIsNotNull(Pageable pageable);
+}
@@ -0,0 +1,34 @@
+package canape.benjamin.runflutterrun.repositories;
+
+import canape.benjamin.runflutterrun.model.Location;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface LocationRepository extends CrudRepository<Location, Long> {
+
+    /**
+     * Retrieves the locations of several activities, grouped by activity and in recording order.
+     *
+     * @param activityIds The ids of the activities.
+     * @return A list of locations.
+     */
+    @Query("select l from Location l where l.activity.id in :activityIds order by l.activity.id asc, l.datetime asc, l.id asc")
+    List<Location> findByActivityIds(@Param("activityIds") Collection<Long> activityIds);
+
+    /**
+     * Deletes the locations of several activities.
+     *
+     * @param activityIds The ids of the activities.
+     * @return The number of locations deleted.
+     */
+    @Modifying
+    @Query("delete from Location l where l.activity.id in :activityIds")
+    int deleteByActivityIds(@Param("activityIds") Collection<Long> activityIds);
+}
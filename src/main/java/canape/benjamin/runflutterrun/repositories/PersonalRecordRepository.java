@@ -0,0 +1,45 @@
+package canape.benjamin.runflutterrun.repositories;
+
+import canape.benjamin.runflutterrun.model.PersonalRecord;
+import canape.benjamin.runflutterrun.model.User;
+import canape.benjamin.runflutterrun.model.enums.ActivityType;
+import canape.benjamin.runflutterrun.model.enums.BestEffortDistance;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PersonalRecordRepository extends CrudRepository<PersonalRecord, Long> {
+
+    /**
+     * Retrieves the personal records of a user with their activities.
+     *
+     * @param user The user.
+     * @return A list of personal records.
+     */
+    @Query("select r from PersonalRecord r join fetch r.activity where r.user = :user")
+    List<PersonalRecord> findByUser(@Param("user") User user);
+
+    /**
+     * Retrieves the personal records set during an activity.
+     *
+     * @param activityId The id of the activity.
+     * @return A list of personal records.
+     */
+    @Query("select r from PersonalRecord r where r.activity.id = :activityId")
+    List<PersonalRecord> findByActivityId(@Param("activityId") Long activityId);
+
+    /**
+     * Retrieves the personal record of a user on a distance, for a type of activity.
+     *
+     * @param user     The user.
+     * @param type     The type of activity.
+     * @param distance The distance.
+     * @return An Optional containing the personal record if the user has one.
+     */
+    Optional<PersonalRecord> findByUserAndTypeAndDistance(User user, ActivityType type, BestEffortDistance distance);
+}
@@ -0,0 +1,46 @@
+package canape.benjamin.runflutterrun.repositories;
+
+import canape.benjamin.runflutterrun.model.RevokedToken;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends CrudRepository<RevokedToken, String> {
+
+    /**
+     * Revokes a token, stamping it with the clock of the database so that all nodes compare the same times.
+     *
+     * @param jti       The id of the token.
+     * @param expiresAt The expiration of the token.
+     * @return The number of tokens revoked.
+     */
+    @Modifying
+    @Query(value = "insert into revoked_token (jti, expires_at, revoked_at) values (:jti, :expiresAt, now())" +
+            " on conflict do nothing", nativeQuery = true)
+    int revoke(@Param("jti") String jti, @Param("expiresAt") Instant expiresAt);
+
+    /**
+     * Retrieves the tokens revoked since a given time.
+     *
+     * @param since The time, by the clock of the database.
+     * @return A list of revoked tokens.
+     */
+    @Query("select r from RevokedToken r where r.revokedAt >= :since")
+    List<RevokedToken> findRevokedSince(@Param("since") Instant since);
+
+    /**
+     * Deletes the revoked tokens that have expired.
+     *
+     * @param now The current time.
+     * @return The number of tokens deleted.
+     */
+    @Modifying
+    @Query("delete from RevokedToken r where r.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
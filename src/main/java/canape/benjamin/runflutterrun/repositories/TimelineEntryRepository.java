@@ -0,0 +1,150 @@
+package canape.benjamin.runflutterrun.repositories;
+
+import canape.benjamin.runflutterrun.model.TimelineEntry;
+import canape.benjamin.runflutterrun.model.TimelineEntryId;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+
+@Repository
+public interface TimelineEntryRepository extends CrudRepository<TimelineEntry, TimelineEntryId> {
+
+    /**
+     * Retrieves the ids of the activities in the timeline of a user.
+     *
+     * @param ownerId  The id of the user owning the timeline.
+     * @param pageable Pageable object for pagination.
+     * @return A Page of activity ids.
+     */
+    @Query("select t.activityId from TimelineEntry t where t.ownerId = :ownerId")
+    Page<Long> findActivityIdsByOwnerId(@Param("ownerId") Long ownerId, Pageable pageable);
+
+    /**
+     * Retrieves the ids of the activities in the timeline of a user without counting them,
+     * the slice only knows if a next one exists.
+     *
+     * @param ownerId  The id of the user owning the timeline.
+     * @param pageable Pageable object for pagination.
+     * @return A Slice of activity ids.
+     */
+    @Query("select t.activityId from TimelineEntry t where t.ownerId = :ownerId")
+    Slice<Long> findActivityIdSliceByOwnerId(@Param("ownerId") Long ownerId, Pageable pageable);
+
+    /**
+     * Counts the activities in the timeline of a user.
+     *
+     * @param ownerId The id of the user owning the timeline.
+     * @return The number of activities in the timeline.
+     */
+    long countByOwnerId(Long ownerId);
+
+    /**
+     * Retrieves the ids of the activities in the timeline of a user located after a cursor,
+     * sorted by start datetime then id in descending order.
+     *
+     * @param ownerId       The id of the user owning the timeline.
+     * @param startDatetime The start datetime of the cursor.
+     * @param activityId    The activity id of the cursor.
+     * @param pageable      Pageable object holding the slice size.
+     * @return A Slice of activity ids.
+     */
+    @Query("select t.activityId from TimelineEntry t where t.ownerId = :ownerId" +
+            " and (t.startDatetime < :startDatetime or (t.startDatetime = :startDatetime and t.activityId < :activityId))" +
+            " order by t.startDatetime desc, t.activityId desc")
+    Slice<Long> findActivityIdsByOwnerIdAfterCursor(@Param("ownerId") Long ownerId, @Param("startDatetime") Date startDatetime,
+                                                    @Param("activityId") Long activityId, Pageable pageable);
+
+    /**
+     * Pushes an activity into the timelines of its author and of the author's friends.
+     *
+     * @param activityId The id of the activity.
+     * @param status     The status of the friend requests binding the author to his friends.
+     * @return The number of timelines the activity was pushed into.
+     */
+    @Modifying
+    @Query(value = "insert into timeline_entry (owner_id, activity_id, author_id, start_datetime)" +
+            " select a.user_id, a.id, a.user_id, a.start_datetime from activity a where a.id = :activityId" +
+            " union select r.receiver_id, a.id, a.user_id, a.start_datetime from activity a" +
+            " join friend_request r on r.sender_id = a.user_id and r.status = :status where a.id = :activityId" +
+            " union select r.sender_id, a.id, a.user_id, a.start_datetime from activity a" +
+            " join friend_request r on r.receiver_id = a.user_id and r.status = :status where a.id = :activityId" +
+            " on conflict do nothing", nativeQuery = true)
+    int insertActivityForAuthorAndFriends(@Param("activityId") Long activityId, @Param("status") String status);
+
+    /**
+     * Pushes all the activities of an author into the timeline of a user.
+     *
+     * @param ownerId  The id of the user owning the timeline.
+     * @param authorId The id of the user who did the activities.
+     * @return The number of entries created.
+     */
+    @Modifying
+    @Query(value = "insert into timeline_entry (owner_id, activity_id, author_id, start_datetime)" +
+            " select :ownerId, a.id, a.user_id, a.start_datetime from activity a where a.user_id = :authorId" +
+            " on conflict do nothing", nativeQuery = true)
+    int insertActivitiesOfAuthor(@Param("ownerId") Long ownerId, @Param("authorId") Long authorId);
+
+    /**
+     * Pushes the activities of a user and of his friends into his timeline.
+     *
+     * @param ownerId The id of the user owning the timeline.
+     * @param status  The status of the friend requests binding the user to his friends.
+     * @return The number of entries created.
+     */
+    @Modifying
+    @Query(value = "insert into timeline_entry (owner_id, activity_id, author_id, start_datetime)" +
+            " select :ownerId, a.id, a.user_id, a.start_datetime from activity a where a.user_id = :ownerId" +
+            " or a.user_id in (select r.receiver_id from friend_request r where r.sender_id = :ownerId and r.status = :status)" +
+            " or a.user_id in (select r.sender_id from friend_request r where r.receiver_id = :ownerId and r.status = :status)" +
+            " on conflict do nothing", nativeQuery = true)
+    int insertActivitiesOfOwnerAndFriends(@Param("ownerId") Long ownerId, @Param("status") String status);
+
+    /**
+     * Moves an activity in every timeline it appears in.
+     *
+     * @param activityId    The id of the activity.
+     * @param startDatetime The new start datetime of the activity.
+     * @return The number of entries updated.
+     */
+    @Modifying
+    @Query("update TimelineEntry t set t.startDatetime = :startDatetime where t.activityId = :activityId")
+    int updateStartDatetime(@Param("activityId") Long activityId, @Param("startDatetime") Date startDatetime);
+
+    /**
+     * Removes an activity from every timeline.
+     *
+     * @param activityId The id of the activity.
+     * @return The number of entries deleted.
+     */
+    @Modifying
+    @Query("delete from TimelineEntry t where t.activityId = :activityId")
+    int deleteByActivityId(@Param("activityId") Long activityId);
+
+    /**
+     * Removes the activities of an author from the timeline of a user.
+     *
+     * @param ownerId  The id of the user owning the timeline.
+     * @param authorId The id of the user who did the activities.
+     * @return The number of entries deleted.
+     */
+    @Modifying
+    @Query("delete from TimelineEntry t where t.ownerId = :ownerId and t.authorId = :authorId")
+    int deleteByOwnerIdAndAuthorId(@Param("ownerId") Long ownerId, @Param("authorId") Long authorId);
+
+    /**
+     * Empties the timeline of a user.
+     *
+     * @param ownerId The id of the user owning the timeline.
+     * @return The number of entries deleted.
+     */
+    @Modifying
+    @Query("delete from TimelineEntry t where t.ownerId = :ownerId")
+    int deleteByOwnerId(@Param("ownerId") Long ownerId);
+}
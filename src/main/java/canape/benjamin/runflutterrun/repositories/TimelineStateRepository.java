@@ -0,0 +1,23 @@
+package canape.benjamin.runflutterrun.repositories;
+
+import canape.benjamin.runflutterrun.model.TimelineState;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TimelineStateRepository extends CrudRepository<TimelineState, Long> {
+
+    /**
+     * Records that the timeline of a user was just built.
+     *
+     * @param ownerId The id of the user owning the timeline.
+     * @return The number of states written.
+     */
+    @Modifying
+    @Query(value = "insert into timeline_state (owner_id, built_at) values (:ownerId, now())" +
+            " on conflict (owner_id) do update set built_at = excluded.built_at", nativeQuery = true)
+    int markBuilt(@Param("ownerId") Long ownerId);
+}
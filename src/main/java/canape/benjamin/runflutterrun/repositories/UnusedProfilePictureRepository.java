@@ -0,0 +1,36 @@
+package canape.benjamin.runflutterrun.repositories;
+
+import canape.benjamin.runflutterrun.model.UnusedProfilePicture;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface UnusedProfilePictureRepository extends CrudRepository<UnusedProfilePicture, String> {
+
+    /**
+     * Records that a picture was just left unused, stamped with the clock of the database.
+     *
+     * @param pictureKey The key of the picture in the blob store.
+     * @return The number of pictures recorded.
+     */
+    @Modifying
+    @Query(value = "insert into unused_profile_picture (picture_key, unused_since) values (:pictureKey, now())" +
+            " on conflict (picture_key) do update set unused_since = excluded.unused_since", nativeQuery = true)
+    int markUnused(@Param("pictureKey") String pictureKey);
+
+    /**
+     * Retrieves the pictures left unused for at least a given time, the oldest first.
+     *
+     * @param seconds The time, in seconds.
+     * @param limit   The maximum number of pictures.
+     * @return A list of picture keys.
+     */
+    @Query(value = "select picture_key from unused_profile_picture where unused_since < now() - make_interval(secs => :seconds)" +
+            " order by unused_since limit :limit", nativeQuery = true)
+    List<String> findKeysUnusedFor(@Param("seconds") long seconds, @Param("limit") int limit);
+}
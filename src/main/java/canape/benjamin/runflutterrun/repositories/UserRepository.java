@@ -1,16 +1,22 @@
 package canape.benjamin.runflutterrun.repositories;
 
 import canape.benjamin.runflutterrun.model.User;
+import canape.benjamin.runflutterrun.model.UserSearchResult;
+import canape.benjamin.runflutterrun.model.UserCredentials;
+import canape.benjamin.runflutterrun.model.UserSnapshot;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
+import java.time.Instant;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends CrudRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long> {
 
     /**
      * Retrieves a user by their ID.
@@ -21,13 +27,33 @@ public interface UserRepository extends CrudRepository<User, Long> {
     Optional<User> findById(long id);
 
     /**
-     * Retrieves users corresponding to the search text
+     * Retrieves the users whose username, firstname or lastname match a search, best matches first, after a position.
+     * The lower case columns are indexed by trigrams (see schema.sql), so that substrings are found without
+     * reading the whole table.
      *
-     * @param searchText The search text.
-     * @return A List containing the user who correspond to the search text.
+     * @param prefixPattern    The LIKE pattern of the values starting with the lower case search text.
+     * @param pattern          The LIKE pattern of the values matching the lower case search text.
+     * @param currentUserId    The ID of the user searching, who is never found.
+     * @param afterRank        The rank of the last user already read.
+     * @param afterUsername    The username of the last user already read.
+     * @param afterId          The ID of the last user already read.
+     * @param pageable         The number of users to get.
+     * @return A Slice of users, sorted by rank, username and ID.
      */
-    @Query("SELECT u FROM User u WHERE lower(u.username) LIKE lower(concat('%', :searchText, '%')) OR lower(u.firstname) LIKE lower(concat('%', :searchText, '%')) OR lower(u.lastname) LIKE lower(concat('%', :searchText, '%')) AND u.username <> :currentUsername")
-    List<User> findByUsernameOrFirstNameOrLastName(@Param("searchText") String searchText, @Param("currentUsername") String currentUsername);
+    @Query(value = "select s.id, s.username, s.firstname, s.lastname, s.rank from (" +
+            " select u.id, u.username, u.firstname, u.lastname," +
+            "  case when lower(u.username) like :prefixPattern then 0" +
+            "   when lower(u.firstname) like :prefixPattern or lower(u.lastname) like :prefixPattern then 1" +
+            "   else 2 end as rank" +
+            " from sport_user u" +
+            " where (lower(u.username) like :pattern or lower(u.firstname) like :pattern or lower(u.lastname) like :pattern)" +
+            " and u.id <> :currentUserId) s" +
+            " where (s.rank, s.username, s.id) > (:afterRank, :afterUsername, :afterId)" +
+            " order by s.rank, s.username, s.id", nativeQuery = true)
+    Slice<UserSearchResult> search(@Param("prefixPattern") String prefixPattern, @Param("pattern") String pattern,
+                                   @Param("currentUserId") Long currentUserId, @Param("afterRank") int afterRank,
+                                   @Param("afterUsername") String afterUsername, @Param("afterId") Long afterId,
+                                   Pageable pageable);
 
     /**
      * Retrieves a user by their username.
@@ -36,4 +62,63 @@ public interface UserRepository extends CrudRepository<User, Long> {
      * @return The user if found, or null if not found.
      */
     Optional<User> findByUsername(String username);
+
+    /**
+     * Retrieves the id of a user by their username, without loading the user.
+     *
+     * @param username The username of the user.
+     * @return An Optional containing the id of the user if found, or an empty Optional if not found.
+     */
+    @Query("select u.id from User u where u.username = :username")
+    Optional<Long> findIdByUsername(@Param("username") String username);
+
+    /**
+     * Retrieves the credentials of a user by their username.
+     *
+     * @param username The username of the user.
+     * @return An Optional containing the credentials of the user if found, or an empty Optional if not found.
+     */
+    @Query("select u.username as username, u.password as password from User u where u.username = :username")
+    Optional<UserCredentials> findCredentialsByUsername(@Param("username") String username);
+
+    /**
+     * Retrieves the snapshot of a user by their username, without loading the profile picture.
+     *
+     * @param username The username of the user.
+     * @return An Optional containing the snapshot of the user if found, or an empty Optional if not found.
+     */
+    @Query("select new canape.benjamin.runflutterrun.model.UserSnapshot(u.id, u.username, u.firstname, u.lastname, u.profilePictureKey, u.profilePictureType, u.profilePictureSize, u.profilePictureUpdatedAt) from User u where u.username = :username")
+    Optional<UserSnapshot> findSnapshotByUsername(@Param("username") String username);
+
+    /**
+     * Retrieves the snapshot of a user by their id, without loading the profile picture.
+     *
+     * @param id The ID of the user.
+     * @return An Optional containing the snapshot of the user if found, or an empty Optional if not found.
+     */
+    @Query("select new canape.benjamin.runflutterrun.model.UserSnapshot(u.id, u.username, u.firstname, u.lastname, u.profilePictureKey, u.profilePictureType, u.profilePictureSize, u.profilePictureUpdatedAt) from User u where u.id = :id")
+    Optional<UserSnapshot> findSnapshotById(@Param("id") Long id);
+
+    /**
+     * Checks whether a user has the profile picture of the given key.
+     *
+     * @param profilePictureKey The key of the picture in the blob store.
+     * @return true if a user has this picture.
+     */
+    boolean existsByProfilePictureKey(String profilePictureKey);
+
+    /**
+     * Sets the profile picture of a user, unless they already have one in the blob store.
+     *
+     * @param id                 The ID of the user.
+     * @param profilePictureKey  The key of the picture in the blob store.
+     * @param profilePictureSize The size of the picture, in bytes.
+     * @param updatedAt          When the picture is set.
+     * @return The number of users updated.
+     */
+    @Modifying
+    @Query("update User u set u.profilePictureKey = :key, u.profilePictureSize = :size, u.profilePictureUpdatedAt = :updatedAt" +
+            " where u.id = :id and u.profilePictureKey is null")
+    int setMissingProfilePicture(@Param("id") Long id, @Param("key") String profilePictureKey, @Param("size") Long profilePictureSize,
+                                 @Param("updatedAt") Instant updatedAt);
 }
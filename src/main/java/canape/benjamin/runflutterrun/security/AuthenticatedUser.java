@@ -0,0 +1,65 @@
+package canape.benjamin.runflutterrun.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Optional;
+
+/**
+ * The user a request is authenticated as, resolved once by the token filter and published as the principal
+ * of the request's security context, so that services do not verify the token and look the user up again.
+ */
+@Getter
+@AllArgsConstructor
+public final class AuthenticatedUser {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    /**
+     * The id of the user.
+     */
+    private final Long id;
+
+    /**
+     * The username of the user.
+     */
+    private final String username;
+
+    /**
+     * The verified token the user was resolved from.
+     */
+    private final String token;
+
+    /**
+     * Get the user the current request is authenticated as.
+     *
+     * @return an Optional containing the user, empty if the request is not authenticated by a token
+     */
+    public static Optional<AuthenticatedUser> current() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser authenticatedUser) {
+            return Optional.of(authenticatedUser);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Check whether the user was resolved from a token.
+     *
+     * @param token the token, with or without its "Bearer " prefix
+     * @return true if it is the token the user was resolved from, false otherwise
+     */
+    public boolean isResolvedFrom(String token) {
+        if (token != null && token.startsWith(BEARER_PREFIX)) {
+            token = token.substring(BEARER_PREFIX.length());
+        }
+        return this.token.equals(token);
+    }
+
+    @Override
+    public String toString() {
+        return username;
+    }
+}
@@ -2,7 +2,7 @@ package canape.benjamin.runflutterrun.security;
 
 import canape.benjamin.runflutterrun.dto.UserSearchDto;
 import canape.benjamin.runflutterrun.model.RefreshToken;
-import canape.benjamin.runflutterrun.model.User;
+import canape.benjamin.runflutterrun.model.UserSnapshot;
 import canape.benjamin.runflutterrun.security.jwt.JwtUtils;
 import canape.benjamin.runflutterrun.services.IRefreshTokenService;
 import canape.benjamin.runflutterrun.services.IUserService;
@@ -49,7 +49,7 @@ public class CustomAuthenticationSuccessHandler implements AuthenticationSuccess
 
         RefreshToken refreshToken = refreshTokenService.createRefreshToken(userDetails.getUsername());
 
-        User user = userService.findByUsername(userDetails.getUsername())
+        UserSnapshot user = userService.findSnapshotByUsername(userDetails.getUsername())
                 .orElseThrow(() -> new NotFoundException("User not found"));
         UserSearchDto userDto = modelMapper.map(user, UserSearchDto.class);
 
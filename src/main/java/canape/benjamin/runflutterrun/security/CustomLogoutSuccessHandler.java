@@ -1,7 +1,6 @@
 package canape.benjamin.runflutterrun.security;
 
 import canape.benjamin.runflutterrun.security.jwt.JwtUtils;
-import canape.benjamin.runflutterrun.security.jwt.TokenManager;
 import canape.benjamin.runflutterrun.services.IRefreshTokenService;
 import com.auth0.jwt.exceptions.TokenExpiredException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -43,7 +42,7 @@ public class CustomLogoutSuccessHandler implements LogoutSuccessHandler {
     @Override
     public void onLogoutSuccess(HttpServletRequest request, HttpServletResponse response, Authentication authentication) throws IOException, ServletException {
         String token = jwtUtils.extractTokenFromRequest(request);
-        TokenManager.invalidateToken(token);
+        jwtUtils.revokeJwtToken(token);
 
         try {
             String username = jwtUtils.getUserNameFromJwtToken(token);
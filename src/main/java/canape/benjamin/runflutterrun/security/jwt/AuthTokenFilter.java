@@ -1,6 +1,7 @@
 package canape.benjamin.runflutterrun.security.jwt;
 
-import canape.benjamin.runflutterrun.services.impl.UserDetailsServiceImpl;
+import canape.benjamin.runflutterrun.security.AuthenticatedUser;
+import canape.benjamin.runflutterrun.services.IUserService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -10,7 +11,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.stereotype.Component;
@@ -19,6 +19,7 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.Optional;
 
 import static canape.benjamin.runflutterrun.security.SecurityConstants.SIGN_UP_URL;
 
@@ -33,13 +34,14 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     private JwtUtils jwtUtils;
 
     @Autowired
-    private UserDetailsServiceImpl userService;
+    private IUserService userService;
 
     private final AntPathRequestMatcher loginPathMatcher = new AntPathRequestMatcher(LOGIN_PATH);
 
     /**
      * Filters incoming requests and checks for the presence of a valid JWT token in the Authorization header.
-     * If a valid token is found, it sets the user authentication in the SecurityContextHolder.
+     * If a valid token is found, it sets the user authentication in the SecurityContextHolder,
+     * with the id and username of the user as principal for the rest of the request.
      *
      * @param request     The HTTP request.
      * @param response    The HTTP response.
@@ -60,13 +62,14 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             String jwt = parseJwt(request);
             LOGGER.error("AuthTokenFilter | doFilterInternal | jwt: {}");
 
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-                UserDetails userDetails = userService.loadUserByUsername(username);
+            if (jwt != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                String username = jwtUtils.getUserNameFromValidJwtToken(jwt);
+                Optional<Long> userId = username == null ? Optional.empty() : userService.findIdByUsername(username);
 
-                if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                if (userId.isPresent()) {
+                    AuthenticatedUser principal = new AuthenticatedUser(userId.get(), username, jwt);
                     UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                            userDetails, null, Collections.emptyList());
+                            principal, null, Collections.emptyList());
                     authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
                     SecurityContextHolder.getContext().setAuthentication(authentication);
@@ -1,18 +1,22 @@
 package canape.benjamin.runflutterrun.security.jwt;
 
 import canape.benjamin.runflutterrun.model.User;
+import canape.benjamin.runflutterrun.services.ITokenRevocationService;
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.exceptions.TokenExpiredException;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.auth0.jwt.interfaces.JWTVerifier;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
 import java.util.Date;
+import java.util.UUID;
 
 import static canape.benjamin.runflutterrun.security.SecurityConstants.EXPIRATION_TIME;
 import static canape.benjamin.runflutterrun.security.SecurityConstants.SECRET;
@@ -22,6 +26,23 @@ public class JwtUtils {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(JwtUtils.class);
 
+    private static final Algorithm ALGORITHM = Algorithm.HMAC512(SECRET);
+
+    /**
+     * The verifier of the tokens, thread-safe and built once.
+     */
+    private static final JWTVerifier VERIFIER = JWT.require(ALGORITHM).build();
+
+    /**
+     * The maximum number of verified tokens kept, about the number of users active within a token lifetime.
+     */
+    private static final int VERIFIED_TOKENS_MAX_SIZE = 10000;
+
+    private final VerifiedTokenCache verifiedTokens = new VerifiedTokenCache(VERIFIED_TOKENS_MAX_SIZE);
+
+    @Autowired
+    private ITokenRevocationService tokenRevocationService;
+
     /**
      * Generates a JWT token for the given user.
      *
@@ -42,11 +63,10 @@ public class JwtUtils {
         Date currentDate = new Date();
         String token = JWT.create()
                 .withSubject(username)
+                .withJWTId(UUID.randomUUID().toString())
                 .withIssuedAt(currentDate)
                 .withExpiresAt(new Date(currentDate.getTime() + EXPIRATION_TIME))
-                .sign(Algorithm.HMAC512(SECRET));
-
-        TokenManager.addValidToken(token);
+                .sign(ALGORITHM);
 
         return token;
     }
@@ -58,11 +78,7 @@ public class JwtUtils {
      * @return The extracted username.
      */
     public String getUserNameFromJwtToken(String token) {
-        token = extractTokenFromBearerToken(token);
-
-        DecodedJWT decodedJWT = JWT.require(Algorithm.HMAC512(SECRET))
-                .build().verify(token);
-        return decodedJWT.getSubject();
+        return verify(token).getSubject();
     }
 
     /**
@@ -72,21 +88,73 @@ public class JwtUtils {
      * @return true if the token is valid, false otherwise.
      */
     public boolean validateJwtToken(String authToken) {
-        if (TokenManager.isValidToken(authToken)) {
-            try {
-                String token = extractTokenFromBearerToken(authToken);
-
-                DecodedJWT decodedJWT = JWT.require(Algorithm.HMAC512(SECRET))
-                        .build()
-                        .verify(token);
-                return true;
-            } catch (TokenExpiredException e) {
-                LOGGER.error("JwtUtils | validateJwtToken | JWT token is expired: {}", e.getMessage());
-            } catch (JWTVerificationException e) {
-                LOGGER.error("JwtUtils | validateJwtToken | JWT verification failed: {}", e.getMessage());
+        return getUserNameFromValidJwtToken(authToken) != null;
+    }
+
+    /**
+     * Validates the given JWT token and extracts the username from it, verifying its signature only once.
+     *
+     * @param authToken The JWT token to validate.
+     * @return The extracted username, or null if the token is not valid or has been revoked.
+     */
+    public String getUserNameFromValidJwtToken(String authToken) {
+        try {
+            VerifiedToken verifiedToken = verify(authToken);
+
+            if (tokenRevocationService.isRevoked(verifiedToken.getRevocationId(), verifiedToken.getExpiresAt())) {
+                LOGGER.error("JwtUtils | getUserNameFromValidJwtToken | JWT token is revoked");
+                return null;
             }
+            return verifiedToken.getSubject();
+        } catch (TokenExpiredException e) {
+            LOGGER.error("JwtUtils | getUserNameFromValidJwtToken | JWT token is expired: {}", e.getMessage());
+        } catch (JWTVerificationException e) {
+            LOGGER.error("JwtUtils | getUserNameFromValidJwtToken | JWT verification failed: {}", e.getMessage());
         }
-        return false;
+        return null;
+    }
+
+    /**
+     * Revokes the given JWT token until it expires. Tokens that are not valid anyway are ignored.
+     *
+     * @param authToken The JWT token to revoke.
+     */
+    public void revokeJwtToken(String authToken) {
+        try {
+            VerifiedToken verifiedToken = verify(authToken);
+            tokenRevocationService.revoke(verifiedToken.getRevocationId(), verifiedToken.getExpiresAt());
+        } catch (JWTVerificationException e) {
+            LOGGER.error("JwtUtils | revokeJwtToken | JWT verification failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Verifies the signature and expiration of the given JWT token, unless it was already verified and has not expired.
+     *
+     * @param authToken The JWT token to verify.
+     * @return The claims of the token.
+     * @throws JWTVerificationException if the token is not valid.
+     */
+    private VerifiedToken verify(String authToken) {
+        String token = extractTokenFromBearerToken(authToken);
+
+        VerifiedToken verifiedToken = verifiedTokens.get(token);
+        if (verifiedToken == null) {
+            DecodedJWT decodedJWT = VERIFIER.verify(token);
+            verifiedToken = new VerifiedToken(decodedJWT.getSubject(), getRevocationId(decodedJWT), decodedJWT.getExpiresAtAsInstant());
+            verifiedTokens.put(token, verifiedToken);
+        }
+        return verifiedToken;
+    }
+
+    /**
+     * Gets the id a token is revoked by: its jti claim, or its signature for tokens issued without one.
+     *
+     * @param decodedJWT The decoded JWT token.
+     * @return The revocation id of the token.
+     */
+    private String getRevocationId(DecodedJWT decodedJWT) {
+        return decodedJWT.getId() != null ? decodedJWT.getId() : decodedJWT.getSignature();
     }
 
     /**
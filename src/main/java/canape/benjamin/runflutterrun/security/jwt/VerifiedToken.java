@@ -0,0 +1,29 @@
+package canape.benjamin.runflutterrun.security.jwt;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * The claims of a token whose signature has been verified.
+ */
+@Getter
+@AllArgsConstructor
+public final class VerifiedToken {
+
+    /**
+     * The username the token was issued to.
+     */
+    private final String subject;
+
+    /**
+     * The id the token is revoked by.
+     */
+    private final String revocationId;
+
+    /**
+     * The expiration of the token.
+     */
+    private final Instant expiresAt;
+}
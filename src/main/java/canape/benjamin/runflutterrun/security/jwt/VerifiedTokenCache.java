@@ -0,0 +1,92 @@
+package canape.benjamin.runflutterrun.security.jwt;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of the tokens already verified, keyed by the SHA-256 hash of the whole token so that
+ * neither the tokens are kept nor a token differing from a verified one can hit its entry.
+ * <p>
+ * Entries are spread over independently locked stripes, each evicting its least recently used entries,
+ * so that concurrent requests rarely wait on each other. Expired tokens are never returned, and tokens that never
+ * expire are never kept.
+ */
+final class VerifiedTokenCache {
+
+    private static final int STRIPES = 16;
+
+    private final Map<ByteBuffer, VerifiedToken>[] stripes;
+
+    /**
+     * Create a cache.
+     *
+     * @param maxSize the maximum number of tokens kept
+     */
+    @SuppressWarnings("unchecked")
+    VerifiedTokenCache(int maxSize) {
+        int stripeSize = Math.max(1, maxSize / STRIPES);
+        stripes = new Map[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ByteBuffer, VerifiedToken> eldest) {
+                    return size() > stripeSize;
+                }
+            };
+        }
+    }
+
+    /**
+     * Get the claims of a token verified before.
+     *
+     * @param token the token
+     * @return the claims, or null if the token has not been verified or has expired since
+     */
+    VerifiedToken get(String token) {
+        ByteBuffer key = hash(token);
+        Map<ByteBuffer, VerifiedToken> stripe = stripeOf(key);
+        synchronized (stripe) {
+            VerifiedToken verifiedToken = stripe.get(key);
+            if (verifiedToken != null && !verifiedToken.getExpiresAt().isAfter(Instant.now())) {
+                stripe.remove(key);
+                return null;
+            }
+            return verifiedToken;
+        }
+    }
+
+    /**
+     * Remember the claims of a verified token until it expires or is evicted.
+     * A token without an expiration date is not kept, as it could never be found expired.
+     *
+     * @param token         the token
+     * @param verifiedToken the claims of the token
+     */
+    void put(String token, VerifiedToken verifiedToken) {
+        if (verifiedToken.getExpiresAt() == null) {
+            return;
+        }
+        ByteBuffer key = hash(token);
+        Map<ByteBuffer, VerifiedToken> stripe = stripeOf(key);
+        synchronized (stripe) {
+            stripe.put(key, verifiedToken);
+        }
+    }
+
+    private Map<ByteBuffer, VerifiedToken> stripeOf(ByteBuffer key) {
+        return stripes[Math.floorMod(key.hashCode(), STRIPES)];
+    }
+
+    private static ByteBuffer hash(String token) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package canape.benjamin.runflutterrun.services;
 
 import canape.benjamin.runflutterrun.model.ActivityComment;
+import canape.benjamin.runflutterrun.model.ActivityCommentItem;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.stereotype.Service;
 import org.webjars.NotFoundException;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 @Service
 public interface IActivityCommentService {
 
@@ -40,4 +45,12 @@ public interface IActivityCommentService {
      * @throws NotFoundException if the activity comment with the given ID is not found
      */
     void delete(String token, long id);
+
+    /**
+     * Get the comments of several activities with their authors, such as the activities of a feed page.
+     *
+     * @param activityIds the ids of the activities
+     * @return the comments of each activity having some, by creation date
+     */
+    Map<Long, List<ActivityCommentItem>> getCommentItems(Collection<Long> activityIds);
 }
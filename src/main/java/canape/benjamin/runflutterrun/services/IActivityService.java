@@ -1,10 +1,21 @@
 package canape.benjamin.runflutterrun.services;
 
+import canape.benjamin.runflutterrun.dto.ActivityCursor;
 import canape.benjamin.runflutterrun.model.Activity;
+import canape.benjamin.runflutterrun.model.ActivityFeedItem;
+import canape.benjamin.runflutterrun.model.Location;
+import canape.benjamin.runflutterrun.security.AuthenticatedUser;
+import canape.benjamin.runflutterrun.tracks.TrackUpload;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @Service
 public interface IActivityService extends ICrudService<Activity> {
 
@@ -15,7 +26,16 @@ public interface IActivityService extends ICrudService<Activity> {
      * @param pageable the pagination information
      * @return an iterable collection of activities
      */
-    Page<Activity> getAll(String token, Pageable pageable);
+    Page<ActivityFeedItem> getAll(String token, Pageable pageable);
+
+    /**
+     * Get all activities associated with the authenticated user.
+     *
+     * @param principal the authenticated user
+     * @param pageable the pagination information
+     * @return an iterable collection of activities
+     */
+    Page<ActivityFeedItem> getAll(AuthenticatedUser principal, Pageable pageable);
 
     /**
      * Get my activities and my friends.
@@ -24,17 +44,121 @@ public interface IActivityService extends ICrudService<Activity> {
      * @param pageable the pagination information
      * @return an iterable collection of activities
      */
-     Page<Activity> getMineAndMyFriends(String token, Pageable pageable);
+     Page<ActivityFeedItem> getMineAndMyFriends(String token, Pageable pageable);
+
+    /**
+     * Get the activities of the authenticated user and his friends.
+     *
+     * @param principal the authenticated user
+     * @param pageable the pagination information
+     * @return an iterable collection of activities
+     */
+    Page<ActivityFeedItem> getMineAndMyFriends(AuthenticatedUser principal, Pageable pageable);
 
     /**
      * Get all activities associated with a user.
      *
-     * @param token the user's token
+     * @param principal the authenticated user
      * @param userId the user id
      * @param pageable the pagination information
      * @return an iterable collection of activities
      */
-    Page<Activity> getByUser(String token, Long userId, Pageable pageable);
+    Page<ActivityFeedItem> getByUser(AuthenticatedUser principal, Long userId, Pageable pageable);
+
+    /**
+     * Get the activities of the current user located after a cursor.
+     *
+     * @param token  the user's token
+     * @param cursor the position of the last activity already read
+     * @param size   the number of activities to get
+     * @return a slice of activities
+     */
+    Slice<ActivityFeedItem> getAll(String token, ActivityCursor cursor, int size);
+
+    /**
+     * Get the activities of the authenticated user located after a cursor.
+     *
+     * @param principal the authenticated user
+     * @param cursor    the position of the last activity already read
+     * @param size      the number of activities to get
+     * @return a slice of activities
+     */
+    Slice<ActivityFeedItem> getAll(AuthenticatedUser principal, ActivityCursor cursor, int size);
+
+    /**
+     * Get my activities and my friends located after a cursor.
+     *
+     * @param token  the user's token
+     * @param cursor the position of the last activity already read
+     * @param size   the number of activities to get
+     * @return a slice of activities
+     */
+    Slice<ActivityFeedItem> getMineAndMyFriends(String token, ActivityCursor cursor, int size);
+
+    /**
+     * Get the activities of the authenticated user and his friends located after a cursor.
+     *
+     * @param principal the authenticated user
+     * @param cursor    the position of the last activity already read
+     * @param size      the number of activities to get
+     * @return a slice of activities
+     */
+    Slice<ActivityFeedItem> getMineAndMyFriends(AuthenticatedUser principal, ActivityCursor cursor, int size);
+
+    /**
+     * Get the activities of a user located after a cursor.
+     *
+     * @param principal the authenticated user
+     * @param userId    the user id
+     * @param cursor    the position of the last activity already read
+     * @param size      the number of activities to get
+     * @return a slice of activities
+     */
+    Slice<ActivityFeedItem> getByUser(AuthenticatedUser principal, Long userId, ActivityCursor cursor, int size);
+
+    /**
+     * Get a page of the activities of the authenticated user, without counting them.
+     *
+     * @param principal the authenticated user
+     * @param pageable  the pagination information
+     * @return a slice of activities
+     */
+    Slice<ActivityFeedItem> getAllSlice(AuthenticatedUser principal, Pageable pageable);
+
+    /**
+     * Get a page of the activities of the authenticated user and his friends, without counting them.
+     *
+     * @param principal the authenticated user
+     * @param pageable  the pagination information
+     * @return a slice of activities
+     */
+    Slice<ActivityFeedItem> getMineAndMyFriendsSlice(AuthenticatedUser principal, Pageable pageable);
+
+    /**
+     * Get a page of the activities of a user, without counting them.
+     *
+     * @param principal the authenticated user
+     * @param userId    the user id
+     * @param pageable  the pagination information
+     * @return a slice of activities
+     */
+    Slice<ActivityFeedItem> getByUserSlice(AuthenticatedUser principal, Long userId, Pageable pageable);
+
+    /**
+     * Get the approximate number of activities of a user.
+     *
+     * @param userId the user id
+     * @return the number of activities, as counted a short while ago
+     */
+    long getApproximateActivityCount(Long userId);
+
+    /**
+     * Get the approximate number of activities of a user and his friends.
+     *
+     * @param userId the user id
+     * @return the number of activities, as counted a short while ago
+     */
+    long getApproximateMineAndMyFriendsCount(Long userId);
 
     /**
      * Create an activity associated with a user.
@@ -75,6 +199,50 @@ public interface IActivityService extends ICrudService<Activity> {
      * @param id the activity id
      * @param token    the user's token
      * @return has current user liked activity
+     * @throws jakarta.persistence.EntityNotFoundException if the activity with the given ID is not found
      */
     boolean currentUserLiked(Long id, String token);
+
+    /**
+     * Get the likes count of several activities at once
+     *
+     * @param ids the activity ids to count likes
+     * @return likes count by activity id, activities without likes are absent
+     */
+    Map<Long, Long> getActivityLikeCounts(Collection<Long> ids);
+
+    /**
+     * Get the activities liked by the current user among several activities
+     *
+     * @param ids   the activity ids
+     * @param token the user's token
+     * @return the ids of the activities liked by the current user
+     */
+    Set<Long> getActivityIdsLikedByCurrentUser(Collection<Long> ids, String token);
+
+    /**
+     * Get the activities liked by the authenticated user among several activities
+     *
+     * @param ids       the activity ids
+     * @param principal the authenticated user
+     * @return the ids of the activities liked by the authenticated user
+     */
+    Set<Long> getActivityIdsLikedByCurrentUser(Collection<Long> ids, AuthenticatedUser principal);
+
+    /**
+     * Get the locations of an activity
+     *
+     * @param activity the activity
+     * @return the locations of the activity, in recording order
+     */
+    List<Location> getLocations(Activity activity);
+
+    /**
+     * Create a new activity for a specific user from a streamed upload
+     *
+     * @param upload the activity read from the upload, with its encoded track
+     * @param token  the user's token
+     * @return the created activity
+     */
+    Activity create(TrackUpload upload, String token);
 }
@@ -0,0 +1,49 @@
+package canape.benjamin.runflutterrun.services;
+
+import canape.benjamin.runflutterrun.model.Activity;
+import canape.benjamin.runflutterrun.model.PersonalRecord;
+import canape.benjamin.runflutterrun.model.enums.BestEffortDistance;
+import canape.benjamin.runflutterrun.tracks.Track;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * This service interface defines methods for maintaining the best efforts of the activities
+ * and the personal records of the users they add up to.
+ */
+@Service
+public interface IBestEffortService {
+
+    /**
+     * Compute the best efforts of an activity from its track and update the personal records of its user.
+     *
+     * @param activity the created or updated activity
+     * @param track    the track of the activity
+     */
+    void record(Activity activity, Track track);
+
+    /**
+     * Store the best efforts of an activity computed while reading its track and update the personal records of its user.
+     *
+     * @param activity  the created or updated activity
+     * @param durations the durations of its best efforts, one per {@link BestEffortDistance},
+     *                  see {@link canape.benjamin.runflutterrun.tracks.BestEffortCalculator#getDurations()}
+     */
+    void record(Activity activity, long[] durations);
+
+    /**
+     * Remove the best efforts of an activity about to be deleted, recomputing the personal records it held.
+     *
+     * @param activity the activity
+     */
+    void forget(Activity activity);
+
+    /**
+     * Get the personal records of the current user.
+     *
+     * @param token the user's token
+     * @return the personal records, by type of activity then distance
+     */
+    List<PersonalRecord> getPersonalRecords(String token);
+}
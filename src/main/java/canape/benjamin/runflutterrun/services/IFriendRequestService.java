@@ -2,11 +2,16 @@ package canape.benjamin.runflutterrun.services;
 
 import canape.benjamin.runflutterrun.model.FriendRequest;
 import canape.benjamin.runflutterrun.model.User;
+import canape.benjamin.runflutterrun.model.enums.FriendRequestStatus;
+import canape.benjamin.runflutterrun.security.AuthenticatedUser;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -24,6 +29,23 @@ public interface IFriendRequestService {
      */
     Page<FriendRequest> getPendingFriendRequests(String token, Pageable pageable) ;
 
+    /**
+     * Retrieves a page of the pending friend requests sent to a user, without counting them.
+     *
+     * @param userId   The ID of the user.
+     * @param pageable The pagination information.
+     * @return A Slice of FriendRequest objects representing pending friend requests.
+     */
+    Slice<FriendRequest> getPendingFriendRequestSlice(Long userId, Pageable pageable);
+
+    /**
+     * Retrieves the approximate number of pending friend requests sent to a user.
+     *
+     * @param userId The ID of the user.
+     * @return The number of pending friend requests, as counted a short while ago.
+     */
+    long getApproximatePendingFriendRequestCount(Long userId);
+
     /**
      * Retrieves a specific friend request sent to the user associated with the given token and the specified userId.
      *
@@ -33,6 +55,16 @@ public interface IFriendRequestService {
      */
     Optional<FriendRequest> getFriendRequestForUser(String token, Long userId);
 
+    /**
+     * Retrieves the status of the friend requests between a user and many other users at once.
+     *
+     * @param userId       The ID of the user.
+     * @param otherUserIds The IDs of the other users.
+     * @return The status of the friend request with each of the other users having one, by their ID.
+     * @throws IllegalArgumentException if there are too many other users.
+     */
+    Map<Long, FriendRequestStatus> getFriendRequestStatuses(Long userId, Collection<Long> otherUserIds);
+
     /**
      * Sends a friend request from the user associated with the given token to the user with the specified receiverId.
      *
@@ -79,6 +111,15 @@ public interface IFriendRequestService {
      */
     boolean areFriends(String token, Long userId);
 
+    /**
+     * checks if the authenticated user and another user are friends
+     *
+     * @param principal the authenticated user
+     * @param userId The other user id
+     * @return true if they are friends, else false
+     */
+    boolean areFriends(AuthenticatedUser principal, Long userId);
+
     /**
      * get the friends of the current user
      *
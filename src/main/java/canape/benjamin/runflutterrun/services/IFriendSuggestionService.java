@@ -0,0 +1,56 @@
+package canape.benjamin.runflutterrun.services;
+
+import canape.benjamin.runflutterrun.model.FriendSuggestionResult;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This service interface defines methods for suggesting friends to the users, from the friends of their friends.
+ */
+@Service
+public interface IFriendSuggestionService {
+
+    /**
+     * Get the users suggested to a user, those sharing the most friends with them first.
+     *
+     * @param userId the id of the user
+     * @param size   the maximum number of suggestions
+     * @return the users suggested
+     */
+    List<FriendSuggestionResult> getSuggestions(Long userId, int size);
+
+    /**
+     * Compute again and store the suggestions made to a user.
+     *
+     * @param userId the id of the user
+     * @return the number of suggestions stored
+     */
+    int refresh(Long userId);
+
+    /**
+     * Schedule the refresh of the suggestions affected by a change of the status of a friend request:
+     * those of its two users and, when their friendship changed, those of their friends. The refreshes are scheduled
+     * once the transaction is committed, to be called after the change of the friendships kept in memory.
+     *
+     * @param senderId          the id of the user who sent the friend request
+     * @param receiverId        the id of the user who received the friend request
+     * @param friendshipChanged whether the two users became friends or stopped being friends
+     */
+    void friendRequestChanged(Long senderId, Long receiverId, boolean friendshipChanged);
+
+    /**
+     * Ask for the suggestions of a user to be refreshed by the next run of the suggestion job.
+     *
+     * @param userId the id of the user
+     */
+    void scheduleRefresh(Long userId);
+
+    /**
+     * Get and forget the users whose suggestions have to be refreshed.
+     *
+     * @return the ids of the users
+     */
+    Set<Long> drainScheduledRefreshes();
+}
@@ -0,0 +1,74 @@
+package canape.benjamin.runflutterrun.services;
+
+import canape.benjamin.runflutterrun.graph.FriendCandidate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * This service interface defines methods for answering friendship questions from memory, and for keeping
+ * the friendships in memory in line with those of the database on every node.
+ */
+@Service
+public interface IFriendshipGraphService {
+
+    /**
+     * Check whether two users are friends.
+     *
+     * @param userId      the id of a user
+     * @param otherUserId the id of the other user
+     * @return true if they are friends, false otherwise
+     */
+    boolean areFriends(Long userId, Long otherUserId);
+
+    /**
+     * Get the friends of a user.
+     *
+     * @param userId the id of the user
+     * @return the ids of the friends of the user
+     */
+    long[] getFriendIds(Long userId);
+
+    /**
+     * Find the friends of the friends of a user who share the most friends with them.
+     *
+     * @param userId      the id of the user
+     * @param excludedIds the ids of the users never to suggest, besides the user and their friends
+     * @param limit       the maximum number of candidates
+     * @return the candidates, sorted by decreasing number of mutual friends
+     * @throws IllegalStateException if the friendships are not loaded yet
+     */
+    List<FriendCandidate> suggestFriends(Long userId, long[] excludedIds, int limit);
+
+    /**
+     * Record a change of the friendship between two users, made by the current transaction.
+     * This node sees it once the transaction commits, the other nodes are notified at the same time.
+     *
+     * @param userId      the id of a user
+     * @param otherUserId the id of the other user
+     * @param areFriends  whether they are now friends
+     */
+    void friendshipChanged(Long userId, Long otherUserId, boolean areFriends);
+
+    /**
+     * Record the deletion of a user by the current transaction, ending all their friendships.
+     *
+     * @param userId the id of the user
+     */
+    void userDeleted(Long userId);
+
+    /**
+     * Load all the friendships from the database, replacing those in memory.
+     *
+     * @return the number of friendships loaded
+     */
+    int load();
+
+    /**
+     * Apply the changes notified by the nodes since the last call, listening to them first if not yet done.
+     *
+     * @return true if the friendships must be loaded, none having been loaded yet or the node having just
+     * started listening, in which case the changes made before may have been missed
+     */
+    boolean listen();
+}
@@ -0,0 +1,24 @@
+package canape.benjamin.runflutterrun.services;
+
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * This service interface defines methods for uploading profile pictures.
+ */
+@Service
+public interface IProfilePictureService {
+
+    /**
+     * Upload the profile picture of the current user, streaming it to the blob store.
+     *
+     * @param token       the token of the current user
+     * @param content     the picture, read until its end but not closed
+     * @param contentType the content type of the picture
+     * @throws canape.benjamin.runflutterrun.storage.BlobTooLargeException if the picture is larger than spring.servlet.multipart.max-file-size
+     * @throws IOException if the picture cannot be read or stored
+     */
+    void upload(String token, InputStream content, String contentType) throws IOException;
+}
@@ -0,0 +1,55 @@
+package canape.benjamin.runflutterrun.services;
+
+import canape.benjamin.runflutterrun.model.Activity;
+import canape.benjamin.runflutterrun.model.ActivityStats;
+import canape.benjamin.runflutterrun.model.enums.StatsPeriod;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * This service interface defines methods for maintaining and reading the weekly, monthly and yearly
+ * statistics of the users.
+ */
+@Service
+public interface IStatsService {
+
+    /**
+     * Add an activity to the statistics of its user.
+     *
+     * @param activity the activity
+     */
+    void add(Activity activity);
+
+    /**
+     * Remove an activity from the statistics of its user, as it was last added.
+     *
+     * @param activity the activity
+     */
+    void remove(Activity activity);
+
+    /**
+     * Get the statistics of the current user over a year.
+     *
+     * @param token  the user's token
+     * @param period the period of the buckets
+     * @param year   the year
+     * @return the statistics, by start of period then type of activity
+     */
+    List<ActivityStats> getStats(String token, StatsPeriod period, int year);
+
+    /**
+     * Recompute all the statistics of a user from his activities.
+     *
+     * @param userId the id of the user
+     */
+    void rebuild(Long userId);
+
+    /**
+     * Compute the statistics of users who have activities but no statistics yet.
+     *
+     * @param batchSize the maximum number of users to process
+     * @return the number of users processed
+     */
+    int backfill(int batchSize);
+}
@@ -0,0 +1,32 @@
+package canape.benjamin.runflutterrun.services;
+
+import canape.benjamin.runflutterrun.model.enums.ProfilePictureSize;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * This service interface defines methods for serving profile pictures in the small sizes they are displayed at.
+ */
+@Service
+public interface IThumbnailService {
+
+    /**
+     * Get a thumbnail of a picture of the blob store, generating the thumbnails of the picture on first use.
+     *
+     * @param key  the key of the picture in the blob store
+     * @param size the size of the thumbnail
+     * @return the JPEG thumbnail, or an empty Optional if it cannot be generated in time
+     */
+    Optional<Resource> getThumbnail(String key, ProfilePictureSize size);
+
+    /**
+     * Delete the thumbnails of a picture.
+     *
+     * @param key the key of the picture in the blob store
+     * @throws IOException if a thumbnail cannot be deleted
+     */
+    void deleteThumbnails(String key) throws IOException;
+}
@@ -0,0 +1,115 @@
+package canape.benjamin.runflutterrun.services;
+
+import canape.benjamin.runflutterrun.dto.ActivityCursor;
+import canape.benjamin.runflutterrun.model.Activity;
+import canape.benjamin.runflutterrun.model.ActivityFeedItem;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+
+/**
+ * This service interface defines methods for maintaining the precomputed friends feed of each user:
+ * activities are pushed into the timelines when they are written and when friendships change,
+ * so that reading a feed does not have to merge the activities of every friend.
+ */
+@Service
+public interface ITimelineService {
+
+    /**
+     * Push a new activity into the timelines of its author and of the author's friends.
+     *
+     * @param activity the created activity
+     */
+    void publish(Activity activity);
+
+    /**
+     * Move an updated activity in the timelines it appears in.
+     *
+     * @param activity the updated activity
+     */
+    void move(Activity activity);
+
+    /**
+     * Remove an activity from every timeline.
+     *
+     * @param activityId the id of the deleted activity
+     */
+    void retract(Long activityId);
+
+    /**
+     * Push the activities of two new friends into each other's timeline.
+     *
+     * @param userId   the id of a user
+     * @param friendId the id of his new friend
+     */
+    void follow(Long userId, Long friendId);
+
+    /**
+     * Remove the activities of two former friends from each other's timeline.
+     *
+     * @param userId   the id of a user
+     * @param friendId the id of his former friend
+     */
+    void unfollow(Long userId, Long friendId);
+
+    /**
+     * Recompute the whole timeline of a user from his activities and his friends'.
+     *
+     * @param userId the id of the user
+     */
+    void rebuild(Long userId);
+
+    /**
+     * Ask for the timeline of a user to be rebuilt by the next run of the rebuild job, once the current transaction
+     * is committed. The rebuilds are kept in memory, those still pending when the application stops are lost.
+     *
+     * @param userId the id of the user
+     */
+    void scheduleRebuild(Long userId);
+
+    /**
+     * Get and forget the users whose timeline has to be rebuilt.
+     *
+     * @return the ids of the users
+     */
+    Set<Long> drainScheduledRebuilds();
+
+    /**
+     * Get a page of the timeline of a user.
+     *
+     * @param userId   the id of the user
+     * @param pageable the pagination information
+     * @return a page of activities
+     */
+    Page<ActivityFeedItem> getTimeline(Long userId, Pageable pageable);
+
+    /**
+     * Get the activities of the timeline of a user located after a cursor.
+     *
+     * @param userId the id of the user
+     * @param cursor the position of the last activity already read
+     * @param size   the number of activities to get
+     * @return a slice of activities
+     */
+    Slice<ActivityFeedItem> getTimeline(Long userId, ActivityCursor cursor, int size);
+
+    /**
+     * Get a page of the timeline of a user, without counting its activities.
+     *
+     * @param userId   the id of the user
+     * @param pageable the pagination information
+     * @return a slice of activities
+     */
+    Slice<ActivityFeedItem> getTimelineSlice(Long userId, Pageable pageable);
+
+    /**
+     * Get the approximate number of activities in the timeline of a user.
+     *
+     * @param userId the id of the user
+     * @return the number of activities, as counted a short while ago
+     */
+    long getApproximateTimelineSize(Long userId);
+}
@@ -0,0 +1,36 @@
+package canape.benjamin.runflutterrun.services;
+
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+
+/**
+ * This service interface defines methods for revoking access tokens before their expiration.
+ */
+@Service
+public interface ITokenRevocationService {
+
+    /**
+     * Revoke a token until it expires.
+     *
+     * @param jti       the id of the token
+     * @param expiresAt the expiration of the token
+     */
+    void revoke(String jti, Instant expiresAt);
+
+    /**
+     * Check whether a token has been revoked.
+     *
+     * @param jti       the id of the token
+     * @param expiresAt the expiration of the token
+     * @return true if the token has been revoked, false otherwise
+     */
+    boolean isRevoked(String jti, Instant expiresAt);
+
+    /**
+     * Fetch the tokens revoked by the other nodes since the last synchronization and forget the expired ones.
+     *
+     * @return the number of revoked tokens fetched
+     */
+    int sync();
+}
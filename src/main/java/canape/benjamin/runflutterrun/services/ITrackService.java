@@ -0,0 +1,58 @@
+package canape.benjamin.runflutterrun.services;
+
+import canape.benjamin.runflutterrun.model.Activity;
+import canape.benjamin.runflutterrun.model.Location;
+import canape.benjamin.runflutterrun.tracks.Track;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * This service interface defines methods for storing the GPS points of the activities as encoded tracks,
+ * one blob per activity instead of one row per point.
+ */
+@Service
+public interface ITrackService {
+
+    /**
+     * Store the track of an activity.
+     *
+     * @param activity the activity
+     * @param track    the track of the activity
+     */
+    void save(Activity activity, Track track);
+
+    /**
+     * Store the already encoded track of an activity.
+     *
+     * @param activity the activity
+     * @param points   the number of points of the track
+     * @param data     the encoded track
+     */
+    void save(Activity activity, int points, byte[] data);
+
+    /**
+     * Get the track of an activity.
+     *
+     * @param activityId the id of the activity
+     * @return the track, empty if the activity has no stored track
+     */
+    Optional<Track> getTrack(Long activityId);
+
+    /**
+     * Get the locations of an activity, read from its track or from the location table if it was not migrated yet.
+     *
+     * @param activity the activity
+     * @return the locations of the activity, in recording order
+     */
+    List<Location> getLocations(Activity activity);
+
+    /**
+     * Move the locations of a batch of activities from the location table to encoded tracks.
+     *
+     * @param batchSize the maximum number of activities to migrate
+     * @return the number of activities migrated
+     */
+    int migrateLocations(int batchSize);
+}
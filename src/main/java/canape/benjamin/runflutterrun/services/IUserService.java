@@ -2,15 +2,23 @@ package canape.benjamin.runflutterrun.services;
 
 import canape.benjamin.runflutterrun.dto.EditPasswordDto;
 import canape.benjamin.runflutterrun.dto.EditProfileDto;
+import canape.benjamin.runflutterrun.dto.ProfilePictureDto;
+import canape.benjamin.runflutterrun.dto.UserSearchCursor;
 import canape.benjamin.runflutterrun.model.User;
+import canape.benjamin.runflutterrun.model.UserSearchResult;
+import canape.benjamin.runflutterrun.model.UserCredentials;
+import canape.benjamin.runflutterrun.model.UserSnapshot;
+import canape.benjamin.runflutterrun.model.enums.ProfilePictureSize;
+import canape.benjamin.runflutterrun.storage.Blob;
+import canape.benjamin.runflutterrun.security.AuthenticatedUser;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 import org.webjars.NotFoundException;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -20,11 +28,61 @@ public interface IUserService {
      * Find a user by its token
      *
      * @param token the token
-     * @return the user found
+     * @return the user found, loaded
      * @throws NotFoundException No user found
      */
      User getUserFromToken(String token);
 
+    /**
+     * Find the id of the user of a token, without loading the user.
+     *
+     * @param token the token
+     * @return the id of the user
+     * @throws NotFoundException No user found
+     */
+    Long getUserIdFromToken(String token);
+
+    /**
+     * Get the user a request is authenticated as, without loading it until one of its fields is read.
+     * Only meant to be set on an association or bound as a query parameter: reading its fields needs an open session.
+     *
+     * @param principal the authenticated user
+     * @return the user
+     */
+    User getUser(AuthenticatedUser principal);
+
+    /**
+     * Find the id of a user by username.
+     *
+     * @param username the username
+     * @return the id of the user, or an empty Optional if not found
+     */
+    Optional<Long> findIdByUsername(String username);
+
+    /**
+     * Find the credentials of a user by username, never from the user cache.
+     *
+     * @param username the username
+     * @return the credentials of the user, or an empty Optional if not found
+     */
+    Optional<UserCredentials> findCredentialsByUsername(String username);
+
+    /**
+     * Find the snapshot of a user by username, from the user cache when possible.
+     *
+     * @param username the username
+     * @return the snapshot of the user, or an empty Optional if not found
+     */
+    Optional<UserSnapshot> findSnapshotByUsername(String username);
+
+    /**
+     * Find the snapshot of a user by id, from the user cache when possible.
+     *
+     * @param userId the user id
+     * @return the snapshot of the user, or an empty Optional if not found
+     */
+    Optional<UserSnapshot> findSnapshotById(Long userId);
+
     /**
      * Find a user by its id
      *
@@ -34,6 +92,14 @@ public interface IUserService {
      */
     public User getUserById(Long userId);
 
+    /**
+     * Find users by their ids, in no particular order, the ids of missing users being ignored.
+     *
+     * @param userIds the user ids
+     * @return the users found
+     */
+    List<User> getUsersByIds(long[] userIds);
+
     /**
      * Create a new user.
      *
@@ -43,12 +109,15 @@ public interface IUserService {
     Long create(User user);
 
     /**
-     * Search users by text.
+     * Search users by text, best matches first.
      *
+     * @param principal the authenticated user, never found
      * @param searchText the search text
-     * @return the found user, or null if not found
+     * @param cursor the position of the last user already read
+     * @param size the number of users to get
+     * @return Slice of the users found
      */
-    List<User> search(String token, String searchText);
+    Slice<UserSearchResult> search(AuthenticatedUser principal, String searchText, UserSearchCursor cursor, int size);
 
     /**
      * Find a user by username.
@@ -84,17 +153,46 @@ public interface IUserService {
     void delete(String token);
 
     /**
-     * Upload the profile picture of the current user
+     * Set the profile picture of the current user
      *
      * @param token the token of the current user
-     * @param file the file to upload as the profile picture
+     * @param blob the picture, already in the blob store
+     * @param contentType the content type of the picture
      */
-    void uploadProfilePicture(String token, MultipartFile file) throws IOException;
+    void setProfilePicture(String token, Blob blob, String contentType);
 
     /**
      * Get profile picture of user of id
      *
-     * @param id the user id
+     * @param id   the user id
+     * @param size the size of the picture
+     * @return the profile picture
+     */
+    ProfilePictureDto getProfilePicture(String id, ProfilePictureSize size);
+
+    /**
+     * Move a batch of the profile pictures still stored in the user rows to the blob store.
+     *
+     * @param batchSize the maximum number of pictures to move
+     * @return the number of pictures moved
+     */
+    int migrateProfilePictures(int batchSize) throws IOException;
+
+    /**
+     * Delete from the blob store a batch of the profile pictures left unused for a grace period,
+     * unless a user has them again or they were stored again during that period.
+     *
+     * @param gracePeriod the time a picture must have been left unused and not stored
+     * @param batchSize   the maximum number of pictures to look at
+     * @return the number of pictures deleted
+     */
+    int deleteUnusedProfilePictures(Duration gracePeriod, int batchSize);
+
+    /**
+     * Record a profile picture left by a user, or stored without ever being set, to be deleted from the blob store
+     * by a later sweep.
+     *
+     * @param profilePictureKey the key of the picture, null if there is none
      */
-    Map<String, Object> getProfilePicture(String id);
+    void markUnusedProfilePicture(String profilePictureKey);
 }
@@ -2,6 +2,7 @@ package canape.benjamin.runflutterrun.services.impl;
 
 import canape.benjamin.runflutterrun.model.Activity;
 import canape.benjamin.runflutterrun.model.ActivityComment;
+import canape.benjamin.runflutterrun.model.ActivityCommentItem;
 import canape.benjamin.runflutterrun.model.User;
 import canape.benjamin.runflutterrun.repositories.ActivityCommentRepository;
 import canape.benjamin.runflutterrun.repositories.ActivityCrudRepository;
@@ -17,7 +18,12 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.webjars.NotFoundException;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -119,4 +125,23 @@ public class ActivityCommentServiceImpl implements IActivityCommentService {
             throw new NotFoundException(String.format(COMMENT_NOT_FOUND_MESSAGE, id));
         }
     }
+
+    /**
+     * Get the comments of several activities with their authors, in a single query.
+     *
+     * @param activityIds the ids of the activities
+     * @return the comments of each activity having some, by creation date
+     */
+    @Override
+    public Map<Long, List<ActivityCommentItem>> getCommentItems(Collection<Long> activityIds) {
+        Map<Long, List<ActivityCommentItem>> comments = new HashMap<>();
+        if (activityIds.isEmpty()) {
+            return comments;
+        }
+
+        for (ActivityCommentItem comment : activityCommentRepository.findItemsByActivityIdIn(activityIds)) {
+            comments.computeIfAbsent(comment.getActivityId(), id -> new ArrayList<>()).add(comment);
+        }
+        return comments;
+    }
 }
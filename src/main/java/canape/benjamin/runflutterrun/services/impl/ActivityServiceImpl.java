@@ -1,25 +1,39 @@
 package canape.benjamin.runflutterrun.services.impl;
 
+import canape.benjamin.runflutterrun.dto.ActivityCursor;
 import canape.benjamin.runflutterrun.model.Activity;
+import canape.benjamin.runflutterrun.model.ActivityFeedItem;
 import canape.benjamin.runflutterrun.model.ActivityLike;
+import canape.benjamin.runflutterrun.model.Location;
 import canape.benjamin.runflutterrun.model.User;
 import canape.benjamin.runflutterrun.repositories.ActivityCrudRepository;
 import canape.benjamin.runflutterrun.repositories.ActivityLikeRepository;
 import canape.benjamin.runflutterrun.repositories.ActivityRepository;
 import canape.benjamin.runflutterrun.repositories.UserRepository;
+import canape.benjamin.runflutterrun.security.AuthenticatedUser;
 import canape.benjamin.runflutterrun.services.IActivityService;
+import canape.benjamin.runflutterrun.services.IBestEffortService;
 import canape.benjamin.runflutterrun.services.IFriendRequestService;
+import canape.benjamin.runflutterrun.services.IStatsService;
+import canape.benjamin.runflutterrun.services.ITimelineService;
+import canape.benjamin.runflutterrun.services.ITrackService;
+import canape.benjamin.runflutterrun.tracks.Track;
+import canape.benjamin.runflutterrun.tracks.TrackMetrics;
+import canape.benjamin.runflutterrun.tracks.TrackMetricsCalculator;
+import canape.benjamin.runflutterrun.tracks.TrackUpload;
 import canape.benjamin.runflutterrun.services.IUserService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.AllArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.webjars.NotFoundException;
 
-import java.util.Date;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 @Service
 @AllArgsConstructor
@@ -31,6 +45,11 @@ public class ActivityServiceImpl implements IActivityService {
     private final IFriendRequestService friendRequestService;
     private final ActivityLikeRepository activityLikeRepository;
     private final IUserService userService;
+    private final ITimelineService timelineService;
+    private final ITrackService trackService;
+    private final IBestEffortService bestEffortService;
+    private final IStatsService statsService;
+    private final CountCache countCache;
 
     @Override
     public Iterable<Activity> getAll() {
@@ -44,9 +63,17 @@ public class ActivityServiceImpl implements IActivityService {
      * @return the created activity
      */
     @Override
+    @Transactional
     public Activity create(Activity activity) {
-        Activity activityWithMetrics = calculateMetrics(activity);
-        return activityCrudRepository.save(activityWithMetrics);
+        Track track = Track.fromLocations(activity.getLocations() == null ? new ArrayList<>() : activity.getLocations());
+        Activity activityWithMetrics = calculateMetrics(activity, TrackMetricsCalculator.compute(track));
+        activityWithMetrics.setLocations(new ArrayList<>());
+        Activity createdActivity = activityCrudRepository.save(activityWithMetrics);
+        trackService.save(createdActivity, track);
+        bestEffortService.record(createdActivity, track);
+        statsService.add(createdActivity);
+        timelineService.publish(createdActivity);
+        return createdActivity;
     }
 
     /**
@@ -57,9 +84,21 @@ public class ActivityServiceImpl implements IActivityService {
      * @return Iterable of activities
      */
     @Override
-    public Page<Activity> getAll(String token, Pageable pageable) {
-        User user = userService.getUserFromToken(token);
-        return activityRepository.findByUser(user, pageable);
+    public Page<ActivityFeedItem> getAll(String token, Pageable pageable) {
+        Long userId = userService.getUserIdFromToken(token);
+        return getFeed(userId, userId, pageable);
+    }
+
+    /**
+     * Retrieve all activities of the authenticated user in descending order of start datetime.
+     *
+     * @param principal the authenticated user
+     * @param pageable the pagination information
+     * @return Iterable of activities
+     */
+    @Override
+    public Page<ActivityFeedItem> getAll(AuthenticatedUser principal, Pageable pageable) {
+        return getFeed(principal.getId(), principal.getId(), pageable);
     }
 
     /**
@@ -70,33 +109,175 @@ public class ActivityServiceImpl implements IActivityService {
      * @return Iterable of activities
      */
     @Override
-    public Page<Activity> getMineAndMyFriends(String token, Pageable pageable) {
-        User user = userService.getUserFromToken(token);
-        List<User> friends = friendRequestService.getFriends(token);
-        friends.add(user);
-        return activityRepository.findByUsers(friends, pageable);
+    public Page<ActivityFeedItem> getMineAndMyFriends(String token, Pageable pageable) {
+        return timelineService.getTimeline(userService.getUserIdFromToken(token), pageable);
+    }
+
+    /**
+     * Retrieve the activities of the authenticated user and his friends in descending order of start datetime.
+     *
+     * @param principal the authenticated user
+     * @param pageable the pagination information
+     * @return Iterable of activities
+     */
+    @Override
+    public Page<ActivityFeedItem> getMineAndMyFriends(AuthenticatedUser principal, Pageable pageable) {
+        return timelineService.getTimeline(principal.getId(), pageable);
     }
 
     /**
      * Retrieve all a user activities
      *
-     * @param token the authentication token of the user
+     * @param principal the authenticated user
      * @param userId user id
      * @param pageable the pagination information
      * @return Iterable of activities
      */
     @Override
-    public Page<Activity> getByUser(String token, Long userId, Pageable pageable) {
-        if (friendRequestService.areFriends(token, userId)) {
-            Optional<User> otherUser = userRepository.findById(userId);
-            if (otherUser.isPresent()) {
-                return activityRepository.findByUser(otherUser.get(), pageable);
-            }
+    public Page<ActivityFeedItem> getByUser(AuthenticatedUser principal, Long userId, Pageable pageable) {
+        if (friendRequestService.areFriends(principal, userId)) {
+            return getFeed(userId, principal.getId(), pageable);
+        }
+
+        throw new SecurityException("You don't have the right to retrieve this user's activities");
+    }
+
+    /**
+     * Retrieve the activities of the current user located after a cursor.
+     *
+     * @param token  the authentication token of the user
+     * @param cursor the position of the last activity already read
+     * @param size   the number of activities to get
+     * @return Slice of activities
+     */
+    @Override
+    public Slice<ActivityFeedItem> getAll(String token, ActivityCursor cursor, int size) {
+        Long userId = userService.getUserIdFromToken(token);
+        return activityRepository.findFeedByUserIdAfterCursor(userId, userId, cursor.getStartDatetime(), cursor.getId(), PageRequest.ofSize(size));
+    }
+
+    /**
+     * Retrieve the activities of the authenticated user located after a cursor.
+     *
+     * @param principal the authenticated user
+     * @param cursor    the position of the last activity already read
+     * @param size      the number of activities to get
+     * @return Slice of activities
+     */
+    @Override
+    public Slice<ActivityFeedItem> getAll(AuthenticatedUser principal, ActivityCursor cursor, int size) {
+        return activityRepository.findFeedByUserIdAfterCursor(principal.getId(), principal.getId(), cursor.getStartDatetime(), cursor.getId(), PageRequest.ofSize(size));
+    }
+
+    /**
+     * Retrieve my activities and my friends located after a cursor.
+     *
+     * @param token  the authentication token of the user
+     * @param cursor the position of the last activity already read
+     * @param size   the number of activities to get
+     * @return Slice of activities
+     */
+    @Override
+    public Slice<ActivityFeedItem> getMineAndMyFriends(String token, ActivityCursor cursor, int size) {
+        return timelineService.getTimeline(userService.getUserIdFromToken(token), cursor, size);
+    }
+
+    /**
+     * Retrieve the activities of the authenticated user and his friends located after a cursor.
+     *
+     * @param principal the authenticated user
+     * @param cursor    the position of the last activity already read
+     * @param size      the number of activities to get
+     * @return Slice of activities
+     */
+    @Override
+    public Slice<ActivityFeedItem> getMineAndMyFriends(AuthenticatedUser principal, ActivityCursor cursor, int size) {
+        return timelineService.getTimeline(principal.getId(), cursor, size);
+    }
+
+    /**
+     * Retrieve the activities of a user located after a cursor.
+     *
+     * @param principal the authenticated user
+     * @param userId    user id
+     * @param cursor    the position of the last activity already read
+     * @param size      the number of activities to get
+     * @return Slice of activities
+     */
+    @Override
+    public Slice<ActivityFeedItem> getByUser(AuthenticatedUser principal, Long userId, ActivityCursor cursor, int size) {
+        if (friendRequestService.areFriends(principal, userId)) {
+            return activityRepository.findFeedByUserIdAfterCursor(userId, principal.getId(),
+                    cursor.getStartDatetime(), cursor.getId(), PageRequest.ofSize(size));
+        }
+
+        throw new SecurityException("You don't have the right to retrieve this user's activities");
+    }
+
+    /**
+     * Retrieve a page of the activities of the authenticated user without counting them,
+     * in the order of the pagination information.
+     *
+     * @param principal the authenticated user
+     * @param pageable  the pagination information
+     * @return Slice of activities
+     */
+    @Override
+    public Slice<ActivityFeedItem> getAllSlice(AuthenticatedUser principal, Pageable pageable) {
+        return activityRepository.findFeedSliceByUserId(principal.getId(), principal.getId(), pageable);
+    }
+
+    /**
+     * Retrieve a page of the activities of the authenticated user and his friends without counting them.
+     *
+     * @param principal the authenticated user
+     * @param pageable  the pagination information
+     * @return Slice of activities
+     */
+    @Override
+    public Slice<ActivityFeedItem> getMineAndMyFriendsSlice(AuthenticatedUser principal, Pageable pageable) {
+        return timelineService.getTimelineSlice(principal.getId(), pageable);
+    }
+
+    /**
+     * Retrieve a page of the activities of a friend without counting them.
+     *
+     * @param principal the authenticated user
+     * @param userId    user id
+     * @param pageable  the pagination information
+     * @return Slice of activities
+     */
+    @Override
+    public Slice<ActivityFeedItem> getByUserSlice(AuthenticatedUser principal, Long userId, Pageable pageable) {
+        if (friendRequestService.areFriends(principal, userId)) {
+            return activityRepository.findFeedSliceByUserId(userId, principal.getId(), pageable);
         }
 
         throw new SecurityException("You don't have the right to retrieve this user's activities");
     }
 
+    /**
+     * Get the approximate number of activities of a user, counted at most once per time to live of the count cache.
+     *
+     * @param userId the user id
+     * @return the number of activities
+     */
+    @Override
+    public long getApproximateActivityCount(Long userId) {
+        return countCache.get("activities:" + userId, () -> activityRepository.countByUserId(userId));
+    }
+
+    /**
+     * Get the approximate number of activities of a user and his friends, from the size of his timeline.
+     *
+     * @param userId the user id
+     * @return the number of activities
+     */
+    @Override
+    public long getApproximateMineAndMyFriendsCount(Long userId) {
+        return timelineService.getApproximateTimelineSize(userId);
+    }
+
     /**
      * Create a new activity for a specific user.
      *
@@ -105,11 +286,43 @@ public class ActivityServiceImpl implements IActivityService {
      * @return the created activity
      */
     @Override
+    @Transactional
     public Activity create(Activity activity, String token) {
         User user = userService.getUserFromToken(token);
-        Activity activityWithMetrics = calculateMetrics(activity);
+        Track track = Track.fromLocations(activity.getLocations() == null ? new ArrayList<>() : activity.getLocations());
+        Activity activityWithMetrics = calculateMetrics(activity, TrackMetricsCalculator.compute(track));
         activityWithMetrics.setUser(user);
-        return activityCrudRepository.save(activityWithMetrics);
+        activityWithMetrics.setLocations(new ArrayList<>());
+        Activity createdActivity = activityCrudRepository.save(activityWithMetrics);
+        trackService.save(createdActivity, track);
+        bestEffortService.record(createdActivity, track);
+        statsService.add(createdActivity);
+        timelineService.publish(createdActivity);
+        return createdActivity;
+    }
+
+    /**
+     * Create a new activity for a specific user from a streamed upload.
+     * The upload being read beforehand, the transaction only lasts for the inserts.
+     *
+     * @param upload the activity read from the upload, with its encoded track
+     * @param token  the authentication token of the user
+     * @return the created activity
+     */
+    @Override
+    @Transactional
+    public Activity create(TrackUpload upload, String token) {
+        User user = userService.getUserFromToken(token);
+        Activity activityWithMetrics = calculateMetrics(upload.getActivity(), upload.getMetrics());
+        activityWithMetrics.setUser(user);
+        activityWithMetrics.setLocations(new ArrayList<>());
+        activityWithMetrics.setComments(new ArrayList<>());
+        Activity createdActivity = activityCrudRepository.save(activityWithMetrics);
+        trackService.save(createdActivity, upload.getPoints(), upload.getData());
+        bestEffortService.record(createdActivity, upload.getBestEfforts());
+        statsService.add(createdActivity);
+        timelineService.publish(createdActivity);
+        return createdActivity;
     }
 
     /**
@@ -143,6 +356,7 @@ public class ActivityServiceImpl implements IActivityService {
      * @throws SecurityException if the activity does not belong to the authentificated user
      */
     @Override
+    @Transactional
     public Activity update(String token, Activity activity) {
         User user = userService.getUserFromToken(token);
 
@@ -150,14 +364,28 @@ public class ActivityServiceImpl implements IActivityService {
                 () -> new EntityNotFoundException("Activity with id: " + activity.getId() + " is not available."));
 
         if(existingActivity.getUser().getId().equals(user.getId())) {
-            Activity updatedActivity = calculateMetrics(activity);
+            Optional<Track> track = trackService.getTrack(existingActivity.getId());
+            TrackMetrics metrics = track.map(TrackMetricsCalculator::compute).orElse(null);
+            Activity updatedActivity = calculateMetrics(activity, metrics);
+            statsService.remove(existingActivity);
             existingActivity.setType(updatedActivity.getType());
             existingActivity.setDistance(updatedActivity.getDistance());
             existingActivity.setStartDatetime(updatedActivity.getStartDatetime());
             existingActivity.setEndDatetime(updatedActivity.getEndDatetime());
             existingActivity.setSpeed(updatedActivity.getSpeed());
-
-            return activityCrudRepository.save(existingActivity);
+            existingActivity.setMovingTime(updatedActivity.getMovingTime());
+            existingActivity.setMaxSpeed(updatedActivity.getMaxSpeed());
+            existingActivity.setSplits(updatedActivity.getSplits());
+
+            Activity savedActivity = activityCrudRepository.save(existingActivity);
+            if (track.isPresent()) {
+                bestEffortService.record(savedActivity, track.get());
+            } else {
+                bestEffortService.forget(savedActivity);
+            }
+            statsService.add(savedActivity);
+            timelineService.move(savedActivity);
+            return savedActivity;
         }
 
         throw new SecurityException("You don't have the right to update this activity");
@@ -171,11 +399,15 @@ public class ActivityServiceImpl implements IActivityService {
      * @throws SecurityException if the activity does not belong to the authentificated user
      */
     @Override
+    @Transactional
     public void delete(String token, long id) {
         User user = userService.getUserFromToken(token);
 
         Activity activity = getById(token, id);
         if(activity.getUser().getId().equals(user.getId())) {
+            timelineService.retract(id);
+            bestEffortService.forget(activity);
+            statsService.remove(activity);
             activityCrudRepository.deleteById(id);
             return;
         }
@@ -241,15 +473,114 @@ public class ActivityServiceImpl implements IActivityService {
      * @param id the activity id
      * @param token    the user's token
      * @return has current user liked activity
+     * @throws EntityNotFoundException if the activity with the given ID is not found
      */
     @Override
     public boolean currentUserLiked(Long id, String token) {
         User user = userService.getUserFromToken(token);
+        if (activityLikeRepository.existsByActivityIdAndUser(id, user)) {
+            return true;
+        }
+        if (!activityCrudRepository.existsById(id)) {
+            throw new EntityNotFoundException("Activity with id: " + id + " is not available.");
+        }
+        return false;
+    }
 
-        Activity activity = activityCrudRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Activity not found"));
+    /**
+     * Get the likes count of several activities at once
+     *
+     * @param ids the activity ids to count likes
+     * @return likes count by activity id, activities without likes are absent
+     */
+    @Override
+    public Map<Long, Long> getActivityLikeCounts(Collection<Long> ids) {
+        Map<Long, Long> likesCounts = new HashMap<>();
+        if (ids.isEmpty()) {
+            return likesCounts;
+        }
 
-        return activityLikeRepository.findByActivityAndUser(activity, user).isPresent();
+        for (Object[] row : activityLikeRepository.countByActivityIds(ids)) {
+            likesCounts.put((Long) row[0], (Long) row[1]);
+        }
+        return likesCounts;
+    }
+
+    /**
+     * Get the activities liked by the current user among several activities
+     *
+     * @param ids   the activity ids
+     * @param token the user's token
+     * @return the ids of the activities liked by the current user
+     */
+    @Override
+    public Set<Long> getActivityIdsLikedByCurrentUser(Collection<Long> ids, String token) {
+        if (ids.isEmpty()) {
+            return new HashSet<>();
+        }
+
+        User user = userService.getUserFromToken(token);
+        return new HashSet<>(activityLikeRepository.findLikedActivityIds(ids, user));
+    }
+
+    /**
+     * Get the activities liked by the authenticated user among several activities
+     *
+     * @param ids       the activity ids
+     * @param principal the authenticated user
+     * @return the ids of the activities liked by the authenticated user
+     */
+    @Override
+    public Set<Long> getActivityIdsLikedByCurrentUser(Collection<Long> ids, AuthenticatedUser principal) {
+        if (ids.isEmpty()) {
+            return new HashSet<>();
+        }
+
+        return new HashSet<>(activityLikeRepository.findLikedActivityIds(ids, userService.getUser(principal)));
+    }
+
+    /**
+     * Get the locations of an activity, decoded from its track
+     *
+     * @param activity the activity
+     * @return the locations of the activity, in recording order
+     */
+    @Override
+    public List<Location> getLocations(Activity activity) {
+        return trackService.getLocations(activity);
+    }
+
+    /**
+     * Get a page of the feed of a user, counting their activities only when the page does not tell their number.
+     */
+    private Page<ActivityFeedItem> getFeed(Long userId, Long viewerId, Pageable pageable) {
+        List<ActivityFeedItem> activities = activityRepository.findFeedByUserId(userId, viewerId, pageable);
+        return PageableExecutionUtils.getPage(activities, pageable, () -> activityRepository.countByUserId(userId));
+    }
+
+    /**
+     * Set the metrics of an activity from its track, falling back to the distance sent by the client
+     * when the track has too few points to be measured. The moving time, max speed and splits are then left empty:
+     * they are only ever computed from a track, never taken from the client.
+     *
+     * @param activity the activity to calculate the metrics for
+     * @param metrics  the metrics computed from the track of the activity, if any
+     * @return the activity with its metrics
+     */
+    private Activity calculateMetrics(Activity activity, TrackMetrics metrics) {
+        if (metrics == null || !metrics.isMeasurable()) {
+            activity.setMovingTime(null);
+            activity.setMaxSpeed(null);
+            activity.setSplits(null);
+            return calculateMetrics(activity);
+        }
+
+        activity.setDistance(metrics.getDistance());
+        activity.setSpeed(metrics.getAverageSpeed());
+        activity.setMovingTime(metrics.getMovingTime());
+        activity.setMaxSpeed(metrics.getMaxSpeed());
+        activity.setSplits(metrics.getSplits());
+        return activity;
     }
 
     /**
@@ -0,0 +1,165 @@
+package canape.benjamin.runflutterrun.services.impl;
+
+import canape.benjamin.runflutterrun.model.Activity;
+import canape.benjamin.runflutterrun.model.ActivityBestEffort;
+import canape.benjamin.runflutterrun.model.PersonalRecord;
+import canape.benjamin.runflutterrun.model.User;
+import canape.benjamin.runflutterrun.model.enums.ActivityType;
+import canape.benjamin.runflutterrun.model.enums.BestEffortDistance;
+import canape.benjamin.runflutterrun.repositories.ActivityBestEffortRepository;
+import canape.benjamin.runflutterrun.repositories.PersonalRecordRepository;
+import canape.benjamin.runflutterrun.services.IBestEffortService;
+import canape.benjamin.runflutterrun.services.IUserService;
+import canape.benjamin.runflutterrun.tracks.BestEffortCalculator;
+import canape.benjamin.runflutterrun.tracks.Track;
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * This service implementation class stores the best efforts of each activity, computed once from its track,
+ * and keeps the personal records table in line with them, so that records are read without scanning tracks.
+ */
+@Service
+@AllArgsConstructor
+public class BestEffortServiceImpl implements IBestEffortService {
+
+    private static final BestEffortDistance[] DISTANCES = BestEffortDistance.values();
+    private static final double[] KILOMETERS = BestEffortDistance.allKilometers();
+
+    private final ActivityBestEffortRepository activityBestEffortRepository;
+    private final PersonalRecordRepository personalRecordRepository;
+    private final IUserService userService;
+
+    /**
+     * Compute the best efforts of an activity from its track and update the personal records of its user.
+     * Records the activity held are recomputed, its best efforts having possibly changed.
+     *
+     * @param activity the created or updated activity
+     * @param track    the track of the activity
+     */
+    @Override
+    @Transactional
+    public void record(Activity activity, Track track) {
+        record(activity, BestEffortCalculator.compute(track, KILOMETERS));
+    }
+
+    /**
+     * Store the best efforts of an activity computed while reading its track and update the personal records of its user.
+     * Records the activity held are recomputed, its best efforts having possibly changed.
+     *
+     * @param activity  the created or updated activity
+     * @param durations the durations of its best efforts, one per distance
+     */
+    @Override
+    @Transactional
+    public void record(Activity activity, long[] durations) {
+        List<PersonalRecord> heldRecords = personalRecordRepository.findByActivityId(activity.getId());
+        activityBestEffortRepository.deleteByActivityId(activity.getId());
+
+        List<ActivityBestEffort> bestEfforts = toBestEfforts(activity, durations);
+        activityBestEffortRepository.saveAll(bestEfforts);
+
+        for (PersonalRecord record : heldRecords) {
+            recompute(record.getUser(), record.getType(), record.getDistance());
+        }
+        for (ActivityBestEffort bestEffort : bestEfforts) {
+            Optional<PersonalRecord> record = personalRecordRepository.findByUserAndTypeAndDistance(
+                    bestEffort.getUser(), bestEffort.getType(), bestEffort.getDistance());
+            if (record.isEmpty() || bestEffort.getDuration() < record.get().getDuration()) {
+                saveRecord(record.orElseGet(PersonalRecord::new), bestEffort);
+            }
+        }
+    }
+
+    /**
+     * Remove the best efforts of an activity about to be deleted, recomputing the personal records it held
+     * from the best efforts of the other activities.
+     *
+     * @param activity the activity
+     */
+    @Override
+    @Transactional
+    public void forget(Activity activity) {
+        List<PersonalRecord> heldRecords = personalRecordRepository.findByActivityId(activity.getId());
+        activityBestEffortRepository.deleteByActivityId(activity.getId());
+
+        for (PersonalRecord record : heldRecords) {
+            recompute(record.getUser(), record.getType(), record.getDistance());
+        }
+    }
+
+    /**
+     * Get the personal records of the current user.
+     *
+     * @param token the user's token
+     * @return the personal records, by type of activity then distance
+     */
+    @Override
+    public List<PersonalRecord> getPersonalRecords(String token) {
+        User user = userService.getUserFromToken(token);
+        List<PersonalRecord> records = new ArrayList<>(personalRecordRepository.findByUser(user));
+        records.sort(Comparator.comparing(PersonalRecord::getType).thenComparing(PersonalRecord::getDistance));
+        return records;
+    }
+
+    /**
+     * Build the best efforts of an activity on every distance its track covers.
+     *
+     * @param activity  the activity
+     * @param durations the durations of its best efforts, one per distance
+     * @return the best efforts
+     */
+    private List<ActivityBestEffort> toBestEfforts(Activity activity, long[] durations) {
+        List<ActivityBestEffort> bestEfforts = new ArrayList<>();
+        if (activity.getType() == null) {
+            return bestEfforts;
+        }
+
+        for (int i = 0; i < DISTANCES.length; i++) {
+            if (durations[i] != BestEffortCalculator.NOT_COVERED) {
+                ActivityBestEffort bestEffort = new ActivityBestEffort();
+                bestEffort.setActivity(activity);
+                bestEffort.setUser(activity.getUser());
+                bestEffort.setType(activity.getType());
+                bestEffort.setDistance(DISTANCES[i]);
+                bestEffort.setDuration(durations[i]);
+                bestEfforts.add(bestEffort);
+            }
+        }
+        return bestEfforts;
+    }
+
+    /**
+     * Recompute a personal record from the stored best efforts, removing it if none is left.
+     *
+     * @param user     the user holding the record
+     * @param type     the type of activity
+     * @param distance the distance
+     */
+    private void recompute(User user, ActivityType type, BestEffortDistance distance) {
+        Optional<PersonalRecord> record = personalRecordRepository.findByUserAndTypeAndDistance(user, type, distance);
+        List<ActivityBestEffort> fastest = activityBestEffortRepository.findFastest(user, type, distance, PageRequest.ofSize(1));
+
+        if (fastest.isEmpty()) {
+            record.ifPresent(personalRecordRepository::delete);
+        } else {
+            saveRecord(record.orElseGet(PersonalRecord::new), fastest.get(0));
+        }
+    }
+
+    private void saveRecord(PersonalRecord record, ActivityBestEffort bestEffort) {
+        record.setUser(bestEffort.getUser());
+        record.setType(bestEffort.getType());
+        record.setDistance(bestEffort.getDistance());
+        record.setDuration(bestEffort.getDuration());
+        record.setActivity(bestEffort.getActivity());
+        personalRecordRepository.save(record);
+    }
+}
@@ -0,0 +1,142 @@
+package canape.benjamin.runflutterrun.services.impl;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * A bounded cache of the totals shown next to paged lists, so that they are counted once in a while
+ * rather than on every page.
+ * <p>
+ * Totals are never invalidated, only kept for a limited time: they are approximate, lagging behind the
+ * lists by at most that time. Once the cache is full, the expired totals are evicted, then all of them
+ * if that is not enough. Hit and miss counts are exposed over JMX.
+ */
+@Component
+@ManagedResource(objectName = "canape.benjamin.runflutterrun:type=Cache,name=counts")
+public class CountCache {
+
+    private static final int DEFAULT_MAX_SIZE = 10000;
+    private static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(1);
+
+    private final int maxSize;
+    private final long timeToLiveNanos;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Create the cache sized by the spring.counts.cache.max-size and spring.counts.cache.ttl properties.
+     *
+     * @param env the environment
+     */
+    @Autowired
+    public CountCache(Environment env) {
+        this(env.getProperty("spring.counts.cache.max-size", Integer.class, DEFAULT_MAX_SIZE),
+                env.getProperty("spring.counts.cache.ttl", Duration.class, DEFAULT_TIME_TO_LIVE));
+    }
+
+    /**
+     * Create a cache.
+     *
+     * @param maxSize    the maximum number of totals kept
+     * @param timeToLive how long a total is kept once counted
+     */
+    public CountCache(int maxSize, Duration timeToLive) {
+        this.maxSize = Math.max(1, maxSize);
+        this.timeToLiveNanos = timeToLive.toNanos();
+    }
+
+    /**
+     * Get a total, counting it on a miss.
+     *
+     * @param key     the key of the total, such as the name of the list followed by the id of its owner
+     * @param counter counts the total when it is not cached
+     * @return the total, as counted at most the time to live ago
+     */
+    public long get(String key, LongSupplier counter) {
+        long now = System.nanoTime();
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.isExpired(now)) {
+            hits.increment();
+            return entry.count;
+        }
+
+        misses.increment();
+        long count = counter.getAsLong();
+        entries.put(key, new Entry(count, System.nanoTime() + timeToLiveNanos));
+        if (entries.size() > maxSize) {
+            evict();
+        }
+        return count;
+    }
+
+    /**
+     * Forget every total.
+     */
+    @ManagedOperation(description = "Forget every cached total")
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    @ManagedAttribute(description = "Number of cached totals")
+    public int getSize() {
+        return entries.size();
+    }
+
+    @ManagedAttribute(description = "Number of reads answered from the cache")
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @ManagedAttribute(description = "Number of reads which counted the total")
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Remove the expired totals then, if the cache is still full, all of them.
+     * Only one thread sweeps at a time, the others carry on while it does.
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            entries.entrySet().removeIf(e -> e.getValue().isExpired(now));
+            if (entries.size() > maxSize) {
+                entries.clear();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static final class Entry {
+        private final long count;
+        private final long expiresAtNanos;
+
+        private Entry(long count, long expiresAtNanos) {
+            this.count = count;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package canape.benjamin.runflutterrun.services.impl;
 
 import canape.benjamin.runflutterrun.model.FriendRequest;
+import canape.benjamin.runflutterrun.model.FriendRequestStatusResult;
 import canape.benjamin.runflutterrun.model.User;
 import canape.benjamin.runflutterrun.model.enums.FriendRequestStatus;
 import canape.benjamin.runflutterrun.repositories.FriendRequestCrudRepository;
 import canape.benjamin.runflutterrun.repositories.FriendRequestRepository;
+import canape.benjamin.runflutterrun.security.AuthenticatedUser;
 import canape.benjamin.runflutterrun.services.IFriendRequestService;
+import canape.benjamin.runflutterrun.services.IFriendSuggestionService;
+import canape.benjamin.runflutterrun.services.IFriendshipGraphService;
+import canape.benjamin.runflutterrun.services.ITimelineService;
 import canape.benjamin.runflutterrun.services.IUserService;
 import jakarta.persistence.EntityExistsException;
 import jakarta.persistence.EntityNotFoundException;
@@ -13,10 +18,14 @@ import lombok.AllArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -27,9 +36,18 @@ import java.util.Optional;
 @AllArgsConstructor
 public class FriendRequestServiceImpl implements IFriendRequestService {
 
+    /**
+     * The maximum number of users whose friend request status can be asked at once.
+     */
+    static final int MAX_STATUS_USERS = 100;
+
     private final FriendRequestRepository friendRequestRepository;
     private final FriendRequestCrudRepository friendRequestCrudRepository;
     private final IUserService userService;
+    private final ITimelineService timelineService;
+    private final IFriendshipGraphService friendshipGraphService;
+    private final IFriendSuggestionService friendSuggestionService;
+    private final CountCache countCache;
 
     /**
      * Retrieves a list of pending friend requests for the user associated with the given token.
@@ -43,6 +61,29 @@ public class FriendRequestServiceImpl implements IFriendRequestService {
         return friendRequestRepository.findByReceiverAndStatus(user, FriendRequestStatus.PENDING, pageable);
     }
 
+    /**
+     * Retrieves a page of the pending friend requests sent to a user without counting them, nor loading the user.
+     *
+     * @param userId   The ID of the user.
+     * @param pageable The pagination information.
+     * @return A Slice of FriendRequest objects representing pending friend requests.
+     */
+    public Slice<FriendRequest> getPendingFriendRequestSlice(Long userId, Pageable pageable) {
+        return friendRequestRepository.findSliceByReceiverIdAndStatus(userId, FriendRequestStatus.PENDING, pageable);
+    }
+
+    /**
+     * Retrieves the approximate number of pending friend requests sent to a user, counted at most once per
+     * time to live of the count cache.
+     *
+     * @param userId The ID of the user.
+     * @return The number of pending friend requests.
+     */
+    public long getApproximatePendingFriendRequestCount(Long userId) {
+        return countCache.get("pendingFriendRequests:" + userId,
+                () -> friendRequestRepository.countByReceiverIdAndStatus(userId, FriendRequestStatus.PENDING));
+    }
+
     /**
      * Retrieves a specific friend request sent to the user associated with the given token and the specified userId.
      *
@@ -57,6 +98,30 @@ public class FriendRequestServiceImpl implements IFriendRequestService {
         return friendRequestCrudRepository.findBySenderAndReceiver(user, otherUser);
     }
 
+    /**
+     * Retrieves the status of the friend requests between a user and many other users, in a single query,
+     * without loading the users themselves.
+     *
+     * @param userId       The ID of the user.
+     * @param otherUserIds The IDs of the other users.
+     * @return The status of the friend request with each of the other users having one, by their ID.
+     * @throws IllegalArgumentException if there are more than MAX_STATUS_USERS other users.
+     */
+    public Map<Long, FriendRequestStatus> getFriendRequestStatuses(Long userId, Collection<Long> otherUserIds) {
+        if (otherUserIds.size() > MAX_STATUS_USERS) {
+            throw new IllegalArgumentException("At most " + MAX_STATUS_USERS + " users can be asked at once.");
+        }
+
+        Map<Long, FriendRequestStatus> statuses = new HashMap<>();
+        if (otherUserIds.isEmpty()) {
+            return statuses;
+        }
+        for (FriendRequestStatusResult result : friendRequestCrudRepository.findStatusesByUserIdAndOtherUserIds(userId, otherUserIds)) {
+            statuses.put(result.getUserId(), result.getStatus());
+        }
+        return statuses;
+    }
+
     /**
      * Sends a friend request from the user associated with the given token to the user with the specified receiverId.
      *
@@ -66,6 +131,7 @@ public class FriendRequestServiceImpl implements IFriendRequestService {
      * @throws EntityNotFoundException    if the specified user with receiverId does not exist.
      * @throws EntityExistsException      if a friend request already exists between the sender and receiver.
      */
+    @Transactional
     public FriendRequest sendFriendRequest(String token, Long receiverId) {
         User sender = userService.getUserFromToken(token);
         User receiver = userService.getUserById(receiverId);
@@ -73,8 +139,11 @@ public class FriendRequestServiceImpl implements IFriendRequestService {
         FriendRequest existingFriendRequest = friendRequestCrudRepository.findBySenderAndReceiver(sender, receiver)
                 .orElseGet(() -> createFriendRequest(sender, receiver));
 
+        FriendRequestStatus previousStatus = existingFriendRequest.getStatus();
         existingFriendRequest.setStatus(FriendRequestStatus.PENDING);
-        return friendRequestCrudRepository.save(existingFriendRequest);
+        FriendRequest savedFriendRequest = friendRequestCrudRepository.save(existingFriendRequest);
+        propagateStatusChange(savedFriendRequest, previousStatus);
+        return savedFriendRequest;
     }
 
     /**
@@ -86,6 +155,7 @@ public class FriendRequestServiceImpl implements IFriendRequestService {
      * @throws EntityNotFoundException    if the specified friend request with requestId does not exist.
      * @throws SecurityException          if the authenticated user is not the receiver of the friend request.
      */
+    @Transactional
     public FriendRequest acceptFriendRequest(String token, Long userId) {
         return updateFriendRequestStatus(token, userId, FriendRequestStatus.ACCEPTED);
     }
@@ -99,6 +169,7 @@ public class FriendRequestServiceImpl implements IFriendRequestService {
      * @throws EntityNotFoundException    if the specified friend request with requestId does not exist.
      * @throws SecurityException          if the authenticated user is not the receiver of the friend request.
      */
+    @Transactional
     public FriendRequest rejectFriendRequest(String token, Long userId) {
         return updateFriendRequestStatus(token, userId, FriendRequestStatus.REJECTED);
     }
@@ -112,47 +183,43 @@ public class FriendRequestServiceImpl implements IFriendRequestService {
      * @throws EntityNotFoundException    if the specified friend request with requestId does not exist.
      * @throws SecurityException          if the authenticated user is not the sender of the friend request.
      */
+    @Transactional
     public FriendRequest cancelFriendRequest(String token, Long userId) {
         return updateFriendRequestStatus(token, userId, FriendRequestStatus.CANCELED);
     }
 
 
     /**
-     * checks if the two users are friends
+     * checks if the two users are friends, from the friendships kept in memory
      *
      * @param token the current user token
      * @param userId The other user id
      * @return true if they are friends, else false
      */
     public boolean areFriends(String token, Long userId) {
-        User user = userService.getUserFromToken(token);
-        User receiver = userService.getUserById(userId);
-
-        Optional<FriendRequest> existingFriendRequest = friendRequestCrudRepository.findBySenderAndReceiver(user, receiver);
+        return friendshipGraphService.areFriends(userService.getUserIdFromToken(token), userId);
+    }
 
-        return existingFriendRequest.isPresent() && existingFriendRequest.get().getStatus() == FriendRequestStatus.ACCEPTED;
+    /**
+     * checks if the authenticated user and another user are friends, from the friendships kept in memory
+     *
+     * @param principal the authenticated user
+     * @param userId The other user id
+     * @return true if they are friends, else false
+     */
+    @Override
+    public boolean areFriends(AuthenticatedUser principal, Long userId) {
+        return friendshipGraphService.areFriends(principal.getId(), userId);
     }
 
     /**
-     * get the friends of the current user
+     * get the friends of the current user, from the friendships kept in memory
      *
      * @param token the current user token
      * @return list of user
      */
     public List<User> getFriends(String token) {
-        User user = userService.getUserFromToken(token);
-
-        List<FriendRequest> friendRequests = friendRequestCrudRepository.findByUserAndStatus(user, FriendRequestStatus.ACCEPTED);
-
-        List<User> friends = new ArrayList<>();
-        for (FriendRequest item : friendRequests) {
-            if (item.getSender().equals(user)) {
-                friends.add(item.getReceiver());
-            } else {
-                friends.add(item.getSender());
-            }
-        }
-        return friends;
+        return userService.getUsersByIds(friendshipGraphService.getFriendIds(userService.getUserIdFromToken(token)));
     }
 
     /**
@@ -195,7 +262,39 @@ public class FriendRequestServiceImpl implements IFriendRequestService {
             throw new SecurityException("Friend request doesn't concern you.");
         }
 
+        FriendRequestStatus previousStatus = friendRequest.getStatus();
         friendRequest.setStatus(status);
-        return friendRequestCrudRepository.save(friendRequest);
+        FriendRequest savedFriendRequest = friendRequestCrudRepository.save(friendRequest);
+        propagateStatusChange(savedFriendRequest, previousStatus);
+        return savedFriendRequest;
+    }
+
+    /**
+     * Keeps the timelines of the two users of a friend request, and the friendships kept in memory, in line with
+     * their friendship. Both timelines are also scheduled for a rebuild, repairing the activities created during the change.
+     * The friend suggestions around the two users are scheduled for a refresh on any change of status, once the
+     * friendships kept in memory are changed.
+     *
+     * @param friendRequest  The friend request whose status changed.
+     * @param previousStatus The status of the friend request before the change.
+     */
+    private void propagateStatusChange(FriendRequest friendRequest, FriendRequestStatus previousStatus) {
+        boolean wereFriends = previousStatus == FriendRequestStatus.ACCEPTED;
+        boolean areFriends = friendRequest.getStatus() == FriendRequestStatus.ACCEPTED;
+        Long senderId = friendRequest.getSender().getId();
+        Long receiverId = friendRequest.getReceiver().getId();
+        if (wereFriends != areFriends) {
+            friendshipGraphService.friendshipChanged(senderId, receiverId, areFriends);
+            if (areFriends) {
+                timelineService.follow(senderId, receiverId);
+            } else {
+                timelineService.unfollow(senderId, receiverId);
+            }
+            timelineService.scheduleRebuild(senderId);
+            timelineService.scheduleRebuild(receiverId);
+        }
+        if (friendRequest.getStatus() != previousStatus) {
+            friendSuggestionService.friendRequestChanged(senderId, receiverId, wereFriends != areFriends);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,174 @@
+package canape.benjamin.runflutterrun.services.impl;
+
+import canape.benjamin.runflutterrun.graph.FriendCandidate;
+import canape.benjamin.runflutterrun.model.FriendSuggestion;
+import canape.benjamin.runflutterrun.model.FriendSuggestionResult;
+import canape.benjamin.runflutterrun.model.enums.FriendRequestStatus;
+import canape.benjamin.runflutterrun.repositories.FriendRequestCrudRepository;
+import canape.benjamin.runflutterrun.repositories.FriendSuggestionRepository;
+import canape.benjamin.runflutterrun.repositories.FriendSuggestionStateRepository;
+import canape.benjamin.runflutterrun.services.IFriendSuggestionService;
+import canape.benjamin.runflutterrun.services.IFriendshipGraphService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This service implementation class maintains the friend_suggestion table, the precomputed "people you may know"
+ * of each user: the friends of their friends, scored by number of mutual friends, leaving out their friends and
+ * the users they have a pending friend request with.
+ * <p>
+ * The suggestions are computed from the friendships kept in memory and refreshed in the background for the users
+ * around each friend request change, so that reading them is a single indexed lookup.
+ */
+@Service
+@RequiredArgsConstructor
+public class FriendSuggestionServiceImpl implements IFriendSuggestionService {
+
+    /**
+     * The number of suggestions stored for each user.
+     */
+    static final int MAX_SUGGESTIONS = 50;
+
+    private final FriendSuggestionRepository friendSuggestionRepository;
+    private final FriendSuggestionStateRepository friendSuggestionStateRepository;
+    private final FriendRequestCrudRepository friendRequestCrudRepository;
+    private final IFriendshipGraphService friendshipGraphService;
+
+    private final Set<Long> scheduledRefreshes = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Get the users suggested to a user, computing them if they never were. A user without any suggestion is
+     * left to the refreshes scheduled on friend request changes, and so is a user whose suggestions cannot be
+     * computed before the friendships are loaded, who gets an empty list meanwhile.
+     * The users who became friends since the last refresh are left out.
+     *
+     * @param userId the id of the user
+     * @param size   the maximum number of suggestions
+     * @return the users suggested
+     */
+    @Override
+    @Transactional
+    public List<FriendSuggestionResult> getSuggestions(Long userId, int size) {
+        PageRequest pageable = PageRequest.ofSize(Math.min(size, MAX_SUGGESTIONS));
+        List<FriendSuggestionResult> suggestions = friendSuggestionRepository.findByUserId(userId, pageable);
+        if (suggestions.isEmpty() && !friendSuggestionStateRepository.existsById(userId) && computeFirstSuggestions(userId)) {
+            suggestions = friendSuggestionRepository.findByUserId(userId, pageable);
+        }
+        return suggestions.stream()
+                .filter(suggestion -> !friendshipGraphService.areFriends(userId, suggestion.getId()))
+                .toList();
+    }
+
+    /**
+     * Compute again and store the suggestions made to a user.
+     *
+     * @param userId the id of the user
+     * @return the number of suggestions stored
+     */
+    @Override
+    @Transactional
+    public int refresh(Long userId) {
+        long[] pendingIds = friendRequestCrudRepository.findOtherUserIdsByUserIdAndStatus(userId, FriendRequestStatus.PENDING)
+                .stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+        List<FriendCandidate> candidates = friendshipGraphService.suggestFriends(userId, pendingIds, MAX_SUGGESTIONS);
+
+        friendSuggestionRepository.deleteByUserId(userId);
+        friendSuggestionRepository.saveAll(candidates.stream()
+                .map(candidate -> new FriendSuggestion(userId, candidate.getUserId(), candidate.getMutualFriendCount()))
+                .toList());
+        friendSuggestionStateRepository.markComputed(userId);
+        return candidates.size();
+    }
+
+    /**
+     * Compute the suggestions of a user read for the first time, or schedule them when the friendships are not
+     * loaded yet.
+     *
+     * @param userId the id of the user
+     * @return true if some suggestions were stored
+     */
+    private boolean computeFirstSuggestions(Long userId) {
+        try {
+            return refresh(userId) > 0;
+        } catch (IllegalStateException e) {
+            scheduleRefresh(userId);
+            return false;
+        }
+    }
+
+    /**
+     * Schedule the refresh of the suggestions affected by a change of the status of a friend request, once the
+     * transaction is committed: the suggestion job would otherwise compute them from the friendships before the
+     * change, and forget them. The friends of the two users are read before the change is applied, each user being
+     * scheduled anyway.
+     *
+     * @param senderId          the id of the user who sent the friend request
+     * @param receiverId        the id of the user who received the friend request
+     * @param friendshipChanged whether the two users became friends or stopped being friends
+     */
+    @Override
+    public void friendRequestChanged(Long senderId, Long receiverId, boolean friendshipChanged) {
+        Set<Long> userIds = new HashSet<>();
+        userIds.add(senderId);
+        userIds.add(receiverId);
+        if (friendshipChanged) {
+            for (long friendId : friendshipGraphService.getFriendIds(senderId)) {
+                userIds.add(friendId);
+            }
+            for (long friendId : friendshipGraphService.getFriendIds(receiverId)) {
+                userIds.add(friendId);
+            }
+        }
+        afterCommit(() -> userIds.forEach(this::scheduleRefresh));
+    }
+
+    /**
+     * Ask for the suggestions of a user to be refreshed by the next run of the suggestion job.
+     *
+     * @param userId the id of the user
+     */
+    @Override
+    public void scheduleRefresh(Long userId) {
+        scheduledRefreshes.add(userId);
+    }
+
+    /**
+     * Get and forget the users whose suggestions have to be refreshed.
+     *
+     * @return the ids of the users
+     */
+    @Override
+    public Set<Long> drainScheduledRefreshes() {
+        Set<Long> userIds = new HashSet<>();
+        for (Iterator<Long> iterator = scheduledRefreshes.iterator(); iterator.hasNext(); ) {
+            userIds.add(iterator.next());
+            iterator.remove();
+        }
+        return userIds;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
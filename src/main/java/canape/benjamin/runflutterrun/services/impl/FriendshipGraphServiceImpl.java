@@ -0,0 +1,283 @@
+package canape.benjamin.runflutterrun.services.impl;
+
+import canape.benjamin.runflutterrun.graph.FriendCandidate;
+import canape.benjamin.runflutterrun.graph.FriendshipGraph;
+import canape.benjamin.runflutterrun.graph.LongHashSet;
+import canape.benjamin.runflutterrun.model.Friendship;
+import canape.benjamin.runflutterrun.model.enums.FriendRequestStatus;
+import canape.benjamin.runflutterrun.repositories.FriendRequestCrudRepository;
+import canape.benjamin.runflutterrun.services.IFriendshipGraphService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * This service implementation class keeps the friendships of all the users in memory, as sets of unboxed ids,
+ * so that checking a friendship or listing the friends of a user needs no database access.
+ * <p>
+ * The friendships are loaded once at startup. Every change is applied locally when its transaction commits,
+ * and notified to the other nodes through PostgreSQL NOTIFY on the same commit: each node listens on its own
+ * connection and reads the friendships changed back from the database. Until the first load ends, the
+ * friendships are read from the database.
+ */
+@Service
+@RequiredArgsConstructor
+public class FriendshipGraphServiceImpl implements IFriendshipGraphService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FriendshipGraphServiceImpl.class);
+
+    /**
+     * The channel of the notifications, whose payload is "userId:otherUserId" for a friendship and "userId"
+     * for all the friendships of a user.
+     */
+    static final String CHANNEL = "friendships";
+
+    /**
+     * How long a call to listen waits for notifications, kept short since it runs on the shared scheduler.
+     */
+    private static final int NOTIFICATION_TIMEOUT_MILLIS = 10;
+
+    private final FriendRequestCrudRepository friendRequestCrudRepository;
+    private final Environment env;
+
+    private volatile FriendshipGraph graph;
+
+    /**
+     * The changes applied while a load is running, applied again to the loaded graph, which may not see them.
+     */
+    private List<Consumer<FriendshipGraph>> changesWhileLoading;
+
+    private final Object listeningLock = new Object();
+
+    private Connection listeningConnection;
+
+    /**
+     * Check whether two users are friends.
+     *
+     * @param userId      the id of a user
+     * @param otherUserId the id of the other user
+     * @return true if they are friends, false otherwise
+     */
+    @Override
+    public boolean areFriends(Long userId, Long otherUserId) {
+        FriendshipGraph current = graph;
+        if (current == null) {
+            return friendRequestCrudRepository.existsByUserIdsAndStatus(userId, otherUserId, FriendRequestStatus.ACCEPTED);
+        }
+        return current.areFriends(userId, otherUserId);
+    }
+
+    /**
+     * Get the friends of a user.
+     *
+     * @param userId the id of the user
+     * @return the ids of the friends of the user
+     */
+    @Override
+    public long[] getFriendIds(Long userId) {
+        FriendshipGraph current = graph;
+        if (current == null) {
+            return toArray(friendRequestCrudRepository.findOtherUserIdsByUserIdAndStatus(userId, FriendRequestStatus.ACCEPTED));
+        }
+        return current.getFriends(userId).toArray();
+    }
+
+    /**
+     * Find the friends of the friends of a user who share the most friends with them, walking the graph in memory.
+     *
+     * @param userId      the id of the user
+     * @param excludedIds the ids of the users never to suggest, besides the user and their friends
+     * @param limit       the maximum number of candidates
+     * @return the candidates, sorted by decreasing number of mutual friends
+     * @throws IllegalStateException if the friendships are not loaded yet
+     */
+    @Override
+    public List<FriendCandidate> suggestFriends(Long userId, long[] excludedIds, int limit) {
+        FriendshipGraph current = graph;
+        if (current == null) {
+            throw new IllegalStateException("The friendships are not loaded yet");
+        }
+        return current.suggestFriends(userId, LongHashSet.of(excludedIds, excludedIds.length), limit);
+    }
+
+    /**
+     * Record a change of the friendship between two users, made by the current transaction.
+     *
+     * @param userId      the id of a user
+     * @param otherUserId the id of the other user
+     * @param areFriends  whether they are now friends
+     */
+    @Override
+    public void friendshipChanged(Long userId, Long otherUserId, boolean areFriends) {
+        friendRequestCrudRepository.sendNotification(CHANNEL, userId + ":" + otherUserId);
+        afterCommit(g -> g.setFriends(userId, otherUserId, areFriends));
+    }
+
+    /**
+     * Record the deletion of a user by the current transaction.
+     *
+     * @param userId the id of the user
+     */
+    @Override
+    public void userDeleted(Long userId) {
+        friendRequestCrudRepository.sendNotification(CHANNEL, userId.toString());
+        afterCommit(g -> g.replaceFriends(userId, new long[0]));
+    }
+
+    /**
+     * Load all the friendships from the database, streaming them rather than reading them all at once.
+     *
+     * @return the number of friendships loaded
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public int load() {
+        synchronized (this) {
+            changesWhileLoading = new ArrayList<>();
+        }
+
+        FriendshipGraph.Builder builder = new FriendshipGraph.Builder();
+        int count = 0;
+        try (Stream<Friendship> friendships = friendRequestCrudRepository.streamByStatus(FriendRequestStatus.ACCEPTED)) {
+            for (Friendship friendship : (Iterable<Friendship>) friendships::iterator) {
+                builder.add(friendship.getSenderId(), friendship.getReceiverId());
+                count++;
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                changesWhileLoading = null;
+            }
+            throw e;
+        }
+
+        FriendshipGraph loaded = builder.build();
+        synchronized (this) {
+            changesWhileLoading.forEach(change -> change.accept(loaded));
+            changesWhileLoading = null;
+            graph = loaded;
+        }
+        LOGGER.info("{} friendships of {} users loaded in memory", count, loaded.getUserCount());
+        return count;
+    }
+
+    /**
+     * Apply the changes notified by the nodes since the last call, listening to them first if not yet done.
+     * Any failure closes the listening connection, so that the next call starts listening again.
+     *
+     * @return true if the friendships must be loaded
+     */
+    @Override
+    public boolean listen() {
+        synchronized (listeningLock) {
+            boolean started = false;
+            try {
+                if (listeningConnection == null) {
+                    listeningConnection = openListeningConnection();
+                    started = true;
+                }
+
+                PGNotification[] notifications = listeningConnection.unwrap(PGConnection.class).getNotifications(NOTIFICATION_TIMEOUT_MILLIS);
+                if (notifications != null) {
+                    for (PGNotification notification : notifications) {
+                        refresh(notification.getParameter());
+                    }
+                }
+                return started || graph == null;
+            } catch (SQLException | RuntimeException e) {
+                stopListening();
+                throw new IllegalStateException("Cannot apply the friendship changes: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Stop listening to the other nodes.
+     */
+    @PreDestroy
+    public void stopListening() {
+        synchronized (listeningLock) {
+            if (listeningConnection != null) {
+                try {
+                    listeningConnection.close();
+                } catch (SQLException e) {
+                    LOGGER.error("FriendshipGraphServiceImpl | stopListening | Cannot close the connection: {}", e.getMessage());
+                }
+                listeningConnection = null;
+            }
+        }
+    }
+
+    /**
+     * Open a connection of its own, out of the pool since it is held for as long as the node runs.
+     */
+    private Connection openListeningConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(env.getProperty("spring.datasource.url"),
+                env.getProperty("spring.datasource.username"), env.getProperty("spring.datasource.password"));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("listen " + CHANNEL);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    /**
+     * Read back from the database the friendships named by a notification.
+     */
+    private void refresh(String payload) {
+        int separator = payload.indexOf(':');
+        if (separator < 0) {
+            Long userId = Long.valueOf(payload);
+            long[] friendIds = toArray(friendRequestCrudRepository.findOtherUserIdsByUserIdAndStatus(userId, FriendRequestStatus.ACCEPTED));
+            apply(g -> g.replaceFriends(userId, friendIds));
+        } else {
+            Long userId = Long.valueOf(payload.substring(0, separator));
+            Long otherUserId = Long.valueOf(payload.substring(separator + 1));
+            boolean areFriends = friendRequestCrudRepository.existsByUserIdsAndStatus(userId, otherUserId, FriendRequestStatus.ACCEPTED);
+            apply(g -> g.setFriends(userId, otherUserId, areFriends));
+        }
+    }
+
+    private void afterCommit(Consumer<FriendshipGraph> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    private synchronized void apply(Consumer<FriendshipGraph> change) {
+        if (changesWhileLoading != null) {
+            changesWhileLoading.add(change);
+        }
+        if (graph != null) {
+            change.accept(graph);
+        }
+    }
+
+    private static long[] toArray(List<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,47 @@
+package canape.benjamin.runflutterrun.services.impl;
+
+import canape.benjamin.runflutterrun.services.IProfilePictureService;
+import canape.benjamin.runflutterrun.services.IUserService;
+import canape.benjamin.runflutterrun.storage.Blob;
+import canape.benjamin.runflutterrun.storage.BlobStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@Service
+@RequiredArgsConstructor
+public class ProfilePictureServiceImpl implements IProfilePictureService {
+
+    private static final DataSize DEFAULT_MAX_SIZE = DataSize.ofMegabytes(1);
+
+    private final BlobStore blobStore;
+    private final IUserService userService;
+    private final Environment env;
+
+    /**
+     * Upload the profile picture of the current user.
+     * The picture is stored before the transaction updating the user starts, so that no database connection
+     * is held while a slow client sends it. If the user cannot be updated, the stored picture is left unused.
+     *
+     * @param token       the token of the current user
+     * @param content     the picture, read until its end but not closed
+     * @param contentType the content type of the picture
+     * @throws IOException if the picture is too large, or cannot be read or stored
+     */
+    @Override
+    public void upload(String token, InputStream content, String contentType) throws IOException {
+        String maxFileSize = env.getProperty("spring.servlet.multipart.max-file-size");
+        long maxSize = (maxFileSize != null ? DataSize.parse(maxFileSize) : DEFAULT_MAX_SIZE).toBytes();
+        Blob picture = blobStore.put(content, maxSize);
+        try {
+            userService.setProfilePicture(token, picture, contentType);
+        } catch (RuntimeException e) {
+            userService.markUnusedProfilePicture(picture.getKey());
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package canape.benjamin.runflutterrun.services.impl;
+
+import canape.benjamin.runflutterrun.model.Activity;
+import canape.benjamin.runflutterrun.model.ActivityStats;
+import canape.benjamin.runflutterrun.model.User;
+import canape.benjamin.runflutterrun.model.enums.StatsPeriod;
+import canape.benjamin.runflutterrun.repositories.ActivityStatsRepository;
+import canape.benjamin.runflutterrun.services.IStatsService;
+import canape.benjamin.runflutterrun.services.IUserService;
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * This service implementation class keeps one bucket of totals per user, period and type of activity,
+ * incremented in place by a single upsert per period, so that a year of statistics is one index range read.
+ * Buckets are computed in the time zone of the server, the one start datetimes are stored in.
+ */
+@Service
+@AllArgsConstructor
+public class StatsServiceImpl implements IStatsService {
+
+    /**
+     * The id excluding no activity from a rollup, ids starting at 1.
+     */
+    private static final long NO_ACTIVITY = 0L;
+
+    private final ActivityStatsRepository activityStatsRepository;
+    private final IUserService userService;
+
+    /**
+     * Add an activity to the statistics of its user.
+     * A user without statistics yet first has them computed from his other activities,
+     * rather than only this activity being counted.
+     *
+     * @param activity the activity
+     */
+    @Override
+    @Transactional
+    public void add(Activity activity) {
+        if (!activityStatsRepository.existsByUserId(activity.getUser().getId())) {
+            rollup(activity.getUser().getId(), activity.getId());
+        }
+        apply(activity, 1);
+    }
+
+    /**
+     * Remove an activity from the statistics of its user, as it was last added.
+     * Must be called before the activity is changed or deleted.
+     *
+     * @param activity the activity
+     */
+    @Override
+    @Transactional
+    public void remove(Activity activity) {
+        if (activityStatsRepository.existsByUserId(activity.getUser().getId()) && apply(activity, -1)) {
+            activityStatsRepository.deleteEmptyByUserId(activity.getUser().getId());
+        }
+    }
+
+    /**
+     * Get the statistics of the current user over a year.
+     * Weeks are those starting from the week of the first of january.
+     *
+     * @param token  the user's token
+     * @param period the period of the buckets
+     * @param year   the year
+     * @return the statistics, by start of period then type of activity
+     */
+    @Override
+    public List<ActivityStats> getStats(String token, StatsPeriod period, int year) {
+        User user = userService.getUserFromToken(token);
+        LocalDate from = period.start(LocalDate.of(year, 1, 1));
+        LocalDate to = period.start(LocalDate.of(year + 1, 1, 1));
+        return activityStatsRepository.findByUserIdAndPeriodBetween(user.getId(), period, from, to);
+    }
+
+    /**
+     * Recompute all the statistics of a user from his activities.
+     *
+     * @param userId the id of the user
+     */
+    @Override
+    @Transactional
+    public void rebuild(Long userId) {
+        rollup(userId, NO_ACTIVITY);
+    }
+
+    /**
+     * Compute the statistics of users who have activities but no statistics yet, such as the users
+     * whose activities were created before statistics existed.
+     *
+     * @param batchSize the maximum number of users to process
+     * @return the number of users processed
+     */
+    @Override
+    @Transactional
+    public int backfill(int batchSize) {
+        List<Long> userIds = activityStatsRepository.findUserIdsWithoutStats(PageRequest.ofSize(batchSize));
+        userIds.forEach(this::rebuild);
+        return userIds.size();
+    }
+
+    /**
+     * Replace the statistics of a user by the rollup of his activities.
+     * The activity being added is left out, whether or not it is already written to the database.
+     *
+     * @param userId             the id of the user
+     * @param excludedActivityId the id of the activity to leave out
+     */
+    private void rollup(Long userId, long excludedActivityId) {
+        activityStatsRepository.deleteByUserId(userId);
+        for (StatsPeriod period : StatsPeriod.values()) {
+            activityStatsRepository.insertRollup(userId, period.name(), period.getUnit(), excludedActivityId);
+        }
+    }
+
+    /**
+     * Add or remove an activity from the bucket of each period it belongs to.
+     *
+     * @param activity the activity
+     * @param sign     1 to add the activity, -1 to remove it
+     * @return true if the activity has statistics, false if it lacks a type or a start datetime
+     */
+    private boolean apply(Activity activity, int sign) {
+        if (activity.getType() == null || activity.getStartDatetime() == null) {
+            return false;
+        }
+
+        LocalDate day = activity.getStartDatetime().toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        double distance = activity.getDistance() == null ? 0 : activity.getDistance();
+        long duration = activity.getEndDatetime() == null ? 0
+                : activity.getEndDatetime().getTime() - activity.getStartDatetime().getTime();
+
+        for (StatsPeriod period : StatsPeriod.values()) {
+            activityStatsRepository.increment(activity.getUser().getId(), period.name(), period.start(day),
+                    activity.getType().name(), sign * distance, sign * duration, sign);
+        }
+        return true;
+    }
+}
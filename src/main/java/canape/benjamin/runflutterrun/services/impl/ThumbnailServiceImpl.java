@@ -0,0 +1,281 @@
+package canape.benjamin.runflutterrun.services.impl;
+
+import canape.benjamin.runflutterrun.model.enums.ProfilePictureSize;
+import canape.benjamin.runflutterrun.services.IThumbnailService;
+import canape.benjamin.runflutterrun.storage.BlobStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates the thumbnails of the profile pictures on first use and keeps them on disk, under
+ * spring.uploads.folder/thumbnails, named after the key of their picture.
+ * <p>
+ * All the thumbnails of a picture are generated at once, the picture being decoded a single time, by a bounded pool
+ * of workers: when the pool is saturated or the generation takes too long, no thumbnail is returned and the original
+ * picture is served instead. A picture that cannot be decoded leaves a marker file under
+ * spring.uploads.folder/thumbnails/failed, and its original is then served without trying again: the key of a picture
+ * being the digest of its content, it would fail the same way.
+ */
+@Service
+public class ThumbnailServiceImpl implements IThumbnailService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ThumbnailServiceImpl.class);
+
+    private static final float JPEG_QUALITY = 0.8f;
+    private static final long MAX_PIXELS = 40_000_000L;
+    private static final long GENERATION_TIMEOUT_MILLIS = 10_000;
+
+    private static final List<ProfilePictureSize> THUMBNAIL_SIZES = Arrays.stream(ProfilePictureSize.values())
+            .filter(ProfilePictureSize::isThumbnail)
+            .sorted(Comparator.comparingInt(ProfilePictureSize::getEdge).reversed())
+            .toList();
+
+    private final BlobStore blobStore;
+    private final Path thumbnailsFolder;
+    private final Path temporaryFolder;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, CompletableFuture<Void>> generations = new ConcurrentHashMap<>();
+
+    /**
+     * Create the service, with the spring.pictures.thumbnails.threads and spring.pictures.thumbnails.queue properties
+     * bounding its pool.
+     *
+     * @param blobStore the store of the pictures
+     * @param env       the environment
+     */
+    @Autowired
+    public ThumbnailServiceImpl(BlobStore blobStore, Environment env) {
+        this(blobStore, Paths.get(env.getRequiredProperty("spring.uploads.folder")),
+                env.getProperty("spring.pictures.thumbnails.threads", Integer.class, 2),
+                env.getProperty("spring.pictures.thumbnails.queue", Integer.class, 32));
+    }
+
+    /**
+     * Create a service.
+     *
+     * @param blobStore     the store of the pictures
+     * @param folder        the folder the thumbnails are kept under
+     * @param threads       the number of workers
+     * @param queueCapacity the maximum number of pictures waiting for a worker
+     */
+    public ThumbnailServiceImpl(BlobStore blobStore, Path folder, int threads, int queueCapacity) {
+        this.blobStore = blobStore;
+        this.thumbnailsFolder = folder.resolve("thumbnails");
+        this.temporaryFolder = folder.resolve("tmp");
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnails-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        ImageIO.setUseCache(false);
+    }
+
+    @Override
+    public Optional<Resource> getThumbnail(String key, ProfilePictureSize size) {
+        Path file = pathOf(key, size);
+        if (Files.isRegularFile(file)) {
+            return Optional.of(new FileSystemResource(file));
+        }
+        if (Files.exists(failurePathOf(key))) {
+            return Optional.empty();
+        }
+
+        try {
+            generate(key).get(GENERATION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (ExecutionException | TimeoutException e) {
+            LOGGER.error("ThumbnailServiceImpl | getThumbnail | Cannot generate the thumbnails of {}: {}", key, e.getMessage());
+            return Optional.empty();
+        }
+        return Files.isRegularFile(file) ? Optional.of(new FileSystemResource(file)) : Optional.empty();
+    }
+
+    @Override
+    public void deleteThumbnails(String key) throws IOException {
+        for (ProfilePictureSize size : THUMBNAIL_SIZES) {
+            Files.deleteIfExists(pathOf(key, size));
+        }
+        Files.deleteIfExists(failurePathOf(key));
+    }
+
+    /**
+     * Stop the workers.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Generate the thumbnails of a picture, unless they are already being generated.
+     */
+    private CompletableFuture<Void> generate(String key) {
+        CompletableFuture<Void> generation = new CompletableFuture<>();
+        CompletableFuture<Void> existing = generations.putIfAbsent(key, generation);
+        if (existing != null) {
+            return existing;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    writeThumbnails(key);
+                    generation.complete(null);
+                } catch (Exception e) {
+                    generation.completeExceptionally(e);
+                } finally {
+                    generations.remove(key, generation);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            generations.remove(key, generation);
+            generation.completeExceptionally(new IOException("Too many pictures waiting for a thumbnail"));
+        }
+        return generation;
+    }
+
+    private void writeThumbnails(String key) throws IOException {
+        Resource picture = blobStore.get(key).orElseThrow(() -> new IOException("The picture is not found"));
+
+        BufferedImage image;
+        try {
+            image = read(picture);
+        } catch (IOException | RuntimeException e) {
+            Files.createDirectories(failurePathOf(key).getParent());
+            Files.write(failurePathOf(key), new byte[0]);
+            throw e;
+        }
+        int side = Math.min(image.getWidth(), image.getHeight());
+        image = image.getSubimage((image.getWidth() - side) / 2, (image.getHeight() - side) / 2, side, side);
+
+        // From the largest size to the smallest, each thumbnail being scaled down from the previous one
+        for (ProfilePictureSize size : THUMBNAIL_SIZES) {
+            image = scale(image, Math.min(size.getEdge(), side));
+            write(image, pathOf(key, size));
+        }
+    }
+
+    private static BufferedImage read(Resource picture) throws IOException {
+        try (InputStream content = picture.getInputStream();
+             ImageInputStream in = ImageIO.createImageInputStream(content)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported picture format");
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_PIXELS) {
+                    throw new IOException("The picture is too large");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scale a square image down, halving its size as long as possible so that every pixel is accounted for.
+     */
+    private static BufferedImage scale(BufferedImage image, int edge) {
+        BufferedImage scaled = image;
+        int side = image.getWidth();
+        while (side / 2 >= edge) {
+            side /= 2;
+            scaled = draw(scaled, side);
+        }
+        if (side != edge || scaled == image) {
+            scaled = draw(scaled, edge);
+        }
+        return scaled;
+    }
+
+    private static BufferedImage draw(BufferedImage image, int side) {
+        BufferedImage drawn = new BufferedImage(side, side, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = drawn.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, side, side);
+            graphics.drawImage(image, 0, 0, side, side, null);
+        } finally {
+            graphics.dispose();
+        }
+        return drawn;
+    }
+
+    private void write(BufferedImage image, Path file) throws IOException {
+        Files.createDirectories(temporaryFolder);
+        Files.createDirectories(file.getParent());
+        Path temporaryFile = Files.createTempFile(temporaryFolder, "thumbnail", ".tmp");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(temporaryFile.toFile())) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+                writer.setOutput(out);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    private Path pathOf(String key, ProfilePictureSize size) {
+        return thumbnailsFolder.resolve(String.valueOf(size.getEdge())).resolve(key.substring(0, 2)).resolve(key + ".jpg");
+    }
+
+    private Path failurePathOf(String key) {
+        return thumbnailsFolder.resolve("failed").resolve(key.substring(0, 2)).resolve(key);
+    }
+}
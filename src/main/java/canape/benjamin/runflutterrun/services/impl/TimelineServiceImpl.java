@@ -0,0 +1,250 @@
+package canape.benjamin.runflutterrun.services.impl;
+
+import canape.benjamin.runflutterrun.dto.ActivityCursor;
+import canape.benjamin.runflutterrun.model.Activity;
+import canape.benjamin.runflutterrun.model.ActivityFeedItem;
+import canape.benjamin.runflutterrun.model.enums.FriendRequestStatus;
+import canape.benjamin.runflutterrun.repositories.ActivityRepository;
+import canape.benjamin.runflutterrun.repositories.TimelineEntryRepository;
+import canape.benjamin.runflutterrun.repositories.TimelineStateRepository;
+import canape.benjamin.runflutterrun.services.ITimelineService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.*;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * This service implementation class maintains the timeline_entry table, the precomputed friends feed of each user.
+ * The timeline_state table records the timelines built at least once, the others are built when first read.
+ */
+@Service
+@RequiredArgsConstructor
+public class TimelineServiceImpl implements ITimelineService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimelineServiceImpl.class);
+
+    private final TimelineEntryRepository timelineEntryRepository;
+    private final TimelineStateRepository timelineStateRepository;
+    private final ActivityRepository activityRepository;
+    private final CountCache countCache;
+
+    /**
+     * The users whose timeline has to be rebuilt, kept in memory only: the rebuilds still pending when the
+     * application stops are lost, leaving the timelines as the incremental changes made them.
+     */
+    private final Set<Long> scheduledRebuilds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Push a new activity into the timelines of its author and of the author's friends.
+     *
+     * @param activity the created activity
+     */
+    @Override
+    @Transactional
+    public void publish(Activity activity) {
+        int count = timelineEntryRepository.insertActivityForAuthorAndFriends(activity.getId(), FriendRequestStatus.ACCEPTED.name());
+        LOGGER.debug("Activity {} pushed into {} timelines", activity.getId(), count);
+    }
+
+    /**
+     * Move an updated activity in the timelines it appears in.
+     *
+     * @param activity the updated activity
+     */
+    @Override
+    @Transactional
+    public void move(Activity activity) {
+        timelineEntryRepository.updateStartDatetime(activity.getId(), activity.getStartDatetime());
+    }
+
+    /**
+     * Remove an activity from every timeline.
+     *
+     * @param activityId the id of the deleted activity
+     */
+    @Override
+    @Transactional
+    public void retract(Long activityId) {
+        timelineEntryRepository.deleteByActivityId(activityId);
+    }
+
+    /**
+     * Push the activities of two new friends into each other's timeline.
+     *
+     * @param userId   the id of a user
+     * @param friendId the id of his new friend
+     */
+    @Override
+    @Transactional
+    public void follow(Long userId, Long friendId) {
+        timelineEntryRepository.insertActivitiesOfAuthor(userId, friendId);
+        timelineEntryRepository.insertActivitiesOfAuthor(friendId, userId);
+    }
+
+    /**
+     * Remove the activities of two former friends from each other's timeline.
+     *
+     * @param userId   the id of a user
+     * @param friendId the id of his former friend
+     */
+    @Override
+    @Transactional
+    public void unfollow(Long userId, Long friendId) {
+        timelineEntryRepository.deleteByOwnerIdAndAuthorId(userId, friendId);
+        timelineEntryRepository.deleteByOwnerIdAndAuthorId(friendId, userId);
+    }
+
+    /**
+     * Recompute the whole timeline of a user from his activities and his friends'.
+     *
+     * @param userId the id of the user
+     */
+    @Override
+    @Transactional
+    public void rebuild(Long userId) {
+        timelineEntryRepository.deleteByOwnerId(userId);
+        int count = timelineEntryRepository.insertActivitiesOfOwnerAndFriends(userId, FriendRequestStatus.ACCEPTED.name());
+        timelineStateRepository.markBuilt(userId);
+        LOGGER.info("Timeline of user {} rebuilt with {} activities", userId, count);
+    }
+
+    /**
+     * Ask for the timeline of a user to be rebuilt by the next run of the rebuild job, once the current transaction
+     * is committed: the job would otherwise rebuild it from the friendships before the change, and forget it.
+     *
+     * @param userId the id of the user
+     */
+    @Override
+    public void scheduleRebuild(Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    scheduledRebuilds.add(userId);
+                }
+            });
+        } else {
+            scheduledRebuilds.add(userId);
+        }
+    }
+
+    /**
+     * Get and forget the users whose timeline has to be rebuilt.
+     *
+     * @return the ids of the users
+     */
+    @Override
+    public Set<Long> drainScheduledRebuilds() {
+        Set<Long> userIds = new HashSet<>();
+        for (Iterator<Long> iterator = scheduledRebuilds.iterator(); iterator.hasNext(); ) {
+            userIds.add(iterator.next());
+            iterator.remove();
+        }
+        return userIds;
+    }
+
+    /**
+     * Get a page of the timeline of a user, building it if it was never built.
+     *
+     * @param userId   the id of the user
+     * @param pageable the pagination information
+     * @return a page of activities
+     */
+    @Override
+    @Transactional
+    public Page<ActivityFeedItem> getTimeline(Long userId, Pageable pageable) {
+        if (pageable.getPageNumber() == 0) {
+            buildIfNeverBuilt(userId);
+        }
+        Page<Long> ids = timelineEntryRepository.findActivityIdsByOwnerId(userId, pageable);
+        return new PageImpl<>(hydrate(ids.getContent(), userId), pageable, ids.getTotalElements());
+    }
+
+    /**
+     * Get the activities of the timeline of a user located after a cursor, building it if it was never built.
+     *
+     * @param userId the id of the user
+     * @param cursor the position of the last activity already read
+     * @param size   the number of activities to get
+     * @return a slice of activities
+     */
+    @Override
+    @Transactional
+    public Slice<ActivityFeedItem> getTimeline(Long userId, ActivityCursor cursor, int size) {
+        Pageable pageable = PageRequest.ofSize(size);
+        if (cursor.isFirst()) {
+            buildIfNeverBuilt(userId);
+        }
+        Slice<Long> ids = timelineEntryRepository.findActivityIdsByOwnerIdAfterCursor(userId, cursor.getStartDatetime(), cursor.getId(), pageable);
+        return new SliceImpl<>(hydrate(ids.getContent(), userId), pageable, ids.hasNext());
+    }
+
+    /**
+     * Get a page of the timeline of a user without counting its activities, building it if it was never built.
+     *
+     * @param userId   the id of the user
+     * @param pageable the pagination information
+     * @return a slice of activities
+     */
+    @Override
+    @Transactional
+    public Slice<ActivityFeedItem> getTimelineSlice(Long userId, Pageable pageable) {
+        if (pageable.getPageNumber() == 0) {
+            buildIfNeverBuilt(userId);
+        }
+        Slice<Long> ids = timelineEntryRepository.findActivityIdSliceByOwnerId(userId, pageable);
+        return new SliceImpl<>(hydrate(ids.getContent(), userId), pageable, ids.hasNext());
+    }
+
+    /**
+     * Get the approximate number of activities in the timeline of a user, counted at most once per time to live
+     * of the count cache.
+     *
+     * @param userId the id of the user
+     * @return the number of activities
+     */
+    @Override
+    public long getApproximateTimelineSize(Long userId) {
+        return countCache.get("timeline:" + userId, () -> timelineEntryRepository.countByOwnerId(userId));
+    }
+
+    /**
+     * Build the timeline of a user if it was never built, whether it is empty or not: the activities published
+     * into it before may only be part of it.
+     *
+     * @param userId the id of the user
+     */
+    private void buildIfNeverBuilt(Long userId) {
+        if (!timelineStateRepository.existsById(userId)) {
+            rebuild(userId);
+        }
+    }
+
+    /**
+     * Load the activities of a timeline page in a single query, with their authors and likes, keeping the timeline order.
+     *
+     * @param ids      the ids of the activities
+     * @param viewerId the id of the user reading the timeline
+     * @return the activities
+     */
+    private List<ActivityFeedItem> hydrate(List<Long> ids, Long viewerId) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, ActivityFeedItem> activities = activityRepository.findFeedByIdIn(ids, viewerId).stream()
+                .collect(Collectors.toMap(ActivityFeedItem::getId, Function.identity()));
+        return ids.stream()
+                .map(activities::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+}
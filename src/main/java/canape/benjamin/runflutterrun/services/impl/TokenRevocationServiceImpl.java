@@ -0,0 +1,115 @@
+package canape.benjamin.runflutterrun.services.impl;
+
+import canape.benjamin.runflutterrun.model.RevokedToken;
+import canape.benjamin.runflutterrun.repositories.RevokedTokenRepository;
+import canape.benjamin.runflutterrun.services.ITokenRevocationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * This service implementation class keeps the ids of the revoked tokens in memory, grouped in buckets by
+ * expiration minute: checking a token reads the single bucket of its expiration, and expired tokens are
+ * forgotten by dropping whole buckets. Revocations are written to a shared table that every node reads
+ * back periodically, so that a token revoked on one node is refused by all of them.
+ */
+@Service
+@RequiredArgsConstructor
+public class TokenRevocationServiceImpl implements ITokenRevocationService {
+
+    private static final long BUCKET_MILLIS = 60000;
+
+    /**
+     * How far before the latest revocation already read each synchronization reads again, so that revocations
+     * committed after others stamped later are not missed.
+     */
+    private static final long SYNC_OVERLAP_MILLIS = 10000;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    private final ConcurrentNavigableMap<Long, Set<String>> buckets = new ConcurrentSkipListMap<>();
+
+    private volatile Instant lastRevokedAt = Instant.EPOCH;
+
+    /**
+     * Revoke a token until it expires. This node refuses it once the revocation is committed.
+     *
+     * @param jti       the id of the token
+     * @param expiresAt the expiration of the token
+     */
+    @Override
+    @Transactional
+    public void revoke(String jti, Instant expiresAt) {
+        if (expiresAt.isBefore(Instant.now())) {
+            return;
+        }
+
+        revokedTokenRepository.revoke(jti, expiresAt);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remember(jti, expiresAt);
+                }
+            });
+        } else {
+            remember(jti, expiresAt);
+        }
+    }
+
+    /**
+     * Check whether a token has been revoked, without any database access.
+     *
+     * @param jti       the id of the token
+     * @param expiresAt the expiration of the token
+     * @return true if the token has been revoked, false otherwise
+     */
+    @Override
+    public boolean isRevoked(String jti, Instant expiresAt) {
+        Set<String> bucket = buckets.get(bucketOf(expiresAt));
+        return bucket != null && bucket.contains(jti);
+    }
+
+    /**
+     * Fetch the tokens revoked by the other nodes since the last synchronization and forget the expired ones.
+     *
+     * @return the number of revoked tokens fetched
+     */
+    @Override
+    @Transactional
+    public synchronized int sync() {
+        Instant now = Instant.now();
+        revokedTokenRepository.deleteExpired(now);
+        buckets.headMap(bucketOf(now)).clear();
+
+        List<RevokedToken> revokedTokens = revokedTokenRepository.findRevokedSince(lastRevokedAt.minusMillis(SYNC_OVERLAP_MILLIS));
+        for (RevokedToken revokedToken : revokedTokens) {
+            remember(revokedToken.getJti(), revokedToken.getExpiresAt());
+            if (revokedToken.getRevokedAt().isAfter(lastRevokedAt)) {
+                lastRevokedAt = revokedToken.getRevokedAt();
+            }
+        }
+        return revokedTokens.size();
+    }
+
+    private void remember(String jti, Instant expiresAt) {
+        buckets.computeIfAbsent(bucketOf(expiresAt), bucket -> ConcurrentHashMap.newKeySet()).add(jti);
+    }
+
+    /**
+     * Get the bucket of an expiration: the bucket of a minute holds the tokens expiring by its end,
+     * so that it can be dropped as soon as that end is past.
+     */
+    private static long bucketOf(Instant expiresAt) {
+        return -Math.floorDiv(-expiresAt.toEpochMilli(), BUCKET_MILLIS);
+    }
+}
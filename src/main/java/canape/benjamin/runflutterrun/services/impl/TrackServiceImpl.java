@@ -0,0 +1,138 @@
+package canape.benjamin.runflutterrun.services.impl;
+
+import canape.benjamin.runflutterrun.model.Activity;
+import canape.benjamin.runflutterrun.model.ActivityTrack;
+import canape.benjamin.runflutterrun.model.Location;
+import canape.benjamin.runflutterrun.repositories.ActivityTrackRepository;
+import canape.benjamin.runflutterrun.repositories.LocationRepository;
+import canape.benjamin.runflutterrun.services.ITrackService;
+import canape.benjamin.runflutterrun.tracks.Track;
+import canape.benjamin.runflutterrun.tracks.TrackCodec;
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * This service implementation class stores the GPS points of the activities in the activity_track table,
+ * encoded by {@link TrackCodec}.
+ */
+@Service
+@AllArgsConstructor
+public class TrackServiceImpl implements ITrackService {
+
+    private final ActivityTrackRepository activityTrackRepository;
+    private final LocationRepository locationRepository;
+
+    /**
+     * Store the track of an activity.
+     *
+     * @param activity the activity
+     * @param track    the track of the activity
+     */
+    @Override
+    public void save(Activity activity, Track track) {
+        activityTrackRepository.save(new ActivityTrack(activity.getId(), track.size(), TrackCodec.encode(track)));
+    }
+
+    /**
+     * Store the already encoded track of an activity.
+     *
+     * @param activity the activity
+     * @param points   the number of points of the track
+     * @param data     the encoded track
+     */
+    @Override
+    public void save(Activity activity, int points, byte[] data) {
+        activityTrackRepository.save(new ActivityTrack(activity.getId(), points, data));
+    }
+
+    /**
+     * Get the track of an activity.
+     *
+     * @param activityId the id of the activity
+     * @return the track, empty if the activity has no stored track
+     */
+    @Override
+    public Optional<Track> getTrack(Long activityId) {
+        return activityTrackRepository.findById(activityId)
+                .map(activityTrack -> TrackCodec.decode(activityTrack.getData()));
+    }
+
+    /**
+     * Get the locations of an activity, read from its track or from the location table if it was not migrated yet.
+     *
+     * @param activity the activity
+     * @return the locations of the activity, in recording order
+     */
+    @Override
+    public List<Location> getLocations(Activity activity) {
+        Optional<Track> track = getTrack(activity.getId());
+        if (track.isPresent()) {
+            return toLocations(activity, track.get());
+        }
+        return activity.getLocations() == null ? new ArrayList<>() : activity.getLocations();
+    }
+
+    /**
+     * Move the locations of a batch of activities from the location table to encoded tracks.
+     * The batch is read, written and deleted with one statement each, the track inserts being batched by JDBC.
+     *
+     * @param batchSize the maximum number of activities to migrate
+     * @return the number of activities migrated
+     */
+    @Override
+    @Transactional
+    public int migrateLocations(int batchSize) {
+        List<Long> activityIds = activityTrackRepository.findActivityIdsWithLocationRows(PageRequest.ofSize(batchSize));
+        if (activityIds.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, List<Location>> locationsByActivity = locationRepository.findByActivityIds(activityIds).stream()
+                .collect(Collectors.groupingBy(location -> location.getActivity().getId()));
+
+        List<ActivityTrack> activityTracks = new ArrayList<>(activityIds.size());
+        for (Long activityId : activityIds) {
+            activityTracks.add(toActivityTrack(activityId, locationsByActivity.getOrDefault(activityId, new ArrayList<>())));
+        }
+        activityTrackRepository.saveAll(activityTracks);
+        locationRepository.deleteByActivityIds(activityIds);
+        return activityIds.size();
+    }
+
+    /**
+     * Encode locations into the track of an activity.
+     *
+     * @param activityId the id of the activity
+     * @param locations  the locations of the activity, in recording order
+     * @return the track to store
+     */
+    private ActivityTrack toActivityTrack(Long activityId, List<Location> locations) {
+        Track track = Track.fromLocations(locations);
+        return new ActivityTrack(activityId, track.size(), TrackCodec.encode(track));
+    }
+
+    /**
+     * Convert a track to detached locations of an activity.
+     *
+     * @param activity the activity
+     * @param track    the track of the activity
+     * @return the locations
+     */
+    private List<Location> toLocations(Activity activity, Track track) {
+        List<Location> locations = new ArrayList<>(track.size());
+        for (int i = 0; i < track.size(); i++) {
+            Location location = new Location();
+            location.setActivity(activity);
+            location.setDatetime(new Date(track.getTimes()[i]));
+            location.setLatitude(track.getLatitudes()[i]);
+            location.setLongitude(track.getLongitudes()[i]);
+            locations.add(location);
+        }
+        return locations;
+    }
+}
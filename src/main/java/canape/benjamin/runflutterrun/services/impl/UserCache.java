@@ -0,0 +1,246 @@
+package canape.benjamin.runflutterrun.services.impl;
+
+import canape.benjamin.runflutterrun.model.UserSnapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of user snapshots, reachable by id and by username.
+ * <p>
+ * Snapshots are kept for a limited time, so that changes made on another node are eventually seen, and
+ * the oldest ones are evicted once the cache is full. The users changed on this node are invalidated
+ * by {@link UserServiceImpl}. Hit and eviction counts are exposed over JMX.
+ */
+@Component
+@ManagedResource(objectName = "canape.benjamin.runflutterrun:type=Cache,name=users")
+public class UserCache {
+
+    private static final int DEFAULT_MAX_SIZE = 10000;
+    private static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(5);
+
+    private final int maxSize;
+    private final long timeToLiveNanos;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Long> idsByUsername = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    /**
+     * Incremented on every invalidation, so that a snapshot loaded while a user was changing is not cached.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * Create the cache sized by the spring.users.cache.max-size and spring.users.cache.ttl properties.
+     *
+     * @param env the environment
+     */
+    @Autowired
+    public UserCache(Environment env) {
+        this(env.getProperty("spring.users.cache.max-size", Integer.class, DEFAULT_MAX_SIZE),
+                env.getProperty("spring.users.cache.ttl", Duration.class, DEFAULT_TIME_TO_LIVE));
+    }
+
+    /**
+     * Create a cache.
+     *
+     * @param maxSize    the maximum number of users kept
+     * @param timeToLive how long a user is kept once loaded
+     */
+    public UserCache(int maxSize, Duration timeToLive) {
+        this.maxSize = Math.max(1, maxSize);
+        this.timeToLiveNanos = timeToLive.toNanos();
+    }
+
+    /**
+     * Get the snapshot of a user by id, loading it on a miss.
+     *
+     * @param id     the id of the user
+     * @param loader loads the snapshot of the user when it is not cached
+     * @return the snapshot, or an empty Optional if the user does not exist
+     */
+    public Optional<UserSnapshot> getById(Long id, Function<Long, Optional<UserSnapshot>> loader) {
+        UserSnapshot snapshot = lookup(id);
+        if (snapshot != null) {
+            return Optional.of(snapshot);
+        }
+        return load(id, loader);
+    }
+
+    /**
+     * Get the snapshot of a user by username, loading it on a miss.
+     *
+     * @param username the username of the user
+     * @param loader   loads the snapshot of the user when it is not cached
+     * @return the snapshot, or an empty Optional if the user does not exist
+     */
+    public Optional<UserSnapshot> getByUsername(String username, Function<String, Optional<UserSnapshot>> loader) {
+        Long id = idsByUsername.get(username);
+        UserSnapshot snapshot = id == null ? null : lookup(id);
+        if (snapshot != null && snapshot.getUsername().equals(username)) {
+            return Optional.of(snapshot);
+        }
+        return load(username, loader);
+    }
+
+    /**
+     * Forget a user, so that the next read loads it again.
+     *
+     * @param id       the id of the user
+     * @param username the username of the user
+     */
+    public void invalidate(Long id, String username) {
+        invalidations.incrementAndGet();
+        if (id != null) {
+            entries.remove(id);
+        }
+        if (username != null) {
+            idsByUsername.remove(username);
+        }
+    }
+
+    /**
+     * Forget every user.
+     */
+    @ManagedOperation(description = "Forget every cached user")
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        entries.clear();
+        idsByUsername.clear();
+    }
+
+    @ManagedAttribute(description = "Number of cached users")
+    public int getSize() {
+        return entries.size();
+    }
+
+    @ManagedAttribute(description = "Number of reads answered from the cache")
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @ManagedAttribute(description = "Number of reads which loaded the user")
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @ManagedAttribute(description = "Share of the reads answered from the cache")
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long requestCount = hitCount + misses.sum();
+        return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+    }
+
+    @ManagedAttribute(description = "Number of users evicted because the cache was full")
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @ManagedAttribute(description = "Number of users evicted because they were kept too long")
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    private UserSnapshot lookup(Long id) {
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            if (entries.remove(id, entry)) {
+                idsByUsername.remove(entry.snapshot.getUsername(), id);
+                expirations.increment();
+            }
+            return null;
+        }
+        hits.increment();
+        return entry.snapshot;
+    }
+
+    private <K> Optional<UserSnapshot> load(K key, Function<K, Optional<UserSnapshot>> loader) {
+        misses.increment();
+        long invalidationsBefore = invalidations.get();
+        Optional<UserSnapshot> snapshot = loader.apply(key);
+        if (snapshot.isPresent() && invalidations.get() == invalidationsBefore) {
+            put(snapshot.get());
+        }
+        return snapshot;
+    }
+
+    private void put(UserSnapshot snapshot) {
+        entries.put(snapshot.getId(), new Entry(snapshot, System.nanoTime() + timeToLiveNanos));
+        idsByUsername.put(snapshot.getUsername(), snapshot.getId());
+        if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Remove the expired users then, if the cache is still full, the oldest ones down to 90% of its size.
+     * Only one thread sweeps at a time, the others carry on while it does.
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            entries.forEach((id, entry) -> {
+                if (entry.isExpired(now)) {
+                    remove(id, entry, expirations);
+                }
+            });
+
+            int excess = entries.size() - maxSize * 9 / 10;
+            if (excess > 0) {
+                entries.entrySet().stream()
+                        .sorted(Comparator.comparingLong(e -> e.getValue().expiresAtNanos))
+                        .limit(excess)
+                        .toList()
+                        .forEach(e -> remove(e.getKey(), e.getValue(), evictions));
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void remove(Long id, Entry entry, LongAdder counter) {
+        if (entries.remove(id, entry)) {
+            idsByUsername.remove(entry.snapshot.getUsername(), id);
+            counter.increment();
+        }
+    }
+
+    private static final class Entry {
+        private final UserSnapshot snapshot;
+        private final long expiresAtNanos;
+
+        private Entry(UserSnapshot snapshot, long expiresAtNanos) {
+            this.snapshot = snapshot;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package canape.benjamin.runflutterrun.services.impl;
 
-import canape.benjamin.runflutterrun.model.User;
+import canape.benjamin.runflutterrun.model.UserCredentials;
 import canape.benjamin.runflutterrun.services.IUserService;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -19,7 +19,7 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     }
 
     /**
-     * Load a user by their username.
+     * Load a user by their username, with the password read from the database rather than the user cache.
      *
      * @param username the username
      * @return the UserDetails object representing the user
@@ -27,7 +27,7 @@ public class UserDetailsServiceImpl implements UserDetailsService {
      */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userService.findByUsername(username)
+        UserCredentials user = userService.findCredentialsByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
 
         return new org.springframework.security.core.userdetails.User(
@@ -2,45 +2,167 @@ package canape.benjamin.runflutterrun.services.impl;
 
 import canape.benjamin.runflutterrun.dto.EditPasswordDto;
 import canape.benjamin.runflutterrun.dto.EditProfileDto;
+import canape.benjamin.runflutterrun.dto.ProfilePictureDto;
+import canape.benjamin.runflutterrun.dto.UserSearchCursor;
+import canape.benjamin.runflutterrun.model.LegacyProfilePicture;
 import canape.benjamin.runflutterrun.model.User;
+import canape.benjamin.runflutterrun.model.UserSearchResult;
+import canape.benjamin.runflutterrun.model.UserCredentials;
+import canape.benjamin.runflutterrun.model.UserSnapshot;
+import canape.benjamin.runflutterrun.model.enums.ProfilePictureSize;
+import canape.benjamin.runflutterrun.repositories.LegacyProfilePictureRepository;
+import canape.benjamin.runflutterrun.repositories.UnusedProfilePictureRepository;
 import canape.benjamin.runflutterrun.repositories.UserRepository;
+import canape.benjamin.runflutterrun.security.AuthenticatedUser;
 import canape.benjamin.runflutterrun.security.jwt.JwtUtils;
+import canape.benjamin.runflutterrun.services.IFriendshipGraphService;
+import canape.benjamin.runflutterrun.services.IThumbnailService;
 import canape.benjamin.runflutterrun.services.IUserService;
+import canape.benjamin.runflutterrun.storage.Blob;
+import canape.benjamin.runflutterrun.storage.BlobStore;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.core.env.Environment;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.MediaType;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.webjars.NotFoundException;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 
 @Service
 @AllArgsConstructor
 public class UserServiceImpl implements IUserService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserServiceImpl.class);
+
+    /**
+     * The length of the trigrams indexing the users, below which a text is only searched as a prefix.
+     */
+    private static final int MIN_SUBSTRING_SEARCH_LENGTH = 3;
+
     private JwtUtils jwtUtils;
     private BCryptPasswordEncoder bCryptPasswordEncoder;
     private UserRepository userRepository;
     private Environment env;
+    private UserCache userCache;
+    private BlobStore blobStore;
+    private LegacyProfilePictureRepository legacyProfilePictureRepository;
+    private IThumbnailService thumbnailService;
+    private IFriendshipGraphService friendshipGraphService;
+    private UnusedProfilePictureRepository unusedProfilePictureRepository;
 
     /**
-     * Find a user by its token
+     * Find a user by its token, loaded so that it can be read outside of the persistence context.
+     * When the current request was authenticated with this token, the user is loaded by the id resolved by the
+     * token filter, without verifying the token again.
      *
      * @param token the token
      * @return the user found
      * @throws NotFoundException No user found
      */
     public User getUserFromToken(String token) {
+        Optional<AuthenticatedUser> principal = AuthenticatedUser.current();
+        if (principal.isPresent() && principal.get().isResolvedFrom(token)) {
+            return userRepository.findById(principal.get().getId())
+                    .orElseThrow(() -> new NotFoundException("User not found"));
+        }
+
         String username = jwtUtils.getUserNameFromJwtToken(token);
         return userRepository.findByUsername(username)
                 .orElseThrow(() -> new NotFoundException("User not found"));
     }
 
+    /**
+     * Find the id of the user of a token, from the current request or the user cache when possible.
+     *
+     * @param token the token
+     * @return the id of the user
+     * @throws NotFoundException No user found
+     */
+    @Override
+    public Long getUserIdFromToken(String token) {
+        Optional<AuthenticatedUser> principal = AuthenticatedUser.current();
+        if (principal.isPresent() && principal.get().isResolvedFrom(token)) {
+            return principal.get().getId();
+        }
+
+        return findIdByUsername(jwtUtils.getUserNameFromJwtToken(token))
+                .orElseThrow(() -> new NotFoundException("User not found"));
+    }
+
+    /**
+     * Get the user a request is authenticated as, without loading it until one of its fields is read.
+     * Only meant to be set on an association or bound as a query parameter: reading its fields needs an open session.
+     *
+     * @param principal the authenticated user
+     * @return the user
+     */
+    @Override
+    public User getUser(AuthenticatedUser principal) {
+        return userRepository.getReferenceById(principal.getId());
+    }
+
+    /**
+     * Find the id of a user by username.
+     *
+     * @param username the username
+     * @return the id of the user, or an empty Optional if not found
+     */
+    @Override
+    public Optional<Long> findIdByUsername(String username) {
+        return findSnapshotByUsername(username).map(UserSnapshot::getId);
+    }
+
+    /**
+     * Find the credentials of a user by username, never from the user cache: the cache is only invalidated on
+     * the node changing the password, the others would accept the former one until it expires.
+     *
+     * @param username the username
+     * @return the credentials of the user, or an empty Optional if not found
+     */
+    @Override
+    public Optional<UserCredentials> findCredentialsByUsername(String username) {
+        return userRepository.findCredentialsByUsername(username);
+    }
+
+    /**
+     * Find the snapshot of a user by username, from the user cache when possible.
+     *
+     * @param username the username
+     * @return the snapshot of the user, or an empty Optional if not found
+     */
+    @Override
+    public Optional<UserSnapshot> findSnapshotByUsername(String username) {
+        return userCache.getByUsername(username, userRepository::findSnapshotByUsername);
+    }
+
+    /**
+     * Find the snapshot of a user by id, from the user cache when possible.
+     *
+     * @param userId the user id
+     * @return the snapshot of the user, or an empty Optional if not found
+     */
+    @Override
+    public Optional<UserSnapshot> findSnapshotById(Long userId) {
+        return userCache.getById(userId, userRepository::findSnapshotById);
+    }
+
     /**
      * Find a user by its id
      *
@@ -54,6 +176,17 @@ public class UserServiceImpl implements IUserService {
                 .orElseThrow(() -> new EntityNotFoundException("No user with id: " + userId));
     }
 
+    /**
+     * Find users by their ids, in no particular order, the ids of missing users being ignored.
+     *
+     * @param userIds the user ids
+     * @return the users found
+     */
+    @Override
+    public List<User> getUsersByIds(long[] userIds) {
+        return userRepository.findAllById(Arrays.stream(userIds).boxed().toList());
+    }
+
     /**
      * Create a new user.
      *
@@ -73,15 +206,28 @@ public class UserServiceImpl implements IUserService {
     }
 
     /**
-     * Search users by the search text.
+     * Search users by the search text, users whose username starts with it first, then users whose firstname or
+     * lastname starts with it, then users who only contain it. A text shorter than the trigrams indexing the users
+     * only finds the users starting with it.
      *
-     * @param token the current user token
+     * @param principal the authenticated user, never found
      * @param searchText the text which will serve to find users
-     * @return the user object
+     * @param cursor the position of the last user already read
+     * @param size the number of users to get
+     * @return Slice of the users found
      */
-    public List<User> search(String token, String searchText) {
-        String username = jwtUtils.getUserNameFromJwtToken(token);
-        return userRepository.findByUsernameOrFirstNameOrLastName(searchText, username);
+    @Override
+    public Slice<UserSearchResult> search(AuthenticatedUser principal, String searchText, UserSearchCursor cursor, int size) {
+        String text = searchText.trim().toLowerCase(Locale.ROOT);
+        if (text.isEmpty()) {
+            return new SliceImpl<>(Collections.emptyList());
+        }
+
+        String escaped = text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        String prefixPattern = escaped + "%";
+        String pattern = text.length() < MIN_SUBSTRING_SEARCH_LENGTH ? prefixPattern : "%" + escaped + "%";
+        return userRepository.search(prefixPattern, pattern, principal.getId(),
+                cursor.getRank(), cursor.getUsername(), cursor.getId(), PageRequest.ofSize(size));
     }
 
     /**
@@ -110,6 +256,7 @@ public class UserServiceImpl implements IUserService {
 
         if (bCryptPasswordEncoder.matches(dto.getCurrentPassword(), user.getPassword())) {
             user.setPassword(bCryptPasswordEncoder.encode(dto.getPassword()));
+            invalidate(user);
             return userRepository.save(user).getId();
         }
 
@@ -130,6 +277,7 @@ public class UserServiceImpl implements IUserService {
 
         user.setFirstname(dto.getFirstname());
         user.setLastname(dto.getLastname());
+        invalidate(user);
 
         return userRepository.save(user).getId();
     }
@@ -144,41 +292,156 @@ public class UserServiceImpl implements IUserService {
     public void delete(String token) {
         User user = getUserFromToken(token);
 
+        String profilePictureKey = user.getProfilePictureKey();
+        invalidate(user);
         userRepository.deleteById(user.getId());
+        friendshipGraphService.userDeleted(user.getId());
+        markUnusedProfilePicture(profilePictureKey);
     }
 
     /**
-     * Upload the profile picture of the current user
+     * Set the profile picture of the current user, deleting the previous one once the transaction is committed
+     * unless another user has it too.
      *
-     * @param token the token of the current user
-     * @param file the file to upload as the profile picture
+     * @param token       the token of the current user
+     * @param blob        the picture, already in the blob store
+     * @param contentType the content type of the picture
      */
     @Override
     @Transactional
-    public void uploadProfilePicture(String token, MultipartFile file) throws IOException {
+    public void setProfilePicture(String token, Blob blob, String contentType) {
         User user = getUserFromToken(token);
+        String previousKey = user.getProfilePictureKey();
 
-        byte[] imageData = file.getBytes();
-        String type = file.getContentType();
-        user.setProfilePicture(imageData);
-        user.setProfilePictureType(type);
+        user.setProfilePictureKey(blob.getKey());
+        user.setProfilePictureSize(blob.getSize());
+        user.setProfilePictureType(contentType);
+        user.setProfilePictureUpdatedAt(Instant.now());
+        invalidate(user);
         userRepository.save(user);
+
+        if (previousKey != null && !previousKey.equals(blob.getKey())) {
+            markUnusedProfilePicture(previousKey);
+        }
     }
 
     /**
-     * Get profile picture of user of id
+     * Get profile picture of user of id, without reading it: the content is only opened when written to the response.
+     * The user is read from the user cache when possible. When the thumbnail of the requested size cannot be
+     * generated, the original picture is returned.
      *
-     * @param id the user id
+     * @param id   the user id
+     * @param size the size of the picture
+     * @return the profile picture
+     * @throws NotFoundException if the user or their picture is not found
      */
     @Override
-    public Map<String, Object> getProfilePicture(String id) {
-        Optional<User> user = userRepository.findById(Long.parseLong(id));
-        if (user.isEmpty()) {
-            throw new NotFoundException("The user is not found");
+    public ProfilePictureDto getProfilePicture(String id, ProfilePictureSize size) {
+        UserSnapshot user = findSnapshotById(Long.parseLong(id))
+                .orElseThrow(() -> new NotFoundException("The user is not found"));
+
+        ProfilePictureDto profilePicture = new ProfilePictureDto();
+        profilePicture.setContentType(user.getProfilePictureType());
+        if (user.getProfilePictureKey() != null) {
+            String key = user.getProfilePictureKey();
+            Optional<Resource> thumbnail = size.isThumbnail() ? thumbnailService.getThumbnail(key, size) : Optional.empty();
+            if (thumbnail.isPresent()) {
+                profilePicture.setContent(thumbnail.get());
+                profilePicture.setContentType(MediaType.IMAGE_JPEG_VALUE);
+                profilePicture.setEntityTag(key + "-" + size.getEdge());
+            } else {
+                profilePicture.setContent(blobStore.get(key)
+                        .orElseThrow(() -> new NotFoundException("The profile picture is not found")));
+                profilePicture.setEntityTag(key);
+            }
+            profilePicture.setUpdatedAt(user.getProfilePictureUpdatedAt());
+        } else {
+            profilePicture.setContent(legacyProfilePictureRepository.findById(user.getId())
+                    .map(LegacyProfilePicture::getData)
+                    .map(ByteArrayResource::new)
+                    .orElseThrow(() -> new NotFoundException("The profile picture is not found")));
         }
-        Map<String, Object> profilePicture = new HashMap<>();
-        profilePicture.put("contentType", user.get().getProfilePictureType());
-        profilePicture.put("imageData", user.get().getProfilePicture());
         return profilePicture;
     }
+
+    /**
+     * Move a batch of the profile pictures still stored in the user rows to the blob store.
+     * A user who uploaded a new picture in the meantime keeps it, the moved copy being left unused.
+     *
+     * @param batchSize the maximum number of pictures to move
+     * @return the number of pictures moved
+     */
+    @Override
+    @Transactional
+    public int migrateProfilePictures(int batchSize) throws IOException {
+        List<LegacyProfilePicture> pictures = legacyProfilePictureRepository.findByDataIsNotNull(PageRequest.of(0, batchSize));
+        for (LegacyProfilePicture picture : pictures) {
+            Blob blob = blobStore.put(new ByteArrayInputStream(picture.getData()));
+            if (userRepository.setMissingProfilePicture(picture.getId(), blob.getKey(), blob.getSize(), Instant.now()) == 0) {
+                markUnusedProfilePicture(blob.getKey());
+            }
+            picture.setData(null);
+            userCache.invalidate(picture.getId(), null);
+        }
+        return pictures.size();
+    }
+
+    @Override
+    @Transactional
+    public int deleteUnusedProfilePictures(Duration gracePeriod, int batchSize) {
+        Instant storedBefore = Instant.now().minus(gracePeriod);
+        int deleted = 0;
+        for (String key : unusedProfilePictureRepository.findKeysUnusedFor(gracePeriod.toSeconds(), batchSize)) {
+            try {
+                if (userRepository.existsByProfilePictureKey(key)) {
+                    unusedProfilePictureRepository.deleteById(key);
+                } else if (blobStore.deleteIfStoredBefore(key, storedBefore)) {
+                    thumbnailService.deleteThumbnails(key);
+                    unusedProfilePictureRepository.deleteById(key);
+                    deleted++;
+                } else if (blobStore.get(key).isEmpty()) {
+                    unusedProfilePictureRepository.deleteById(key);
+                }
+                // Otherwise stored again lately, by an upload not saved yet: left for a later run
+            } catch (IOException e) {
+                LOGGER.error("UserServiceImpl | deleteUnusedProfilePictures | Cannot delete {}: {}", key, e.getMessage());
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Record a profile picture left by a user, or stored without ever being set, to be deleted from the blob store
+     * by a later sweep if nobody has it or stores it again by then. It is never deleted right away: an upload of
+     * the same bytes may be about to use it.
+     *
+     * @param profilePictureKey the key of the picture, null if there is none
+     */
+    @Override
+    @Transactional
+    public void markUnusedProfilePicture(String profilePictureKey) {
+        if (profilePictureKey != null) {
+            unusedProfilePictureRepository.markUnused(profilePictureKey);
+        }
+    }
+
+    /**
+     * Remove a changed user from the user cache, once now and once more when the transaction completes,
+     * so that a read made in between cannot keep the old snapshot.
+     *
+     * @param user the changed user
+     */
+    private void invalidate(User user) {
+        Long id = user.getId();
+        String username = user.getUsername();
+        userCache.invalidate(id, username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    userCache.invalidate(id, username);
+                }
+            });
+        }
+    }
 }
@@ -0,0 +1,21 @@
+package canape.benjamin.runflutterrun.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A content stored in a {@link BlobStore}.
+ */
+@Getter
+@AllArgsConstructor
+public final class Blob {
+    /**
+     * The key of the content, the hexadecimal SHA-256 hash of its bytes.
+     */
+    private final String key;
+
+    /**
+     * The size of the content, in bytes.
+     */
+    private final long size;
+}
@@ -0,0 +1,65 @@
+package canape.benjamin.runflutterrun.storage;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * A store of immutable contents, addressed by the SHA-256 hash of their bytes.
+ * Storing the same content twice keeps a single copy.
+ */
+public interface BlobStore {
+
+    /**
+     * Store a content.
+     *
+     * @param content the content, read until its end but not closed
+     * @return the stored content
+     * @throws IOException if the content cannot be read or stored
+     */
+    default Blob put(InputStream content) throws IOException {
+        return put(content, Long.MAX_VALUE);
+    }
+
+    /**
+     * Store a content, as it is read, without ever holding it whole in memory.
+     *
+     * @param content the content, read until its end but not closed
+     * @param maxSize the maximum size of the content, in bytes
+     * @return the stored content
+     * @throws BlobTooLargeException if the content is larger than the maximum size, nothing being stored
+     * @throws IOException           if the content cannot be read or stored
+     */
+    Blob put(InputStream content, long maxSize) throws IOException;
+
+    /**
+     * Get a stored content.
+     *
+     * @param key the key of the content
+     * @return the content, or an empty Optional if there is no content with this key
+     */
+    Optional<Resource> get(String key);
+
+    /**
+     * Delete a stored content.
+     *
+     * @param key the key of the content
+     * @return true if the content was deleted, false if there was none
+     * @throws IOException if the content cannot be deleted
+     */
+    boolean delete(String key) throws IOException;
+
+    /**
+     * Delete a stored content unless it was stored since a given time, storing an existing content again
+     * counting as storing it.
+     *
+     * @param key  the key of the content
+     * @param time the time
+     * @return true if the content was deleted, false if there was none or it was stored since
+     * @throws IOException if the content cannot be deleted
+     */
+    boolean deleteIfStoredBefore(String key, Instant time) throws IOException;
+}
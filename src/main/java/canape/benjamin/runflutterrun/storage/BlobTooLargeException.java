@@ -0,0 +1,18 @@
+package canape.benjamin.runflutterrun.storage;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a content is larger than the size allowed to store it.
+ */
+public class BlobTooLargeException extends IOException {
+
+    /**
+     * Create the exception.
+     *
+     * @param maxSize the size allowed, in bytes
+     */
+    public BlobTooLargeException(long maxSize) {
+        super("The content is larger than " + maxSize + " bytes");
+    }
+}
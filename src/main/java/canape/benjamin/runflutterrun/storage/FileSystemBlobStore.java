@@ -0,0 +1,163 @@
+package canape.benjamin.runflutterrun.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * A blob store keeping each content in its own file under the spring.uploads.folder folder.
+ * <p>
+ * A content is streamed to a temporary file through a fixed size buffer while being hashed and counted, then moved
+ * at once to blobs/ab/cd/abcd..., named after its hash, so that a content is either fully there or not at all.
+ * Storing a content already there only touches its file, whose modification time tells when it was last stored.
+ */
+@Component
+public class FileSystemBlobStore implements BlobStore {
+
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path blobsFolder;
+    private final Path temporaryFolder;
+
+    /**
+     * Create the store under the spring.uploads.folder folder.
+     *
+     * @param env the environment
+     */
+    @Autowired
+    public FileSystemBlobStore(Environment env) {
+        this(Paths.get(env.getRequiredProperty("spring.uploads.folder")));
+    }
+
+    /**
+     * Create a store.
+     *
+     * @param folder the folder of the store
+     */
+    public FileSystemBlobStore(Path folder) {
+        this.blobsFolder = folder.resolve("blobs");
+        this.temporaryFolder = folder.resolve("tmp");
+    }
+
+    @Override
+    public Blob put(InputStream content, long maxSize) throws IOException {
+        Files.createDirectories(temporaryFolder);
+        Path temporaryFile = Files.createTempFile(temporaryFolder, "blob", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            long size = 0;
+            try (FileChannel out = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = content.read(buffer)) != -1) {
+                    size += read;
+                    if (size > maxSize) {
+                        throw new BlobTooLargeException(maxSize);
+                    }
+                    digest.update(buffer, 0, read);
+                    ByteBuffer written = ByteBuffer.wrap(buffer, 0, read);
+                    while (written.hasRemaining()) {
+                        out.write(written);
+                    }
+                }
+                out.force(false);
+            }
+
+            String key = HexFormat.of().formatHex(digest.digest());
+            Path file = pathOf(key);
+            if (!touch(file)) {
+                Files.createDirectories(file.getParent());
+                try {
+                    Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // Stored concurrently by someone else, with the same bytes
+                }
+            }
+            return new Blob(key, size);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    @Override
+    public Optional<Resource> get(String key) {
+        if (!isValid(key)) {
+            return Optional.empty();
+        }
+        Path file = pathOf(key);
+        return Files.isRegularFile(file) ? Optional.of(new FileSystemResource(file)) : Optional.empty();
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        return isValid(key) && Files.deleteIfExists(pathOf(key));
+    }
+
+    @Override
+    public boolean deleteIfStoredBefore(String key, Instant time) throws IOException {
+        if (!isValid(key)) {
+            return false;
+        }
+        Path file = pathOf(key);
+        try {
+            if (!Files.getLastModifiedTime(file).toInstant().isBefore(time)) {
+                return false;
+            }
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        return Files.deleteIfExists(file);
+    }
+
+    /**
+     * Set the modification time of a file to now.
+     *
+     * @return false if there is no such file
+     */
+    private static boolean touch(Path file) throws IOException {
+        try {
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private Path pathOf(String key) {
+        return blobsFolder.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+
+    private static boolean isValid(String key) {
+        return key != null && KEY_PATTERN.matcher(key).matches();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package canape.benjamin.runflutterrun.tracks;
+
+import java.util.Arrays;
+
+/**
+ * Finds the fastest portions of a track covering given distances, in a single pass over its points.
+ * <p>
+ * For each distance, a window of points slides along the cumulative distance of the track: its end
+ * walks every point and its start only moves forward, so each distance costs a single O(n) pass.
+ * The exact start of the fastest portion is interpolated inside the segment entering the window.
+ * Only the points from the start of the widest window on are kept, so points can be added as they are read.
+ */
+public final class BestEffortCalculator {
+
+    /**
+     * The duration returned for a distance the track does not cover.
+     */
+    public static final long NOT_COVERED = -1;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final double[] distances;
+    private final int[] starts;
+    private final long[] durations;
+
+    private long[] times = new long[INITIAL_CAPACITY];
+    private double[] cumulativeDistances = new double[INITIAL_CAPACITY];
+    private int offset;
+    private int points;
+    private double lastLatitude;
+    private double lastLongitude;
+
+    /**
+     * Create a calculator.
+     *
+     * @param distances the distances to measure, in kilometers
+     */
+    public BestEffortCalculator(double[] distances) {
+        this.distances = distances.clone();
+        this.starts = new int[distances.length];
+        this.durations = new long[distances.length];
+        Arrays.fill(durations, Long.MAX_VALUE);
+    }
+
+    /**
+     * Compute the best efforts of a track.
+     *
+     * @param track     the track
+     * @param distances the distances to measure, in kilometers
+     * @return for each distance, the shortest time in milliseconds needed to cover it, or {@link #NOT_COVERED}
+     */
+    public static long[] compute(Track track, double[] distances) {
+        BestEffortCalculator calculator = new BestEffortCalculator(distances);
+        long[] times = track.getTimes();
+        double[] latitudes = track.getLatitudes();
+        double[] longitudes = track.getLongitudes();
+        for (int i = 0; i < track.size(); i++) {
+            calculator.add(times[i], latitudes[i], longitudes[i]);
+        }
+        return calculator.getDurations();
+    }
+
+    /**
+     * Add the next point of the track.
+     *
+     * @param time      the datetime of the point, in milliseconds since the epoch
+     * @param latitude  the latitude of the point, in degrees
+     * @param longitude the longitude of the point, in degrees
+     */
+    public void add(long time, double latitude, double longitude) {
+        double cumulativeDistance = points == 0 ? 0
+                : cumulativeDistanceAt(points - 1) + Haversine.distance(lastLatitude, lastLongitude, latitude, longitude);
+        append(time, cumulativeDistance);
+        lastLatitude = latitude;
+        lastLongitude = longitude;
+
+        int end = points - 1;
+        if (end == 0) {
+            return;
+        }
+        for (int k = 0; k < distances.length; k++) {
+            double distance = distances[k];
+            if (cumulativeDistance < distance) {
+                continue;
+            }
+            int start = starts[k];
+            while (cumulativeDistance - cumulativeDistanceAt(start + 1) >= distance) {
+                start++;
+            }
+            starts[k] = start;
+
+            double segment = cumulativeDistanceAt(start + 1) - cumulativeDistanceAt(start);
+            double fraction = segment > 0 ? (cumulativeDistance - distance - cumulativeDistanceAt(start)) / segment : 0;
+            double startTime = timeAt(start) + fraction * (timeAt(start + 1) - timeAt(start));
+            durations[k] = Math.min(durations[k], Math.round(time - startTime));
+        }
+    }
+
+    /**
+     * Get the best efforts of the points added so far.
+     *
+     * @return for each distance, the shortest time in milliseconds needed to cover it, or {@link #NOT_COVERED}
+     */
+    public long[] getDurations() {
+        long[] result = new long[durations.length];
+        for (int k = 0; k < durations.length; k++) {
+            result[k] = durations[k] == Long.MAX_VALUE ? NOT_COVERED : durations[k];
+        }
+        return result;
+    }
+
+    /**
+     * Keep a point, dropping the points no window starts from anymore when the buffers are full,
+     * and growing them when more than half of their points are still needed.
+     */
+    private void append(long time, double cumulativeDistance) {
+        if (points - offset == times.length) {
+            int firstStart = points;
+            for (int start : starts) {
+                firstStart = Math.min(firstStart, start);
+            }
+            int kept = points - firstStart;
+            int capacity = Math.max(times.length, kept * 2);
+            long[] keptTimes = capacity == times.length ? times : new long[capacity];
+            double[] keptCumulativeDistances = capacity == times.length ? cumulativeDistances : new double[capacity];
+            System.arraycopy(times, firstStart - offset, keptTimes, 0, kept);
+            System.arraycopy(cumulativeDistances, firstStart - offset, keptCumulativeDistances, 0, kept);
+            times = keptTimes;
+            cumulativeDistances = keptCumulativeDistances;
+            offset = firstStart;
+        }
+        times[points - offset] = time;
+        cumulativeDistances[points - offset] = cumulativeDistance;
+        points++;
+    }
+
+    private long timeAt(int point) {
+        return times[point - offset];
+    }
+
+    private double cumulativeDistanceAt(int point) {
+        return cumulativeDistances[point - offset];
+    }
+}
@@ -0,0 +1,34 @@
+package canape.benjamin.runflutterrun.tracks;
+
+/**
+ * Great-circle distances between GPS points.
+ */
+public final class Haversine {
+
+    /**
+     * The mean radius of the Earth, in kilometers.
+     */
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private Haversine() {
+    }
+
+    /**
+     * Compute the distance between two points.
+     *
+     * @param latitude1  the latitude of the first point, in degrees
+     * @param longitude1 the longitude of the first point, in degrees
+     * @param latitude2  the latitude of the second point, in degrees
+     * @param longitude2 the longitude of the second point, in degrees
+     * @return the distance, in kilometers
+     */
+    public static double distance(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double phi1 = Math.toRadians(latitude1);
+        double phi2 = Math.toRadians(latitude2);
+        double sinHalfDeltaPhi = Math.sin((phi2 - phi1) / 2);
+        double sinHalfDeltaLambda = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+
+        double a = sinHalfDeltaPhi * sinHalfDeltaPhi + Math.cos(phi1) * Math.cos(phi2) * sinHalfDeltaLambda * sinHalfDeltaLambda;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
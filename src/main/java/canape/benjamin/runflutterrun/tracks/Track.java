@@ -0,0 +1,77 @@
+package canape.benjamin.runflutterrun.tracks;
+
+import canape.benjamin.runflutterrun.model.Location;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * The GPS points of an activity held in primitive arrays, one slot per point in recording order.
+ */
+@Getter
+public final class Track {
+
+    /**
+     * The datetimes of the points, in milliseconds since the epoch.
+     */
+    private final long[] times;
+
+    /**
+     * The latitudes of the points, in degrees.
+     */
+    private final double[] latitudes;
+
+    /**
+     * The longitudes of the points, in degrees.
+     */
+    private final double[] longitudes;
+
+    /**
+     * Create a track from its columns.
+     *
+     * @param times      the datetimes of the points, in milliseconds since the epoch
+     * @param latitudes  the latitudes of the points, in degrees
+     * @param longitudes the longitudes of the points, in degrees
+     * @throws IllegalArgumentException if the columns do not have the same length
+     */
+    public Track(long[] times, double[] latitudes, double[] longitudes) {
+        if (times.length != latitudes.length || times.length != longitudes.length) {
+            throw new IllegalArgumentException("Track columns must have the same length");
+        }
+        this.times = times;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+    }
+
+    /**
+     * Create a track from locations, dropping the locations without datetime or coordinates.
+     *
+     * @param locations the locations, in recording order
+     * @return the track
+     */
+    public static Track fromLocations(List<Location> locations) {
+        List<Location> points = locations.stream()
+                .filter(location -> location.getDatetime() != null && location.getLatitude() != null && location.getLongitude() != null)
+                .toList();
+
+        long[] times = new long[points.size()];
+        double[] latitudes = new double[points.size()];
+        double[] longitudes = new double[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            Location location = points.get(i);
+            times[i] = location.getDatetime().getTime();
+            latitudes[i] = location.getLatitude();
+            longitudes[i] = location.getLongitude();
+        }
+        return new Track(times, latitudes, longitudes);
+    }
+
+    /**
+     * Get the number of points of the track.
+     *
+     * @return the number of points
+     */
+    public int size() {
+        return times.length;
+    }
+}
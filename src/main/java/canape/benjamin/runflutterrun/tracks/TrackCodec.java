@@ -0,0 +1,212 @@
+package canape.benjamin.runflutterrun.tracks;
+
+import java.util.Arrays;
+
+/**
+ * Encodes tracks into compact binary blobs.
+ * <p>
+ * The blob starts with a format version and the number of points, followed by one record per point.
+ * Each record holds the differences with the previous point of the time in milliseconds and of the
+ * coordinates in 1e-7 degrees (about a centimeter), as zigzag varints: consecutive GPS points being
+ * close in time and space, most values fit in one or two bytes.
+ */
+public final class TrackCodec {
+
+    /**
+     * The version of the format written by this codec.
+     */
+    public static final byte VERSION = 1;
+
+    /**
+     * The number of coordinate units in a degree.
+     */
+    private static final double COORDINATE_SCALE = 1e7;
+
+    private TrackCodec() {
+    }
+
+    /**
+     * Encode a track.
+     *
+     * @param track the track to encode
+     * @return the encoded track
+     */
+    public static byte[] encode(Track track) {
+        Encoder encoder = new Encoder(track.size());
+        for (int i = 0; i < track.size(); i++) {
+            encoder.add(track.getTimes()[i], track.getLatitudes()[i], track.getLongitudes()[i]);
+        }
+        return encoder.toByteArray();
+    }
+
+    /**
+     * Decode a track.
+     *
+     * @param data the encoded track
+     * @return the decoded track
+     * @throws IllegalArgumentException if the data is not a track encoded by this codec
+     */
+    public static Track decode(byte[] data) {
+        Reader reader = new Reader(data);
+        byte version = reader.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported track format version: " + version);
+        }
+
+        long size = reader.readVarint();
+        if (size < 0 || size > data.length) {
+            throw new IllegalArgumentException("Invalid track size: " + size);
+        }
+
+        long[] times = new long[(int) size];
+        double[] latitudes = new double[(int) size];
+        double[] longitudes = new double[(int) size];
+
+        long time = 0;
+        long latitude = 0;
+        long longitude = 0;
+        for (int i = 0; i < size; i++) {
+            time += unzigzag(reader.readVarint());
+            latitude += unzigzag(reader.readVarint());
+            longitude += unzigzag(reader.readVarint());
+
+            times[i] = time;
+            latitudes[i] = latitude / COORDINATE_SCALE;
+            longitudes[i] = longitude / COORDINATE_SCALE;
+        }
+        return new Track(times, latitudes, longitudes);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Encodes a track point by point, so that a track can be encoded while it is read
+     * without holding its points.
+     */
+    public static final class Encoder {
+        private final Writer body;
+        private int size;
+        private long previousTime;
+        private long previousLatitude;
+        private long previousLongitude;
+
+        /**
+         * Create an encoder.
+         *
+         * @param expectedPoints the expected number of points, used to size the buffer
+         */
+        public Encoder(int expectedPoints) {
+            body = new Writer(8 + expectedPoints * 6);
+        }
+
+        /**
+         * Append a point to the track.
+         *
+         * @param time      the datetime of the point, in milliseconds since the epoch
+         * @param latitude  the latitude of the point, in degrees
+         * @param longitude the longitude of the point, in degrees
+         */
+        public void add(long time, double latitude, double longitude) {
+            long scaledLatitude = Math.round(latitude * COORDINATE_SCALE);
+            long scaledLongitude = Math.round(longitude * COORDINATE_SCALE);
+
+            body.writeVarint(zigzag(time - previousTime));
+            body.writeVarint(zigzag(scaledLatitude - previousLatitude));
+            body.writeVarint(zigzag(scaledLongitude - previousLongitude));
+
+            previousTime = time;
+            previousLatitude = scaledLatitude;
+            previousLongitude = scaledLongitude;
+            size++;
+        }
+
+        /**
+         * Get the number of points appended.
+         *
+         * @return the number of points
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Get the encoded track.
+         *
+         * @return the encoded track
+         */
+        public byte[] toByteArray() {
+            Writer header = new Writer(11);
+            header.writeByte(VERSION);
+            header.writeVarint(size);
+
+            byte[] data = new byte[header.position + body.position];
+            System.arraycopy(header.buffer, 0, data, 0, header.position);
+            System.arraycopy(body.buffer, 0, data, header.position, body.position);
+            return data;
+        }
+    }
+
+    /**
+     * Appends bytes to a growing array.
+     */
+    private static final class Writer {
+        private byte[] buffer;
+        private int position;
+
+        private Writer(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        private void writeByte(int value) {
+            if (position == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+    }
+
+    /**
+     * Reads bytes from an array, failing on truncated data.
+     */
+    private static final class Reader {
+        private final byte[] buffer;
+        private int position;
+
+        private Reader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        private byte readByte() {
+            if (position == buffer.length) {
+                throw new IllegalArgumentException("Truncated track data");
+            }
+            return buffer[position++];
+        }
+
+        private long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in track data");
+        }
+    }
+}
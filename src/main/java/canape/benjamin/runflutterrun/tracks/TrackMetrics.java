@@ -0,0 +1,56 @@
+package canape.benjamin.runflutterrun.tracks;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The metrics of an activity computed from its track.
+ */
+@Getter
+@AllArgsConstructor
+public class TrackMetrics {
+
+    /**
+     * The number of points of the track.
+     */
+    private final int points;
+
+    /**
+     * The distance covered, in kilometers.
+     */
+    private final double distance;
+
+    /**
+     * The time between the first and the last point, in milliseconds.
+     */
+    private final long elapsedTime;
+
+    /**
+     * The time spent moving, auto-paused segments excluded, in milliseconds.
+     */
+    private final long movingTime;
+
+    /**
+     * The average speed while moving, in kilometers per hour.
+     */
+    private final double averageSpeed;
+
+    /**
+     * The highest speed sustained over a few seconds, in kilometers per hour.
+     */
+    private final double maxSpeed;
+
+    /**
+     * The moving time spent on each complete kilometer, in milliseconds, which is the pace of that kilometer.
+     */
+    private final long[] splits;
+
+    /**
+     * Check if the track has enough points to measure the activity.
+     *
+     * @return true if the track has at least two points
+     */
+    public boolean isMeasurable() {
+        return points >= 2;
+    }
+}
@@ -0,0 +1,131 @@
+package canape.benjamin.runflutterrun.tracks;
+
+import java.util.Arrays;
+
+/**
+ * Computes the metrics of a track in a single pass over its points, without allocating per point.
+ * <p>
+ * A segment between two points counts as moving when its speed reaches {@link #AUTO_PAUSE_SPEED},
+ * below which the activity is considered paused. The maximum speed is measured over consecutive
+ * windows of at least {@link #MAX_SPEED_WINDOW} milliseconds, smoothing the jitter of single GPS fixes.
+ * Kilometer boundaries are interpolated inside the segment crossing them.
+ */
+public final class TrackMetricsCalculator {
+
+    /**
+     * The speed under which a segment counts as paused, in kilometers per hour.
+     */
+    public static final double AUTO_PAUSE_SPEED = 1.8;
+
+    /**
+     * The minimum duration over which the maximum speed is measured, in milliseconds.
+     */
+    public static final long MAX_SPEED_WINDOW = 5000;
+
+    private static final double MILLISECONDS_PER_HOUR = 3600000.0;
+
+    private int points;
+    private long firstTime;
+    private long lastTime;
+    private double lastLatitude;
+    private double lastLongitude;
+
+    private double distance;
+    private long movingTime;
+
+    private double windowDistance;
+    private long windowTime;
+    private double maxSpeed;
+
+    private long[] splits = new long[16];
+    private int splitCount;
+    private long lastSplitMovingTime;
+
+    /**
+     * Compute the metrics of a track.
+     *
+     * @param track the track
+     * @return the metrics of the track
+     */
+    public static TrackMetrics compute(Track track) {
+        TrackMetricsCalculator calculator = new TrackMetricsCalculator();
+        long[] times = track.getTimes();
+        double[] latitudes = track.getLatitudes();
+        double[] longitudes = track.getLongitudes();
+        for (int i = 0; i < track.size(); i++) {
+            calculator.add(times[i], latitudes[i], longitudes[i]);
+        }
+        return calculator.getMetrics();
+    }
+
+    /**
+     * Add the next point of the track.
+     *
+     * @param time      the datetime of the point, in milliseconds since the epoch
+     * @param latitude  the latitude of the point, in degrees
+     * @param longitude the longitude of the point, in degrees
+     */
+    public void add(long time, double latitude, double longitude) {
+        if (points == 0) {
+            firstTime = time;
+        } else {
+            addSegment(time - lastTime, Haversine.distance(lastLatitude, lastLongitude, latitude, longitude));
+        }
+
+        points++;
+        lastTime = time;
+        lastLatitude = latitude;
+        lastLongitude = longitude;
+    }
+
+    /**
+     * Get the metrics of the points added so far.
+     *
+     * @return the metrics
+     */
+    public TrackMetrics getMetrics() {
+        double sustainedMaxSpeed = maxSpeed;
+        if (sustainedMaxSpeed == 0 && windowTime > 0) {
+            sustainedMaxSpeed = windowDistance / (windowTime / MILLISECONDS_PER_HOUR);
+        }
+        double averageSpeed = movingTime > 0 ? distance / (movingTime / MILLISECONDS_PER_HOUR) : 0;
+        long elapsedTime = points > 0 ? lastTime - firstTime : 0;
+
+        return new TrackMetrics(points, distance, elapsedTime, movingTime, averageSpeed, sustainedMaxSpeed,
+                Arrays.copyOf(splits, splitCount));
+    }
+
+    private void addSegment(long duration, double segmentDistance) {
+        boolean moving = duration > 0 && segmentDistance / (duration / MILLISECONDS_PER_HOUR) >= AUTO_PAUSE_SPEED;
+        long segmentMovingTime = moving ? duration : 0;
+
+        double nextBoundary = splitCount + 1;
+        while (segmentDistance > 0 && distance + segmentDistance >= nextBoundary) {
+            double fraction = (nextBoundary - distance) / segmentDistance;
+            long boundaryMovingTime = movingTime + Math.round(segmentMovingTime * fraction);
+            addSplit(boundaryMovingTime - lastSplitMovingTime);
+            lastSplitMovingTime = boundaryMovingTime;
+            nextBoundary = splitCount + 1;
+        }
+
+        distance += segmentDistance;
+        movingTime += segmentMovingTime;
+
+        if (duration > 0) {
+            windowDistance += segmentDistance;
+            windowTime += duration;
+            if (windowTime >= MAX_SPEED_WINDOW) {
+                maxSpeed = Math.max(maxSpeed, windowDistance / (windowTime / MILLISECONDS_PER_HOUR));
+                windowDistance = 0;
+                windowTime = 0;
+            }
+        }
+    }
+
+    private void addSplit(long split) {
+        if (splitCount == splits.length) {
+            splits = Arrays.copyOf(splits, splits.length * 2);
+        }
+        splits[splitCount++] = split;
+    }
+}
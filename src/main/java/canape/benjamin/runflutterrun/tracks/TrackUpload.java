@@ -0,0 +1,40 @@
+package canape.benjamin.runflutterrun.tracks;
+
+import canape.benjamin.runflutterrun.model.Activity;
+import canape.benjamin.runflutterrun.model.enums.BestEffortDistance;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * An activity read from a streamed upload, with its track already encoded.
+ */
+@Getter
+@AllArgsConstructor
+public class TrackUpload {
+
+    /**
+     * The activity, without locations.
+     */
+    private final Activity activity;
+
+    /**
+     * The number of points of the track.
+     */
+    private final int points;
+
+    /**
+     * The encoded track, see {@link TrackCodec}.
+     */
+    private final byte[] data;
+
+    /**
+     * The metrics computed while reading the track.
+     */
+    private final TrackMetrics metrics;
+
+    /**
+     * The best efforts computed while reading the track, one duration per {@link BestEffortDistance},
+     * see {@link BestEffortCalculator#getDurations()}.
+     */
+    private final long[] bestEfforts;
+}
@@ -0,0 +1,172 @@
+package canape.benjamin.runflutterrun.tracks;
+
+import canape.benjamin.runflutterrun.model.Activity;
+import canape.benjamin.runflutterrun.model.enums.ActivityType;
+import canape.benjamin.runflutterrun.model.enums.BestEffortDistance;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.StdDateFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+import java.util.Date;
+
+/**
+ * Reads an activity upload, in the JSON format of ActivityDto, without binding its locations.
+ * <p>
+ * The locations array is walked with Jackson's streaming parser. Its points are staged in a fixed size
+ * batch of primitive arrays, and each full batch is flushed into the track encoder, the metrics calculator
+ * and the best efforts calculator,
+ * so that the memory used by an upload does not grow with the number of points beyond the encoded track.
+ */
+public final class TrackUploadReader {
+
+    /**
+     * The number of points staged before being flushed.
+     */
+    public static final int BATCH_SIZE = 512;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private TrackUploadReader() {
+    }
+
+    /**
+     * Read an activity upload.
+     *
+     * @param input the JSON body of the upload
+     * @return the activity and its encoded track
+     * @throws IllegalArgumentException if the upload is malformed or misses its datetimes
+     * @throws IOException              if the upload cannot be read
+     */
+    public static TrackUpload read(InputStream input) throws IOException {
+        Activity activity = new Activity();
+        PointBatch batch = new PointBatch(BATCH_SIZE);
+
+        try (JsonParser parser = JSON_FACTORY.createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Activity upload must be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "type" -> activity.setType(parser.currentToken() == JsonToken.VALUE_NULL ? null : ActivityType.valueOf(parser.getText()));
+                    case "startDatetime" -> activity.setStartDatetime(readDate(parser));
+                    case "endDatetime" -> activity.setEndDatetime(readDate(parser));
+                    case "distance" -> activity.setDistance(parser.currentToken() == JsonToken.VALUE_NULL ? null : parser.getDoubleValue());
+                    case "locations" -> readLocations(parser, batch);
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed activity upload: " + e.getOriginalMessage(), e);
+        }
+        batch.flush();
+
+        if (activity.getStartDatetime() == null || activity.getEndDatetime() == null) {
+            throw new IllegalArgumentException("Activity upload must have a start and an end datetime");
+        }
+        TrackMetrics metrics = batch.calculator.getMetrics();
+        if (activity.getDistance() == null) {
+            activity.setDistance(metrics.getDistance());
+        }
+        return new TrackUpload(activity, batch.encoder.size(), batch.encoder.toByteArray(), metrics,
+                batch.bestEfforts.getDurations());
+    }
+
+    /**
+     * Read the locations array, staging each complete point.
+     */
+    private static void readLocations(JsonParser parser, PointBatch batch) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return;
+        }
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new IllegalArgumentException("Activity upload locations must be an array");
+        }
+
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            Date datetime = null;
+            Double latitude = null;
+            Double longitude = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "datetime" -> datetime = readDate(parser);
+                    case "latitude" -> latitude = value == JsonToken.VALUE_NULL ? null : parser.getDoubleValue();
+                    case "longitude" -> longitude = value == JsonToken.VALUE_NULL ? null : parser.getDoubleValue();
+                    default -> parser.skipChildren();
+                }
+            }
+
+            if (datetime != null && latitude != null && longitude != null) {
+                batch.add(datetime.getTime(), latitude, longitude);
+            }
+        }
+        if (parser.currentToken() != JsonToken.END_ARRAY) {
+            throw new IllegalArgumentException("Activity upload locations must be objects");
+        }
+    }
+
+    /**
+     * Read a date written as epoch milliseconds or in one of the formats Jackson reads dates from.
+     */
+    private static Date readDate(JsonParser parser) throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_NULL -> null;
+            case VALUE_NUMBER_INT -> new Date(parser.getLongValue());
+            case VALUE_STRING -> {
+                try {
+                    yield new StdDateFormat().parse(parser.getText());
+                } catch (ParseException e) {
+                    throw new IllegalArgumentException("Invalid date in activity upload: " + parser.getText());
+                }
+            }
+            default -> throw new IllegalArgumentException("Invalid date in activity upload");
+        };
+    }
+
+    /**
+     * Points staged between the parser and the consumers of the track.
+     */
+    private static final class PointBatch {
+        private final long[] times;
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private int size;
+
+        private final TrackCodec.Encoder encoder = new TrackCodec.Encoder(BATCH_SIZE);
+        private final TrackMetricsCalculator calculator = new TrackMetricsCalculator();
+        private final BestEffortCalculator bestEfforts = new BestEffortCalculator(BestEffortDistance.allKilometers());
+
+        private PointBatch(int capacity) {
+            times = new long[capacity];
+            latitudes = new double[capacity];
+            longitudes = new double[capacity];
+        }
+
+        private void add(long time, double latitude, double longitude) {
+            times[size] = time;
+            latitudes[size] = latitude;
+            longitudes[size] = longitude;
+            size++;
+            if (size == times.length) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            for (int i = 0; i < size; i++) {
+                encoder.add(times[i], latitudes[i], longitudes[i]);
+                calculator.add(times[i], latitudes[i], longitudes[i]);
+                bestEfforts.add(times[i], latitudes[i], longitudes[i]);
+            }
+            size = 0;
+        }
+    }
+}
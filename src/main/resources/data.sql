@@ -0,0 +1,32 @@
+-- Pair of users of the friend requests stored before it was added, run after schema.sql, any error stopping the
+-- startup. Hibernate cannot add the columns as not null to a table already holding rows, nor the unique constraint
+-- on them, so both are added here when missing. The blocks are quoted with '' rather than $$, which the script
+-- splitter does not know.
+alter table friend_request add column if not exists min_user_id bigint;
+alter table friend_request add column if not exists max_user_id bigint;
+
+-- Requests sent both ways between the same two users before the pair was unique would break the constraint:
+-- the accepted one is kept, else the pending one, else the latest, and the others are deleted before the backfill.
+do '
+begin
+    if exists (select 1 from friend_request where min_user_id is null) then
+        delete from friend_request r
+            where exists (select 1 from friend_request o
+                where least(o.sender_id, o.receiver_id) = least(r.sender_id, r.receiver_id)
+                and greatest(o.sender_id, o.receiver_id) = greatest(r.sender_id, r.receiver_id)
+                and (case o.status when ''ACCEPTED'' then 0 when ''PENDING'' then 1 else 2 end, -o.id)
+                    < (case r.status when ''ACCEPTED'' then 0 when ''PENDING'' then 1 else 2 end, -r.id));
+
+        update friend_request set min_user_id = least(sender_id, receiver_id), max_user_id = greatest(sender_id, receiver_id)
+            where min_user_id is null;
+    end if;
+end';
+
+alter table friend_request alter column min_user_id set not null, alter column max_user_id set not null;
+
+do '
+begin
+    if not exists (select 1 from pg_constraint where conname = ''uk_friend_request_pair'') then
+        alter table friend_request add constraint uk_friend_request_pair unique (min_user_id, max_user_id);
+    end if;
+end';
@@ -0,0 +1,19 @@
+-- Trigram indexes for the user search, run after Hibernate has created the tables.
+-- The search still works, by a scan, when the pg_trgm extension cannot be installed: only that failure is tolerated,
+-- any other error of this script stops the startup. The blocks are quoted with '' rather than $$, which the script
+-- splitter does not know.
+do '
+begin
+    create extension if not exists pg_trgm;
+exception when others then
+    raise warning ''pg_trgm cannot be installed, the user search will scan: %'', sqlerrm;
+end';
+
+do '
+begin
+    if exists (select 1 from pg_extension where extname = ''pg_trgm'') then
+        create index if not exists sport_user_username_trgm_idx on sport_user using gin (lower(username) gin_trgm_ops);
+        create index if not exists sport_user_firstname_trgm_idx on sport_user using gin (lower(firstname) gin_trgm_ops);
+        create index if not exists sport_user_lastname_trgm_idx on sport_user using gin (lower(lastname) gin_trgm_ops);
+    end if;
+end';
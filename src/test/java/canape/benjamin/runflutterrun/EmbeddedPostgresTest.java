@@ -0,0 +1,52 @@
+package canape.benjamin.runflutterrun;
+
+import canape.benjamin.runflutterrun.jobs.ProfilePictureMigrationJob;
+import canape.benjamin.runflutterrun.jobs.TrackMigrationJob;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Runs the application against an embedded PostgreSQL, started once and shared by every test class extending it,
+ * together with the application context. The SQL statements prepared by Hibernate are recorded by
+ * {@link RecordingStatementInspector}.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public abstract class EmbeddedPostgresTest {
+
+    // The background migrations never run, their first run could otherwise meet a test seeding the tables
+    @MockBean
+    private TrackMigrationJob trackMigrationJob;
+    @MockBean
+    private ProfilePictureMigrationJob profilePictureMigrationJob;
+
+    private static final EmbeddedPostgres POSTGRES = start();
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws IOException {
+        registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+        registry.add("spring.uploads.folder", Files.createTempDirectory("uploads")::toString);
+        registry.add("spring.jpa.properties.hibernate.generate_statistics", () -> "true");
+        registry.add("spring.jpa.properties.hibernate.session_factory.statement_inspector", RecordingStatementInspector.class::getName);
+        registry.add("spring.jmx.enabled", () -> "false");
+        registry.add("EMAIL_ADDRESS", () -> "test@localhost");
+        registry.add("EMAIL_PASSWORD", () -> "test");
+    }
+
+    private static EmbeddedPostgres start() {
+        try {
+            return EmbeddedPostgres.builder().start();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot start PostgreSQL", e);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package canape.benjamin.runflutterrun.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FriendshipGraphTest {
+
+    @Test
+    void longHashSet_AddsAndRemovesValues() {
+        // Call
+        LongHashSet set = LongHashSet.EMPTY;
+        for (long value = 0; value < 100; value++) {
+            set = set.with(value * 1024);
+        }
+        LongHashSet withoutZero = set.without(0).without(5 * 1024);
+
+        // Verify
+        assertEquals(100, set.size());
+        assertTrue(set.contains(0));
+        assertTrue(set.contains(99 * 1024));
+        assertFalse(set.contains(1));
+        assertSame(set, set.with(1024));
+        assertEquals(98, withoutZero.size());
+        assertFalse(withoutZero.contains(0));
+        assertFalse(withoutZero.contains(5 * 1024));
+        assertTrue(withoutZero.contains(6 * 1024));
+    }
+
+    @Test
+    void longHashSet_IgnoresDuplicates() {
+        // Call
+        LongHashSet set = LongHashSet.of(new long[]{3, 1, 3, 2, 1, 9}, 5);
+
+        // Verify
+        long[] values = set.toArray();
+        Arrays.sort(values);
+        assertArrayEquals(new long[]{1, 2, 3}, values);
+    }
+
+    @Test
+    void build_LinksBothUsers() {
+        // Call
+        FriendshipGraph graph = new FriendshipGraph.Builder()
+                .add(1, 2)
+                .add(1, 3)
+                .add(3, 2)
+                .build();
+
+        // Verify
+        assertTrue(graph.areFriends(1, 2));
+        assertTrue(graph.areFriends(2, 1));
+        assertTrue(graph.areFriends(2, 3));
+        assertFalse(graph.areFriends(1, 4));
+        assertEquals(2, graph.getFriends(3).size());
+        assertEquals(3, graph.getUserCount());
+    }
+
+    @Test
+    void setFriends_UpdatesBothUsers() {
+        // Mock
+        FriendshipGraph graph = new FriendshipGraph.Builder().add(1, 2).build();
+
+        // Call
+        graph.setFriends(2, 3, true);
+        graph.setFriends(1, 2, false);
+
+        // Verify
+        assertFalse(graph.areFriends(1, 2));
+        assertFalse(graph.areFriends(2, 1));
+        assertTrue(graph.areFriends(3, 2));
+        assertTrue(graph.getFriends(1).isEmpty());
+        assertEquals(2, graph.getUserCount());
+    }
+
+    @Test
+    void replaceFriends_UpdatesTheFormerAndNewFriends() {
+        // Mock
+        FriendshipGraph.Builder builder = new FriendshipGraph.Builder();
+        LongStream.rangeClosed(2, 50).forEach(friendId -> builder.add(1, friendId));
+        FriendshipGraph graph = builder.build();
+
+        // Call
+        graph.replaceFriends(1, new long[]{50, 51});
+
+        // Verify
+        assertEquals(2, graph.getFriends(1).size());
+        assertTrue(graph.areFriends(51, 1));
+        assertTrue(graph.areFriends(50, 1));
+        assertFalse(graph.areFriends(2, 1));
+        assertEquals(3, graph.getUserCount());
+
+        // Call
+        graph.replaceFriends(1, new long[0]);
+
+        // Verify
+        assertEquals(0, graph.getUserCount());
+    }
+
+    @Test
+    void suggestFriends_KeepsTheCandidatesWithTheMostMutualFriends() {
+        // Mock
+        FriendshipGraph graph = new FriendshipGraph.Builder()
+                .add(1, 2).add(1, 3).add(1, 4)
+                .add(2, 3)
+                .add(2, 10).add(3, 10).add(4, 10)
+                .add(2, 11).add(3, 11)
+                .add(2, 12).add(4, 12)
+                .add(4, 13)
+                .add(3, 14).add(4, 14)
+                .add(10, 20)
+                .build();
+
+        // Call
+        List<FriendCandidate> candidates = graph.suggestFriends(1, LongHashSet.of(new long[]{14}, 1), 3);
+
+        // Verify
+        assertEquals(List.of(10L, 11L, 12L), candidates.stream().map(FriendCandidate::getUserId).toList());
+        assertEquals(List.of(3, 2, 2), candidates.stream().map(FriendCandidate::getMutualFriendCount).toList());
+        assertTrue(graph.suggestFriends(1, LongHashSet.EMPTY, 0).isEmpty());
+        assertTrue(graph.suggestFriends(99, LongHashSet.EMPTY, 3).isEmpty());
+    }
+}
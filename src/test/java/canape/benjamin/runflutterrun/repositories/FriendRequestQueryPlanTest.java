@@ -0,0 +1,135 @@
+package canape.benjamin.runflutterrun.repositories;
+
+import canape.benjamin.runflutterrun.EmbeddedPostgresTest;
+import canape.benjamin.runflutterrun.RecordingStatementInspector;
+import canape.benjamin.runflutterrun.model.User;
+import canape.benjamin.runflutterrun.model.enums.FriendRequestStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks, with EXPLAIN, that the friend request lookups read their indexes rather than the whole table,
+ * on a seeded embedded PostgreSQL.
+ */
+class FriendRequestQueryPlanTest extends EmbeddedPostgresTest {
+
+    private static final long FIRST_USER_ID = 10_000_000L;
+    private static final int USERS = 20_000;
+
+    private static boolean seeded;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FriendRequestCrudRepository friendRequestCrudRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+    private User otherUser;
+
+    @BeforeEach
+    void setUp() {
+        if (!seeded) {
+            // Each user sends 5 accepted requests and 1 pending one, about 120k rows
+            jdbcTemplate.update("insert into sport_user (id, username, password) select ? + u, 'plan' || u, 'x'" +
+                    " from generate_series(0, ? - 1) u", FIRST_USER_ID, USERS);
+            jdbcTemplate.update("insert into friend_request (id, sender_id, receiver_id, status, min_user_id, max_user_id)" +
+                    " select nextval('friend_request_seq'), s, r, case when k = 0 then 'PENDING' else 'ACCEPTED' end, least(s, r), greatest(s, r)" +
+                    " from (select ? + u as s, ? + (u * 7919 + k * 104729 + 1) % ? as r, k" +
+                    " from generate_series(0, ? - 1) u, generate_series(0, 5) k) pairs" +
+                    " where s <> r on conflict do nothing", FIRST_USER_ID, FIRST_USER_ID, USERS, USERS);
+            jdbcTemplate.execute("analyze sport_user");
+            jdbcTemplate.execute("analyze friend_request");
+            seeded = true;
+        }
+        user = userRepository.findById(FIRST_USER_ID + 5).orElseThrow();
+        otherUser = userRepository.findById(FIRST_USER_ID + 17).orElseThrow();
+    }
+
+    @Test
+    void findBySenderAndReceiver_ReadsTheUniqueIndexOnThePair() {
+        // Call
+        String plan = explain(() -> friendRequestCrudRepository.findBySenderAndReceiver(user, otherUser),
+                user.getId(), otherUser.getId(), user.getId(), otherUser.getId());
+
+        // Verify
+        assertReadsOnlyIndexes(plan, "uk_friend_request_pair");
+    }
+
+    @Test
+    void existsByUserIdsAndStatus_ReadsTheUniqueIndexOnThePair() {
+        // Call
+        String plan = explain(() -> friendRequestCrudRepository.existsByUserIdsAndStatus(user.getId(), otherUser.getId(), FriendRequestStatus.ACCEPTED),
+                user.getId(), otherUser.getId(), user.getId(), otherUser.getId(), FriendRequestStatus.ACCEPTED);
+
+        // Verify
+        assertReadsOnlyIndexes(plan, "uk_friend_request_pair");
+    }
+
+    @Test
+    void findByUserAndStatus_ReadsTheSenderAndReceiverIndexes() {
+        // Call
+        String plan = explain(() -> friendRequestCrudRepository.findByUserAndStatus(user, FriendRequestStatus.ACCEPTED),
+                user.getId(), FriendRequestStatus.ACCEPTED, user.getId(), FriendRequestStatus.ACCEPTED);
+
+        // Verify
+        assertReadsOnlyIndexes(plan, "idx_friend_request_sender_status", "idx_friend_request_receiver_status");
+    }
+
+    @Test
+    void findOtherUserIdsByUserIdAndStatus_ReadsTheSenderAndReceiverIndexes() {
+        // Call
+        String plan = explain(() -> friendRequestCrudRepository.findOtherUserIdsByUserIdAndStatus(user.getId(), FriendRequestStatus.PENDING),
+                user.getId(), FriendRequestStatus.PENDING, user.getId(), FriendRequestStatus.PENDING);
+
+        // Verify
+        assertReadsOnlyIndexes(plan, "idx_friend_request_sender_status", "idx_friend_request_receiver_status");
+    }
+
+    /**
+     * Run a query, then explain the first statement it prepared on the friend requests, its parameters inlined:
+     * the statements after it load the associations of the rows read, and those of the background jobs are left out.
+     *
+     * @param query      the query
+     * @param parameters the values bound to the statement, in order
+     * @return the plan of the statement
+     */
+    private String explain(Runnable query, Object... parameters) {
+        RecordingStatementInspector.clear();
+        query.run();
+        List<String> statements = RecordingStatementInspector.getStatements().stream()
+                .filter(statement -> statement.contains("friend_request"))
+                .toList();
+        assertFalse(statements.isEmpty());
+        String sql = statements.get(0);
+
+        StringBuilder inlined = new StringBuilder();
+        int parameter = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                Object value = parameters[parameter++];
+                inlined.append(value instanceof Number ? value.toString() : "'" + value + "'");
+            } else {
+                inlined.append(c);
+            }
+        }
+        assertEquals(parameters.length, parameter, sql);
+        return String.join("\n", jdbcTemplate.queryForList("explain " + inlined, String.class));
+    }
+
+    private static void assertReadsOnlyIndexes(String plan, String... indexes) {
+        assertFalse(plan.contains("Seq Scan"), plan);
+        for (String index : indexes) {
+            assertTrue(plan.contains(index), plan);
+        }
+    }
+}
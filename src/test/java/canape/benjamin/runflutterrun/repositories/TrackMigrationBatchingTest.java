@@ -0,0 +1,99 @@
+package canape.benjamin.runflutterrun.repositories;
+
+import canape.benjamin.runflutterrun.EmbeddedPostgresTest;
+import canape.benjamin.runflutterrun.RecordingStatementInspector;
+import canape.benjamin.runflutterrun.services.ITrackService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks, on an embedded PostgreSQL, that moving location rows to tracks writes the tracks in JDBC batches
+ * instead of one statement per activity, and logs how many points per second it moves.
+ */
+class TrackMigrationBatchingTest extends EmbeddedPostgresTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrackMigrationBatchingTest.class);
+
+    private static final long USER_ID = 20_000_000L;
+
+    private static long nextActivityId = USER_ID;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ITrackService trackService;
+
+    @BeforeEach
+    void setUp() {
+        if (nextActivityId == USER_ID) {
+            jdbcTemplate.update("insert into sport_user (id, username, password) values (?, 'batching', 'x')", USER_ID);
+        }
+    }
+
+    @Test
+    void migrateLocations_BatchesTheTrackInserts() {
+        // Mock
+        for (int i = 0; i < 120; i++) {
+            insertActivity(100);
+        }
+        RecordingStatementInspector.clear();
+
+        // Call
+        int migrated = trackService.migrateLocations(120);
+
+        // Verify: the insert is prepared once and executed in batches, with one statement reading the ids,
+        // one the locations and one deleting them, whatever the number of activities.
+        // The statements of the background jobs are left out.
+        List<String> statements = RecordingStatementInspector.getStatements().stream()
+                .filter(sql -> sql.contains("location") || sql.contains("activity_track"))
+                .toList();
+        assertEquals(120, migrated);
+        assertEquals(1, statements.stream().filter(sql -> sql.startsWith("insert into activity_track")).count(), statements.toString());
+        assertEquals(4, statements.size(), statements.toString());
+    }
+
+    @Test
+    void migrateLocations_MovesLongActivities() {
+        for (int points : new int[]{1_000, 10_000, 100_000}) {
+            // Mock
+            long activityId = insertActivity(points);
+
+            // Call
+            long start = System.nanoTime();
+            int migrated = trackService.migrateLocations(1);
+            long elapsed = System.nanoTime() - start;
+
+            // Verify
+            assertEquals(1, migrated);
+            assertEquals(points, jdbcTemplate.queryForObject("select points from activity_track where activity_id = ?", Integer.class, activityId));
+            assertEquals(0, jdbcTemplate.queryForObject("select count(*) from location where activity_id = ?", Integer.class, activityId));
+            LOGGER.info("TrackMigrationBatchingTest | migrateLocations | {} points moved in {} ms, {} points/s",
+                    points, elapsed / 1_000_000, Math.round(points / (elapsed / 1e9)));
+        }
+    }
+
+    /**
+     * Insert an activity of the seeded user and its location rows, one per second along a meridian.
+     *
+     * @param points the number of location rows
+     * @return the id of the activity
+     */
+    private long insertActivity(int points) {
+        long activityId = ++nextActivityId;
+        jdbcTemplate.update("insert into activity (id, user_id, type, start_datetime, end_datetime, global_distance, speed)" +
+                " values (?, ?, 'RUNNING', now(), now(), 0, 0)", activityId, USER_ID);
+        jdbcTemplate.update("insert into location (id, activity_id, datetime, latitude, longitude)" +
+                " select nextval('location_seq'), ?, timestamp '2024-01-01' + p * interval '1 second', 45 + p * 0.00003, 5" +
+                " from generate_series(0, ? - 1) p", activityId, points);
+        return activityId;
+    }
+}
@@ -0,0 +1,77 @@
+package canape.benjamin.runflutterrun.security;
+
+import canape.benjamin.runflutterrun.EmbeddedPostgresTest;
+import canape.benjamin.runflutterrun.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Counts the SQL statements run to resolve the authenticated user, against an embedded PostgreSQL.
+ */
+class AuthenticatedUserQueryCountTest extends EmbeddedPostgresTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String username = "user" + System.nanoTime();
+        String credentials = "{\"username\":\"" + username + "\",\"password\":\"password\",\"firstname\":\"First\",\"lastname\":\"Last\"}";
+        mvc.perform(post("/api/user/register").contentType(MediaType.APPLICATION_JSON).content(credentials))
+                .andExpect(status().isCreated());
+        String login = mvc.perform(post("/api/user/login").contentType(MediaType.APPLICATION_JSON).content(credentials))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        token = "Bearer " + new ObjectMapper().readTree(login).get("token").asText();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        // The first request resolves the user into the user cache
+        mvc.perform(get("/api/private/activity/all").header("Authorization", token)).andExpect(status().isOk());
+        statistics.clear();
+    }
+
+    @Test
+    void feedRequest_DoesNotLoadTheUser() throws Exception {
+        mvc.perform(get("/api/private/activity/all").header("Authorization", token)).andExpect(status().isOk());
+
+        assertEquals(0, statistics.getEntityStatistics(User.class.getName()).getLoadCount());
+        assertNoUsernameQuery();
+        assertEquals(1, statistics.getPrepareStatementCount(), Arrays.toString(statistics.getQueries()));
+    }
+
+    @Test
+    void tokenRequest_LoadsTheUserOnce() throws Exception {
+        mvc.perform(get("/api/private/activity/records").header("Authorization", token)).andExpect(status().isOk());
+
+        assertEquals(1, statistics.getEntityStatistics(User.class.getName()).getLoadCount());
+        assertNoUsernameQuery();
+        // The user, its refresh token (an inverse one-to-one, never lazy) and the records
+        assertEquals(3, statistics.getPrepareStatementCount(), Arrays.toString(statistics.getQueries()));
+    }
+
+    private void assertNoUsernameQuery() {
+        assertTrue(Arrays.stream(statistics.getQueries()).noneMatch(query -> query.contains("username =")),
+                Arrays.toString(statistics.getQueries()));
+    }
+}
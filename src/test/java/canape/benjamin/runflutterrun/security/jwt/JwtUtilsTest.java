@@ -0,0 +1,77 @@
+package canape.benjamin.runflutterrun.security.jwt;
+
+import canape.benjamin.runflutterrun.services.ITokenRevocationService;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JwtUtilsTest {
+
+    private JwtUtils jwtUtils;
+
+    @Mock
+    private ITokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "tokenRevocationService", tokenRevocationService);
+    }
+
+    @Test
+    void getUserNameFromValidJwtToken_ReturnsTheSubject() {
+        // Mock
+        String token = jwtUtils.generateTokenFromUsername("test_user");
+
+        // Call and verify
+        assertEquals("test_user", jwtUtils.getUserNameFromValidJwtToken("Bearer " + token));
+        assertEquals("test_user", jwtUtils.getUserNameFromValidJwtToken(token));
+        assertEquals("test_user", jwtUtils.getUserNameFromJwtToken(token));
+    }
+
+    @Test
+    void getUserNameFromValidJwtToken_RejectsTamperedTokensOfVerifiedOnes() {
+        // Mock
+        String token = jwtUtils.generateTokenFromUsername("test_user");
+        String otherToken = jwtUtils.generateTokenFromUsername("other_user");
+        jwtUtils.getUserNameFromValidJwtToken(token);
+        String[] parts = token.split("\\.");
+        String tampered = parts[0] + "." + otherToken.split("\\.")[1] + "." + parts[2];
+
+        // Call and verify
+        assertNull(jwtUtils.getUserNameFromValidJwtToken(tampered));
+        assertThrows(JWTVerificationException.class, () -> jwtUtils.getUserNameFromJwtToken(tampered));
+    }
+
+    @Test
+    void getUserNameFromValidJwtToken_RejectsRevokedTokensAlreadyVerified() {
+        // Mock
+        String token = jwtUtils.generateTokenFromUsername("test_user");
+        assertEquals("test_user", jwtUtils.getUserNameFromValidJwtToken(token));
+        when(tokenRevocationService.isRevoked(anyString(), any(Instant.class))).thenReturn(true);
+
+        // Call and verify
+        assertNull(jwtUtils.getUserNameFromValidJwtToken(token));
+    }
+
+    @Test
+    void revokeJwtToken_RevokesTheTokenUntilItExpires() {
+        // Mock
+        String token = jwtUtils.generateTokenFromUsername("test_user");
+
+        // Call
+        jwtUtils.revokeJwtToken("Bearer " + token);
+
+        // Verify
+        verify(tokenRevocationService).revoke(anyString(), argThat(expiresAt -> expiresAt.isAfter(Instant.now())));
+    }
+}
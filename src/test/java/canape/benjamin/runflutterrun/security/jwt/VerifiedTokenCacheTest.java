@@ -0,0 +1,68 @@
+package canape.benjamin.runflutterrun.security.jwt;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerifiedTokenCacheTest {
+
+    @Test
+    void get_ReturnsTheClaimsOfVerifiedTokens() {
+        // Mock
+        VerifiedTokenCache cache = new VerifiedTokenCache(100);
+        VerifiedToken verifiedToken = new VerifiedToken("test_user", "jti", Instant.now().plusSeconds(60));
+        cache.put("token", verifiedToken);
+
+        // Call and verify
+        assertSame(verifiedToken, cache.get("token"));
+        assertNull(cache.get("other_token"));
+    }
+
+    @Test
+    void get_ForgetsExpiredTokens() {
+        // Mock
+        VerifiedTokenCache cache = new VerifiedTokenCache(100);
+        cache.put("token", new VerifiedToken("test_user", "jti", Instant.now().minusSeconds(1)));
+
+        // Call and verify
+        assertNull(cache.get("token"));
+    }
+
+    @Test
+    void put_DoesNotKeepTokensWithoutExpiration() {
+        // Mock
+        VerifiedTokenCache cache = new VerifiedTokenCache(100);
+
+        // Call
+        cache.put("token", new VerifiedToken("test_user", "jti", null));
+
+        // Verify
+        assertNull(cache.get("token"));
+    }
+
+    @Test
+    void put_EvictsTheLeastRecentlyUsedTokens() {
+        // Mock
+        VerifiedTokenCache cache = new VerifiedTokenCache(160);
+        Instant expiresAt = Instant.now().plusSeconds(60);
+
+        // Call
+        for (int i = 0; i < 1000; i++) {
+            cache.put("token" + i, new VerifiedToken("user" + i, "jti" + i, expiresAt));
+            cache.get("token0");
+        }
+
+        // Verify
+        int kept = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (cache.get("token" + i) != null) {
+                kept++;
+            }
+        }
+        assertTrue(kept <= 160);
+        assertNotNull(cache.get("token0"));
+        assertNotNull(cache.get("token999"));
+    }
+}
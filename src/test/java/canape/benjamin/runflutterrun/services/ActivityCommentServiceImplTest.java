@@ -2,6 +2,7 @@ package canape.benjamin.runflutterrun.services;
 
 import canape.benjamin.runflutterrun.model.Activity;
 import canape.benjamin.runflutterrun.model.ActivityComment;
+import canape.benjamin.runflutterrun.model.ActivityCommentItem;
 import canape.benjamin.runflutterrun.model.User;
 import canape.benjamin.runflutterrun.repositories.ActivityCommentRepository;
 import canape.benjamin.runflutterrun.repositories.ActivityCrudRepository;
@@ -14,6 +15,9 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -116,4 +120,31 @@ class ActivityCommentServiceImplTest {
         // Assert
         verify(activityCommentRepository, times(1)).deleteById(commentId);
     }
+
+    @Test
+    void getCommentItems_GroupsTheCommentsByActivity() {
+        // Arrange
+        ActivityCommentItem first = new ActivityCommentItem(1L, 10L, new Date(1000L), "First", 5L, "user", "first", "last");
+        ActivityCommentItem second = new ActivityCommentItem(1L, 11L, new Date(2000L), "Second", 6L, "other", "first", "last");
+        ActivityCommentItem third = new ActivityCommentItem(2L, 12L, new Date(3000L), "Third", 5L, "user", "first", "last");
+        when(activityCommentRepository.findItemsByActivityIdIn(List.of(1L, 2L, 3L))).thenReturn(List.of(first, second, third));
+
+        // Act
+        Map<Long, List<ActivityCommentItem>> comments = activityCommentService.getCommentItems(List.of(1L, 2L, 3L));
+
+        // Assert
+        assertEquals(List.of(first, second), comments.get(1L));
+        assertEquals(List.of(third), comments.get(2L));
+        assertFalse(comments.containsKey(3L));
+    }
+
+    @Test
+    void getCommentItems_DoesNotQueryWithoutActivities() {
+        // Act
+        Map<Long, List<ActivityCommentItem>> comments = activityCommentService.getCommentItems(List.of());
+
+        // Assert
+        assertTrue(comments.isEmpty());
+        verifyNoInteractions(activityCommentRepository);
+    }
 }
@@ -1,6 +1,8 @@
 package canape.benjamin.runflutterrun.services;
 
+import canape.benjamin.runflutterrun.dto.ActivityCursor;
 import canape.benjamin.runflutterrun.model.Activity;
+import canape.benjamin.runflutterrun.model.ActivityFeedItem;
 import canape.benjamin.runflutterrun.model.Location;
 import canape.benjamin.runflutterrun.model.User;
 import canape.benjamin.runflutterrun.model.enums.ActivityType;
@@ -8,8 +10,13 @@ import canape.benjamin.runflutterrun.repositories.ActivityCrudRepository;
 import canape.benjamin.runflutterrun.repositories.ActivityLikeRepository;
 import canape.benjamin.runflutterrun.repositories.ActivityRepository;
 import canape.benjamin.runflutterrun.repositories.UserRepository;
+import canape.benjamin.runflutterrun.security.AuthenticatedUser;
 import canape.benjamin.runflutterrun.security.jwt.JwtUtils;
 import canape.benjamin.runflutterrun.services.impl.ActivityServiceImpl;
+import canape.benjamin.runflutterrun.services.impl.CountCache;
+import canape.benjamin.runflutterrun.tracks.Track;
+import canape.benjamin.runflutterrun.tracks.TrackUpload;
+import canape.benjamin.runflutterrun.tracks.TrackUploadReader;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,10 +24,11 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.data.domain.*;
 
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
-import java.util.Optional;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -47,10 +55,22 @@ class ActivityServiceImplTest {
     @Mock
     private ActivityLikeRepository activityLikeRepository;
 
+    @Mock
+    private ITimelineService timelineService;
+
+    @Mock
+    private ITrackService trackService;
+
+    @Mock
+    private IBestEffortService bestEffortService;
+
+    @Mock
+    private IStatsService statsService;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        activityService = new ActivityServiceImpl( userRepository, activityRepository, activityCrudRepository, friendRequestService, activityLikeRepository, userService);
+        activityService = new ActivityServiceImpl( userRepository, activityRepository, activityCrudRepository, friendRequestService, activityLikeRepository, userService, timelineService, trackService, bestEffortService, statsService, new CountCache(100, Duration.ofMinutes(1)));
     }
 
     @Test
@@ -66,6 +86,7 @@ class ActivityServiceImplTest {
         assertNotNull(createdActivity);
         assertEquals(activity, createdActivity);
         verify(activityCrudRepository).save(activity);
+        verify(timelineService).publish(activity);
     }
 
     @Test
@@ -73,24 +94,151 @@ class ActivityServiceImplTest {
         // Mock
         Pageable pageable = PageRequest.of(0, 10);
         String token = "mock_token";
-        String username = "mock_username";
-        User user = new User();
-        Activity activity1 = createSampleActivity();
-        Activity activity2 = createSampleActivity();
-        Page<Activity> page = new PageImpl<>(List.of(activity1, activity2));
+        ActivityFeedItem activity1 = createSampleFeedItem(1L);
+        ActivityFeedItem activity2 = createSampleFeedItem(2L);
 
-        when(userService.getUserFromToken(token)).thenReturn(user);
-        when(activityRepository.findByUser(user, pageable)).thenReturn(page);
+        when(userService.getUserIdFromToken(token)).thenReturn(1L);
+        when(activityRepository.findFeedByUserId(1L, 1L, pageable)).thenReturn(List.of(activity1, activity2));
 
         // Call
-        Iterable<Activity> activities = activityService.getAll(token, pageable);
+        Iterable<ActivityFeedItem> activities = activityService.getAll(token, pageable);
 
         // Verify
         assertNotNull(activities);
-        List<Activity> activityList = StreamSupport.stream(activities.spliterator(), false).collect(Collectors.toList());
+        List<ActivityFeedItem> activityList = StreamSupport.stream(activities.spliterator(), false).collect(Collectors.toList());
         assertEquals(2, activityList.size());
         assertTrue(activityList.contains(activity1));
         assertTrue(activityList.contains(activity2));
+        verify(activityRepository, never()).countByUserId(anyLong());
+    }
+
+    @Test
+    void getAllSlice_DoesNotCountTheActivities() {
+        // Mock
+        Pageable pageable = PageRequest.of(0, 10);
+        AuthenticatedUser principal = new AuthenticatedUser(1L, "mock_username", "mock_token");
+        Slice<ActivityFeedItem> slice = new SliceImpl<>(List.of(createSampleFeedItem(1L)), pageable, true);
+        when(activityRepository.findFeedSliceByUserId(1L, 1L, pageable)).thenReturn(slice);
+
+        // Call
+        Slice<ActivityFeedItem> activities = activityService.getAllSlice(principal, pageable);
+
+        // Verify
+        assertEquals(slice, activities);
+        verify(activityRepository, never()).countByUserId(anyLong());
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void getByUserSlice_ThrowsWhenNotFriends() {
+        // Mock
+        Pageable pageable = PageRequest.of(0, 10);
+        AuthenticatedUser principal = new AuthenticatedUser(1L, "mock_username", "mock_token");
+        when(friendRequestService.areFriends(principal, 2L)).thenReturn(false);
+
+        // Call & Verify
+        assertThrows(SecurityException.class, () -> activityService.getByUserSlice(principal, 2L, pageable));
+        verify(activityRepository, never()).findFeedSliceByUserId(anyLong(), any(), any());
+    }
+
+    @Test
+    void getApproximateActivityCount_CountsOnce() {
+        // Mock
+        when(activityRepository.countByUserId(1L)).thenReturn(42L);
+
+        // Call
+        long first = activityService.getApproximateActivityCount(1L);
+        long second = activityService.getApproximateActivityCount(1L);
+
+        // Verify
+        assertEquals(42L, first);
+        assertEquals(42L, second);
+        verify(activityRepository, times(1)).countByUserId(1L);
+    }
+
+    @Test
+    void getMineAndMyFriends_ReadsTheTimelineOfTheUser() {
+        // Mock
+        Pageable pageable = PageRequest.of(0, 10);
+        String token = "mock_token";
+        Page<ActivityFeedItem> page = new PageImpl<>(List.of(createSampleFeedItem(1L)));
+
+        when(userService.getUserIdFromToken(token)).thenReturn(1L);
+        when(timelineService.getTimeline(1L, pageable)).thenReturn(page);
+
+        // Call
+        Page<ActivityFeedItem> activities = activityService.getMineAndMyFriends(token, pageable);
+
+        // Verify
+        assertEquals(page, activities);
+        verifyNoInteractions(friendRequestService);
+    }
+
+    @Test
+    void getMineAndMyFriendsWithPrincipal_DoesNotLookTheUserUp() {
+        // Mock
+        Pageable pageable = PageRequest.of(0, 10);
+        AuthenticatedUser principal = new AuthenticatedUser(1L, "mock_username", "mock_token");
+        Page<ActivityFeedItem> page = new PageImpl<>(List.of(createSampleFeedItem(1L)));
+
+        when(timelineService.getTimeline(1L, pageable)).thenReturn(page);
+
+        // Call
+        Page<ActivityFeedItem> activities = activityService.getMineAndMyFriends(principal, pageable);
+
+        // Verify
+        assertEquals(page, activities);
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void getActivityIdsLikedByCurrentUserWithPrincipal_UsesTheResolvedUser() {
+        // Mock
+        AuthenticatedUser principal = new AuthenticatedUser(1L, "mock_username", "mock_token");
+        User user = new User();
+        user.setId(1L);
+        List<Long> ids = List.of(1L, 2L);
+
+        when(userService.getUser(principal)).thenReturn(user);
+        when(activityLikeRepository.findLikedActivityIds(ids, user)).thenReturn(List.of(2L));
+
+        // Call
+        Set<Long> likedIds = activityService.getActivityIdsLikedByCurrentUser(ids, principal);
+
+        // Verify
+        assertEquals(Set.of(2L), likedIds);
+        verify(userService, never()).getUserFromToken(anyString());
+    }
+
+    @Test
+    void getAllWithCursor_ReadsActivitiesAfterCursor() {
+        // Mock
+        String token = "mock_token";
+        ActivityFeedItem activity = createSampleFeedItem(1L);
+        ActivityCursor cursor = new ActivityCursor(new Date(1000L), 42L);
+        Slice<ActivityFeedItem> slice = new SliceImpl<>(List.of(activity), PageRequest.ofSize(1), true);
+
+        when(userService.getUserIdFromToken(token)).thenReturn(1L);
+        when(activityRepository.findFeedByUserIdAfterCursor(1L, 1L, cursor.getStartDatetime(), 42L, PageRequest.ofSize(1))).thenReturn(slice);
+
+        // Call
+        Slice<ActivityFeedItem> activities = activityService.getAll(token, cursor, 1);
+
+        // Verify
+        assertEquals(List.of(activity), activities.getContent());
+        assertTrue(activities.hasNext());
+    }
+
+    @Test
+    void activityCursor_RoundTripsThroughToken() {
+        ActivityCursor cursor = new ActivityCursor(new Date(1700000000000L), 42L);
+
+        ActivityCursor decoded = ActivityCursor.decode(cursor.encode());
+
+        assertEquals(cursor.getStartDatetime(), decoded.getStartDatetime());
+        assertEquals(cursor.getId(), decoded.getId());
+        assertEquals(Long.MAX_VALUE, ActivityCursor.decode(null).getId());
+        assertThrows(IllegalArgumentException.class, () -> ActivityCursor.decode("not-a-cursor"));
     }
 
     @Test
@@ -114,6 +262,118 @@ class ActivityServiceImplTest {
         verify(activityCrudRepository).save(activity);
     }
 
+    @Test
+    void createWithToken_StoresLocationsAsTrack() {
+        // Mock
+        String token = "mock_token";
+        Activity activity = createSampleActivity();
+        List<Location> locations = activity.getLocations();
+
+        when(userService.getUserFromToken(token)).thenReturn(new User());
+        when(activityCrudRepository.save(activity)).thenReturn(activity);
+
+        // Call
+        activityService.create(activity, token);
+
+        // Verify
+        assertTrue(activity.getLocations().isEmpty());
+        verify(trackService).save(eq(activity), argThat((Track track) -> track.size() == locations.size()));
+        verify(bestEffortService).record(eq(activity), argThat((Track track) -> track.size() == locations.size()));
+    }
+
+    @Test
+    void createWithToken_ComputesMetricsFromTrack() {
+        // Mock
+        String token = "mock_token";
+        Activity activity = createSampleActivity();
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i <= 10; i++) {
+            locations.add(createLocation(i * 30000L, 45 + i * 0.001, 5.0));
+        }
+        for (int i = 1; i <= 4; i++) {
+            locations.add(createLocation(300000L + i * 15000L, 45.01, 5.0));
+        }
+        activity.setLocations(locations);
+        activity.setDistance(42.0);
+
+        when(userService.getUserFromToken(token)).thenReturn(new User());
+        when(activityCrudRepository.save(activity)).thenReturn(activity);
+
+        // Call
+        activityService.create(activity, token);
+
+        // Verify
+        assertEquals(1.112, activity.getDistance(), 0.001);
+        assertEquals(300000L, activity.getMovingTime());
+        assertEquals(13.34, activity.getSpeed(), 0.01);
+        assertEquals(13.34, activity.getMaxSpeed(), 0.01);
+        assertEquals(1, activity.getSplits().length);
+        assertEquals(269800L, activity.getSplits()[0], 100);
+    }
+
+    @Test
+    void createWithToken_DoesNotStoreClientMetricsWithoutAMeasurableTrack() {
+        // Mock
+        String token = "mock_token";
+        Activity activity = createSampleActivity();
+        activity.setLocations(new ArrayList<>());
+        activity.setMovingTime(1000L);
+        activity.setMaxSpeed(99.0);
+        activity.setSplits(new long[]{1L});
+
+        when(userService.getUserFromToken(token)).thenReturn(new User());
+        when(activityCrudRepository.save(activity)).thenReturn(activity);
+
+        // Call
+        activityService.create(activity, token);
+
+        // Verify
+        assertNull(activity.getMovingTime());
+        assertNull(activity.getMaxSpeed());
+        assertNull(activity.getSplits());
+    }
+
+    @Test
+    void createFromUpload_StoresTheStreamedTrack() throws IOException {
+        // Mock
+        String token = "mock_token";
+        String json = "{\"type\":\"RUNNING\",\"startDatetime\":\"2023-11-14T22:00:00.000+00:00\",\"endDatetime\":1700002800000,"
+                + "\"speed\":99,\"user\":{\"id\":7},\"locations\":["
+                + "{\"id\":null,\"datetime\":1700000000000,\"latitude\":48.8566,\"longitude\":2.3522},"
+                + "{\"datetime\":1700000001000,\"latitude\":null,\"longitude\":2.3522},"
+                + "{\"datetime\":1700000360000,\"latitude\":48.8656,\"longitude\":2.3522}]}";
+        TrackUpload upload = TrackUploadReader.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        when(userService.getUserFromToken(token)).thenReturn(new User());
+        when(activityCrudRepository.save(any(Activity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Call
+        Activity createdActivity = activityService.create(upload, token);
+
+        // Verify
+        assertEquals(ActivityType.RUNNING, createdActivity.getType());
+        assertEquals(new Date(1699999200000L), createdActivity.getStartDatetime());
+        assertEquals(1.0, createdActivity.getDistance(), 0.01);
+        assertEquals(10.0, createdActivity.getSpeed(), 0.01);
+        assertEquals(360000L, createdActivity.getMovingTime());
+        assertEquals(1, createdActivity.getSplits().length);
+        assertEquals(2, upload.getPoints());
+        verify(trackService).save(createdActivity, 2, upload.getData());
+        verify(bestEffortService).record(createdActivity, upload.getBestEfforts());
+        verify(timelineService).publish(createdActivity);
+    }
+
+    @Test
+    void createFromUpload_RejectsMalformedUploads() {
+        assertThrows(IllegalArgumentException.class, () -> TrackUploadReader.read(
+                new ByteArrayInputStream("{\"locations\":[{\"latitude\":}]}".getBytes(StandardCharsets.UTF_8))));
+        assertThrows(IllegalArgumentException.class, () -> TrackUploadReader.read(
+                new ByteArrayInputStream("{\"type\":\"RUNNING\",\"locations\":[]}".getBytes(StandardCharsets.UTF_8))));
+        assertThrows(IllegalArgumentException.class, () -> TrackUploadReader.read(new ByteArrayInputStream(("{\"type\":\"RUNNING\",\"locations\":["
+                + "{\"datetime\":1700000000000,\"latitude\":48.8566,\"longitude\":2.3522},5,"
+                + "{\"datetime\":1700000360000,\"latitude\":48.8656,\"longitude\":2.3522}]}").getBytes(StandardCharsets.UTF_8))));
+    }
+
     @Test
     void getById_ReturnsActivityById() {
         // Mock
@@ -150,6 +410,31 @@ class ActivityServiceImplTest {
         assertThrows(EntityNotFoundException.class, () -> activityService.getById(token, id));
     }
 
+    @Test
+    void currentUserLiked_ReturnsWhetherTheActivityIsLiked() {
+        // Mock
+        String token = "mock_token";
+        User user = new User();
+        when(userService.getUserFromToken(token)).thenReturn(user);
+        when(activityLikeRepository.existsByActivityIdAndUser(1L, user)).thenReturn(true);
+        when(activityCrudRepository.existsById(2L)).thenReturn(true);
+
+        // Call and verify
+        assertTrue(activityService.currentUserLiked(1L, token));
+        assertFalse(activityService.currentUserLiked(2L, token));
+    }
+
+    @Test
+    void currentUserLiked_ThrowsEntityNotFoundExceptionWhenActivityNotFound() {
+        // Mock
+        String token = "mock_token";
+        when(userService.getUserFromToken(token)).thenReturn(new User());
+        when(activityCrudRepository.existsById(1L)).thenReturn(false);
+
+        // Call and verify
+        assertThrows(EntityNotFoundException.class, () -> activityService.currentUserLiked(1L, token));
+    }
+
     @Test
     void update_ReturnsUpdatedActivity() {
         // Mock
@@ -177,6 +462,7 @@ class ActivityServiceImplTest {
         assertEquals(updatedActivity.getEndDatetime(), existingActivity.getEndDatetime());
         assertEquals(updatedActivity.getSpeed(), existingActivity.getSpeed());
         verify(activityCrudRepository).save(existingActivity);
+        verify(bestEffortService).forget(existingActivity);
     }
 
     @Test
@@ -212,9 +498,65 @@ class ActivityServiceImplTest {
         activityService.delete(token, id);
 
         // Verify
+        verify(bestEffortService).forget(activity);
+        verify(statsService).remove(activity);
         verify(activityCrudRepository).deleteById(id);
     }
 
+    @Test
+    void getActivityLikeCounts_ReturnsCountsByActivityId() {
+        // Mock
+        List<Long> ids = List.of(1L, 2L, 3L);
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{1L, 4L});
+        rows.add(new Object[]{3L, 1L});
+        when(activityLikeRepository.countByActivityIds(ids)).thenReturn(rows);
+
+        // Call
+        Map<Long, Long> likesCounts = activityService.getActivityLikeCounts(ids);
+
+        // Verify
+        assertEquals(2, likesCounts.size());
+        assertEquals(4L, likesCounts.get(1L));
+        assertEquals(1L, likesCounts.get(3L));
+        assertFalse(likesCounts.containsKey(2L));
+    }
+
+    @Test
+    void getActivityLikeCounts_DoesNotQueryForEmptyPage() {
+        // Call
+        Map<Long, Long> likesCounts = activityService.getActivityLikeCounts(List.of());
+
+        // Verify
+        assertTrue(likesCounts.isEmpty());
+        verifyNoInteractions(activityLikeRepository);
+    }
+
+    @Test
+    void getActivityIdsLikedByCurrentUser_ReturnsLikedIds() {
+        // Mock
+        String token = "mock_token";
+        User user = new User();
+        List<Long> ids = List.of(1L, 2L, 3L);
+        when(userService.getUserFromToken(token)).thenReturn(user);
+        when(activityLikeRepository.findLikedActivityIds(ids, user)).thenReturn(List.of(2L));
+
+        // Call
+        Set<Long> likedIds = activityService.getActivityIdsLikedByCurrentUser(ids, token);
+
+        // Verify
+        assertEquals(Set.of(2L), likedIds);
+        verify(userService, times(1)).getUserFromToken(token);
+    }
+
+    private Location createLocation(long time, double latitude, double longitude) {
+        Location location = new Location();
+        location.setDatetime(new Date(time));
+        location.setLatitude(latitude);
+        location.setLongitude(longitude);
+        return location;
+    }
+
     // Helper method to create a sample Activity
     private Activity createSampleActivity() {
         User user = new User();
@@ -235,4 +577,9 @@ class ActivityServiceImplTest {
         activity.setLocations(locations);
         return activity;
     }
+
+    private ActivityFeedItem createSampleFeedItem(Long id) {
+        return new ActivityFeedItem(id, ActivityType.RUNNING, new Date(), new Date(), 10.012, 12.3, 0L, 0.0, new long[0],
+                1L, "mock_username", "firstname", "lastname", 0L, false);
+    }
 }
@@ -0,0 +1,204 @@
+package canape.benjamin.runflutterrun.services;
+
+import canape.benjamin.runflutterrun.model.Activity;
+import canape.benjamin.runflutterrun.model.ActivityBestEffort;
+import canape.benjamin.runflutterrun.model.PersonalRecord;
+import canape.benjamin.runflutterrun.model.User;
+import canape.benjamin.runflutterrun.model.enums.ActivityType;
+import canape.benjamin.runflutterrun.model.enums.BestEffortDistance;
+import canape.benjamin.runflutterrun.repositories.ActivityBestEffortRepository;
+import canape.benjamin.runflutterrun.repositories.PersonalRecordRepository;
+import canape.benjamin.runflutterrun.services.impl.BestEffortServiceImpl;
+import canape.benjamin.runflutterrun.tracks.BestEffortCalculator;
+import canape.benjamin.runflutterrun.tracks.Haversine;
+import canape.benjamin.runflutterrun.tracks.Track;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BestEffortServiceImplTest {
+
+    private BestEffortServiceImpl bestEffortService;
+
+    @Mock
+    private ActivityBestEffortRepository activityBestEffortRepository;
+
+    @Mock
+    private PersonalRecordRepository personalRecordRepository;
+
+    @Mock
+    private IUserService userService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        bestEffortService = new BestEffortServiceImpl(activityBestEffortRepository, personalRecordRepository, userService);
+    }
+
+    @Test
+    void compute_FindsTheFastestWindow() {
+        // Mock: 100 points 111 m apart, every 30 s, except 20 points run twice as fast in the middle
+        int size = 100;
+        long[] times = new long[size];
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        for (int i = 1; i < size; i++) {
+            times[i] = times[i - 1] + (i > 40 && i <= 60 ? 15000L : 30000L);
+            latitudes[i] = 45 + i * 0.001;
+            longitudes[i] = 5.0;
+        }
+        latitudes[0] = 45;
+        longitudes[0] = 5.0;
+        double step = Haversine.distance(45, 5, 45.001, 5);
+
+        // Call
+        long[] durations = BestEffortCalculator.compute(new Track(times, latitudes, longitudes), new double[]{1.0, 5.0, 20.0});
+
+        // Verify
+        assertEquals(Math.round(1.0 / step * 15000), durations[0], 10);
+        assertEquals(Math.round(20 * 15000 + (5.0 / step - 20) * 30000), durations[1], 10);
+        assertEquals(BestEffortCalculator.NOT_COVERED, durations[2]);
+    }
+
+    @Test
+    void add_FindsTheFastestWindowAfterDroppingPassedPoints() {
+        // Mock: 3000 points 111 m apart, every 30 s, except 200 points run twice as fast near the end
+        BestEffortCalculator calculator = new BestEffortCalculator(new double[]{1.0, 5.0, 20.0});
+        long time = 0;
+        for (int i = 0; i < 3000; i++) {
+            time += i > 2500 && i <= 2700 ? 15000L : 30000L;
+
+            // Call
+            calculator.add(time, 45 + i * 0.001, 5.0);
+        }
+
+        // Verify
+        double step = Haversine.distance(45, 5, 45.001, 5);
+        long[] durations = calculator.getDurations();
+        assertEquals(Math.round(1.0 / step * 15000), durations[0], 10);
+        assertEquals(Math.round(5.0 / step * 15000), durations[1], 10);
+        assertEquals(Math.round(20.0 / step * 15000), durations[2], 10);
+    }
+
+    @Test
+    void record_StoresBestEffortsAndNewRecords() {
+        // Mock
+        Activity activity = createActivity(1L);
+        when(personalRecordRepository.findByActivityId(1L)).thenReturn(new ArrayList<>());
+        when(personalRecordRepository.findByUserAndTypeAndDistance(any(), any(), any())).thenReturn(Optional.empty());
+
+        // Call
+        bestEffortService.record(activity, createTrack(60, 30000L));
+
+        // Verify
+        ArgumentCaptor<PersonalRecord> captor = ArgumentCaptor.forClass(PersonalRecord.class);
+        verify(activityBestEffortRepository).deleteByActivityId(1L);
+        verify(personalRecordRepository, times(2)).save(captor.capture());
+        assertEquals(BestEffortDistance.ONE_KILOMETER, captor.getAllValues().get(0).getDistance());
+        assertEquals(BestEffortDistance.FIVE_KILOMETERS, captor.getAllValues().get(1).getDistance());
+        assertSame(activity, captor.getAllValues().get(0).getActivity());
+    }
+
+    @Test
+    void record_KeepsFasterRecords() {
+        // Mock
+        Activity activity = createActivity(1L);
+        PersonalRecord record = new PersonalRecord();
+        record.setDuration(1000L);
+        when(personalRecordRepository.findByActivityId(1L)).thenReturn(new ArrayList<>());
+        when(personalRecordRepository.findByUserAndTypeAndDistance(any(), any(), any())).thenReturn(Optional.of(record));
+
+        // Call
+        bestEffortService.record(activity, createTrack(60, 30000L));
+
+        // Verify
+        verify(personalRecordRepository, never()).save(any());
+    }
+
+    @Test
+    void forget_RecomputesTheRecordsHeldByTheActivity() {
+        // Mock
+        Activity activity = createActivity(1L);
+        Activity previousActivity = createActivity(2L);
+        PersonalRecord record = new PersonalRecord();
+        record.setUser(activity.getUser());
+        record.setType(ActivityType.RUNNING);
+        record.setDistance(BestEffortDistance.ONE_KILOMETER);
+        record.setDuration(200000L);
+        record.setActivity(activity);
+        ActivityBestEffort bestEffort = new ActivityBestEffort();
+        bestEffort.setActivity(previousActivity);
+        bestEffort.setUser(activity.getUser());
+        bestEffort.setType(ActivityType.RUNNING);
+        bestEffort.setDistance(BestEffortDistance.ONE_KILOMETER);
+        bestEffort.setDuration(250000L);
+
+        when(personalRecordRepository.findByActivityId(1L)).thenReturn(List.of(record));
+        when(personalRecordRepository.findByUserAndTypeAndDistance(activity.getUser(), ActivityType.RUNNING, BestEffortDistance.ONE_KILOMETER))
+                .thenReturn(Optional.of(record));
+        when(activityBestEffortRepository.findFastest(eq(activity.getUser()), eq(ActivityType.RUNNING), eq(BestEffortDistance.ONE_KILOMETER), any(Pageable.class)))
+                .thenReturn(List.of(bestEffort));
+
+        // Call
+        bestEffortService.forget(activity);
+
+        // Verify
+        verify(activityBestEffortRepository).deleteByActivityId(1L);
+        verify(personalRecordRepository).save(record);
+        assertEquals(250000L, record.getDuration());
+        assertSame(previousActivity, record.getActivity());
+    }
+
+    @Test
+    void forget_DeletesRecordsWithoutRemainingBestEfforts() {
+        // Mock
+        Activity activity = createActivity(1L);
+        PersonalRecord record = new PersonalRecord();
+        record.setUser(activity.getUser());
+        record.setType(ActivityType.RUNNING);
+        record.setDistance(BestEffortDistance.FIVE_KILOMETERS);
+        record.setActivity(activity);
+
+        when(personalRecordRepository.findByActivityId(1L)).thenReturn(List.of(record));
+        when(personalRecordRepository.findByUserAndTypeAndDistance(any(), any(), any())).thenReturn(Optional.of(record));
+        when(activityBestEffortRepository.findFastest(any(), any(), any(), any(Pageable.class))).thenReturn(new ArrayList<>());
+
+        // Call
+        bestEffortService.forget(activity);
+
+        // Verify
+        verify(personalRecordRepository).delete(record);
+    }
+
+    private Activity createActivity(Long id) {
+        User user = new User();
+        user.setId(1L);
+        Activity activity = new Activity();
+        activity.setId(id);
+        activity.setUser(user);
+        activity.setType(ActivityType.RUNNING);
+        return activity;
+    }
+
+    private Track createTrack(int size, long interval) {
+        long[] times = new long[size];
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        for (int i = 0; i < size; i++) {
+            times[i] = i * interval;
+            latitudes[i] = 45 + i * 0.001;
+            longitudes[i] = 5.0;
+        }
+        return new Track(times, latitudes, longitudes);
+    }
+}
@@ -0,0 +1,59 @@
+package canape.benjamin.runflutterrun.services;
+
+import canape.benjamin.runflutterrun.services.impl.CountCache;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountCacheTest {
+
+    @Test
+    void get_CountsOnceWhileNotExpired() {
+        // Mock
+        CountCache countCache = new CountCache(10, Duration.ofMinutes(1));
+        AtomicInteger counts = new AtomicInteger();
+
+        // Call
+        long first = countCache.get("activities:1", () -> 10 + counts.incrementAndGet());
+        long second = countCache.get("activities:1", () -> 10 + counts.incrementAndGet());
+
+        // Verify
+        assertEquals(11, first);
+        assertEquals(11, second);
+        assertEquals(1, counts.get());
+        assertEquals(1, countCache.getHitCount());
+        assertEquals(1, countCache.getMissCount());
+    }
+
+    @Test
+    void get_CountsAgainOnceExpired() {
+        // Mock
+        CountCache countCache = new CountCache(10, Duration.ZERO);
+        AtomicInteger counts = new AtomicInteger();
+
+        // Call
+        countCache.get("activities:1", counts::incrementAndGet);
+        long second = countCache.get("activities:1", counts::incrementAndGet);
+
+        // Verify
+        assertEquals(2, second);
+        assertEquals(0, countCache.getHitCount());
+    }
+
+    @Test
+    void get_StaysBoundedWhenFull() {
+        // Mock
+        CountCache countCache = new CountCache(10, Duration.ofMinutes(1));
+
+        // Call
+        for (long id = 1; id <= 25; id++) {
+            countCache.get("activities:" + id, () -> 1);
+        }
+
+        // Verify
+        assertTrue(countCache.getSize() <= 10);
+    }
+}
@@ -2,26 +2,35 @@ package canape.benjamin.runflutterrun.services;
 
 import canape.benjamin.runflutterrun.model.Activity;
 import canape.benjamin.runflutterrun.model.FriendRequest;
+import canape.benjamin.runflutterrun.model.FriendRequestStatusResult;
 import canape.benjamin.runflutterrun.model.User;
 import canape.benjamin.runflutterrun.model.enums.FriendRequestStatus;
 import canape.benjamin.runflutterrun.repositories.FriendRequestCrudRepository;
 import canape.benjamin.runflutterrun.repositories.FriendRequestRepository;
 import canape.benjamin.runflutterrun.repositories.UserRepository;
 import canape.benjamin.runflutterrun.security.jwt.JwtUtils;
+import canape.benjamin.runflutterrun.services.impl.CountCache;
 import canape.benjamin.runflutterrun.services.impl.FriendRequestServiceImpl;
 import jakarta.persistence.EntityExistsException;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 
+import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -39,11 +48,20 @@ public class FriendRequestServiceImplTest {
     @Mock
     private IUserService userService;
 
+    @Mock
+    private ITimelineService timelineService;
+
+    @Mock
+    private IFriendshipGraphService friendshipGraphService;
+
+    @Mock
+    private IFriendSuggestionService friendSuggestionService;
+
     @BeforeEach
     public void init() {
         MockitoAnnotations.openMocks(this);
         friendRequestService =
-                new FriendRequestServiceImpl(friendRequestRepository, friendRequestCrudRepository, userService);
+                new FriendRequestServiceImpl(friendRequestRepository, friendRequestCrudRepository, userService, timelineService, friendshipGraphService, friendSuggestionService, new CountCache(100, Duration.ofMinutes(1)));
     }
 
     @Test
@@ -150,6 +168,141 @@ public class FriendRequestServiceImplTest {
         assertEquals(FriendRequestStatus.PENDING, request.getStatus());
     }
 
+    @Test
+    public void testAcceptFriendRequestFillsTimelines() {
+        // Arrange
+        String token = "validToken";
+        User receiver = createUser(1L, "receiver");
+        User sender = createUser(2L, "sender");
+        FriendRequest request = createFriendRequest(1L, sender, receiver, FriendRequestStatus.PENDING);
+
+        when(userService.getUserFromToken(token)).thenReturn(receiver);
+        when(userService.getUserById(2L)).thenReturn(sender);
+        when(friendRequestCrudRepository.findBySenderAndReceiver(receiver, sender)).thenReturn(Optional.of(request));
+        when(friendRequestCrudRepository.save(request)).thenReturn(request);
+
+        // Act
+        friendRequestService.acceptFriendRequest(token, 2L);
+
+        // Assert
+        InOrder inOrder = inOrder(friendshipGraphService, friendSuggestionService);
+        inOrder.verify(friendshipGraphService).friendshipChanged(2L, 1L, true);
+        inOrder.verify(friendSuggestionService).friendRequestChanged(2L, 1L, true);
+        verify(timelineService).follow(2L, 1L);
+        verify(timelineService).scheduleRebuild(1L);
+        verify(timelineService).scheduleRebuild(2L);
+    }
+
+    @Test
+    public void testCancelFriendshipEmptiesTimelines() {
+        // Arrange
+        String token = "validToken";
+        User sender = createUser(1L, "sender");
+        User receiver = createUser(2L, "receiver");
+        FriendRequest request = createFriendRequest(1L, sender, receiver, FriendRequestStatus.ACCEPTED);
+
+        when(userService.getUserFromToken(token)).thenReturn(sender);
+        when(userService.getUserById(2L)).thenReturn(receiver);
+        when(friendRequestCrudRepository.findBySenderAndReceiver(sender, receiver)).thenReturn(Optional.of(request));
+        when(friendRequestCrudRepository.save(request)).thenReturn(request);
+
+        // Act
+        friendRequestService.cancelFriendRequest(token, 2L);
+
+        // Assert
+        verify(friendshipGraphService).friendshipChanged(1L, 2L, false);
+        verify(timelineService).unfollow(1L, 2L);
+        verify(timelineService, never()).follow(anyLong(), anyLong());
+    }
+
+    @Test
+    public void testAreFriendsReadsTheFriendshipGraph() {
+        // Arrange
+        String token = "validToken";
+        when(userService.getUserIdFromToken(token)).thenReturn(1L);
+        when(friendshipGraphService.areFriends(1L, 2L)).thenReturn(true);
+
+        // Act
+        boolean areFriends = friendRequestService.areFriends(token, 2L);
+
+        // Assert
+        assertTrue(areFriends);
+        verify(userService, never()).getUserById(anyLong());
+        verifyNoInteractions(friendRequestCrudRepository);
+    }
+
+    @Test
+    public void testGetFriendRequestStatusesRunsASingleQuery() {
+        // Arrange
+        List<Long> otherUserIds = List.of(2L, 3L, 4L);
+        List<FriendRequestStatusResult> results = List.of(
+                createStatusResult(2L, FriendRequestStatus.ACCEPTED),
+                createStatusResult(4L, FriendRequestStatus.PENDING)
+        );
+        when(friendRequestCrudRepository.findStatusesByUserIdAndOtherUserIds(1L, otherUserIds)).thenReturn(results);
+
+        // Act
+        Map<Long, FriendRequestStatus> statuses = friendRequestService.getFriendRequestStatuses(1L, otherUserIds);
+
+        // Assert
+        assertEquals(Map.of(2L, FriendRequestStatus.ACCEPTED, 4L, FriendRequestStatus.PENDING), statuses);
+        verify(friendRequestCrudRepository, times(1)).findStatusesByUserIdAndOtherUserIds(anyLong(), any());
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    public void testGetFriendRequestStatusesOfNoUser() {
+        // Act
+        Map<Long, FriendRequestStatus> statuses = friendRequestService.getFriendRequestStatuses(1L, Collections.emptyList());
+
+        // Assert
+        assertTrue(statuses.isEmpty());
+        verifyNoInteractions(friendRequestCrudRepository);
+    }
+
+    @Test
+    public void testGetFriendRequestStatusesOfTooManyUsers() {
+        // Arrange
+        List<Long> otherUserIds = LongStream.rangeClosed(1, 101).boxed().toList();
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> friendRequestService.getFriendRequestStatuses(1L, otherUserIds));
+        verifyNoInteractions(friendRequestCrudRepository);
+    }
+
+    @Test
+    public void testGetPendingFriendRequestSliceDoesNotLoadTheUser() {
+        // Arrange
+        Pageable pageable = PageRequest.of(0, 10);
+        Slice<FriendRequest> slice = new SliceImpl<>(List.of(
+                createFriendRequest(1L, createUser(2L, "user2"), createUser(1L, "user1"), FriendRequestStatus.PENDING)
+        ), pageable, true);
+        when(friendRequestRepository.findSliceByReceiverIdAndStatus(1L, FriendRequestStatus.PENDING, pageable)).thenReturn(slice);
+
+        // Act
+        Slice<FriendRequest> pendingRequests = friendRequestService.getPendingFriendRequestSlice(1L, pageable);
+
+        // Assert
+        assertTrue(pendingRequests.hasNext());
+        verifyNoInteractions(userService);
+        verify(friendRequestRepository, never()).countByReceiverIdAndStatus(anyLong(), any());
+    }
+
+    @Test
+    public void testGetApproximatePendingFriendRequestCountIsCached() {
+        // Arrange
+        when(friendRequestRepository.countByReceiverIdAndStatus(1L, FriendRequestStatus.PENDING)).thenReturn(3L);
+
+        // Act
+        long first = friendRequestService.getApproximatePendingFriendRequestCount(1L);
+        long second = friendRequestService.getApproximatePendingFriendRequestCount(1L);
+
+        // Assert
+        assertEquals(3L, first);
+        assertEquals(3L, second);
+        verify(friendRequestRepository, times(1)).countByReceiverIdAndStatus(1L, FriendRequestStatus.PENDING);
+    }
+
     // Implement other test methods similarly
 
     private FriendRequest createFriendRequest(Long id, User sender, User receiver, FriendRequestStatus status) {
@@ -161,6 +314,13 @@ public class FriendRequestServiceImplTest {
         return request;
     }
 
+    private FriendRequestStatusResult createStatusResult(Long userId, FriendRequestStatus status) {
+        FriendRequestStatusResult result = mock(FriendRequestStatusResult.class);
+        when(result.getUserId()).thenReturn(userId);
+        when(result.getStatus()).thenReturn(status);
+        return result;
+    }
+
     private User createUser(Long id, String username) {
         User user = new User();
         user.setId(id);
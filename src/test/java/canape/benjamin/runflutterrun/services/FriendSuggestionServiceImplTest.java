@@ -0,0 +1,163 @@
+package canape.benjamin.runflutterrun.services;
+
+import canape.benjamin.runflutterrun.graph.FriendCandidate;
+import canape.benjamin.runflutterrun.model.FriendSuggestion;
+import canape.benjamin.runflutterrun.model.FriendSuggestionResult;
+import canape.benjamin.runflutterrun.model.enums.FriendRequestStatus;
+import canape.benjamin.runflutterrun.repositories.FriendRequestCrudRepository;
+import canape.benjamin.runflutterrun.repositories.FriendSuggestionRepository;
+import canape.benjamin.runflutterrun.repositories.FriendSuggestionStateRepository;
+import canape.benjamin.runflutterrun.services.impl.FriendSuggestionServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.Mockito.*;
+
+class FriendSuggestionServiceImplTest {
+
+    private FriendSuggestionServiceImpl friendSuggestionService;
+    @Mock
+    private FriendSuggestionRepository friendSuggestionRepository;
+    @Mock
+    private FriendSuggestionStateRepository friendSuggestionStateRepository;
+    @Mock
+    private FriendRequestCrudRepository friendRequestCrudRepository;
+    @Mock
+    private IFriendshipGraphService friendshipGraphService;
+    @Captor
+    private ArgumentCaptor<List<FriendSuggestion>> savedSuggestions;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        friendSuggestionService = new FriendSuggestionServiceImpl(friendSuggestionRepository, friendSuggestionStateRepository,
+                friendRequestCrudRepository, friendshipGraphService);
+    }
+
+    @Test
+    void refresh_StoresTheCandidatesWithoutThePendingRequests() {
+        // Mock
+        when(friendRequestCrudRepository.findOtherUserIdsByUserIdAndStatus(1L, FriendRequestStatus.PENDING)).thenReturn(List.of(7L));
+        when(friendshipGraphService.suggestFriends(eq(1L), any(long[].class), anyInt()))
+                .thenReturn(List.of(new FriendCandidate(10L, 3), new FriendCandidate(11L, 1)));
+
+        // Call
+        int count = friendSuggestionService.refresh(1L);
+
+        // Verify
+        assertEquals(2, count);
+        verify(friendshipGraphService).suggestFriends(eq(1L), aryEq(new long[]{7L}), anyInt());
+        verify(friendSuggestionRepository).deleteByUserId(1L);
+        verify(friendSuggestionRepository).saveAll(savedSuggestions.capture());
+        assertEquals(List.of(10L, 11L), savedSuggestions.getValue().stream().map(FriendSuggestion::getSuggestedUserId).toList());
+        assertEquals(3, savedSuggestions.getValue().get(0).getMutualFriendCount());
+        verify(friendSuggestionStateRepository).markComputed(1L);
+    }
+
+    @Test
+    void getSuggestions_ComputesMissingSuggestionsAndSkipsNewFriends() {
+        // Mock
+        FriendSuggestionResult stillSuggested = suggestion(10L);
+        FriendSuggestionResult nowFriend = suggestion(11L);
+        when(friendSuggestionRepository.findByUserId(eq(1L), any(Pageable.class)))
+                .thenReturn(Collections.emptyList(), List.of(stillSuggested, nowFriend));
+        when(friendRequestCrudRepository.findOtherUserIdsByUserIdAndStatus(1L, FriendRequestStatus.PENDING)).thenReturn(List.of());
+        when(friendshipGraphService.suggestFriends(eq(1L), any(long[].class), anyInt()))
+                .thenReturn(List.of(new FriendCandidate(10L, 2), new FriendCandidate(11L, 1)));
+        when(friendshipGraphService.areFriends(1L, 11L)).thenReturn(true);
+
+        // Call
+        List<FriendSuggestionResult> suggestions = friendSuggestionService.getSuggestions(1L, 10);
+
+        // Verify
+        assertEquals(List.of(stillSuggested), suggestions);
+        verify(friendSuggestionRepository, times(2)).findByUserId(eq(1L), any(Pageable.class));
+    }
+
+    @Test
+    void getSuggestions_DoesNotComputeAgainAUserWithoutSuggestions() {
+        // Mock
+        when(friendSuggestionRepository.findByUserId(eq(1L), any(Pageable.class))).thenReturn(Collections.emptyList());
+        when(friendSuggestionStateRepository.existsById(1L)).thenReturn(true);
+
+        // Call
+        List<FriendSuggestionResult> suggestions = friendSuggestionService.getSuggestions(1L, 10);
+
+        // Verify
+        assertTrue(suggestions.isEmpty());
+        verify(friendshipGraphService, never()).suggestFriends(anyLong(), any(long[].class), anyInt());
+        verify(friendSuggestionRepository, never()).deleteByUserId(anyLong());
+    }
+
+    @Test
+    void getSuggestions_SchedulesTheSuggestionsBeforeTheFriendshipsAreLoaded() {
+        // Mock
+        when(friendSuggestionRepository.findByUserId(eq(1L), any(Pageable.class))).thenReturn(Collections.emptyList());
+        when(friendRequestCrudRepository.findOtherUserIdsByUserIdAndStatus(1L, FriendRequestStatus.PENDING)).thenReturn(List.of());
+        when(friendshipGraphService.suggestFriends(eq(1L), any(long[].class), anyInt()))
+                .thenThrow(new IllegalStateException("The friendships are not loaded yet"));
+
+        // Call
+        List<FriendSuggestionResult> suggestions = friendSuggestionService.getSuggestions(1L, 10);
+
+        // Verify
+        assertTrue(suggestions.isEmpty());
+        verify(friendSuggestionRepository, never()).deleteByUserId(anyLong());
+        assertEquals(Set.of(1L), friendSuggestionService.drainScheduledRefreshes());
+    }
+
+    @Test
+    void friendRequestChanged_SchedulesTheRefreshesOnceCommitted() {
+        // Mock
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Call
+            friendSuggestionService.friendRequestChanged(1L, 2L, false);
+            Set<Long> beforeCommit = friendSuggestionService.drainScheduledRefreshes();
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+            // Verify
+            assertTrue(beforeCommit.isEmpty());
+            assertEquals(Set.of(1L, 2L), friendSuggestionService.drainScheduledRefreshes());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void friendRequestChanged_SchedulesTheFriendsWhenTheFriendshipChanged() {
+        // Mock
+        when(friendshipGraphService.getFriendIds(1L)).thenReturn(new long[]{3L, 4L});
+        when(friendshipGraphService.getFriendIds(2L)).thenReturn(new long[]{5L});
+
+        // Call
+        friendSuggestionService.friendRequestChanged(1L, 2L, false);
+        Set<Long> pendingOnly = friendSuggestionService.drainScheduledRefreshes();
+        friendSuggestionService.friendRequestChanged(1L, 2L, true);
+        Set<Long> friendship = friendSuggestionService.drainScheduledRefreshes();
+
+        // Verify
+        assertEquals(Set.of(1L, 2L), pendingOnly);
+        assertEquals(Set.of(1L, 2L, 3L, 4L, 5L), friendship);
+        assertTrue(friendSuggestionService.drainScheduledRefreshes().isEmpty());
+    }
+
+    private FriendSuggestionResult suggestion(Long id) {
+        FriendSuggestionResult result = mock(FriendSuggestionResult.class);
+        when(result.getId()).thenReturn(id);
+        return result;
+    }
+}
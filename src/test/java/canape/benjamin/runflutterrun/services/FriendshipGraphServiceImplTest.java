@@ -0,0 +1,105 @@
+package canape.benjamin.runflutterrun.services;
+
+import canape.benjamin.runflutterrun.model.Friendship;
+import canape.benjamin.runflutterrun.model.enums.FriendRequestStatus;
+import canape.benjamin.runflutterrun.repositories.FriendRequestCrudRepository;
+import canape.benjamin.runflutterrun.services.impl.FriendshipGraphServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FriendshipGraphServiceImplTest {
+
+    private FriendshipGraphServiceImpl friendshipGraphService;
+    @Mock
+    private FriendRequestCrudRepository friendRequestCrudRepository;
+    @Mock
+    private Environment env;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        friendshipGraphService = new FriendshipGraphServiceImpl(friendRequestCrudRepository, env);
+    }
+
+    @Test
+    void areFriends_ReadsTheDatabaseUntilLoaded() {
+        // Mock
+        when(friendRequestCrudRepository.existsByUserIdsAndStatus(1L, 2L, FriendRequestStatus.ACCEPTED)).thenReturn(true);
+        when(friendRequestCrudRepository.findOtherUserIdsByUserIdAndStatus(1L, FriendRequestStatus.ACCEPTED)).thenReturn(List.of(2L));
+
+        // Call
+        boolean areFriends = friendshipGraphService.areFriends(1L, 2L);
+        long[] friendIds = friendshipGraphService.getFriendIds(1L);
+
+        // Verify
+        assertTrue(areFriends);
+        assertArrayEquals(new long[]{2L}, friendIds);
+    }
+
+    @Test
+    void load_AnswersFromMemory() {
+        // Mock
+        when(friendRequestCrudRepository.streamByStatus(FriendRequestStatus.ACCEPTED))
+                .thenReturn(Stream.of(friendship(1L, 2L), friendship(3L, 1L)));
+
+        // Call
+        int count = friendshipGraphService.load();
+
+        // Verify
+        assertEquals(2, count);
+        assertTrue(friendshipGraphService.areFriends(2L, 1L));
+        assertTrue(friendshipGraphService.areFriends(1L, 3L));
+        assertFalse(friendshipGraphService.areFriends(2L, 3L));
+        assertEquals(2, friendshipGraphService.getFriendIds(1L).length);
+        verify(friendRequestCrudRepository, never()).existsByUserIdsAndStatus(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void load_KeepsTheChangesMadeWhileLoading() {
+        // Mock
+        when(friendRequestCrudRepository.streamByStatus(FriendRequestStatus.ACCEPTED)).thenReturn(Stream.of(friendship(1L, 2L))
+                .peek(friendship -> {
+                    friendshipGraphService.friendshipChanged(1L, 2L, false);
+                    friendshipGraphService.friendshipChanged(1L, 3L, true);
+                }));
+
+        // Call
+        friendshipGraphService.load();
+
+        // Verify
+        assertFalse(friendshipGraphService.areFriends(1L, 2L));
+        assertTrue(friendshipGraphService.areFriends(1L, 3L));
+        verify(friendRequestCrudRepository).sendNotification("friendships", "1:2");
+        verify(friendRequestCrudRepository).sendNotification("friendships", "1:3");
+    }
+
+    @Test
+    void userDeleted_EndsAllTheFriendshipsOfTheUser() {
+        // Mock
+        when(friendRequestCrudRepository.streamByStatus(FriendRequestStatus.ACCEPTED))
+                .thenReturn(Stream.of(friendship(1L, 2L), friendship(3L, 1L), friendship(2L, 3L)));
+        friendshipGraphService.load();
+
+        // Call
+        friendshipGraphService.userDeleted(1L);
+
+        // Verify
+        assertEquals(0, friendshipGraphService.getFriendIds(1L).length);
+        assertFalse(friendshipGraphService.areFriends(2L, 1L));
+        assertTrue(friendshipGraphService.areFriends(2L, 3L));
+        verify(friendRequestCrudRepository).sendNotification("friendships", "1");
+    }
+
+    private Friendship friendship(long senderId, long receiverId) {
+        return new Friendship(senderId, receiverId);
+    }
+}
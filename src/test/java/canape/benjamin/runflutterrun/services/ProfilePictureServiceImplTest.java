@@ -0,0 +1,71 @@
+package canape.benjamin.runflutterrun.services;
+
+import canape.benjamin.runflutterrun.services.impl.ProfilePictureServiceImpl;
+import canape.benjamin.runflutterrun.storage.Blob;
+import canape.benjamin.runflutterrun.storage.BlobStore;
+import canape.benjamin.runflutterrun.storage.BlobTooLargeException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProfilePictureServiceImplTest {
+
+    private ProfilePictureServiceImpl profilePictureService;
+    @Mock
+    private BlobStore blobStore;
+    @Mock
+    private IUserService userService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        MockEnvironment env = new MockEnvironment().withProperty("spring.servlet.multipart.max-file-size", "10MB");
+        profilePictureService = new ProfilePictureServiceImpl(blobStore, userService, env);
+    }
+
+    @Test
+    void upload_StoresThePictureThenSetsIt() throws Exception {
+        // Mock
+        InputStream content = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        Blob blob = new Blob("key", 3);
+        when(blobStore.put(content, 10L * 1024 * 1024)).thenReturn(blob);
+
+        // Call
+        profilePictureService.upload("test_token", content, "image/png");
+
+        // Verify
+        verify(userService).setProfilePicture("test_token", blob, "image/png");
+    }
+
+    @Test
+    void upload_LeavesThePictureUnusedWhenItCannotBeSet() throws Exception {
+        // Mock
+        InputStream content = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        Blob blob = new Blob("key", 3);
+        when(blobStore.put(content, 10L * 1024 * 1024)).thenReturn(blob);
+        doThrow(new IllegalStateException("Database unavailable")).when(userService).setProfilePicture("test_token", blob, "image/png");
+
+        // Call and verify
+        assertThrows(IllegalStateException.class, () -> profilePictureService.upload("test_token", content, "image/png"));
+        verify(userService).markUnusedProfilePicture("key");
+    }
+
+    @Test
+    void upload_DoesNotSetPicturesTooLarge() throws Exception {
+        // Mock
+        InputStream content = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        when(blobStore.put(any(InputStream.class), anyLong())).thenThrow(new BlobTooLargeException(2));
+
+        // Call and verify
+        assertThrows(BlobTooLargeException.class, () -> profilePictureService.upload("test_token", content, "image/png"));
+        verify(userService, never()).setProfilePicture(anyString(), any(Blob.class), anyString());
+    }
+}
@@ -0,0 +1,133 @@
+package canape.benjamin.runflutterrun.services;
+
+import canape.benjamin.runflutterrun.model.Activity;
+import canape.benjamin.runflutterrun.model.User;
+import canape.benjamin.runflutterrun.model.enums.ActivityType;
+import canape.benjamin.runflutterrun.model.enums.StatsPeriod;
+import canape.benjamin.runflutterrun.repositories.ActivityStatsRepository;
+import canape.benjamin.runflutterrun.services.impl.StatsServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StatsServiceImplTest {
+
+    private StatsServiceImpl statsService;
+
+    @Mock
+    private ActivityStatsRepository activityStatsRepository;
+
+    @Mock
+    private IUserService userService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        statsService = new StatsServiceImpl(activityStatsRepository, userService);
+    }
+
+    @Test
+    void add_IncrementsTheBucketOfEachPeriod() {
+        // Mock
+        Activity activity = createActivity();
+        when(activityStatsRepository.existsByUserId(1L)).thenReturn(true);
+
+        // Call
+        statsService.add(activity);
+
+        // Verify
+        verify(activityStatsRepository).increment(1L, "WEEK", LocalDate.of(2026, 10, 12), "RUNNING", 10.0, 3600000L, 1L);
+        verify(activityStatsRepository).increment(1L, "MONTH", LocalDate.of(2026, 10, 1), "RUNNING", 10.0, 3600000L, 1L);
+        verify(activityStatsRepository).increment(1L, "YEAR", LocalDate.of(2026, 1, 1), "RUNNING", 10.0, 3600000L, 1L);
+        verify(activityStatsRepository, never()).deleteByUserId(anyLong());
+    }
+
+    @Test
+    void add_RollsUpTheOtherActivitiesOfUsersWithoutStats() {
+        // Mock
+        Activity activity = createActivity();
+        when(activityStatsRepository.existsByUserId(1L)).thenReturn(false);
+
+        // Call
+        statsService.add(activity);
+
+        // Verify
+        verify(activityStatsRepository).deleteByUserId(1L);
+        verify(activityStatsRepository).insertRollup(1L, "WEEK", "week", 5L);
+        verify(activityStatsRepository).insertRollup(1L, "MONTH", "month", 5L);
+        verify(activityStatsRepository).insertRollup(1L, "YEAR", "year", 5L);
+        verify(activityStatsRepository).increment(1L, "YEAR", LocalDate.of(2026, 1, 1), "RUNNING", 10.0, 3600000L, 1L);
+    }
+
+    @Test
+    void remove_DecrementsTheBucketsAndDropsEmptyOnes() {
+        // Mock
+        Activity activity = createActivity();
+        when(activityStatsRepository.existsByUserId(1L)).thenReturn(true);
+
+        // Call
+        statsService.remove(activity);
+
+        // Verify
+        verify(activityStatsRepository).increment(1L, "MONTH", LocalDate.of(2026, 10, 1), "RUNNING", -10.0, -3600000L, -1L);
+        verify(activityStatsRepository).deleteEmptyByUserId(1L);
+    }
+
+    @Test
+    void getStats_ReadsTheWeeksOfTheYear() {
+        // Mock
+        String token = "mock_token";
+        User user = new User();
+        user.setId(1L);
+        when(userService.getUserFromToken(token)).thenReturn(user);
+        when(activityStatsRepository.findByUserIdAndPeriodBetween(any(), any(), any(), any())).thenReturn(new ArrayList<>());
+
+        // Call
+        statsService.getStats(token, StatsPeriod.WEEK, 2026);
+
+        // Verify
+        verify(activityStatsRepository).findByUserIdAndPeriodBetween(1L, StatsPeriod.WEEK,
+                LocalDate.of(2025, 12, 29), LocalDate.of(2026, 12, 28));
+    }
+
+    @Test
+    void backfill_RebuildsUsersWithoutStats() {
+        // Mock
+        when(activityStatsRepository.findUserIdsWithoutStats(any(Pageable.class))).thenReturn(List.of(1L, 2L));
+
+        // Call
+        int processed = statsService.backfill(50);
+
+        // Verify
+        assertEquals(2, processed);
+        verify(activityStatsRepository).deleteByUserId(1L);
+        verify(activityStatsRepository).deleteByUserId(2L);
+        verify(activityStatsRepository, times(6)).insertRollup(anyLong(), anyString(), anyString(), eq(0L));
+    }
+
+    private Activity createActivity() {
+        User user = new User();
+        user.setId(1L);
+        Activity activity = new Activity();
+        activity.setId(5L);
+        activity.setUser(user);
+        activity.setType(ActivityType.RUNNING);
+        activity.setDistance(10.0);
+        LocalDateTime start = LocalDateTime.of(2026, 10, 14, 8, 0);
+        activity.setStartDatetime(Date.from(start.atZone(ZoneId.systemDefault()).toInstant()));
+        activity.setEndDatetime(Date.from(start.plusHours(1).atZone(ZoneId.systemDefault()).toInstant()));
+        return activity;
+    }
+}
@@ -0,0 +1,141 @@
+package canape.benjamin.runflutterrun.services;
+
+import canape.benjamin.runflutterrun.model.enums.ProfilePictureSize;
+import canape.benjamin.runflutterrun.services.impl.ThumbnailServiceImpl;
+import canape.benjamin.runflutterrun.storage.BlobStore;
+import canape.benjamin.runflutterrun.storage.FileSystemBlobStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ThumbnailServiceImplTest {
+
+    @TempDir
+    Path folder;
+
+    private FileSystemBlobStore blobStore;
+    private ThumbnailServiceImpl thumbnailService;
+
+    @BeforeEach
+    void setUp() {
+        blobStore = new FileSystemBlobStore(folder);
+        thumbnailService = new ThumbnailServiceImpl(blobStore, folder, 1, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        thumbnailService.shutdown();
+    }
+
+    @Test
+    void getThumbnail_GeneratesSquareJpegThumbnails() throws Exception {
+        // Mock
+        String key = blobStore.put(png(800, 600)).getKey();
+
+        // Call
+        Resource medium = thumbnailService.getThumbnail(key, ProfilePictureSize.MEDIUM).orElseThrow();
+        Resource small = thumbnailService.getThumbnail(key, ProfilePictureSize.SMALL).orElseThrow();
+
+        // Verify
+        assertEquals(256, read(medium).getWidth());
+        assertEquals(256, read(medium).getHeight());
+        assertEquals(64, read(small).getWidth());
+        assertTrue(small.getFile().getName().endsWith(".jpg"));
+    }
+
+    @Test
+    void getThumbnail_DoesNotEnlargeSmallPictures() throws Exception {
+        // Mock
+        String key = blobStore.put(png(100, 120)).getKey();
+
+        // Call
+        Resource medium = thumbnailService.getThumbnail(key, ProfilePictureSize.MEDIUM).orElseThrow();
+
+        // Verify
+        assertEquals(100, read(medium).getWidth());
+        assertEquals(100, read(medium).getHeight());
+    }
+
+    @Test
+    void getThumbnail_ReturnsNothingForContentsWhichAreNotPictures() throws Exception {
+        // Mock
+        String key = blobStore.put(new ByteArrayInputStream(new byte[]{1, 2, 3})).getKey();
+
+        // Call
+        Optional<Resource> thumbnail = thumbnailService.getThumbnail(key, ProfilePictureSize.SMALL);
+
+        // Verify
+        assertTrue(thumbnail.isEmpty());
+    }
+
+    @Test
+    void getThumbnail_DoesNotDecodeFailedPicturesAgain() throws Exception {
+        // Mock
+        String key = blobStore.put(new ByteArrayInputStream(new byte[]{1, 2, 3})).getKey();
+        thumbnailService.getThumbnail(key, ProfilePictureSize.SMALL);
+        BlobStore restartedBlobStore = mock(BlobStore.class);
+        ThumbnailServiceImpl restartedThumbnailService = new ThumbnailServiceImpl(restartedBlobStore, folder, 1, 1);
+
+        // Call
+        Optional<Resource> thumbnail = restartedThumbnailService.getThumbnail(key, ProfilePictureSize.MEDIUM);
+        restartedThumbnailService.shutdown();
+
+        // Verify
+        assertTrue(thumbnail.isEmpty());
+        verify(restartedBlobStore, never()).get(key);
+    }
+
+    @Test
+    void deleteThumbnails_ForgetsTheFailures() throws Exception {
+        // Mock
+        String key = blobStore.put(new ByteArrayInputStream(new byte[]{1, 2, 3})).getKey();
+        thumbnailService.getThumbnail(key, ProfilePictureSize.SMALL);
+        Path failure = folder.resolve("thumbnails").resolve("failed").resolve(key.substring(0, 2)).resolve(key);
+        assertTrue(Files.exists(failure));
+
+        // Call
+        thumbnailService.deleteThumbnails(key);
+
+        // Verify
+        assertFalse(Files.exists(failure));
+    }
+
+    @Test
+    void deleteThumbnails_DeletesEverySize() throws Exception {
+        // Mock
+        String key = blobStore.put(png(300, 300)).getKey();
+        Resource small = thumbnailService.getThumbnail(key, ProfilePictureSize.SMALL).orElseThrow();
+
+        // Call
+        thumbnailService.deleteThumbnails(key);
+
+        // Verify
+        assertFalse(small.exists());
+    }
+
+    private static InputStream png(int width, int height) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", out);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    private static BufferedImage read(Resource resource) throws Exception {
+        try (InputStream in = resource.getInputStream()) {
+            return ImageIO.read(in);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package canape.benjamin.runflutterrun.services;
+
+import canape.benjamin.runflutterrun.model.Activity;
+import canape.benjamin.runflutterrun.model.ActivityFeedItem;
+import canape.benjamin.runflutterrun.model.enums.ActivityType;
+import canape.benjamin.runflutterrun.repositories.ActivityRepository;
+import canape.benjamin.runflutterrun.repositories.TimelineEntryRepository;
+import canape.benjamin.runflutterrun.repositories.TimelineStateRepository;
+import canape.benjamin.runflutterrun.services.impl.CountCache;
+import canape.benjamin.runflutterrun.services.impl.TimelineServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TimelineServiceImplTest {
+
+    private static final long USER_ID = 1L;
+    private static final long FRIEND_ID = 2L;
+    private static final long LONELY_USER_ID = 3L;
+
+    @Mock
+    private TimelineEntryRepository timelineEntryRepository;
+
+    @Mock
+    private TimelineStateRepository timelineStateRepository;
+
+    @Mock
+    private ActivityRepository activityRepository;
+
+    private TimelineServiceImpl timelineService;
+
+    /**
+     * The activities of each author, by id.
+     */
+    private final Map<Long, List<Long>> activitiesByAuthor = new HashMap<>();
+
+    /**
+     * The timelines stored, their activity ids by owner.
+     */
+    private final Map<Long, SortedSet<Long>> timelines = new HashMap<>();
+
+    private final Set<Long> builtTimelines = new HashSet<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        timelineService = new TimelineServiceImpl(timelineEntryRepository, timelineStateRepository, activityRepository,
+                new CountCache(100, Duration.ofMinutes(1)));
+
+        // The friend's history, written before the timelines existed
+        activitiesByAuthor.put(FRIEND_ID, new ArrayList<>(List.of(10L, 11L)));
+
+        when(timelineEntryRepository.insertActivityForAuthorAndFriends(anyLong(), anyString())).thenAnswer(invocation -> {
+            Long activityId = invocation.getArgument(0);
+            timeline(FRIEND_ID).add(activityId);
+            timeline(USER_ID).add(activityId);
+            return 2;
+        });
+        when(timelineEntryRepository.insertActivitiesOfOwnerAndFriends(anyLong(), anyString())).thenAnswer(invocation -> {
+            Long ownerId = invocation.getArgument(0);
+            List<Long> authorIds = ownerId == USER_ID || ownerId == FRIEND_ID ? List.of(USER_ID, FRIEND_ID) : List.of(ownerId);
+            authorIds.forEach(authorId -> timeline(ownerId).addAll(activitiesByAuthor.getOrDefault(authorId, List.of())));
+            return timeline(ownerId).size();
+        });
+        when(timelineEntryRepository.deleteByOwnerId(anyLong())).thenAnswer(invocation -> {
+            SortedSet<Long> removed = timelines.remove(invocation.<Long>getArgument(0));
+            return removed == null ? 0 : removed.size();
+        });
+        when(timelineEntryRepository.findActivityIdsByOwnerId(anyLong(), any())).thenAnswer(invocation -> {
+            Pageable pageable = invocation.getArgument(1);
+            List<Long> ids = timeline(invocation.getArgument(0)).stream().sorted(Comparator.reverseOrder())
+                    .skip(pageable.getOffset()).limit(pageable.getPageSize()).collect(Collectors.toList());
+            return new PageImpl<>(ids, pageable, timeline(invocation.getArgument(0)).size());
+        });
+        when(timelineStateRepository.existsById(anyLong())).thenAnswer(invocation -> builtTimelines.contains(invocation.<Long>getArgument(0)));
+        when(timelineStateRepository.markBuilt(anyLong())).thenAnswer(invocation -> {
+            builtTimelines.add(invocation.getArgument(0));
+            return 1;
+        });
+        when(activityRepository.findFeedByIdIn(anyCollection(), anyLong())).thenAnswer(invocation -> invocation.<Collection<Long>>getArgument(0).stream()
+                .map(TimelineServiceImplTest::createFeedItem)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void getTimeline_BuildsATimelinePartlyFilledByPublish() {
+        // Mock
+        Activity activity = new Activity();
+        activity.setId(12L);
+        activitiesByAuthor.get(FRIEND_ID).add(12L);
+        timelineService.publish(activity);
+
+        // Call
+        Page<ActivityFeedItem> timeline = timelineService.getTimeline(USER_ID, PageRequest.of(0, 10));
+
+        // Verify
+        assertEquals(List.of(12L, 11L, 10L), timeline.map(ActivityFeedItem::getId).getContent());
+        assertTrue(builtTimelines.contains(USER_ID));
+    }
+
+    @Test
+    void getTimeline_DoesNotRebuildAnEmptyTimelineOnEveryRead() {
+        // Call
+        Page<ActivityFeedItem> first = timelineService.getTimeline(LONELY_USER_ID, PageRequest.of(0, 10));
+        Page<ActivityFeedItem> second = timelineService.getTimeline(LONELY_USER_ID, PageRequest.of(0, 10));
+
+        // Verify
+        assertTrue(first.isEmpty());
+        assertTrue(second.isEmpty());
+        verify(timelineEntryRepository, times(1)).deleteByOwnerId(LONELY_USER_ID);
+        verify(timelineEntryRepository, times(1)).insertActivitiesOfOwnerAndFriends(eq(LONELY_USER_ID), anyString());
+    }
+
+    @Test
+    void getTimeline_DoesNotRebuildOnLaterPages() {
+        // Call
+        timelineService.getTimeline(USER_ID, PageRequest.of(1, 10));
+
+        // Verify
+        verify(timelineStateRepository, never()).existsById(anyLong());
+        verify(timelineEntryRepository, never()).insertActivitiesOfOwnerAndFriends(anyLong(), anyString());
+    }
+
+    @Test
+    void scheduleRebuild_WaitsForTheCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Call
+            timelineService.scheduleRebuild(USER_ID);
+            Set<Long> beforeCommit = timelineService.drainScheduledRebuilds();
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+            // Verify
+            assertTrue(beforeCommit.isEmpty());
+            assertEquals(Set.of(USER_ID), timelineService.drainScheduledRebuilds());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private SortedSet<Long> timeline(Long ownerId) {
+        return timelines.computeIfAbsent(ownerId, id -> new TreeSet<>());
+    }
+
+    private static ActivityFeedItem createFeedItem(Long id) {
+        return new ActivityFeedItem(id, ActivityType.RUNNING, new Date(id), new Date(id), 1.0, 10.0, 0L, 0.0, new long[0],
+                FRIEND_ID, "friend", "firstname", "lastname", 0L, false);
+    }
+}
@@ -0,0 +1,138 @@
+package canape.benjamin.runflutterrun.services;
+
+import canape.benjamin.runflutterrun.model.RevokedToken;
+import canape.benjamin.runflutterrun.repositories.RevokedTokenRepository;
+import canape.benjamin.runflutterrun.services.impl.TokenRevocationServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TokenRevocationServiceImplTest {
+
+    private TokenRevocationServiceImpl tokenRevocationService;
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        tokenRevocationService = new TokenRevocationServiceImpl(revokedTokenRepository);
+    }
+
+    @Test
+    void revoke_RemembersAndSharesTheToken() {
+        // Mock
+        Instant expiresAt = Instant.now().plusSeconds(3600);
+
+        // Call
+        tokenRevocationService.revoke("jti", expiresAt);
+
+        // Verify
+        assertTrue(tokenRevocationService.isRevoked("jti", expiresAt));
+        assertFalse(tokenRevocationService.isRevoked("other_jti", expiresAt));
+        verify(revokedTokenRepository).revoke("jti", expiresAt);
+    }
+
+    @Test
+    void revoke_RemembersTheTokenOnceCommitted() {
+        // Mock
+        Instant expiresAt = Instant.now().plusSeconds(3600);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Call
+            tokenRevocationService.revoke("jti", expiresAt);
+
+            // Verify
+            assertFalse(tokenRevocationService.isRevoked("jti", expiresAt));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertTrue(tokenRevocationService.isRevoked("jti", expiresAt));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void revoke_IgnoresExpiredTokens() {
+        // Mock
+        Instant expiresAt = Instant.now().minusSeconds(1);
+
+        // Call
+        tokenRevocationService.revoke("jti", expiresAt);
+
+        // Verify
+        assertFalse(tokenRevocationService.isRevoked("jti", expiresAt));
+        verifyNoInteractions(revokedTokenRepository);
+    }
+
+    @Test
+    void sync_FetchesTokensRevokedByOtherNodes() {
+        // Mock
+        Instant expiresAt = Instant.now().plusSeconds(3600);
+        Instant revokedAt = Instant.now();
+        when(revokedTokenRepository.findRevokedSince(any())).thenReturn(List.of(createRevokedToken("jti", expiresAt, revokedAt)));
+
+        // Call
+        int fetched = tokenRevocationService.sync();
+
+        // Verify
+        assertEquals(1, fetched);
+        assertTrue(tokenRevocationService.isRevoked("jti", expiresAt));
+        verify(revokedTokenRepository).deleteExpired(any());
+    }
+
+    @Test
+    void sync_ReadsOnlyRecentRevocations() {
+        // Mock
+        Instant revokedAt = Instant.parse("2026-10-18T10:00:00Z");
+        when(revokedTokenRepository.findRevokedSince(any()))
+                .thenReturn(List.of(createRevokedToken("jti", Instant.now().plusSeconds(3600), revokedAt)))
+                .thenReturn(new ArrayList<>());
+
+        // Call
+        tokenRevocationService.sync();
+        tokenRevocationService.sync();
+
+        // Verify
+        ArgumentCaptor<Instant> captor = ArgumentCaptor.forClass(Instant.class);
+        verify(revokedTokenRepository, times(2)).findRevokedSince(captor.capture());
+        assertTrue(captor.getAllValues().get(0).isBefore(Instant.EPOCH.plusSeconds(1)));
+        assertTrue(captor.getAllValues().get(1).isBefore(revokedAt));
+        assertTrue(captor.getAllValues().get(1).isAfter(revokedAt.minusSeconds(60)));
+    }
+
+    @Test
+    void sync_ForgetsExpiredTokens() {
+        // Mock
+        Instant expiresAt = Instant.now().minusSeconds(120);
+        when(revokedTokenRepository.findRevokedSince(any()))
+                .thenReturn(List.of(createRevokedToken("jti", expiresAt, Instant.now().minusSeconds(600))))
+                .thenReturn(new ArrayList<>());
+
+        // Call
+        tokenRevocationService.sync();
+        tokenRevocationService.sync();
+
+        // Verify
+        assertFalse(tokenRevocationService.isRevoked("jti", expiresAt));
+    }
+
+    private RevokedToken createRevokedToken(String jti, Instant expiresAt, Instant revokedAt) {
+        RevokedToken revokedToken = new RevokedToken();
+        revokedToken.setJti(jti);
+        revokedToken.setExpiresAt(expiresAt);
+        revokedToken.setRevokedAt(revokedAt);
+        return revokedToken;
+    }
+}
@@ -0,0 +1,208 @@
+package canape.benjamin.runflutterrun.services;
+
+import canape.benjamin.runflutterrun.model.Activity;
+import canape.benjamin.runflutterrun.model.ActivityTrack;
+import canape.benjamin.runflutterrun.model.Location;
+import canape.benjamin.runflutterrun.repositories.ActivityTrackRepository;
+import canape.benjamin.runflutterrun.repositories.LocationRepository;
+import canape.benjamin.runflutterrun.services.impl.TrackServiceImpl;
+import canape.benjamin.runflutterrun.tracks.Track;
+import canape.benjamin.runflutterrun.tracks.TrackCodec;
+import canape.benjamin.runflutterrun.tracks.TrackMetrics;
+import canape.benjamin.runflutterrun.tracks.TrackMetricsCalculator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TrackServiceImplTest {
+
+    private TrackServiceImpl trackService;
+
+    @Mock
+    private ActivityTrackRepository activityTrackRepository;
+
+    @Mock
+    private LocationRepository locationRepository;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        trackService = new TrackServiceImpl(activityTrackRepository, locationRepository);
+    }
+
+    @Test
+    void save_EncodesLocationsIntoOneTrack() {
+        // Mock
+        Activity activity = createActivity(1L);
+        List<Location> locations = List.of(
+                createLocation(1700000000000L, 48.8566123, 2.3522219),
+                createLocation(1700000001000L, 48.8566456, 2.3521987),
+                createLocation(1700000002000L, null, 2.3521987),
+                createLocation(1700000003000L, 48.8565001, 2.3520012));
+
+        // Call
+        trackService.save(activity, Track.fromLocations(locations));
+
+        // Verify
+        ArgumentCaptor<ActivityTrack> captor = ArgumentCaptor.forClass(ActivityTrack.class);
+        verify(activityTrackRepository).save(captor.capture());
+        ActivityTrack activityTrack = captor.getValue();
+        assertEquals(1L, activityTrack.getActivityId());
+        assertEquals(3, activityTrack.getPoints());
+        assertTrue(activityTrack.getData().length < 3 * 24);
+
+        Track track = TrackCodec.decode(activityTrack.getData());
+        assertArrayEquals(new long[]{1700000000000L, 1700000001000L, 1700000003000L}, track.getTimes());
+        assertArrayEquals(new double[]{48.8566123, 48.8566456, 48.8565001}, track.getLatitudes(), 1e-9);
+        assertArrayEquals(new double[]{2.3522219, 2.3521987, 2.3520012}, track.getLongitudes(), 1e-9);
+    }
+
+    @Test
+    void getLocations_DecodesTheTrack() {
+        // Mock
+        Activity activity = createActivity(1L);
+        Track track = new Track(new long[]{1000L, 2000L}, new double[]{-33.8688197, -33.8688}, new double[]{151.2092955, 151.2093});
+        ActivityTrack activityTrack = new ActivityTrack();
+        activityTrack.setData(TrackCodec.encode(track));
+        when(activityTrackRepository.findById(1L)).thenReturn(Optional.of(activityTrack));
+
+        // Call
+        List<Location> locations = trackService.getLocations(activity);
+
+        // Verify
+        assertEquals(2, locations.size());
+        assertEquals(new Date(2000L), locations.get(1).getDatetime());
+        assertEquals(-33.8688197, locations.get(0).getLatitude(), 1e-9);
+        assertEquals(151.2093, locations.get(1).getLongitude(), 1e-9);
+        assertEquals(activity, locations.get(0).getActivity());
+    }
+
+    @Test
+    void getLocations_FallsBackToLocationRows() {
+        // Mock
+        Activity activity = createActivity(1L);
+        List<Location> rows = new ArrayList<>(List.of(createLocation(1000L, 1.0, 2.0)));
+        activity.setLocations(rows);
+        when(activityTrackRepository.findById(1L)).thenReturn(Optional.empty());
+
+        // Call
+        List<Location> locations = trackService.getLocations(activity);
+
+        // Verify
+        assertEquals(rows, locations);
+    }
+
+    @Test
+    void migrateLocations_MovesRowsIntoTracks() {
+        // Mock
+        Location location = createLocation(1000L, 1.0, 2.0);
+        location.setActivity(createActivity(3L));
+        when(activityTrackRepository.findActivityIdsWithLocationRows(any(Pageable.class))).thenReturn(List.of(3L, 4L));
+        when(locationRepository.findByActivityIds(List.of(3L, 4L))).thenReturn(List.of(location));
+
+        // Call
+        int migrated = trackService.migrateLocations(10);
+
+        // Verify
+        ArgumentCaptor<List<ActivityTrack>> captor = ArgumentCaptor.forClass(List.class);
+        verify(activityTrackRepository).saveAll(captor.capture());
+        assertEquals(2, migrated);
+        assertEquals(1, captor.getValue().get(0).getPoints());
+        assertEquals(0, captor.getValue().get(1).getPoints());
+        assertTrue(captor.getValue().get(0).isNew());
+        verify(locationRepository).deleteByActivityIds(List.of(3L, 4L));
+    }
+
+    @Test
+    void migrateLocations_DoesNothingWhenEverythingIsMigrated() {
+        // Mock
+        when(activityTrackRepository.findActivityIdsWithLocationRows(any(Pageable.class))).thenReturn(new ArrayList<>());
+
+        // Call
+        int migrated = trackService.migrateLocations(10);
+
+        // Verify
+        assertEquals(0, migrated);
+        verifyNoInteractions(locationRepository);
+    }
+
+    @Test
+    void trackCodec_RejectsTruncatedData() {
+        // Mock
+        Track track = new Track(new long[]{1000L, 2000L}, new double[]{1.0, 1.1}, new double[]{2.0, 2.1});
+        byte[] data = TrackCodec.encode(track);
+        byte[] truncated = Arrays.copyOf(data, data.length - 1);
+
+        // Verify
+        assertThrows(IllegalArgumentException.class, () -> TrackCodec.decode(truncated));
+        assertThrows(IllegalArgumentException.class, () -> TrackCodec.decode(new byte[]{42}));
+    }
+
+    @Test
+    void trackMetrics_DetectPausesAndSplits() {
+        // Mock
+        long[] times = new long[2001];
+        double[] latitudes = new double[2001];
+        double[] longitudes = new double[2001];
+        for (int i = 0; i <= 2000; i++) {
+            boolean paused = i > 1000 && i <= 1100;
+            int moved = paused ? 1000 : (i > 1100 ? i - 100 : i);
+            times[i] = i * 1000L;
+            latitudes[i] = moved * 0.00002;
+            longitudes[i] = 0;
+        }
+
+        // Call
+        TrackMetrics metrics = TrackMetricsCalculator.compute(new Track(times, latitudes, longitudes));
+
+        // Verify
+        assertEquals(2001, metrics.getPoints());
+        assertEquals(1900 * 0.0022239, metrics.getDistance(), 0.001);
+        assertEquals(2000000L, metrics.getElapsedTime());
+        assertEquals(1900000L, metrics.getMovingTime());
+        assertEquals(8.006, metrics.getAverageSpeed(), 0.001);
+        assertEquals(8.006, metrics.getMaxSpeed(), 0.001);
+        assertEquals(4, metrics.getSplits().length);
+        for (long split : metrics.getSplits()) {
+            assertEquals(449660L, split, 10);
+        }
+    }
+
+    @Test
+    void trackMetrics_OfAnEmptyTrackAreZero() {
+        // Call
+        TrackMetrics metrics = TrackMetricsCalculator.compute(new Track(new long[0], new double[0], new double[0]));
+
+        // Verify
+        assertFalse(metrics.isMeasurable());
+        assertEquals(0, metrics.getDistance());
+        assertEquals(0, metrics.getMovingTime());
+        assertEquals(0, metrics.getSplits().length);
+    }
+
+    private Activity createActivity(Long id) {
+        Activity activity = new Activity();
+        activity.setId(id);
+        return activity;
+    }
+
+    private Location createLocation(long time, Double latitude, Double longitude) {
+        Location location = new Location();
+        location.setDatetime(new Date(time));
+        location.setLatitude(latitude);
+        location.setLongitude(longitude);
+        return location;
+    }
+}
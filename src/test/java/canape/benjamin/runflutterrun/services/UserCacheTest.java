@@ -0,0 +1,92 @@
+package canape.benjamin.runflutterrun.services;
+
+import canape.benjamin.runflutterrun.model.UserSnapshot;
+import canape.benjamin.runflutterrun.services.impl.UserCache;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserCacheTest {
+
+    @Test
+    void getByUsername_IsReachableById() {
+        // Mock
+        UserCache userCache = new UserCache(10, Duration.ofMinutes(5));
+        AtomicInteger loads = new AtomicInteger();
+
+        // Call
+        userCache.getByUsername("user1", username -> {
+            loads.incrementAndGet();
+            return Optional.of(snapshot(1L, username));
+        });
+        Optional<UserSnapshot> byId = userCache.getById(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+
+        // Verify
+        assertEquals("user1", byId.orElseThrow().getUsername());
+        assertEquals(1, loads.get());
+        assertEquals(1, userCache.getHitCount());
+        assertEquals(1, userCache.getMissCount());
+        assertEquals(0.5, userCache.getHitRatio());
+    }
+
+    @Test
+    void getById_EvictsTheOldestUsersWhenFull() {
+        // Mock
+        UserCache userCache = new UserCache(10, Duration.ofMinutes(5));
+
+        // Call
+        for (long id = 1; id <= 11; id++) {
+            userCache.getById(id, id1 -> Optional.of(snapshot(id1, "user" + id1)));
+        }
+
+        // Verify
+        assertEquals(9, userCache.getSize());
+        assertEquals(2, userCache.getEvictionCount());
+        assertTrue(userCache.getById(1L, id -> Optional.empty()).isEmpty());
+        assertTrue(userCache.getById(11L, id -> Optional.empty()).isPresent());
+    }
+
+    @Test
+    void getById_ReloadsExpiredAndInvalidatedUsers() {
+        // Mock
+        UserCache expiringCache = new UserCache(10, Duration.ZERO);
+        UserCache userCache = new UserCache(10, Duration.ofMinutes(5));
+        userCache.getById(1L, id -> Optional.of(snapshot(id, "user1")));
+        expiringCache.getById(1L, id -> Optional.of(snapshot(id, "user1")));
+
+        // Call
+        userCache.invalidate(1L, "user1");
+
+        // Verify
+        assertTrue(userCache.getById(1L, id -> Optional.empty()).isEmpty());
+        assertTrue(userCache.getByUsername("user1", username -> Optional.empty()).isEmpty());
+        assertTrue(expiringCache.getById(1L, id -> Optional.empty()).isEmpty());
+        assertEquals(1, expiringCache.getExpirationCount());
+    }
+
+    @Test
+    void getById_DoesNotKeepUsersLoadedDuringAnInvalidation() {
+        // Mock
+        UserCache userCache = new UserCache(10, Duration.ofMinutes(5));
+
+        // Call
+        userCache.getById(1L, id -> {
+            userCache.invalidate(id, "user1");
+            return Optional.of(snapshot(id, "user1"));
+        });
+
+        // Verify
+        assertEquals(0, userCache.getSize());
+    }
+
+    private static UserSnapshot snapshot(Long id, String username) {
+        return new UserSnapshot(id, username, "first", "last", null, null, null, null);
+    }
+}
@@ -1,6 +1,6 @@
 package canape.benjamin.runflutterrun.services;
 
-import canape.benjamin.runflutterrun.model.User;
+import canape.benjamin.runflutterrun.model.UserCredentials;
 import canape.benjamin.runflutterrun.services.impl.UserDetailsServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -31,10 +31,10 @@ class UserDetailsServiceImplTest {
     void loadUserByUsername_ReturnsUserDetails() {
         // Mock
         String username = "test_user";
-        User user = new User();
-        user.setUsername(username);
-        user.setPassword("encoded_password");
-        when(userService.findByUsername(anyString())).thenReturn(Optional.of(user));
+        UserCredentials user = mock(UserCredentials.class);
+        when(user.getUsername()).thenReturn(username);
+        when(user.getPassword()).thenReturn("encoded_password");
+        when(userService.findCredentialsByUsername(anyString())).thenReturn(Optional.of(user));
 
         // Call
         UserDetails userDetails = userDetailsService.loadUserByUsername(username);
@@ -44,17 +44,18 @@ class UserDetailsServiceImplTest {
         assertEquals(username, userDetails.getUsername());
         assertEquals("encoded_password", userDetails.getPassword());
         assertTrue(userDetails.getAuthorities().isEmpty());
-        verify(userService).findByUsername(username);
+        verify(userService).findCredentialsByUsername(username);
+        verify(userService, never()).findSnapshotByUsername(anyString());
     }
 
     @Test
     void loadUserByUsername_ThrowsUsernameNotFoundExceptionWhenUserNotFound() {
         // Mock
         String username = "non_existing_user";
-        when(userService.findByUsername(anyString())).thenReturn(Optional.empty());
+        when(userService.findCredentialsByUsername(anyString())).thenReturn(Optional.empty());
 
         // Call and verify
         assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername(username));
-        verify(userService).findByUsername(username);
+        verify(userService).findCredentialsByUsername(username);
     }
 }
@@ -1,19 +1,47 @@
 package canape.benjamin.runflutterrun.services;
 
 import canape.benjamin.runflutterrun.dto.EditPasswordDto;
+import canape.benjamin.runflutterrun.dto.EditProfileDto;
+import canape.benjamin.runflutterrun.dto.ProfilePictureDto;
+import canape.benjamin.runflutterrun.dto.UserSearchCursor;
+import canape.benjamin.runflutterrun.model.LegacyProfilePicture;
 import canape.benjamin.runflutterrun.model.User;
+import canape.benjamin.runflutterrun.model.UserSearchResult;
+import canape.benjamin.runflutterrun.model.UserCredentials;
+import canape.benjamin.runflutterrun.model.UserSnapshot;
+import canape.benjamin.runflutterrun.model.enums.ProfilePictureSize;
+import canape.benjamin.runflutterrun.repositories.LegacyProfilePictureRepository;
+import canape.benjamin.runflutterrun.repositories.UnusedProfilePictureRepository;
 import canape.benjamin.runflutterrun.repositories.UserRepository;
+import canape.benjamin.runflutterrun.security.AuthenticatedUser;
 import canape.benjamin.runflutterrun.security.jwt.JwtUtils;
+import canape.benjamin.runflutterrun.services.impl.UserCache;
 import canape.benjamin.runflutterrun.services.impl.UserServiceImpl;
+import canape.benjamin.runflutterrun.storage.Blob;
+import canape.benjamin.runflutterrun.storage.BlobStore;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.core.env.Environment;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.test.context.TestPropertySource;
 
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -33,11 +61,67 @@ class UserServiceImplTest {
     private BCryptPasswordEncoder bCryptPasswordEncoder;
     @Mock
     private Environment env;
+    @Mock
+    private BlobStore blobStore;
+    @Mock
+    private LegacyProfilePictureRepository legacyProfilePictureRepository;
+    @Mock
+    private IThumbnailService thumbnailService;
+    @Mock
+    private IFriendshipGraphService friendshipGraphService;
+    @Mock
+    private UnusedProfilePictureRepository unusedProfilePictureRepository;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        userService = new UserServiceImpl(jwtUtils, bCryptPasswordEncoder, userRepository, env);
+        userService = new UserServiceImpl(jwtUtils, bCryptPasswordEncoder, userRepository, env,
+                new UserCache(100, Duration.ofMinutes(5)), blobStore, legacyProfilePictureRepository, thumbnailService, friendshipGraphService,
+                unusedProfilePictureRepository);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void getUserFromToken_ReusesTheUserResolvedForTheRequest() {
+        // Mock
+        User user = new User();
+        user.setId(1L);
+        AuthenticatedUser principal = new AuthenticatedUser(1L, "test_user", "test_token");
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, Collections.emptyList()));
+        when(userRepository.findById(Long.valueOf(1L))).thenReturn(Optional.of(user));
+
+        // Call
+        for (int i = 0; i < 3; i++) {
+            assertSame(user, userService.getUserFromToken("Bearer test_token"));
+        }
+
+        // Verify
+        verify(jwtUtils, never()).getUserNameFromJwtToken(anyString());
+        verify(userRepository, never()).findByUsername(anyString());
+        verify(userRepository, never()).getReferenceById(anyLong());
+    }
+
+    @Test
+    void getUserFromToken_LooksUpOtherTokens() {
+        // Mock
+        User user = new User();
+        AuthenticatedUser principal = new AuthenticatedUser(1L, "test_user", "test_token");
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, Collections.emptyList()));
+        when(jwtUtils.getUserNameFromJwtToken("other_token")).thenReturn("other_user");
+        when(userRepository.findByUsername("other_user")).thenReturn(Optional.of(user));
+
+        // Call
+        User result = userService.getUserFromToken("other_token");
+
+        // Verify
+        assertSame(user, result);
+        verify(userRepository, never()).findById(any(Long.class));
     }
 
     @Test
@@ -151,6 +235,7 @@ class UserServiceImplTest {
         String token = "test_token";
         String username = "test_user";
         User user = new User();
+        user.setId(1L);
         user.setUsername(username);
         when(jwtUtils.getUserNameFromJwtToken(anyString())).thenReturn(username);
         when(userRepository.findByUsername(anyString())).thenReturn(Optional.of(user));
@@ -162,5 +247,232 @@ class UserServiceImplTest {
         verify(jwtUtils).getUserNameFromJwtToken(token);
         verify(userRepository).findByUsername(username);
         verify(userRepository).deleteById(user.getId());
+        verify(friendshipGraphService).userDeleted(1L);
+    }
+
+    @Test
+    void findIdByUsername_LoadsTheUserOnce() {
+        // Mock
+        UserSnapshot snapshot = new UserSnapshot(1L, "test_user", "first", "last", null, null, null, null);
+        when(userRepository.findSnapshotByUsername("test_user")).thenReturn(Optional.of(snapshot));
+
+        // Call
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Optional.of(1L), userService.findIdByUsername("test_user"));
+        }
+
+        // Verify
+        assertSame(snapshot, userService.findSnapshotById(1L).orElseThrow());
+        verify(userRepository).findSnapshotByUsername("test_user");
+        verify(userRepository, never()).findSnapshotById(anyLong());
+    }
+
+    @Test
+    void findCredentialsByUsername_ReadsTheDatabaseEveryTime() {
+        // Mock
+        UserCredentials credentials = mock(UserCredentials.class);
+        when(userRepository.findCredentialsByUsername("test_user")).thenReturn(Optional.of(credentials));
+
+        // Call
+        for (int i = 0; i < 3; i++) {
+            assertSame(credentials, userService.findCredentialsByUsername("test_user").orElseThrow());
+        }
+
+        // Verify
+        verify(userRepository, times(3)).findCredentialsByUsername("test_user");
+        verify(userRepository, never()).findSnapshotByUsername(anyString());
+    }
+
+    @Test
+    void editProfile_InvalidatesTheCachedUser() {
+        // Mock
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("test_user");
+        when(jwtUtils.getUserNameFromJwtToken(anyString())).thenReturn("test_user");
+        when(userRepository.findByUsername("test_user")).thenReturn(Optional.of(user));
+        when(userRepository.save(any(User.class))).thenReturn(user);
+        when(userRepository.findSnapshotByUsername("test_user")).thenReturn(
+                Optional.of(new UserSnapshot(1L, "test_user", "old", "name", null, null, null, null)),
+                Optional.of(new UserSnapshot(1L, "test_user", "new", "name", null, null, null, null)));
+        userService.findSnapshotByUsername("test_user");
+
+        EditProfileDto dto = new EditProfileDto();
+        dto.setFirstname("new");
+        dto.setLastname("name");
+
+        // Call
+        userService.editProfile("test_token", dto);
+
+        // Verify
+        assertEquals("new", userService.findSnapshotByUsername("test_user").orElseThrow().getFirstname());
+        verify(userRepository, times(2)).findSnapshotByUsername("test_user");
+    }
+
+    @Test
+    void setProfilePicture_StoresAReferenceAndMarksThePreviousPictureUnused() throws Exception {
+        // Mock
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("test_user");
+        user.setProfilePictureKey("previous_key");
+        when(jwtUtils.getUserNameFromJwtToken(anyString())).thenReturn("test_user");
+        when(userRepository.findByUsername("test_user")).thenReturn(Optional.of(user));
+
+        // Call
+        userService.setProfilePicture("test_token", new Blob("new_key", 3), "image/png");
+
+        // Verify
+        assertEquals("new_key", user.getProfilePictureKey());
+        assertEquals(3L, user.getProfilePictureSize());
+        assertEquals("image/png", user.getProfilePictureType());
+        verify(userRepository).save(user);
+        verify(unusedProfilePictureRepository).markUnused("previous_key");
+        verify(blobStore, never()).delete(anyString());
+    }
+
+    @Test
+    void deleteUnusedProfilePictures_OnlyDeletesPicturesNobodyHasOrStoredLately() throws Exception {
+        // Mock
+        when(unusedProfilePictureRepository.findKeysUnusedFor(3600, 10)).thenReturn(List.of("used", "stored", "old"));
+        when(userRepository.existsByProfilePictureKey("used")).thenReturn(true);
+        when(blobStore.deleteIfStoredBefore(eq("stored"), any(Instant.class))).thenReturn(false);
+        when(blobStore.get("stored")).thenReturn(Optional.of(new ByteArrayResource(new byte[]{1})));
+        when(blobStore.deleteIfStoredBefore(eq("old"), any(Instant.class))).thenReturn(true);
+
+        // Call
+        int deleted = userService.deleteUnusedProfilePictures(Duration.ofHours(1), 10);
+
+        // Verify
+        assertEquals(1, deleted);
+        verify(blobStore, never()).deleteIfStoredBefore(eq("used"), any(Instant.class));
+        verify(unusedProfilePictureRepository).deleteById("used");
+        verify(unusedProfilePictureRepository, never()).deleteById("stored");
+        verify(thumbnailService, never()).deleteThumbnails("stored");
+        verify(thumbnailService).deleteThumbnails("old");
+        verify(unusedProfilePictureRepository).deleteById("old");
+    }
+
+    @Test
+    void migrateProfilePictures_MovesTheBytesToTheBlobStore() throws Exception {
+        // Mock
+        LegacyProfilePicture picture = new LegacyProfilePicture();
+        picture.setId(1L);
+        picture.setData(new byte[]{1, 2, 3});
+        when(legacyProfilePictureRepository.findByDataIsNotNull(any(Pageable.class))).thenReturn(List.of(picture));
+        when(blobStore.put(any(InputStream.class))).thenReturn(new Blob("key", 3));
+        when(userRepository.setMissingProfilePicture(eq(1L), eq("key"), eq(3L), any(Instant.class))).thenReturn(1);
+
+        // Call
+        int migrated = userService.migrateProfilePictures(10);
+
+        // Verify
+        assertEquals(1, migrated);
+        assertNull(picture.getData());
+        verify(unusedProfilePictureRepository, never()).markUnused("key");
+    }
+
+    @Test
+    void migrateProfilePictures_LeavesTheCopyUnusedWhenTheUserHasANewPicture() throws Exception {
+        // Mock
+        LegacyProfilePicture picture = new LegacyProfilePicture();
+        picture.setId(1L);
+        picture.setData(new byte[]{1, 2, 3});
+        when(legacyProfilePictureRepository.findByDataIsNotNull(any(Pageable.class))).thenReturn(List.of(picture));
+        when(blobStore.put(any(InputStream.class))).thenReturn(new Blob("key", 3));
+        when(userRepository.setMissingProfilePicture(eq(1L), eq("key"), eq(3L), any(Instant.class))).thenReturn(0);
+
+        // Call
+        userService.migrateProfilePictures(10);
+
+        // Verify
+        assertNull(picture.getData());
+        verify(unusedProfilePictureRepository).markUnused("key");
+    }
+
+    @Test
+    void getProfilePicture_ReturnsTheStoredContentOfTheCachedUser() {
+        // Mock
+        Instant updatedAt = Instant.parse("2024-01-01T00:00:00Z");
+        UserSnapshot snapshot = new UserSnapshot(1L, "test_user", "first", "last", "key", "image/png", 3L, updatedAt);
+        Resource content = new ByteArrayResource(new byte[]{1, 2, 3});
+        when(userRepository.findSnapshotById(1L)).thenReturn(Optional.of(snapshot));
+        when(blobStore.get("key")).thenReturn(Optional.of(content));
+
+        // Call
+        userService.getProfilePicture("1", ProfilePictureSize.ORIGINAL);
+        ProfilePictureDto picture = userService.getProfilePicture("1", ProfilePictureSize.ORIGINAL);
+
+        // Verify
+        assertSame(content, picture.getContent());
+        assertEquals("image/png", picture.getContentType());
+        assertEquals("key", picture.getEntityTag());
+        assertEquals(updatedAt, picture.getUpdatedAt());
+        verify(userRepository).findSnapshotById(1L);
+        verify(legacyProfilePictureRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void getProfilePicture_FallsBackToTheOriginalWithoutThumbnail() {
+        // Mock
+        UserSnapshot snapshot = new UserSnapshot(1L, "test_user", "first", "last", "key", "image/png", 3L, null);
+        Resource content = new ByteArrayResource(new byte[]{1, 2, 3});
+        Resource thumbnail = new ByteArrayResource(new byte[]{4});
+        when(userRepository.findSnapshotById(1L)).thenReturn(Optional.of(snapshot));
+        when(blobStore.get("key")).thenReturn(Optional.of(content));
+        when(thumbnailService.getThumbnail("key", ProfilePictureSize.SMALL)).thenReturn(Optional.of(thumbnail));
+        when(thumbnailService.getThumbnail("key", ProfilePictureSize.MEDIUM)).thenReturn(Optional.empty());
+
+        // Call
+        ProfilePictureDto small = userService.getProfilePicture("1", ProfilePictureSize.SMALL);
+        ProfilePictureDto medium = userService.getProfilePicture("1", ProfilePictureSize.MEDIUM);
+
+        // Verify
+        assertSame(thumbnail, small.getContent());
+        assertEquals("image/jpeg", small.getContentType());
+        assertEquals("key-64", small.getEntityTag());
+        assertSame(content, medium.getContent());
+        assertEquals("image/png", medium.getContentType());
+        assertEquals("key", medium.getEntityTag());
+    }
+
+    @Test
+    void search_MatchesSubstringsAndEscapesWildcards() {
+        // Mock
+        AuthenticatedUser principal = new AuthenticatedUser(1L, "test_user", "test_token");
+        when(userRepository.search(anyString(), anyString(), anyLong(), anyInt(), anyString(), anyLong(), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(Collections.emptyList()));
+
+        // Call
+        userService.search(principal, " Jo_h% ", UserSearchCursor.first(), 20);
+
+        // Verify
+        verify(userRepository).search("jo\\_h\\%%", "%jo\\_h\\%%", 1L, -1, "", 0L, PageRequest.ofSize(20));
+    }
+
+    @Test
+    void search_OnlyMatchesPrefixesOfShortTexts() {
+        // Mock
+        AuthenticatedUser principal = new AuthenticatedUser(1L, "test_user", "test_token");
+        UserSearchCursor cursor = UserSearchCursor.decode(new UserSearchCursor(1, 5L, "jo").encode());
+        when(userRepository.search(anyString(), anyString(), anyLong(), anyInt(), anyString(), anyLong(), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(Collections.emptyList()));
+
+        // Call
+        userService.search(principal, "Jo", cursor, 10);
+
+        // Verify
+        verify(userRepository).search("jo%", "jo%", 1L, 1, "jo", 5L, PageRequest.ofSize(10));
+    }
+
+    @Test
+    void search_ReturnsNothingForABlankText() {
+        // Call
+        Slice<UserSearchResult> results = userService.search(new AuthenticatedUser(1L, "test_user", "test_token"),
+                "  ", UserSearchCursor.first(), 20);
+
+        // Verify
+        assertFalse(results.hasContent());
+        verifyNoInteractions(userRepository);
     }
 }
@@ -0,0 +1,95 @@
+package canape.benjamin.runflutterrun.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileSystemBlobStoreTest {
+
+    @TempDir
+    Path folder;
+
+    private FileSystemBlobStore blobStore;
+
+    @BeforeEach
+    void setUp() {
+        blobStore = new FileSystemBlobStore(folder);
+    }
+
+    @Test
+    void put_StoresTheContentUnderItsHash() throws Exception {
+        // Call
+        Blob blob = blobStore.put(new ByteArrayInputStream("abc".getBytes(StandardCharsets.UTF_8)));
+
+        // Verify
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", blob.getKey());
+        assertEquals(3, blob.getSize());
+        Resource resource = blobStore.get(blob.getKey()).orElseThrow();
+        assertEquals("abc", resource.getContentAsString(StandardCharsets.UTF_8));
+        try (Stream<Path> temporaryFiles = Files.list(folder.resolve("tmp"))) {
+            assertEquals(0, temporaryFiles.count());
+        }
+    }
+
+    @Test
+    void put_KeepsASingleCopyOfTheSameContent() throws Exception {
+        // Call
+        Blob first = blobStore.put(new ByteArrayInputStream(new byte[]{1, 2, 3}));
+        Blob second = blobStore.put(new ByteArrayInputStream(new byte[]{1, 2, 3}));
+
+        // Verify
+        assertEquals(first.getKey(), second.getKey());
+        assertTrue(blobStore.delete(first.getKey()));
+        assertTrue(blobStore.get(second.getKey()).isEmpty());
+        assertFalse(blobStore.delete(second.getKey()));
+    }
+
+    @Test
+    void get_RejectsKeysWhichAreNotHashes() {
+        // Call and verify
+        assertTrue(blobStore.get("../../etc/passwd").isEmpty());
+        assertTrue(blobStore.get(null).isEmpty());
+    }
+
+    @Test
+    void put_RefusesContentsLargerThanTheMaximumSize() throws Exception {
+        // Call and verify
+        assertThrows(BlobTooLargeException.class, () -> blobStore.put(new ByteArrayInputStream(new byte[100_000]), 99_999));
+        assertEquals(100_000, blobStore.put(new ByteArrayInputStream(new byte[100_000]), 100_000).getSize());
+        try (Stream<Path> temporaryFiles = Files.list(folder.resolve("tmp"))) {
+            assertEquals(0, temporaryFiles.count());
+        }
+    }
+
+    @Test
+    void deleteIfStoredBefore_KeepsContentsStoredAgainSince() throws Exception {
+        // Mock
+        Blob blob = blobStore.put(new ByteArrayInputStream(new byte[]{1, 2, 3}));
+        Path file = folder.resolve("blobs").resolve(blob.getKey().substring(0, 2))
+                .resolve(blob.getKey().substring(2, 4)).resolve(blob.getKey());
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+        Instant threshold = Instant.now().minus(Duration.ofHours(1));
+
+        // Call
+        blobStore.put(new ByteArrayInputStream(new byte[]{1, 2, 3}));
+
+        // Verify
+        assertFalse(blobStore.deleteIfStoredBefore(blob.getKey(), threshold));
+        assertTrue(blobStore.get(blob.getKey()).isPresent());
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+        assertTrue(blobStore.deleteIfStoredBefore(blob.getKey(), threshold));
+        assertFalse(blobStore.deleteIfStoredBefore(blob.getKey(), threshold));
+    }
+}